@@ -14,10 +14,13 @@
  */
 package org.jsmpp.examples;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Date;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.log4j.BasicConfigurator;
@@ -42,6 +45,9 @@ import org.jsmpp.bean.SubmitMultiResult;
 import org.jsmpp.bean.SubmitSm;
 import org.jsmpp.bean.TypeOfNumber;
 import org.jsmpp.bean.UnsuccessDelivery;
+import org.jsmpp.examples.routing.RouteTarget;
+import org.jsmpp.examples.routing.Router;
+import org.jsmpp.examples.routing.SinkTarget;
 import org.jsmpp.extra.ProcessRequestException;
 import org.jsmpp.extra.SessionState;
 import org.jsmpp.session.BindRequest;
@@ -55,11 +61,16 @@ import org.jsmpp.session.Session;
 import org.jsmpp.util.DeliveryReceiptState;
 import org.jsmpp.util.MessageIDGenerator;
 import org.jsmpp.util.MessageId;
-import org.jsmpp.util.RandomMessageIDGenerator;
+import org.jsmpp.util.TimeOrderedMessageIDGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * SMSC simulator accepting all short messages. When the route file is
+ * specified by <code>jsmpp.simulator.routeFile</code>, the short messages are
+ * routed by the destination_addr as described in {@link Router}, the route
+ * file is reloaded when modified.
+ * 
  * @author uudashr
  *
  */
@@ -68,16 +79,30 @@ public class SMPPServerSimulator extends ServerResponseDeliveryAdapter implement
     private static final Logger logger = LoggerFactory.getLogger(SMPPServerSimulator.class);
     private final ExecutorService execService = Executors.newFixedThreadPool(5);
     private final ExecutorService execServiceDelReciept = Executors.newFixedThreadPool(100);
-    private final MessageIDGenerator messageIDGenerator = new RandomMessageIDGenerator();
+    private final MessageIDGenerator messageIDGenerator = new TimeOrderedMessageIDGenerator();
     private int port;
+    private File routeFile;
+    private volatile Router router;
     
     public SMPPServerSimulator(int port) {
         this.port = port;
     }
     
+    /**
+     * Route the short messages by the route file.
+     * 
+     * @param routeFile is the route file.
+     */
+    public void setRouteFile(File routeFile) {
+        this.routeFile = routeFile;
+    }
+    
     public void run() {
         try {
             SMPPServerSessionListener sessionListener = new SMPPServerSessionListener(port);
+            if (routeFile != null) {
+                startRouter(sessionListener);
+            }
             
             logger.info("Listening on port {}", port);
             while (true) {
@@ -92,6 +117,20 @@ public class SMPPServerSimulator extends ServerResponseDeliveryAdapter implement
         }
     }
     
+    private void startRouter(SMPPServerSessionListener sessionListener) throws IOException {
+        final Router router = new Router(routeFile,
+                sessionListener.getSessionRegistry(), messageIDGenerator);
+        router.reload();
+        ScheduledExecutorService reloadService = Executors.newSingleThreadScheduledExecutor();
+        reloadService.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                router.reloadIfModified();
+            }
+        }, 5, 5, TimeUnit.SECONDS);
+        this.router = router;
+        logger.info("Routing by {}", routeFile);
+    }
+    
     public QuerySmResult onAcceptQuerySm(QuerySm querySm,
             SMPPServerSession source) throws ProcessRequestException {
         logger.info("Accepting query sm, but not implemented");
@@ -100,9 +139,22 @@ public class SMPPServerSimulator extends ServerResponseDeliveryAdapter implement
     
     public MessageId onAcceptSubmitSm(SubmitSm submitSm,
             SMPPServerSession source) throws ProcessRequestException {
-        MessageId messageId = messageIDGenerator.newMessageId();
+        MessageId messageId;
+        boolean local = true;
+        if (router != null) {
+            RouteTarget target = router.lookup(submitSm);
+            if (target == null) {
+                throw new ProcessRequestException("No route to " + submitSm.getDestAddress(),
+                        SMPPConstant.STAT_ESME_RINVDSTADR);
+            }
+            messageId = target.submit(submitSm);
+            // the other targets send their own delivery receipts
+            local = target instanceof SinkTarget;
+        } else {
+            messageId = messageIDGenerator.newMessageId();
+        }
         logger.debug("Receiving submit_sm '{}', and return message id {}", new String(submitSm.getShortMessage()), messageId);
-        if (SMSCDeliveryReceipt.SUCCESS.containedIn(submitSm.getRegisteredDelivery()) || SMSCDeliveryReceipt.SUCCESS_FAILURE.containedIn(submitSm.getRegisteredDelivery())) {
+        if (local && (SMSCDeliveryReceipt.SUCCESS.containedIn(submitSm.getRegisteredDelivery()) || SMSCDeliveryReceipt.SUCCESS_FAILURE.containedIn(submitSm.getRegisteredDelivery()))) {
             execServiceDelReciept.execute(new DeliveryReceiptTask(source, submitSm, messageId));
         }
         return messageId;
@@ -271,6 +323,10 @@ public class SMPPServerSimulator extends ServerResponseDeliveryAdapter implement
         }
         BasicConfigurator.configure();
         SMPPServerSimulator smppServerSim = new SMPPServerSimulator(port);
+        String routeFile = System.getProperty("jsmpp.simulator.routeFile");
+        if (routeFile != null) {
+            smppServerSim.setRouteFile(new File(routeFile));
+        }
         smppServerSim.run();
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.jsmpp.examples;
+
+import java.io.DataInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.Command;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.session.SMPPServerSession;
+import org.jsmpp.session.connection.socket.SocketConnection;
+import org.jsmpp.util.DefaultComposer;
+
+/**
+ * Measure the heap retained by idle bound server sessions over sockets. The
+ * used heap after garbage collection depends on the collector, so the result
+ * is only an estimate. The reader thread stack of each session is native
+ * memory, not measured here.
+ *
+ * <pre>
+ * java org.jsmpp.examples.SessionFootprintBenchmark [sessions]
+ * </pre>
+ */
+public class SessionFootprintBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        List<Socket> clients = new ArrayList<Socket>();
+        List<SMPPServerSession> sessions = new ArrayList<SMPPServerSession>();
+        ServerSocket serverSocket = new ServerSocket(0, count,
+                InetAddress.getByName("127.0.0.1"));
+        try {
+            bindSessions(serverSocket, 10, clients, sessions);
+            long before = usedHeap();
+            bindSessions(serverSocket, count, clients, sessions);
+            long perSession = (usedHeap() - before) / count;
+            System.out.println("Idle bound session retains about " + perSession
+                    + " bytes of heap (" + count + " sessions)");
+        } finally {
+            serverSocket.close();
+            for (SMPPServerSession session : sessions) {
+                session.close();
+            }
+            for (Socket client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    private static void bindSessions(ServerSocket serverSocket, int count,
+            List<Socket> clients, List<SMPPServerSession> sessions) throws Exception {
+        DefaultComposer composer = new DefaultComposer();
+        DefaultPDUReader pduReader = new DefaultPDUReader();
+        for (int i = 0; i < count; i++) {
+            Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+            clients.add(client);
+            SMPPServerSession session = new SMPPServerSession(
+                    new SocketConnection(serverSocket.accept()), null, null, null, 1);
+            sessions.add(session);
+            session.setEnquireLinkTimer(60000);
+
+            client.getOutputStream().write(composer.bind(SMPPConstant.CID_BIND_RECEIVER,
+                    1, "esme" + i, "pwd", "", InterfaceVersion.IF_34.value(),
+                    (byte)0, (byte)0, null));
+            session.waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+            DataInputStream in = new DataInputStream(client.getInputStream());
+            Command bindResp = pduReader.readPDUHeader(in);
+            pduReader.readPDU(in, bindResp);
+            if (bindResp.getCommandStatus() != SMPPConstant.STAT_ESME_ROK) {
+                throw new IllegalStateException("Bind failed with status " + bindResp.getCommandStatus());
+            }
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -14,10 +14,13 @@
  */
 package org.jsmpp.examples;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Date;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -36,11 +39,13 @@ import org.jsmpp.bean.MessageType;
 import org.jsmpp.bean.NumberingPlanIndicator;
 import org.jsmpp.bean.QuerySm;
 import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.SMSCDeliveryReceipt;
 import org.jsmpp.bean.ReplaceSm;
 import org.jsmpp.bean.SubmitMulti;
 import org.jsmpp.bean.SubmitMultiResult;
 import org.jsmpp.bean.SubmitSm;
 import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.examples.stress.FaultProfile;
 import org.jsmpp.extra.ProcessRequestException;
 import org.jsmpp.extra.SessionState;
 import org.jsmpp.session.BindRequest;
@@ -51,14 +56,24 @@ import org.jsmpp.session.SMPPServerSessionListener;
 import org.jsmpp.session.ServerMessageReceiverListener;
 import org.jsmpp.session.Session;
 import org.jsmpp.session.SessionStateListener;
+import org.jsmpp.session.SubmitThrottle;
 import org.jsmpp.util.DeliveryReceiptState;
 import org.jsmpp.util.MessageIDGenerator;
 import org.jsmpp.util.MessageId;
-import org.jsmpp.util.RandomMessageIDGenerator;
+import org.jsmpp.util.TimeOrderedMessageIDGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * SMSC for stress and CI tests. By default every submit_sm is accepted
+ * immediately, a {@link FaultProfile} makes it behave like a loaded SMSC with
+ * response latency, error responses, throttling, late or lost delivery
+ * receipts and connection drops.
+ * <p>
+ * The response latency blocks a PDU processor thread, so the processor degree
+ * should be at least the window of the clients.
+ * </p>
+ *
  * @author uudashr
  *
  */
@@ -69,14 +84,21 @@ public class StressServer implements Runnable, ServerMessageReceiverListener {
     private static final Integer DEFAULT_PROCESSOR_DEGREE = 3;
     private static final Logger logger = LoggerFactory.getLogger(StressServer.class);
     private final ExecutorService waitBindExecService = Executors.newFixedThreadPool(DEFAULT_MAX_WAIT_BIND);
-    private final MessageIDGenerator messageIDGenerator = new RandomMessageIDGenerator();
+    private final MessageIDGenerator messageIDGenerator = new TimeOrderedMessageIDGenerator();
+    private final ScheduledExecutorService receiptExecService = Executors.newSingleThreadScheduledExecutor();
     private final AtomicInteger requestCounter = new AtomicInteger();
+    private final FaultProfile faultProfile;
     private int processorDegree;
     private int port;
     
     public StressServer(int port, int processorDegree) {
+        this(port, processorDegree, new FaultProfile());
+    }
+    
+    public StressServer(int port, int processorDegree, FaultProfile faultProfile) {
         this.port = port;
         this.processorDegree = processorDegree;
+        this.faultProfile = faultProfile;
     }
     
     public void run() {
@@ -84,6 +106,10 @@ public class StressServer implements Runnable, ServerMessageReceiverListener {
             SMPPServerSessionListener sessionListener = new SMPPServerSessionListener(port);
             sessionListener.setSessionStateListener(new SessionStateListenerImpl());
             sessionListener.setPduProcessorDegree(processorDegree);
+            SubmitThrottle submitThrottle = faultProfile.newSubmitThrottle();
+            if (submitThrottle != null) {
+                sessionListener.setSubmitThrottle(submitThrottle);
+            }
             new TrafficWatcherThread().start();
             logger.info("Listening on port {}", port);
             while (true) {
@@ -104,9 +130,30 @@ public class StressServer implements Runnable, ServerMessageReceiverListener {
     
     public MessageId onAcceptSubmitSm(SubmitSm submitSm,
             SMPPServerSession source) throws ProcessRequestException {
+        requestCounter.incrementAndGet();
+        String systemId = source.getSystemId();
+        faultProfile.delayResponse(systemId);
+        if (faultProfile.nextDrop(systemId)) {
+            logger.info("Dropping connection of session {}", source.getSessionId());
+            source.close();
+            throw new ProcessRequestException("Connection dropped", SMPPConstant.STAT_ESME_RSYSERR);
+        }
+        int commandStatus = faultProfile.nextCommandStatus(systemId);
+        if (commandStatus != SMPPConstant.STAT_ESME_ROK) {
+            throw new ProcessRequestException("Injected error", commandStatus);
+        }
         MessageId messageId = messageIDGenerator.newMessageId();
         logger.debug("Receiving submit_sm {}, and return message id {}", new String(submitSm.getShortMessage()), messageId.getValue());
-        requestCounter.incrementAndGet();
+        if (SMSCDeliveryReceipt.SUCCESS.containedIn(submitSm.getRegisteredDelivery())
+                || SMSCDeliveryReceipt.SUCCESS_FAILURE.containedIn(submitSm.getRegisteredDelivery())) {
+            long receiptDelay = faultProfile.nextReceiptDelay(systemId);
+            if (receiptDelay >= 0) {
+                receiptExecService.schedule(new DeliveryReceiptTask(source, submitSm, messageId),
+                        receiptDelay, TimeUnit.MILLISECONDS);
+            } else {
+                logger.debug("Losing delivery receipt of message id {}", messageId);
+            }
+        }
         return messageId;
     }
     
@@ -176,12 +223,7 @@ public class StressServer implements Runnable, ServerMessageReceiverListener {
         }
 
         public void run() {
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e1) {
-                e1.printStackTrace();
-            }
-            String stringValue = Integer.valueOf(messageId.getValue(), 16).toString();
+            String stringValue = messageId.getValue();
             try {
                 
                 DeliveryReceipt delRec = new DeliveryReceipt(stringValue, 1, 1, new Date(), new Date(), DeliveryReceiptState.DELIVRD,  null, new String(submitSm.getShortMessage()));
@@ -240,8 +282,19 @@ public class StressServer implements Runnable, ServerMessageReceiverListener {
         String log4jPath = System.getProperty("jsmpp.server.log4jPath", DEFAULT_LOG4J_PATH);
         PropertyConfigurator.configure(log4jPath);
         
+        FaultProfile faultProfile = new FaultProfile();
+        String faultProfilePath = System.getProperty("jsmpp.server.faultProfile");
+        if (faultProfilePath != null) {
+            try {
+                faultProfile = FaultProfile.load(new File(faultProfilePath));
+            } catch (IOException e) {
+                logger.error("Failed loading fault profile " + faultProfilePath, e);
+                return;
+            }
+        }
+        
         logger.info("Processor degree: " + processorDegree);
-        StressServer stressServer = new StressServer(port, processorDegree);
+        StressServer stressServer = new StressServer(port, processorDegree, faultProfile);
         stressServer.run();
     }
 }
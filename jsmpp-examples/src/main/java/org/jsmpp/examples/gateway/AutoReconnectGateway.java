@@ -28,28 +28,19 @@ import org.jsmpp.bean.RegisteredDelivery;
 import org.jsmpp.bean.TypeOfNumber;
 import org.jsmpp.extra.NegativeResponseException;
 import org.jsmpp.extra.ResponseTimeoutException;
-import org.jsmpp.extra.SessionState;
 import org.jsmpp.session.BindParameter;
-import org.jsmpp.session.SMPPSession;
-import org.jsmpp.session.Session;
-import org.jsmpp.session.SessionStateListener;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.jsmpp.session.ReconnectingSession;
 
 /**
- * This are implementation of {@link Gateway}. This gateway will reconnect for a
- * specified interval if the session are closed.
+ * This are implementation of {@link Gateway}. This gateway will reconnect
+ * using {@link ReconnectingSession} if the session are closed, the submits
+ * wait for the session while reconnecting.
  * 
  * @author uudashr
  * 
  */
 public class AutoReconnectGateway implements Gateway {
-    private static final Logger logger = LoggerFactory.getLogger(AutoReconnectGateway.class);
-    private SMPPSession session = null;
-    private String remoteIpAddress;
-    private int remotePort;
-    private BindParameter bindParam;
-    private long reconnectInterval = 5000L; // 5 seconds
+    private final ReconnectingSession session;
 
     /**
      * Construct auto reconnect gateway with specified ip address, port and SMPP
@@ -58,14 +49,13 @@ public class AutoReconnectGateway implements Gateway {
      * @param remoteIpAddress is the SMSC IP address.
      * @param remotePort is the SMSC port.
      * @param bindParam is the SMPP Bind parameters.
-     * @throws IOException
      */
     public AutoReconnectGateway(String remoteIpAddress, int remotePort,
-            BindParameter bindParam) throws IOException {
-        this.remoteIpAddress = remoteIpAddress;
-        this.remotePort = remotePort;
-        this.bindParam = bindParam;
-        session = newSession();
+            BindParameter bindParam) {
+        session = new ReconnectingSession(remoteIpAddress, remotePort,
+                bindParam, 1000);
+        session.setInitialBackoff(5000L); // 5 seconds
+        session.connect();
     }
     
     /* (non-Javadoc)
@@ -83,91 +73,13 @@ public class AutoReconnectGateway implements Gateway {
             ResponseTimeoutException, InvalidResponseException,
             NegativeResponseException, IOException {
         
-        return getSession().submitShortMessage(serviceType, sourceAddrTon,
+        return session.submitShortMessage(serviceType, sourceAddrTon,
                 sourceAddrNpi, sourceAddr, destAddrTon, destAddrNpi,
                 destinationAddr, esmClass, protocolId, priorityFlag,
                 scheduleDeliveryTime, validityPeriod, registeredDelivery,
                 replaceIfPresentFlag, dataCoding, smDefaultMsgId, shortMessage,
                 optionalParameters);
     }
-
-    /**
-     * Create new {@link SMPPSession} complete with the
-     * {@link SessionStateListenerImpl}.
-     * 
-     * @return the {@link SMPPSession}.
-     * @throws IOException if the creation of new session failed.
-     */
-    private SMPPSession newSession() throws IOException {
-        SMPPSession tmpSession = new SMPPSession(remoteIpAddress, remotePort, bindParam);
-        tmpSession.addSessionStateListener(new SessionStateListenerImpl());
-        return tmpSession;
-    }
-
-    /**
-     * Get the session. If the session still null or not in bound state, then IO
-     * exception will be thrown.
-     * 
-     * @return the valid session.
-     * @throws IOException if there is no valid session or session creation is
-     *         invalid.
-     */
-    private SMPPSession getSession() throws IOException {
-        if (session == null) {
-            logger.info("Initiate session for the first time to " + remoteIpAddress + ":" + remotePort);
-            session = newSession();
-        } else if (!session.getSessionState().isBound()) {
-            throw new IOException("We have no valid session yet");
-        }
-        return session;
-    }
-    
-    /**
-     * Reconnect session after specified interval.
-     * 
-     * @param timeInMillis is the interval.
-     */
-    private void reconnectAfter(final long timeInMillis) {
-        new Thread() {
-            @Override
-            public void run() {
-                logger.info("Schedule reconnect after " + timeInMillis + " millis");
-                try {
-                    Thread.sleep(timeInMillis);
-                } catch (InterruptedException e) {
-                }
-                
-                int attempt = 0;
-                while (session == null || session.getSessionState().equals(SessionState.CLOSED)) {
-                    try {
-                        logger.info("Reconnecting attempt #" + (++attempt) + "...");
-                        session = newSession();
-                    } catch (IOException e) {
-                        logger.error("Failed opening connection and bind to " + remoteIpAddress + ":" + remotePort, e);
-                        // wait for a second
-                        try { Thread.sleep(1000); } catch (InterruptedException ee) {}
-                    }
-                }
-            }
-        }.start();
-    }
-
-    /**
-     * This class will receive the notification from {@link SMPPSession} for the
-     * state changes. It will schedule to re-initialize session.
-     * 
-     * @author uudashr
-     * 
-     */
-    private class SessionStateListenerImpl implements SessionStateListener {
-        public void onStateChange(SessionState newState, SessionState oldState,
-        		Session source) {
-            if (newState.equals(SessionState.CLOSED)) {
-                logger.info("Session closed");
-                reconnectAfter(reconnectInterval);
-            }
-        }
-    }
     
     public static void main(String[] args) throws IOException {
         BasicConfigurator.configure();
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.routing;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.DataCodings;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.ReconnectingSession;
+import org.jsmpp.util.MessageId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RouteTarget} submitting the short message to another SMSC through
+ * a {@link ReconnectingSession}.
+ */
+public class ClientSessionTarget implements RouteTarget {
+    private static final Logger logger = LoggerFactory.getLogger(ClientSessionTarget.class);
+
+    private final ReconnectingSession session;
+
+    /**
+     * Construct the target, the session is connected.
+     *
+     * @param session is the session to the SMSC.
+     */
+    public ClientSessionTarget(ReconnectingSession session) {
+        this.session = session;
+        session.connect();
+    }
+
+    public MessageId submit(SubmitSm submitSm) throws ProcessRequestException {
+        try {
+            String messageId = session.submitShortMessage(submitSm.getServiceType(),
+                    TypeOfNumber.valueOf(submitSm.getSourceAddrTon()),
+                    NumberingPlanIndicator.valueOf(submitSm.getSourceAddrNpi()),
+                    submitSm.getSourceAddr(),
+                    TypeOfNumber.valueOf(submitSm.getDestAddrTon()),
+                    NumberingPlanIndicator.valueOf(submitSm.getDestAddrNpi()),
+                    submitSm.getDestAddress(),
+                    new ESMClass(submitSm.getEsmClass()),
+                    submitSm.getProtocolId(), submitSm.getPriorityFlag(),
+                    submitSm.getScheduleDeliveryTime(),
+                    submitSm.getValidityPeriod(),
+                    new RegisteredDelivery(submitSm.getRegisteredDelivery()),
+                    submitSm.getReplaceIfPresent(),
+                    DataCodings.newInstance(submitSm.getDataCoding()),
+                    submitSm.getSmDefaultMsgId(),
+                    submitSm.getShortMessage(),
+                    submitSm.getOptionalParameters());
+            return new MessageId(messageId);
+        } catch (NegativeResponseException e) {
+            // pass the status of the SMSC through
+            throw new ProcessRequestException(e.getMessage(), e.getCommandStatus());
+        } catch (Exception e) {
+            logger.debug("Failed forwarding submit_sm: {}", e.getMessage());
+            throw new ProcessRequestException("Failed forwarding submit_sm",
+                    SMPPConstant.STAT_ESME_RSUBMITFAIL);
+        }
+    }
+
+    public void close() {
+        session.close();
+    }
+}
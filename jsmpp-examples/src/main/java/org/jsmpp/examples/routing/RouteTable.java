@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.TypeOfNumber;
+
+/**
+ * Immutable table routing the destination_addr to the {@link RouteTarget} by
+ * the longest matching prefix.
+ * <p>
+ * The prefixes are kept in a decimal trie flattened to int arrays, the lookup
+ * walks one array element per digit without allocation. The routes can be
+ * restricted to a TON/NPI, those routes are looked up first and the routes
+ * without TON/NPI are used when none of them matches. A leading '+' of the
+ * address is ignored and the lookup stops at the first non-digit character.
+ * </p>
+ *
+ * <pre>
+ * RouteTable routeTable = new RouteTable.Builder()
+ *         .add(&quot;62811&quot;, operatorA)
+ *         .add(&quot;62812&quot;, TypeOfNumber.INTERNATIONAL, NumberingPlanIndicator.ISDN, operatorB)
+ *         .add(&quot;&quot;, sink)
+ *         .build();
+ * </pre>
+ */
+public class RouteTable {
+    private static final int RADIX = 10;
+    private static final int WILDCARD_ROOT = 0;
+
+    private final int[] children;
+    private final int[] targetIndexes;
+    private final int[] roots;
+    private final RouteTarget[] targets;
+
+    private RouteTable(Builder builder) {
+        children = Arrays.copyOf(builder.children, builder.nodeCount * RADIX);
+        targetIndexes = Arrays.copyOf(builder.targetIndexes, builder.nodeCount);
+        roots = builder.roots.clone();
+        targets = builder.targets.toArray(new RouteTarget[builder.targets.size()]);
+    }
+
+    /**
+     * Find the target of the destination address.
+     *
+     * @param ton is the dest_addr_ton.
+     * @param npi is the dest_addr_npi.
+     * @param address is the destination_addr.
+     * @return the target or <tt>null</tt> if there is no matching route.
+     */
+    public RouteTarget lookup(byte ton, byte npi, String address) {
+        int root = roots[rootIndex(ton, npi)];
+        if (root > 0) {
+            int targetIndex = longestMatch(root, address);
+            if (targetIndex >= 0) {
+                return targets[targetIndex];
+            }
+        }
+        int targetIndex = longestMatch(WILDCARD_ROOT, address);
+        return targetIndex >= 0 ? targets[targetIndex] : null;
+    }
+
+    /**
+     * @return the distinct targets of the routes.
+     */
+    public Collection<RouteTarget> getTargets() {
+        return Arrays.asList(targets);
+    }
+
+    private int longestMatch(int node, String address) {
+        int best = targetIndexes[node];
+        if (address == null) {
+            return best;
+        }
+        int i = address.startsWith("+") ? 1 : 0;
+        for (; i < address.length(); i++) {
+            int digit = address.charAt(i) - '0';
+            if (digit < 0 || digit >= RADIX) {
+                break;
+            }
+            node = children[node * RADIX + digit];
+            if (node == 0) {
+                break;
+            }
+            if (targetIndexes[node] >= 0) {
+                best = targetIndexes[node];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * All the defined TON and NPI values fit in 3 and 5 bits.
+     */
+    private static int rootIndex(byte ton, byte npi) {
+        return ((ton & 0x07) << 5) | (npi & 0x1f);
+    }
+
+    /**
+     * Builder of {@link RouteTable}. The later route of the same prefix and
+     * TON/NPI replaces the former.
+     */
+    public static class Builder {
+        private int[] children = new int[64 * RADIX];
+        private int[] targetIndexes = new int[64];
+        private final int[] roots = new int[256];
+        private final List<RouteTarget> targets = new ArrayList<RouteTarget>();
+        private int nodeCount;
+
+        public Builder() {
+            newNode();
+        }
+
+        /**
+         * Add route of any TON/NPI.
+         *
+         * @param prefix is the destination_addr prefix, empty for the default
+         *        route.
+         * @param target is the target.
+         * @return this builder.
+         */
+        public Builder add(String prefix, RouteTarget target) {
+            return add(WILDCARD_ROOT, prefix, target);
+        }
+
+        /**
+         * Add route of the TON/NPI.
+         *
+         * @param prefix is the destination_addr prefix, empty for the default
+         *        route of the TON/NPI.
+         * @param ton is the dest_addr_ton.
+         * @param npi is the dest_addr_npi.
+         * @param target is the target.
+         * @return this builder.
+         */
+        public Builder add(String prefix, TypeOfNumber ton,
+                NumberingPlanIndicator npi, RouteTarget target) {
+            int rootIndex = rootIndex(ton.value(), npi.value());
+            if (roots[rootIndex] == 0) {
+                roots[rootIndex] = newNode();
+            }
+            return add(roots[rootIndex], prefix, target);
+        }
+
+        public RouteTable build() {
+            return new RouteTable(this);
+        }
+
+        private Builder add(int node, String prefix, RouteTarget target) {
+            if (target == null) {
+                throw new IllegalArgumentException("target should not be null");
+            }
+            int start = prefix.startsWith("+") ? 1 : 0;
+            for (int i = start; i < prefix.length(); i++) {
+                int digit = prefix.charAt(i) - '0';
+                if (digit < 0 || digit >= RADIX) {
+                    throw new IllegalArgumentException("Invalid prefix " + prefix);
+                }
+                int child = children[node * RADIX + digit];
+                if (child == 0) {
+                    child = newNode();
+                    children[node * RADIX + digit] = child;
+                }
+                node = child;
+            }
+            int targetIndex = targets.indexOf(target);
+            if (targetIndex < 0) {
+                targetIndex = targets.size();
+                targets.add(target);
+            }
+            targetIndexes[node] = targetIndex;
+            return this;
+        }
+
+        private int newNode() {
+            if (nodeCount == targetIndexes.length) {
+                targetIndexes = Arrays.copyOf(targetIndexes, nodeCount * 2);
+                children = Arrays.copyOf(children, nodeCount * 2 * RADIX);
+            }
+            targetIndexes[nodeCount] = -1;
+            return nodeCount++;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.routing;
+
+import java.util.Random;
+
+import org.jsmpp.util.RandomMessageIDGenerator;
+
+/**
+ * Measure the lookup time of a {@link RouteTable} of random prefixes.
+ *
+ * <pre>
+ * java org.jsmpp.examples.routing.RouteTableBenchmark [prefixes] [lookups]
+ * </pre>
+ */
+public class RouteTableBenchmark {
+
+    public static void main(String[] args) {
+        int prefixes = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 10000000;
+        Random random = new Random(42);
+
+        RouteTarget[] targets = new RouteTarget[16];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new SinkTarget(new RandomMessageIDGenerator());
+        }
+        RouteTable.Builder builder = new RouteTable.Builder();
+        for (int i = 0; i < prefixes; i++) {
+            builder.add(randomDigits(random, "62", 3 + random.nextInt(6)),
+                    targets[random.nextInt(targets.length)]);
+        }
+        builder.add("", targets[0]);
+        RouteTable routeTable = builder.build();
+
+        String[] addresses = new String[4096];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = randomDigits(random, "62", 10);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            int matched = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                if (routeTable.lookup((byte)1, (byte)1, addresses[i & (addresses.length - 1)]) != targets[0]) {
+                    matched++;
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.println("Round " + round + ": " + (nanos / (double)lookups)
+                    + " ns per lookup on " + prefixes + " prefixes (" + matched + " matched)");
+        }
+    }
+
+    private static String randomDigits(Random random, String prefix, int digits) {
+        StringBuilder sb = new StringBuilder(prefix);
+        for (int i = 0; i < digits; i++) {
+            sb.append((char)('0' + random.nextInt(10)));
+        }
+        return sb.toString();
+    }
+}
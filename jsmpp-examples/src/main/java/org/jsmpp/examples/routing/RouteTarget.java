@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.routing;
+
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.util.MessageId;
+
+/**
+ * Downstream target of the routed short messages.
+ */
+public interface RouteTarget {
+
+    /**
+     * Pass the submitted short message to the target.
+     *
+     * @param submitSm is the submitted short message.
+     * @return the message_id of the short message.
+     * @throws ProcessRequestException if the target doesn't accept the short
+     *         message.
+     */
+    MessageId submit(SubmitSm submitSm) throws ProcessRequestException;
+
+    /**
+     * Release the resources of the target, invoked when the target is no
+     * more used by the route table.
+     */
+    void close();
+}
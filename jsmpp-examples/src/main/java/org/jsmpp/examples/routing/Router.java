@@ -0,0 +1,227 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.routing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.session.BindParameter;
+import org.jsmpp.session.ReconnectingSession;
+import org.jsmpp.session.ServerSessionRegistry;
+import org.jsmpp.util.MessageIDGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Router of the submitted short messages loaded from a route file. The route
+ * table is replaced atomically when the file is reloaded, the short messages
+ * being routed keep using the former table, so the traffic is not paused.
+ * <p>
+ * The route file is a properties file defining the targets and the routes:
+ * </p>
+ *
+ * <pre>
+ * # target.&lt;name&gt;=sink | esme:&lt;system_id&gt; | smpp:&lt;host&gt;:&lt;port&gt;:&lt;system_id&gt;:&lt;password&gt;
+ * target.local=sink
+ * target.customer=esme:customer
+ * target.operatorA=smpp:10.0.0.1:2775:gw:secret
+ *
+ * # route.&lt;prefix&gt;[.&lt;ton&gt;.&lt;npi&gt;]=&lt;target name&gt;, the default route has empty prefix
+ * route.62811=operatorA
+ * route.62812.1.1=customer
+ * route.=local
+ * </pre>
+ * <p>
+ * The targets are kept across reloads as long as their definition doesn't
+ * change, so the sessions to other SMSC are not rebound.
+ * </p>
+ */
+public class Router {
+    private static final Logger logger = LoggerFactory.getLogger(Router.class);
+    private static final String TARGET_PREFIX = "target.";
+    private static final String ROUTE_PREFIX = "route.";
+
+    private final File routeFile;
+    private final ServerSessionRegistry sessionRegistry;
+    private final MessageIDGenerator messageIDGenerator;
+    private final Map<String, RouteTarget> targetsByDefinition = new HashMap<String, RouteTarget>();
+    private volatile RouteTable routeTable = new RouteTable.Builder().build();
+    private long lastModified;
+
+    /**
+     * Construct the router, the route file is loaded by {@link #reload()}.
+     *
+     * @param routeFile is the route file.
+     * @param sessionRegistry is the registry of the <code>esme</code> targets.
+     * @param messageIDGenerator is the message_id generator of the
+     *        <code>sink</code> and <code>esme</code> targets.
+     */
+    public Router(File routeFile, ServerSessionRegistry sessionRegistry,
+            MessageIDGenerator messageIDGenerator) {
+        this.routeFile = routeFile;
+        this.sessionRegistry = sessionRegistry;
+        this.messageIDGenerator = messageIDGenerator;
+    }
+
+    /**
+     * @param submitSm is the submitted short message.
+     * @return the target of the destination_addr or <tt>null</tt> if there is
+     *         no route.
+     */
+    public RouteTarget lookup(SubmitSm submitSm) {
+        return routeTable.lookup(submitSm.getDestAddrTon(),
+                submitSm.getDestAddrNpi(), submitSm.getDestAddress());
+    }
+
+    public RouteTable getRouteTable() {
+        return routeTable;
+    }
+
+    /**
+     * Reload the route file if it was modified since the last load. The
+     * current route table is kept if the file is invalid.
+     */
+    public synchronized void reloadIfModified() {
+        if (routeFile.lastModified() != lastModified) {
+            try {
+                reload();
+            } catch (Exception e) {
+                logger.error("Failed reloading route file " + routeFile
+                        + ", keep using the current routes", e);
+            }
+        }
+    }
+
+    /**
+     * Load the route file and replace the route table.
+     *
+     * @throws IOException if there is an IO error found.
+     * @throws IllegalArgumentException if the route file is invalid.
+     */
+    public synchronized void reload() throws IOException {
+        long modified = routeFile.lastModified();
+        Properties props = new Properties();
+        InputStream in = new FileInputStream(routeFile);
+        try {
+            props.load(in);
+        } finally {
+            in.close();
+        }
+
+        Map<String, RouteTarget> targetsByName = new HashMap<String, RouteTarget>();
+        Map<String, RouteTarget> usedDefinitions = new HashMap<String, RouteTarget>();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(TARGET_PREFIX)) {
+                String definition = props.getProperty(key).trim();
+                RouteTarget target = targetsByDefinition.get(definition);
+                if (target == null) {
+                    target = usedDefinitions.get(definition);
+                }
+                if (target == null) {
+                    target = newTarget(definition);
+                }
+                usedDefinitions.put(definition, target);
+                targetsByName.put(key.substring(TARGET_PREFIX.length()), target);
+            }
+        }
+
+        RouteTable newRouteTable;
+        try {
+            newRouteTable = buildRouteTable(props, targetsByName);
+        } catch (RuntimeException e) {
+            for (RouteTarget target : usedDefinitions.values()) {
+                if (!targetsByDefinition.containsValue(target)) {
+                    target.close();
+                }
+            }
+            throw e;
+        }
+        routeTable = newRouteTable;
+        lastModified = modified;
+
+        Set<RouteTarget> unused = new HashSet<RouteTarget>(targetsByDefinition.values());
+        unused.removeAll(usedDefinitions.values());
+        for (RouteTarget target : unused) {
+            target.close();
+        }
+        targetsByDefinition.clear();
+        targetsByDefinition.putAll(usedDefinitions);
+        logger.info("Loaded {} targets from {}", targetsByName.size(), routeFile);
+    }
+
+    /**
+     * Close all the targets.
+     */
+    public synchronized void close() {
+        for (RouteTarget target : targetsByDefinition.values()) {
+            target.close();
+        }
+        targetsByDefinition.clear();
+    }
+
+    private static RouteTable buildRouteTable(Properties props,
+            Map<String, RouteTarget> targetsByName) {
+        RouteTable.Builder builder = new RouteTable.Builder();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith(ROUTE_PREFIX)) {
+                String name = props.getProperty(key).trim();
+                RouteTarget target = targetsByName.get(name);
+                if (target == null) {
+                    throw new IllegalArgumentException("Unknown target " + name + " of " + key);
+                }
+                String[] route = key.substring(ROUTE_PREFIX.length()).split("\\.");
+                if (route.length == 3) {
+                    builder.add(route[0],
+                            TypeOfNumber.valueOf(Byte.parseByte(route[1])),
+                            NumberingPlanIndicator.valueOf(Byte.parseByte(route[2])),
+                            target);
+                } else if (route.length <= 1) {
+                    builder.add(route.length == 1 ? route[0] : "", target);
+                } else {
+                    throw new IllegalArgumentException("Invalid route " + key);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private RouteTarget newTarget(String definition) {
+        String[] parts = definition.split(":");
+        if (parts[0].equals("sink") && parts.length == 1) {
+            return new SinkTarget(messageIDGenerator);
+        } else if (parts[0].equals("esme") && parts.length == 2) {
+            return new ServerSessionTarget(sessionRegistry, parts[1], messageIDGenerator);
+        } else if (parts[0].equals("smpp") && parts.length == 5) {
+            ReconnectingSession session = new ReconnectingSession(parts[1],
+                    Integer.parseInt(parts[2]), new BindParameter(
+                            BindType.BIND_TX, parts[3], parts[4], "cp",
+                            TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
+                            null), 1000);
+            return new ClientSessionTarget(session);
+        }
+        throw new IllegalArgumentException("Invalid target " + definition);
+    }
+}
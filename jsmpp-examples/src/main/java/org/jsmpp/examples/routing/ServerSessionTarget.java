@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.routing;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.DataCodings;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.SMPPServerSession;
+import org.jsmpp.session.ServerSessionRegistry;
+import org.jsmpp.util.MessageIDGenerator;
+import org.jsmpp.util.MessageId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RouteTarget} delivering the short message to an ESME bound to this
+ * server, selected from the {@link ServerSessionRegistry} by the system_id.
+ */
+public class ServerSessionTarget implements RouteTarget {
+    private static final Logger logger = LoggerFactory.getLogger(ServerSessionTarget.class);
+
+    private final ServerSessionRegistry sessionRegistry;
+    private final String systemId;
+    private final MessageIDGenerator messageIDGenerator;
+
+    public ServerSessionTarget(ServerSessionRegistry sessionRegistry,
+            String systemId, MessageIDGenerator messageIDGenerator) {
+        this.sessionRegistry = sessionRegistry;
+        this.systemId = systemId;
+        this.messageIDGenerator = messageIDGenerator;
+    }
+
+    public MessageId submit(SubmitSm submitSm) throws ProcessRequestException {
+        SMPPServerSession session = sessionRegistry.select(systemId);
+        if (session == null) {
+            throw new ProcessRequestException("No session bound for " + systemId,
+                    SMPPConstant.STAT_ESME_RSUBMITFAIL);
+        }
+        try {
+            session.deliverShortMessage(submitSm.getServiceType(),
+                    TypeOfNumber.valueOf(submitSm.getSourceAddrTon()),
+                    NumberingPlanIndicator.valueOf(submitSm.getSourceAddrNpi()),
+                    submitSm.getSourceAddr(),
+                    TypeOfNumber.valueOf(submitSm.getDestAddrTon()),
+                    NumberingPlanIndicator.valueOf(submitSm.getDestAddrNpi()),
+                    submitSm.getDestAddress(),
+                    new ESMClass(submitSm.getEsmClass()),
+                    submitSm.getProtocolId(), submitSm.getPriorityFlag(),
+                    new RegisteredDelivery(0),
+                    DataCodings.newInstance(submitSm.getDataCoding()),
+                    submitSm.getShortMessage(),
+                    submitSm.getOptionalParameters());
+        } catch (Exception e) {
+            logger.debug("Failed delivering to {}: {}", systemId, e.getMessage());
+            throw new ProcessRequestException("Failed delivering to " + systemId,
+                    SMPPConstant.STAT_ESME_RSUBMITFAIL);
+        }
+        return messageIDGenerator.newMessageId();
+    }
+
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return "esme:" + systemId;
+    }
+}
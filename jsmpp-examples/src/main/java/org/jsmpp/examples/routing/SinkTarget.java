@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.routing;
+
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.util.MessageIDGenerator;
+import org.jsmpp.util.MessageId;
+
+/**
+ * {@link RouteTarget} accepting every short message without passing it
+ * anywhere.
+ */
+public class SinkTarget implements RouteTarget {
+    private final MessageIDGenerator messageIDGenerator;
+
+    public SinkTarget(MessageIDGenerator messageIDGenerator) {
+        this.messageIDGenerator = messageIDGenerator;
+    }
+
+    public MessageId submit(SubmitSm submitSm) {
+        return messageIDGenerator.newMessageId();
+    }
+
+    public void close() {
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.stress;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jsmpp.session.SubmitThrottle;
+
+/**
+ * Behaviour of the emulated SMSC: the response latency, the rate of the
+ * error responses, the throttling, the delivery receipts and the connection
+ * drops. The default profile answers immediately and successfully.
+ * <p>
+ * Each system_id draws from its own random source seeded by the profile seed
+ * and the system_id, so the faults of a system_id don't depend on the traffic
+ * of the others. The same seed replays the same faults of a system_id as long
+ * as its submits are processed in the same order, that is by a single PDU
+ * processor thread.
+ * </p>
+ * <p>
+ * The profile can be loaded from a properties file:
+ * </p>
+ *
+ * <pre>
+ * # random seed, to replay the same faults of each system_id
+ * seed=42
+ * # fixed:&lt;ms&gt; | normal:&lt;mean&gt;,&lt;stddev&gt; | longtail:&lt;median&gt;,&lt;sigma&gt;
+ * response.latency=longtail:20,1
+ * # error.&lt;command_status&gt;=&lt;rate of the submits responded with it&gt;
+ * error.0x00000008=0.001
+ * error.0x00000014=0.01
+ * # submits per second and submits not responded yet per system_id, over them
+ * # the submit is responded with ESME_RTHROTTLED or ESME_RMSGQFUL
+ * throttle.tps=200
+ * throttle.window=50
+ * receipt.latency=normal:2000,500
+ * receipt.loss=0.05
+ * # rate of the submits closing the connection instead of being responded
+ * drop.rate=0.0001
+ * </pre>
+ *
+ */
+public class FaultProfile {
+    private final long seed;
+    private final ConcurrentMap<String, Random> randoms = new ConcurrentHashMap<String, Random>();
+    private final Map<Integer, Double> errorRates = new LinkedHashMap<Integer, Double>();
+    private volatile LatencyDistribution responseLatency = LatencyDistribution.NONE;
+    private volatile LatencyDistribution receiptLatency = LatencyDistribution.NONE;
+    private volatile double receiptLossRate;
+    private volatile double dropRate;
+    private volatile double throttleTps;
+    private volatile int throttleWindow;
+
+    public FaultProfile() {
+        this(new Random().nextLong());
+    }
+
+    public FaultProfile(long seed) {
+        this.seed = seed;
+    }
+
+    public static FaultProfile load(File file) throws IOException {
+        Properties props = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            props.load(in);
+        } finally {
+            in.close();
+        }
+        return load(props);
+    }
+
+    /**
+     * @param props is the profile properties.
+     * @return the profile.
+     * @throws IllegalArgumentException if a property is invalid.
+     */
+    public static FaultProfile load(Properties props) throws IllegalArgumentException {
+        String seed = props.getProperty("seed");
+        FaultProfile profile = seed != null ? new FaultProfile(Long.parseLong(seed.trim()))
+                : new FaultProfile();
+        String value = props.getProperty("response.latency");
+        if (value != null) {
+            profile.setResponseLatency(LatencyDistribution.valueOf(value));
+        }
+        value = props.getProperty("receipt.latency");
+        if (value != null) {
+            profile.setReceiptLatency(LatencyDistribution.valueOf(value));
+        }
+        profile.setReceiptLossRate(getRate(props, "receipt.loss"));
+        profile.setDropRate(getRate(props, "drop.rate"));
+        profile.setThrottle(Double.parseDouble(props.getProperty("throttle.tps", "0").trim()),
+                Integer.parseInt(props.getProperty("throttle.window", "0").trim()));
+        for (String name : props.stringPropertyNames()) {
+            if (name.startsWith("error.")) {
+                profile.setErrorRate(Integer.decode(name.substring("error.".length())),
+                        getRate(props, name));
+            }
+        }
+        return profile;
+    }
+
+    private static double getRate(Properties props, String name) {
+        double rate = Double.parseDouble(props.getProperty(name, "0").trim());
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException(name + " should be between 0 and 1");
+        }
+        return rate;
+    }
+
+    public LatencyDistribution getResponseLatency() {
+        return responseLatency;
+    }
+
+    public void setResponseLatency(LatencyDistribution responseLatency) {
+        this.responseLatency = responseLatency;
+    }
+
+    public LatencyDistribution getReceiptLatency() {
+        return receiptLatency;
+    }
+
+    public void setReceiptLatency(LatencyDistribution receiptLatency) {
+        this.receiptLatency = receiptLatency;
+    }
+
+    public double getReceiptLossRate() {
+        return receiptLossRate;
+    }
+
+    public void setReceiptLossRate(double receiptLossRate) {
+        this.receiptLossRate = receiptLossRate;
+    }
+
+    public double getDropRate() {
+        return dropRate;
+    }
+
+    public void setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * @param commandStatus is the command_status of the error response.
+     * @param rate is the rate of the submits responded with the status, 0
+     *        removes the error.
+     */
+    public void setErrorRate(int commandStatus, double rate) {
+        synchronized (errorRates) {
+            if (rate > 0) {
+                errorRates.put(commandStatus, rate);
+            } else {
+                errorRates.remove(commandStatus);
+            }
+        }
+    }
+
+    /**
+     * @param tps is the submits per second of each system_id, 0 means
+     *        unlimited.
+     * @param window is the submits not responded yet of each system_id, 0
+     *        means unlimited.
+     */
+    public void setThrottle(double tps, int window) {
+        throttleTps = tps;
+        throttleWindow = window;
+    }
+
+    /**
+     * @return the throttle for the session listener or <tt>null</tt> if the
+     *         submits are not throttled.
+     */
+    public SubmitThrottle newSubmitThrottle() {
+        if (throttleTps <= 0 && throttleWindow <= 0) {
+            return null;
+        }
+        SubmitThrottle throttle = new SubmitThrottle();
+        throttle.setDefaultLimit(throttleTps, Math.max(1, (int)throttleTps), throttleWindow);
+        return throttle;
+    }
+
+    /**
+     * Wait for the next response latency.
+     *
+     * @param systemId is the system_id of the session.
+     */
+    public void delayResponse(String systemId) {
+        sleep(responseLatency.nextLatency(random(systemId)));
+    }
+
+    /**
+     * @param systemId is the system_id of the session.
+     * @return the command_status of the next response, 0 if it succeeds.
+     */
+    public int nextCommandStatus(String systemId) {
+        double value = random(systemId).nextDouble();
+        synchronized (errorRates) {
+            for (Map.Entry<Integer, Double> entry : errorRates.entrySet()) {
+                value -= entry.getValue();
+                if (value < 0) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param systemId is the system_id of the session.
+     * @return <tt>true</tt> if the connection should be dropped instead of
+     *         responding.
+     */
+    public boolean nextDrop(String systemId) {
+        return dropRate > 0 && random(systemId).nextDouble() < dropRate;
+    }
+
+    /**
+     * @param systemId is the system_id of the session.
+     * @return the delay of the next delivery receipt in milliseconds or -1 if
+     *         it is lost.
+     */
+    public long nextReceiptDelay(String systemId) {
+        Random random = random(systemId);
+        if (receiptLossRate > 0 && random.nextDouble() < receiptLossRate) {
+            return -1;
+        }
+        return receiptLatency.nextLatency(random);
+    }
+
+    private Random random(String systemId) {
+        Random random = randoms.get(systemId);
+        if (random == null) {
+            random = new Random(seed * 31 + systemId.hashCode());
+            Random existing = randoms.putIfAbsent(systemId, random);
+            if (existing != null) {
+                random = existing;
+            }
+        }
+        return random;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.stress;
+
+import java.util.Random;
+
+/**
+ * Distribution of the latency emulated by {@link FaultProfile}, in
+ * milliseconds.
+ */
+public abstract class LatencyDistribution {
+    public static final LatencyDistribution NONE = fixed(0);
+
+    /**
+     * @param random is the random source.
+     * @return the next latency in milliseconds, never negative.
+     */
+    public abstract long nextLatency(Random random);
+
+    public static LatencyDistribution fixed(final long latency) {
+        return new LatencyDistribution() {
+            @Override
+            public long nextLatency(Random random) {
+                return latency;
+            }
+
+            @Override
+            public String toString() {
+                return "fixed:" + latency;
+            }
+        };
+    }
+
+    /**
+     * @param mean is the mean latency.
+     * @param stdDev is the standard deviation, latencies below 0 are cut to 0.
+     */
+    public static LatencyDistribution normal(final double mean, final double stdDev) {
+        return new LatencyDistribution() {
+            @Override
+            public long nextLatency(Random random) {
+                return Math.max(0, Math.round(mean + random.nextGaussian() * stdDev));
+            }
+
+            @Override
+            public String toString() {
+                return "normal:" + mean + "," + stdDev;
+            }
+        };
+    }
+
+    /**
+     * Log-normal distribution, most latencies are around the median with a
+     * few much longer ones. A sigma of 1 gives a 99th percentile about ten
+     * times the median.
+     *
+     * @param median is the median latency.
+     * @param sigma is the standard deviation of the logarithm of the latency.
+     */
+    public static LatencyDistribution longTail(final double median, final double sigma) {
+        return new LatencyDistribution() {
+            @Override
+            public long nextLatency(Random random) {
+                return Math.round(median * Math.exp(random.nextGaussian() * sigma));
+            }
+
+            @Override
+            public String toString() {
+                return "longtail:" + median + "," + sigma;
+            }
+        };
+    }
+
+    /**
+     * Parse the distribution of the form <tt>fixed:&lt;latency&gt;</tt>,
+     * <tt>normal:&lt;mean&gt;,&lt;stddev&gt;</tt> or
+     * <tt>longtail:&lt;median&gt;,&lt;sigma&gt;</tt>.
+     *
+     * @param value is the distribution.
+     * @return the distribution.
+     * @throws IllegalArgumentException if the value is invalid.
+     */
+    public static LatencyDistribution valueOf(String value)
+            throws IllegalArgumentException {
+        int colon = value.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Invalid latency distribution " + value);
+        }
+        String type = value.substring(0, colon).trim();
+        String[] params = value.substring(colon + 1).split(",");
+        try {
+            if ("fixed".equals(type) && params.length == 1) {
+                return fixed(Long.parseLong(params[0].trim()));
+            } else if ("normal".equals(type) && params.length == 2) {
+                return normal(Double.parseDouble(params[0].trim()),
+                        Double.parseDouble(params[1].trim()));
+            } else if ("longtail".equals(type) && params.length == 2) {
+                return longTail(Double.parseDouble(params[0].trim()),
+                        Double.parseDouble(params[1].trim()));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency distribution " + value, e);
+        }
+        throw new IllegalArgumentException("Invalid latency distribution " + value);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.routing;
+
+import static org.testng.Assert.*;
+
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.util.MessageId;
+import org.testng.annotations.Test;
+
+public class RouteTableTest {
+    private static final byte INTERNATIONAL = TypeOfNumber.INTERNATIONAL.value();
+    private static final byte ISDN = NumberingPlanIndicator.ISDN.value();
+    private static final byte UNKNOWN = 0;
+
+    private final RouteTarget operatorA = new NamedTarget("operatorA");
+    private final RouteTarget operatorB = new NamedTarget("operatorB");
+    private final RouteTarget customer = new NamedTarget("customer");
+    private final RouteTarget sink = new NamedTarget("sink");
+
+    @Test(groups="checkintest")
+    public void testLongestMatch() {
+        RouteTable routeTable = new RouteTable.Builder()
+                .add("628", operatorA)
+                .add("62812", operatorB)
+                .add("6281234", customer)
+                .build();
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281111"), operatorA);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "62812999"), operatorB);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "628123"), operatorB);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281234"), customer);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "628123456"), customer);
+        assertNull(routeTable.lookup(UNKNOWN, UNKNOWN, "62"));
+        assertNull(routeTable.lookup(UNKNOWN, UNKNOWN, "1234"));
+        assertNull(routeTable.lookup(UNKNOWN, UNKNOWN, null));
+    }
+
+    @Test(groups="checkintest")
+    public void testDefaultRoute() {
+        RouteTable routeTable = new RouteTable.Builder()
+                .add("62811", operatorA)
+                .add("", sink)
+                .build();
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281100"), operatorA);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281200"), sink);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, ""), sink);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, null), sink);
+    }
+
+    @Test(groups="checkintest")
+    public void testPlusAndNonDigit() {
+        RouteTable routeTable = new RouteTable.Builder()
+                .add("+62811", operatorA)
+                .add("62", operatorB)
+                .build();
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "+6281100"), operatorA);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281100"), operatorA);
+        // the lookup stops at the first non-digit character
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281-100"), operatorB);
+        assertNull(routeTable.lookup(UNKNOWN, UNKNOWN, "abc"));
+        try {
+            new RouteTable.Builder().add("62a", operatorA);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testTonNpiFallback() {
+        RouteTable routeTable = new RouteTable.Builder()
+                .add("62812", TypeOfNumber.INTERNATIONAL, NumberingPlanIndicator.ISDN, customer)
+                .add("62", operatorA)
+                .add("62812", operatorB)
+                .build();
+        // the TON/NPI routes are looked up first
+        assertSame(routeTable.lookup(INTERNATIONAL, ISDN, "6281200"), customer);
+        // falls back to the routes without TON/NPI when none matches
+        assertSame(routeTable.lookup(INTERNATIONAL, ISDN, "6281100"), operatorA);
+        // other TON/NPI don't use the routes of the TON/NPI
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281200"), operatorB);
+        assertSame(routeTable.lookup(INTERNATIONAL, UNKNOWN, "6281200"), operatorB);
+    }
+
+    @Test(groups="checkintest")
+    public void testLaterRouteReplacesFormer() {
+        RouteTable routeTable = new RouteTable.Builder()
+                .add("62811", operatorA)
+                .add("62811", operatorB)
+                .build();
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281100"), operatorB);
+    }
+
+    @Test(groups="checkintest")
+    public void testManyPrefixes() {
+        RouteTable.Builder builder = new RouteTable.Builder();
+        for (int i = 0; i < 20000; i++) {
+            builder.add(String.valueOf(6280000 + i), (i & 1) == 0 ? operatorA : operatorB);
+        }
+        RouteTable routeTable = builder.build();
+        assertEquals(routeTable.getTargets().size(), 2);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "628000012"), operatorA);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "628199912"), operatorB);
+        assertNull(routeTable.lookup(UNKNOWN, UNKNOWN, "630000012"));
+    }
+
+    static class NamedTarget implements RouteTarget {
+        private final String name;
+        private boolean closed;
+
+        NamedTarget(String name) {
+            this.name = name;
+        }
+
+        public MessageId submit(SubmitSm submitSm) {
+            return null;
+        }
+
+        public void close() {
+            closed = true;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
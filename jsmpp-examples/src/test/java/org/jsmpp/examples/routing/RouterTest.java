@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.routing;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.session.ServerSessionRegistry;
+import org.jsmpp.util.RandomMessageIDGenerator;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RouterTest {
+    private static final byte INTERNATIONAL = TypeOfNumber.INTERNATIONAL.value();
+    private static final byte ISDN = NumberingPlanIndicator.ISDN.value();
+    private static final byte UNKNOWN = 0;
+
+    private File routeFile;
+    private Router router;
+
+    @BeforeMethod(groups="checkintest")
+    public void setUp() throws IOException {
+        routeFile = File.createTempFile("routes", ".properties");
+        router = new Router(routeFile, new ServerSessionRegistry(),
+                new RandomMessageIDGenerator());
+    }
+
+    @AfterMethod(groups="checkintest")
+    public void tearDown() {
+        router.close();
+        routeFile.delete();
+    }
+
+    @Test(groups="checkintest")
+    public void testReloadKeepsTargets() throws Exception {
+        writeRoutes(1000,
+                "target.local=sink",
+                "target.customer=esme:customer",
+                "route.62812=customer",
+                "route.=local");
+        router.reload();
+        RouteTable routeTable = router.getRouteTable();
+        RouteTarget local = routeTable.lookup(UNKNOWN, UNKNOWN, "1234");
+        RouteTarget customer = routeTable.lookup(UNKNOWN, UNKNOWN, "6281200");
+        assertTrue(local instanceof SinkTarget);
+        assertTrue(customer instanceof ServerSessionTarget);
+
+        writeRoutes(2000,
+                "target.local=sink",
+                "target.customer=esme:customer",
+                "route.62811=customer",
+                "route.62812.1.1=local",
+                "route.=local");
+        router.reloadIfModified();
+        assertNotSame(router.getRouteTable(), routeTable);
+        routeTable = router.getRouteTable();
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281100"), customer);
+        assertSame(routeTable.lookup(INTERNATIONAL, ISDN, "6281200"), local);
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281200"), local);
+
+        // a changed definition creates a new target
+        writeRoutes(3000,
+                "target.local=sink",
+                "target.customer=esme:other",
+                "route.62811=customer",
+                "route.=local");
+        router.reload();
+        routeTable = router.getRouteTable();
+        assertSame(routeTable.lookup(UNKNOWN, UNKNOWN, "1234"), local);
+        assertNotSame(routeTable.lookup(UNKNOWN, UNKNOWN, "6281100"), customer);
+    }
+
+    @Test(groups="checkintest")
+    public void testInvalidReloadKeepsRoutes() throws Exception {
+        writeRoutes(1000,
+                "target.local=sink",
+                "route.=local");
+        router.reload();
+        RouteTable routeTable = router.getRouteTable();
+
+        writeRoutes(2000,
+                "target.local=sink",
+                "route.62811=unknown");
+        try {
+            router.reload();
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+        }
+        router.reloadIfModified();
+        assertSame(router.getRouteTable(), routeTable);
+    }
+
+    @Test(groups="checkintest")
+    public void testReloadIfModified() throws Exception {
+        writeRoutes(1000,
+                "target.local=sink",
+                "route.=local");
+        router.reloadIfModified();
+        RouteTable routeTable = router.getRouteTable();
+        assertNotNull(routeTable.lookup(UNKNOWN, UNKNOWN, "1234"));
+
+        router.reloadIfModified();
+        assertSame(router.getRouteTable(), routeTable);
+    }
+
+    private void writeRoutes(long lastModified, String... lines) throws IOException {
+        OutputStream out = new FileOutputStream(routeFile);
+        try {
+            for (String line : lines) {
+                out.write((line + "\n").getBytes("ISO-8859-1"));
+            }
+        } finally {
+            out.close();
+        }
+        routeFile.setLastModified(lastModified * 1000);
+    }
+}
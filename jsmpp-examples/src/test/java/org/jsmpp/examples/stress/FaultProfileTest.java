@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.stress;
+
+import static org.testng.Assert.*;
+
+import java.util.Properties;
+
+import org.jsmpp.SMPPConstant;
+import org.testng.annotations.Test;
+
+public class FaultProfileTest {
+
+    @Test(groups="checkintest")
+    public void testLoad() {
+        Properties props = new Properties();
+        props.setProperty("seed", "42");
+        props.setProperty("response.latency", "longtail:20,1");
+        props.setProperty("receipt.latency", "normal:2000,500");
+        props.setProperty("receipt.loss", "0.05");
+        props.setProperty("drop.rate", " 0.0001 ");
+        props.setProperty("throttle.tps", "200");
+        props.setProperty("throttle.window", "50");
+        props.setProperty("error.0x00000008", "1");
+        FaultProfile profile = FaultProfile.load(props);
+        assertEquals(profile.getResponseLatency().toString(), "longtail:20.0,1.0");
+        assertEquals(profile.getReceiptLatency().toString(), "normal:2000.0,500.0");
+        assertEquals(profile.getReceiptLossRate(), 0.05);
+        assertEquals(profile.getDropRate(), 0.0001);
+        assertNotNull(profile.newSubmitThrottle());
+        assertEquals(profile.nextCommandStatus("sys"), SMPPConstant.STAT_ESME_RSYSERR);
+    }
+
+    @Test(groups="checkintest")
+    public void testDefaultProfile() {
+        FaultProfile profile = FaultProfile.load(new Properties());
+        assertSame(profile.getResponseLatency(), LatencyDistribution.NONE);
+        assertNull(profile.newSubmitThrottle());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(profile.nextCommandStatus("sys"), SMPPConstant.STAT_ESME_ROK);
+            assertFalse(profile.nextDrop("sys"));
+            assertEquals(profile.nextReceiptDelay("sys"), 0);
+        }
+    }
+
+    @Test(groups="checkintest", expectedExceptions=IllegalArgumentException.class)
+    public void testInvalidRate() {
+        Properties props = new Properties();
+        props.setProperty("receipt.loss", "1.5");
+        FaultProfile.load(props);
+    }
+
+    @Test(groups="checkintest", expectedExceptions=IllegalArgumentException.class)
+    public void testInvalidLatency() {
+        Properties props = new Properties();
+        props.setProperty("response.latency", "uniform:1,2");
+        FaultProfile.load(props);
+    }
+
+    @Test(groups="checkintest")
+    public void testErrorRates() {
+        FaultProfile profile = new FaultProfile(1);
+        profile.setErrorRate(SMPPConstant.STAT_ESME_RSYSERR, 0.3);
+        profile.setErrorRate(SMPPConstant.STAT_ESME_RTHROTTLED, 0.2);
+        int total = 100000;
+        int sysErr = 0;
+        int throttled = 0;
+        for (int i = 0; i < total; i++) {
+            int commandStatus = profile.nextCommandStatus("sys");
+            if (commandStatus == SMPPConstant.STAT_ESME_RSYSERR) {
+                sysErr++;
+            } else if (commandStatus == SMPPConstant.STAT_ESME_RTHROTTLED) {
+                throttled++;
+            } else {
+                assertEquals(commandStatus, SMPPConstant.STAT_ESME_ROK);
+            }
+        }
+        assertEquals(sysErr / (double)total, 0.3, 0.01);
+        assertEquals(throttled / (double)total, 0.2, 0.01);
+
+        profile.setErrorRate(SMPPConstant.STAT_ESME_RSYSERR, 0);
+        profile.setErrorRate(SMPPConstant.STAT_ESME_RTHROTTLED, 0);
+        assertEquals(profile.nextCommandStatus("sys"), SMPPConstant.STAT_ESME_ROK);
+    }
+
+    @Test(groups="checkintest")
+    public void testReceiptLoss() {
+        FaultProfile profile = new FaultProfile(1);
+        profile.setReceiptLatency(LatencyDistribution.fixed(100));
+        profile.setReceiptLossRate(0.25);
+        int total = 100000;
+        int lost = 0;
+        for (int i = 0; i < total; i++) {
+            long delay = profile.nextReceiptDelay("sys");
+            if (delay < 0) {
+                lost++;
+            } else {
+                assertEquals(delay, 100);
+            }
+        }
+        assertEquals(lost / (double)total, 0.25, 0.01);
+    }
+
+    @Test(groups="checkintest")
+    public void testSameSeedReplaysFaultsOfSystemId() {
+        FaultProfile first = newProfile(42);
+        FaultProfile second = newProfile(42);
+        for (int i = 0; i < 1000; i++) {
+            // the draws of other system_id don't change the sequence
+            if (i % 3 == 0) {
+                second.nextCommandStatus("other");
+                second.nextReceiptDelay("other");
+            }
+            assertEquals(second.nextCommandStatus("sys"), first.nextCommandStatus("sys"));
+            assertEquals(second.nextDrop("sys"), first.nextDrop("sys"));
+            assertEquals(second.nextReceiptDelay("sys"), first.nextReceiptDelay("sys"));
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testSystemIdsDrawDifferentFaults() {
+        FaultProfile profile = newProfile(42);
+        StringBuilder sys = new StringBuilder();
+        StringBuilder other = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sys.append(profile.nextReceiptDelay("sys")).append(',');
+            other.append(profile.nextReceiptDelay("other")).append(',');
+        }
+        assertFalse(sys.toString().equals(other.toString()));
+    }
+
+    private static FaultProfile newProfile(long seed) {
+        FaultProfile profile = new FaultProfile(seed);
+        profile.setErrorRate(SMPPConstant.STAT_ESME_RSYSERR, 0.1);
+        profile.setDropRate(0.05);
+        profile.setReceiptLatency(LatencyDistribution.normal(2000, 500));
+        profile.setReceiptLossRate(0.1);
+        return profile;
+    }
+}
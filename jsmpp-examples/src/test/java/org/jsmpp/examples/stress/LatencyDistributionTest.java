@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.examples.stress;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class LatencyDistributionTest {
+    private static final int SAMPLES = 100000;
+
+    @Test(groups="checkintest")
+    public void testFixed() {
+        LatencyDistribution distribution = LatencyDistribution.valueOf("fixed:25");
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(distribution.nextLatency(random), 25);
+        }
+        assertEquals(distribution.toString(), "fixed:25");
+    }
+
+    @Test(groups="checkintest")
+    public void testNormal() {
+        long[] latencies = sample(LatencyDistribution.valueOf("normal: 2000 , 500"));
+        double sum = 0;
+        for (long latency : latencies) {
+            sum += latency;
+        }
+        double mean = sum / latencies.length;
+        double squares = 0;
+        for (long latency : latencies) {
+            squares += (latency - mean) * (latency - mean);
+        }
+        assertEquals(mean, 2000, 10);
+        assertEquals(Math.sqrt(squares / latencies.length), 500, 10);
+    }
+
+    @Test(groups="checkintest")
+    public void testNormalNeverNegative() {
+        long[] latencies = sample(LatencyDistribution.normal(10, 100));
+        assertEquals(latencies[0], 0);
+    }
+
+    @Test(groups="checkintest")
+    public void testLongTail() {
+        long[] latencies = sample(LatencyDistribution.valueOf("longtail:20,1"));
+        assertTrue(latencies[0] >= 0);
+        assertEquals(percentile(latencies, 0.5), 20, 1);
+        // exp(2.326), the 99th percentile of the standard normal
+        assertEquals(percentile(latencies, 0.99), 20 * 10.24, 10);
+    }
+
+    @Test(groups="checkintest")
+    public void testInvalid() {
+        String[] values = { "fixed", "fixed:", "fixed:a", "normal:1", "longtail:1,2,3", "uniform:1,2" };
+        for (String value : values) {
+            try {
+                LatencyDistribution.valueOf(value);
+                fail("Expect IllegalArgumentException for " + value);
+            } catch (IllegalArgumentException e) {
+            }
+        }
+    }
+
+    private static long[] sample(LatencyDistribution distribution) {
+        Random random = new Random(1);
+        long[] latencies = new long[SAMPLES];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = distribution.nextLatency(random);
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long percentile(long[] sortedLatencies, double rank) {
+        return sortedLatencies[(int)(rank * (sortedLatencies.length - 1))];
+    }
+}
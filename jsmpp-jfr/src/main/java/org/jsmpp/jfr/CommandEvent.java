@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Request sent by a session, committed when responded or failed.
+ */
+@Name("org.jsmpp.Command")
+@Label("SMPP Command")
+@Category("SMPP")
+@Description("Request sent by an SMPP session and its response")
+@StackTrace(false)
+class CommandEvent extends SessionEvent {
+
+    @Label("Command Id")
+    int commandId;
+
+    @Label("Sequence Number")
+    int sequenceNumber;
+
+    @Label("Size")
+    @DataAmount
+    int size;
+
+    @Label("Responded")
+    @Description("False if there is no valid response")
+    boolean responded;
+
+    @Label("Command Status")
+    int commandStatus;
+
+    @Label("Response Latency")
+    @Timespan
+    long responseLatency;
+}
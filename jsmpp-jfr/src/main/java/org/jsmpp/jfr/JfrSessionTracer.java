@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.jfr;
+
+import org.jsmpp.bean.Command;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.Session;
+import org.jsmpp.session.SessionTracer;
+
+/**
+ * {@link SessionTracer} emitting Java Flight Recorder events in the
+ * <tt>SMPP</tt> category: <tt>org.jsmpp.Command</tt>,
+ * <tt>org.jsmpp.PDURead</tt>, <tt>org.jsmpp.PDUProcess</tt> and
+ * <tt>org.jsmpp.SessionState</tt>. When the events are not enabled in the
+ * running recording, nothing is recorded and the event objects are
+ * eliminated by the JIT compiler.
+ *
+ * <pre>
+ * session.setTracer(JfrSessionTracer.getInstance());
+ * </pre>
+ */
+public class JfrSessionTracer implements SessionTracer {
+    private static final JfrSessionTracer INSTANCE = new JfrSessionTracer();
+
+    public static JfrSessionTracer getInstance() {
+        return INSTANCE;
+    }
+
+    public void commandExecuted(Session session, int commandId,
+            int sequenceNumber, int size, Command response, long latencyNanos) {
+        CommandEvent event = new CommandEvent();
+        if (event.isEnabled()) {
+            event.sessionId = session.getSessionId();
+            event.commandId = commandId;
+            event.sequenceNumber = sequenceNumber;
+            event.size = size;
+            event.responded = response != null;
+            event.commandStatus = response != null ? response.getCommandStatus() : 0;
+            event.responseLatency = latencyNanos;
+            event.commit();
+        }
+    }
+
+    public void pduRead(Session session, Command pduHeader, long readNanos) {
+        PDUReadEvent event = new PDUReadEvent();
+        if (event.isEnabled()) {
+            event.sessionId = session.getSessionId();
+            event.commandId = pduHeader.getCommandId();
+            event.commandStatus = pduHeader.getCommandStatus();
+            event.sequenceNumber = pduHeader.getSequenceNumber();
+            event.size = pduHeader.getCommandLength();
+            event.readTime = readNanos;
+            event.commit();
+        }
+    }
+
+    public void pduProcessed(Session session, Command pduHeader,
+            long queueWaitNanos, long processNanos) {
+        PDUProcessEvent event = new PDUProcessEvent();
+        if (event.isEnabled()) {
+            event.sessionId = session.getSessionId();
+            event.commandId = pduHeader.getCommandId();
+            event.sequenceNumber = pduHeader.getSequenceNumber();
+            event.size = pduHeader.getCommandLength();
+            event.queueWaitTime = queueWaitNanos;
+            event.processTime = processNanos;
+            event.commit();
+        }
+    }
+
+    public void stateChanged(Session session, SessionState oldState,
+            SessionState newState) {
+        SessionStateEvent event = new SessionStateEvent();
+        if (event.isEnabled()) {
+            event.sessionId = session.getSessionId();
+            event.oldState = oldState != null ? oldState.name() : null;
+            event.newState = newState.name();
+            event.commit();
+        }
+    }
+}
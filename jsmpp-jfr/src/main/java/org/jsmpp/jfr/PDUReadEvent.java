@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * PDU read by a session.
+ */
+@Name("org.jsmpp.PDURead")
+@Label("SMPP PDU Read")
+@Category("SMPP")
+@Description("PDU read by an SMPP session")
+@StackTrace(false)
+class PDUReadEvent extends SessionEvent {
+
+    @Label("Command Id")
+    int commandId;
+
+    @Label("Command Status")
+    int commandStatus;
+
+    @Label("Sequence Number")
+    int sequenceNumber;
+
+    @Label("Size")
+    @DataAmount
+    int size;
+
+    @Label("Read Time")
+    @Description("Time reading the PDU body after the header")
+    @Timespan
+    long readTime;
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.jfr;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.Command;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.SMPPSession;
+import org.testng.annotations.Test;
+
+public class JfrSessionTracerTest {
+
+    @Test(groups="checkintest")
+    public void testRecordEvents() throws Exception {
+        SMPPSession session = new SMPPSession();
+        JfrSessionTracer tracer = JfrSessionTracer.getInstance();
+        Command header = new Command();
+        header.setCommandLength(42);
+        header.setCommandId(SMPPConstant.CID_DELIVER_SM);
+        header.setSequenceNumber(7);
+        Command response = new Command();
+        response.setCommandStatus(SMPPConstant.STAT_ESME_RTHROTTLED);
+
+        // not recorded, no recording running
+        tracer.pduRead(session, header, 1000);
+
+        Recording recording = new Recording();
+        recording.enable("org.jsmpp.Command");
+        recording.enable("org.jsmpp.PDURead");
+        recording.enable("org.jsmpp.PDUProcess");
+        recording.enable("org.jsmpp.SessionState");
+        recording.start();
+        tracer.commandExecuted(session, SMPPConstant.CID_SUBMIT_SM, 3, 60, response, 2000000);
+        tracer.pduRead(session, header, 1000);
+        tracer.pduProcessed(session, header, 3000, 4000);
+        tracer.stateChanged(session, SessionState.OPEN, SessionState.BOUND_TX);
+        recording.stop();
+
+        File file = File.createTempFile("jsmpp", ".jfr");
+        try {
+            recording.dump(file.toPath());
+            recording.close();
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+            Map<String, RecordedEvent> byName = new HashMap<String, RecordedEvent>();
+            for (RecordedEvent event : events) {
+                assertEquals(event.getString("sessionId"), session.getSessionId());
+                assertNull(byName.put(event.getEventType().getName(), event));
+            }
+            assertEquals(byName.size(), 4);
+
+            RecordedEvent command = byName.get("org.jsmpp.Command");
+            assertEquals(command.getInt("commandId"), SMPPConstant.CID_SUBMIT_SM);
+            assertEquals(command.getInt("sequenceNumber"), 3);
+            assertEquals(command.getInt("size"), 60);
+            assertTrue(command.getBoolean("responded"));
+            assertEquals(command.getInt("commandStatus"), SMPPConstant.STAT_ESME_RTHROTTLED);
+            assertEquals(command.getDuration("responseLatency").toMillis(), 2);
+
+            RecordedEvent read = byName.get("org.jsmpp.PDURead");
+            assertEquals(read.getInt("commandId"), SMPPConstant.CID_DELIVER_SM);
+            assertEquals(read.getInt("size"), 42);
+            assertEquals(read.getDuration("readTime").toNanos(), 1000);
+
+            RecordedEvent process = byName.get("org.jsmpp.PDUProcess");
+            assertEquals(process.getInt("sequenceNumber"), 7);
+            assertEquals(process.getDuration("queueWaitTime").toNanos(), 3000);
+            assertEquals(process.getDuration("processTime").toNanos(), 4000);
+
+            RecordedEvent state = byName.get("org.jsmpp.SessionState");
+            assertEquals(state.getString("oldState"), "OPEN");
+            assertEquals(state.getString("newState"), "BOUND_TX");
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link PDUSender} able to send a submit_sm already composed, such as the
+ * submit_sm composed by {@link org.jsmpp.util.SubmitSmTemplate}. The senders
+ * of this library implement it, a decorator should pass the composed PDU on
+ * through {@link org.jsmpp.util.SubmitSmTemplate#sendComposed(PDUSender, OutputStream, byte[], int)}
+ * so the decorators below it see the PDU.
+ */
+public interface ComposedSubmitSmSender extends PDUSender {
+    
+    /**
+     * Send the composed submit_sm. The bytes are only read during the call,
+     * the caller reuses them afterward, so they should be copied to be kept.
+     * 
+     * @param os is the {@link OutputStream}.
+     * @param pdu is the buffer holding the submit_sm from its first octet.
+     * @param length is the length of the submit_sm, its command_length.
+     * @throws PDUStringException if the submit_sm can't be decomposed for a
+     *         sender below not sending composed submit_sm.
+     * @throws IOException if there is an IO error found.
+     */
+    void sendComposedSubmitSm(OutputStream os, byte[] pdu, int length)
+            throws PDUStringException, IOException;
+}
@@ -44,7 +44,7 @@ import org.slf4j.LoggerFactory;
  * @since 1.0
  * 
  */
-public class DefaultPDUSender implements PDUSender {
+public class DefaultPDUSender implements ComposedSubmitSmSender {
     private static final Logger logger = LoggerFactory.getLogger(DefaultPDUSender.class);
     private final PDUComposer pduComposer;
 
@@ -427,14 +427,30 @@ public class DefaultPDUSender implements PDUSender {
         return b;
     }
     
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.ComposedSubmitSmSender#sendComposedSubmitSm(java.io.OutputStream,
+     *      byte[], int)
+     */
+    public void sendComposedSubmitSm(OutputStream os, byte[] pdu, int length)
+            throws IOException {
+        writeAndFlush(os, pdu, length);
+    }
+    
     private static void writeAndFlush(OutputStream out, byte[] b)
             throws IOException {
+        writeAndFlush(out, b, b.length);
+    }
+    
+    private static void writeAndFlush(OutputStream out, byte[] b, int length)
+            throws IOException {
         if(logger.isDebugEnabled())
         {
-            String hexmsg = HexUtil.convertBytesToHexString(b, 0, b.length, " ");
+            String hexmsg = HexUtil.convertBytesToHexString(b, 0, length, " ");
             logger.debug("Sending SMPP message {}", hexmsg);
         }
-        out.write(b);
+        out.write(b, 0, length);
         out.flush();
     }
 }
@@ -0,0 +1,599 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.DataCoding;
+import org.jsmpp.bean.DestinationAddress;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.bean.MessageState;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.ReplaceIfPresentFlag;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.bean.UnsuccessDelivery;
+import org.jsmpp.util.SubmitSmTemplate;
+
+/**
+ * {@link PDUSender} writing the PDU by priority. When there are many threads
+ * sending through the same session, the PDU waiting to be written are written
+ * in this order:
+ * <ol>
+ * <li>{@link Priority#CONTROL}: the responses, enquire_link, bind, unbind and
+ * generic_nack.</li>
+ * <li>{@link Priority#HIGH}: submit_sm, deliver_sm and submit_multi with
+ * priority_flag at least the high priority flag, and the other requests.</li>
+ * <li>{@link Priority#BULK}: the other submit_sm, deliver_sm and
+ * submit_multi.</li>
+ * </ol>
+ * The PDU are composed before waiting, so a waiting PDU only waits for the
+ * PDU being written and the waiting PDU of the same or higher priority. To
+ * keep a steady stream of higher priority PDU from starving the lower
+ * priorities, a priority with waiting PDU is handed the write after being
+ * passed over for the higher priorities <code>maxPassOvers</code> times.
+ * <p>
+ * The write is synchronized on the {@link OutputStream} as
+ * {@link SynchronizedPDUSender} does, use this class instead of it. The
+ * wrapped sender should not synchronize, it writes to a discarding stream and
+ * the returned bytes are written.
+ * </p>
+ * <p>
+ * The priority of the PDU sent by a thread can be set explicitly, whatever
+ * their command and priority_flag, with {@link #overridePriority(Priority)}.
+ * </p>
+ * 
+ * <pre>
+ * PriorityPDUSender pduSender = new PriorityPDUSender(new DefaultPDUSender(), 1);
+ * SMPPSession session = new SMPPSession(pduSender, new DefaultPDUReader(),
+ *         SocketConnectionFactory.getInstance());
+ * 
+ * Priority previous = pduSender.overridePriority(Priority.HIGH);
+ * try {
+ *     session.submitShortMessage(...);
+ * } finally {
+ *     pduSender.overridePriority(previous);
+ * }
+ * </pre>
+ */
+public class PriorityPDUSender implements ComposedSubmitSmSender {
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+    
+    /**
+     * The default handoffs to the higher priorities before a waiting lower
+     * priority PDU is written.
+     */
+    public static final int DEFAULT_MAX_PASS_OVERS = 16;
+    
+    private final PDUSender pduSender;
+    private final int highPriorityFlag;
+    private final int maxPassOvers;
+    private final ThreadLocal<Priority> overriddenPriority = new ThreadLocal<Priority>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition[] turns = new Condition[Priority.values().length];
+    private final int[] waiting = new int[turns.length];
+    private final int[] granted = new int[turns.length];
+    private final int[] passOvers = new int[turns.length];
+    private boolean writing;
+
+    /**
+     * Construct with the priority_flag 1 and above as high priority.
+     */
+    public PriorityPDUSender() {
+        this(new DefaultPDUSender(), 1);
+    }
+
+    /**
+     * Construct with specified {@link PDUSender} and high priority flag.
+     * 
+     * @param pduSender is the actual sender.
+     * @param highPriorityFlag is the minimum priority_flag of the high priority
+     *        short messages.
+     */
+    public PriorityPDUSender(PDUSender pduSender, int highPriorityFlag) {
+        this(pduSender, highPriorityFlag, DEFAULT_MAX_PASS_OVERS);
+    }
+
+    /**
+     * Construct with specified {@link PDUSender}, high priority flag and
+     * maximum pass overs.
+     * 
+     * @param pduSender is the actual sender.
+     * @param highPriorityFlag is the minimum priority_flag of the high priority
+     *        short messages.
+     * @param maxPassOvers is the maximum times a priority with waiting PDU is
+     *        passed over for the higher priorities.
+     */
+    public PriorityPDUSender(PDUSender pduSender, int highPriorityFlag,
+            int maxPassOvers) {
+        if (maxPassOvers < 1) {
+            throw new IllegalArgumentException("maxPassOvers should be greater than 0");
+        }
+        this.pduSender = pduSender;
+        this.highPriorityFlag = highPriorityFlag;
+        this.maxPassOvers = maxPassOvers;
+        for (int i = 0; i < turns.length; i++) {
+            turns[i] = lock.newCondition();
+        }
+    }
+
+    /**
+     * Override the priority of the PDU sent by the current thread, such as
+     * the submit_sm of an urgent short message without priority_flag.
+     * 
+     * @param priority is the priority of the next PDU sent by the current
+     *        thread, or <tt>null</tt> for the priority by the command.
+     * @return the previous overriding priority of the current thread, to be
+     *         restored after sending.
+     */
+    public Priority overridePriority(Priority priority) {
+        Priority previous = overriddenPriority.get();
+        if (priority != null) {
+            overriddenPriority.set(priority);
+        } else {
+            overriddenPriority.remove();
+        }
+        return previous;
+    }
+
+    private Priority priorityOf(byte priorityFlag) {
+        return priorityFlag >= highPriorityFlag ? Priority.HIGH : Priority.BULK;
+    }
+
+    private byte[] send(OutputStream os, Priority priority, byte[] pdu)
+            throws IOException {
+        send(os, priority, pdu, pdu.length);
+        return pdu;
+    }
+
+    private void send(OutputStream os, Priority priority, byte[] pdu,
+            int length) throws IOException {
+        Priority overridden = overriddenPriority.get();
+        acquire(overridden != null ? overridden.ordinal() : priority.ordinal());
+        try {
+            synchronized (os) {
+                os.write(pdu, 0, length);
+            }
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Read the priority_flag of the submit_sm, after the service_type,
+     * source address, destination address, esm_class and protocol_id.
+     */
+    private static byte priorityFlagOf(byte[] pdu, int length) {
+        int offset = skipCOctetString(pdu, 16, length) + 2;
+        offset = skipCOctetString(pdu, offset, length) + 2;
+        offset = skipCOctetString(pdu, offset, length) + 2;
+        return offset < length ? pdu[offset] : 0;
+    }
+
+    private static int skipCOctetString(byte[] pdu, int offset, int length) {
+        while (offset < length && pdu[offset] != 0) {
+            offset++;
+        }
+        return offset + 1;
+    }
+
+    private void acquire(int priority) {
+        lock.lock();
+        try {
+            if (!writing) {
+                writing = true;
+                return;
+            }
+            waiting[priority]++;
+            while (granted[priority] == 0) {
+                turns[priority].awaitUninterruptibly();
+            }
+            granted[priority]--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            // hand over the write to the priority passed over too many times,
+            // otherwise to the highest priority waiting
+            int next = -1;
+            for (int i = 0; i < waiting.length; i++) {
+                if (waiting[i] == 0) {
+                    continue;
+                }
+                if (next < 0) {
+                    next = i;
+                } else if (passOvers[i] >= maxPassOvers) {
+                    next = i;
+                    break;
+                }
+            }
+            if (next < 0) {
+                writing = false;
+                return;
+            }
+            for (int i = next + 1; i < waiting.length; i++) {
+                if (waiting[i] > 0) {
+                    passOvers[i]++;
+                }
+            }
+            passOvers[next] = 0;
+            waiting[next]--;
+            granted[next]++;
+            turns[next].signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendHeader(java.io.OutputStream, int, int, int)
+     */
+    public byte[] sendHeader(OutputStream os, int commandId, int commandStatus,
+            int sequenceNumber) throws IOException {
+        byte[] pdu = pduSender.sendHeader(DISCARD, commandId, commandStatus,
+                sequenceNumber);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendBind(java.io.OutputStream,
+     *      org.jsmpp.BindType, int, java.lang.String, java.lang.String,
+     *      java.lang.String, org.jsmpp.InterfaceVersion,
+     *      org.jsmpp.TypeOfNumber, org.jsmpp.NumberingPlanIndicator,
+     *      java.lang.String)
+     */
+    public byte[] sendBind(OutputStream os, BindType bindType,
+            int sequenceNumber, String systemId, String password,
+            String systemType, InterfaceVersion interfaceVersion,
+            TypeOfNumber addrTon, NumberingPlanIndicator addrNpi,
+            String addressRange) throws PDUStringException, IOException {
+        byte[] pdu = pduSender.sendBind(DISCARD, bindType, sequenceNumber, systemId,
+                password, systemType, interfaceVersion, addrTon, addrNpi,
+                addressRange);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendBindResp(java.io.OutputStream, int, int,
+     *      java.lang.String)
+     */
+    public byte[] sendBindResp(OutputStream os, int commandId,
+            int sequenceNumber, String systemId, InterfaceVersion interfaceVersion) throws PDUStringException,
+            IOException {
+        byte[] pdu = pduSender.sendBindResp(DISCARD, commandId, sequenceNumber,
+                systemId, interfaceVersion);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendUnbind(java.io.OutputStream, int)
+     */
+    public byte[] sendUnbind(OutputStream os, int sequenceNumber)
+            throws IOException {
+        byte[] pdu = pduSender.sendUnbind(DISCARD, sequenceNumber);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendGenericNack(java.io.OutputStream, int, int)
+     */
+    public byte[] sendGenericNack(OutputStream os, int commandStatus,
+            int sequenceNumber) throws IOException {
+        byte[] pdu = pduSender.sendGenericNack(DISCARD, commandStatus, sequenceNumber);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendUnbindResp(java.io.OutputStream, int, int)
+     */
+    public byte[] sendUnbindResp(OutputStream os, int commandStatus,
+            int sequenceNumber) throws IOException {
+        byte[] pdu = pduSender.sendUnbindResp(DISCARD, commandStatus, sequenceNumber);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendEnquireLink(java.io.OutputStream, int)
+     */
+    public byte[] sendEnquireLink(OutputStream out, int sequenceNumber)
+            throws IOException {
+        byte[] pdu = pduSender.sendEnquireLink(DISCARD, sequenceNumber);
+        return send(out, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendEnquireLinkResp(java.io.OutputStream, int)
+     */
+    public byte[] sendEnquireLinkResp(OutputStream os, int sequenceNumber)
+            throws IOException {
+        byte[] pdu = pduSender.sendEnquireLinkResp(DISCARD, sequenceNumber);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendSubmitSm(java.io.OutputStream, int,
+     *      java.lang.String, org.jsmpp.TypeOfNumber,
+     *      org.jsmpp.NumberingPlanIndicator, java.lang.String,
+     *      org.jsmpp.TypeOfNumber, org.jsmpp.NumberingPlanIndicator,
+     *      java.lang.String, org.jsmpp.bean.ESMClass, byte, byte,
+     *      java.lang.String, java.lang.String,
+     *      org.jsmpp.bean.RegisteredDelivery, byte, org.jsmpp.bean.DataCoding,
+     *      byte, byte[], org.jsmpp.bean.OptionalParameter[])
+     */
+    public byte[] sendSubmitSm(OutputStream os, int sequenceNumber,
+            String serviceType, TypeOfNumber sourceAddrTon,
+            NumberingPlanIndicator sourceAddrNpi, String sourceAddr,
+            TypeOfNumber destAddrTon, NumberingPlanIndicator destAddrNpi,
+            String destinationAddr, ESMClass esmClass, byte protocolId,
+            byte priorityFlag, String scheduleDeliveryTime,
+            String validityPeriod, RegisteredDelivery registeredDelivery,
+            byte replaceIfPresent, DataCoding dataCoding, byte smDefaultMsgId,
+            byte[] shortMessage, OptionalParameter... optionalParameters)
+            throws PDUStringException, IOException {
+        byte[] pdu = pduSender.sendSubmitSm(DISCARD, sequenceNumber, serviceType,
+                sourceAddrTon, sourceAddrNpi, sourceAddr, destAddrTon,
+                destAddrNpi, destinationAddr, esmClass, protocolId,
+                priorityFlag, scheduleDeliveryTime, validityPeriod,
+                registeredDelivery, replaceIfPresent, dataCoding,
+                smDefaultMsgId, shortMessage, optionalParameters);
+        return send(os, priorityOf(priorityFlag), pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.ComposedSubmitSmSender#sendComposedSubmitSm(java.io.OutputStream,
+     *      byte[], int)
+     */
+    public void sendComposedSubmitSm(OutputStream os, byte[] pdu, int length)
+            throws PDUStringException, IOException {
+        SubmitSmTemplate.sendComposed(pduSender, DISCARD, pdu, length);
+        send(os, priorityOf(priorityFlagOf(pdu, length)), pdu, length);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendSubmitSmResp(java.io.OutputStream, int,
+     *      java.lang.String)
+     */
+    public byte[] sendSubmitSmResp(OutputStream os, int sequenceNumber,
+            String messageId) throws PDUStringException, IOException {
+        byte[] pdu = pduSender.sendSubmitSmResp(DISCARD, sequenceNumber, messageId);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendQuerySm(java.io.OutputStream, int,
+     *      java.lang.String, org.jsmpp.TypeOfNumber,
+     *      org.jsmpp.NumberingPlanIndicator, java.lang.String)
+     */
+    public byte[] sendQuerySm(OutputStream os, int sequenceNumber,
+            String messageId, TypeOfNumber sourceAddrTon,
+            NumberingPlanIndicator sourceAddrNpi, String sourceAddr)
+            throws PDUStringException, IOException {
+        byte[] pdu = pduSender.sendQuerySm(DISCARD, sequenceNumber, messageId,
+                sourceAddrTon, sourceAddrNpi, sourceAddr);
+        return send(os, Priority.HIGH, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendQuerySmResp(java.io.OutputStream, int,
+     *      java.lang.String, java.lang.String, org.jsmpp.bean.MessageState,
+     *      byte)
+     */
+    public byte[] sendQuerySmResp(OutputStream os, int sequenceNumber,
+            String messageId, String finalDate, MessageState messageState,
+            byte errorCode) throws PDUStringException, IOException {
+        byte[] pdu = pduSender.sendQuerySmResp(DISCARD, sequenceNumber, messageId,
+                finalDate, messageState, errorCode);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendDeliverSm(java.io.OutputStream, int,
+     *      java.lang.String, org.jsmpp.TypeOfNumber,
+     *      org.jsmpp.NumberingPlanIndicator, java.lang.String,
+     *      org.jsmpp.TypeOfNumber, org.jsmpp.NumberingPlanIndicator,
+     *      java.lang.String, org.jsmpp.bean.ESMClass, byte, byte,
+     *      org.jsmpp.bean.RegisteredDelivery, org.jsmpp.bean.DataCoding,
+     *      byte[], org.jsmpp.bean.OptionalParameter[])
+     */
+    public byte[] sendDeliverSm(OutputStream os, int sequenceNumber,
+            String serviceType, TypeOfNumber sourceAddrTon,
+            NumberingPlanIndicator sourceAddrNpi, String sourceAddr,
+            TypeOfNumber destAddrTon, NumberingPlanIndicator destAddrNpi,
+            String destinationAddr, ESMClass esmClass, byte protocoId,
+            byte priorityFlag, RegisteredDelivery registeredDelivery,
+            DataCoding dataCoding, byte[] shortMessage,
+            OptionalParameter... optionalParameters) throws PDUStringException,
+            IOException {
+        byte[] pdu = pduSender.sendDeliverSm(DISCARD, sequenceNumber, serviceType,
+                sourceAddrTon, sourceAddrNpi, sourceAddr, destAddrTon,
+                destAddrNpi, destinationAddr, esmClass, protocoId,
+                priorityFlag, registeredDelivery, dataCoding, shortMessage,
+                optionalParameters);
+        return send(os, priorityOf(priorityFlag), pdu);
+    }
+
+    public byte[] sendDeliverSmResp(OutputStream os, int commandStatus, int sequenceNumber)
+            throws IOException {
+        byte[] pdu = pduSender.sendDeliverSmResp(DISCARD, commandStatus, sequenceNumber);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendDataSm(java.io.OutputStream, int,
+     *      java.lang.String, org.jsmpp.TypeOfNumber,
+     *      org.jsmpp.NumberingPlanIndicator, java.lang.String,
+     *      org.jsmpp.TypeOfNumber, org.jsmpp.NumberingPlanIndicator,
+     *      java.lang.String, org.jsmpp.bean.ESMClass,
+     *      org.jsmpp.bean.RegisteredDelivery, org.jsmpp.bean.DataCoding,
+     *      org.jsmpp.bean.OptionalParameter[])
+     */
+    public byte[] sendDataSm(OutputStream os, int sequenceNumber,
+            String serviceType, TypeOfNumber sourceAddrTon,
+            NumberingPlanIndicator sourceAddrNpi, String sourceAddr,
+            TypeOfNumber destAddrTon, NumberingPlanIndicator destAddrNpi,
+            String destinationAddr, ESMClass esmClass,
+            RegisteredDelivery registeredDelivery, DataCoding dataCoding,
+            OptionalParameter... optionalParameters) throws PDUStringException,
+            IOException {
+        byte[] pdu = pduSender.sendDataSm(DISCARD, sequenceNumber, serviceType,
+                sourceAddrTon, sourceAddrNpi, sourceAddr, destAddrTon,
+                destAddrNpi, destinationAddr, esmClass, registeredDelivery,
+                dataCoding, optionalParameters);
+        return send(os, Priority.HIGH, pdu);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.PDUSender#sendDataSmResp(java.io.OutputStream, int,
+     *      java.lang.String, org.jsmpp.bean.OptionalParameter[])
+     */
+    public byte[] sendDataSmResp(OutputStream os, int sequenceNumber,
+            String messageId, OptionalParameter... optionalParameters)
+            throws PDUStringException, IOException {
+        byte[] pdu = pduSender.sendDataSmResp(DISCARD, sequenceNumber, messageId,
+                optionalParameters);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    public byte[] sendCancelSm(OutputStream os, int sequenceNumber,
+            String serviceType, String messageId, TypeOfNumber sourceAddrTon,
+            NumberingPlanIndicator sourceAddrNpi, String sourceAddr,
+            TypeOfNumber destAddrTon, NumberingPlanIndicator destAddrNpi,
+            String destinationAddr) throws PDUStringException, IOException {
+        byte[] pdu = pduSender.sendCancelSm(DISCARD, sequenceNumber, serviceType,
+                messageId, sourceAddrTon, sourceAddrNpi, sourceAddr,
+                destAddrTon, destAddrNpi, destinationAddr);
+        return send(os, Priority.HIGH, pdu);
+    }
+
+    public byte[] sendCancelSmResp(OutputStream os, int sequenceNumber)
+            throws IOException {
+        byte[] pdu = pduSender.sendCancelSmResp(DISCARD, sequenceNumber);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    public byte[] sendReplaceSm(OutputStream os, int sequenceNumber,
+            String messageId, TypeOfNumber sourceAddrTon,
+            NumberingPlanIndicator sourceAddrNpi, String sourceAddr,
+            String scheduleDeliveryTime, String validityPeriod,
+            RegisteredDelivery registeredDelivery, byte smDefaultMsgId,
+            byte[] shortMessage) throws PDUStringException, IOException {
+        byte[] pdu = pduSender.sendReplaceSm(DISCARD, sequenceNumber, messageId,
+                sourceAddrTon, sourceAddrNpi, sourceAddr,
+                scheduleDeliveryTime, validityPeriod, registeredDelivery,
+                smDefaultMsgId, shortMessage);
+        return send(os, Priority.HIGH, pdu);
+    }
+
+    public byte[] sendReplaceSmResp(OutputStream os, int sequenceNumber)
+            throws IOException {
+        byte[] pdu = pduSender.sendReplaceSmResp(DISCARD, sequenceNumber);
+        return send(os, Priority.CONTROL, pdu);
+    }
+
+    public byte[] sendSubmiMulti(OutputStream os, int sequenceNumber,
+            String serviceType, TypeOfNumber sourceAddrTon,
+            NumberingPlanIndicator sourceAddrNpi, String sourceAddr,
+            DestinationAddress[] destinationAddresses, ESMClass esmClass,
+            byte protocolId, byte priorityFlag, String scheduleDeliveryTime,
+            String validityPeriod, RegisteredDelivery registeredDelivery,
+            ReplaceIfPresentFlag replaceIfPresentFlag, DataCoding dataCoding,
+            byte smDefaultMsgId, byte[] shortMessage,
+            OptionalParameter... optionalParameters) throws PDUStringException,
+            InvalidNumberOfDestinationsException, IOException {
+        byte[] pdu = pduSender.sendSubmiMulti(DISCARD, sequenceNumber, serviceType,
+                sourceAddrTon, sourceAddrNpi, sourceAddr,
+                destinationAddresses, esmClass, protocolId, priorityFlag,
+                scheduleDeliveryTime, validityPeriod, registeredDelivery,
+                replaceIfPresentFlag, dataCoding, smDefaultMsgId,
+                shortMessage, optionalParameters);
+        return send(os, priorityOf(priorityFlag), pdu);
+    }
+
+    public byte[] sendSubmitMultiResp(OutputStream os, int sequenceNumber,
+            String messageId, UnsuccessDelivery... unsuccessDeliveries)
+            throws PDUStringException, IOException {
+        byte[] pdu = pduSender.sendSubmitMultiResp(DISCARD, sequenceNumber, messageId,
+                unsuccessDeliveries);
+        return send(os, Priority.CONTROL, pdu);
+    }
+    
+    public byte[] sendAlertNotification(OutputStream os, int sequenceNumber,
+            byte sourceAddrTon, byte sourceAddrNpi, String sourceAddr,
+            byte esmeAddrTon, byte esmeAddrNpi, String esmeAddr,
+            OptionalParameter... optionalParameters) throws PDUStringException,
+            IOException {
+        byte[] pdu = pduSender.sendAlertNotification(DISCARD, sequenceNumber,
+                sourceAddrTon, sourceAddrNpi, sourceAddr, esmeAddrTon,
+                esmeAddrNpi, esmeAddr, optionalParameters);
+        return send(os, Priority.HIGH, pdu);
+    }
+
+    /**
+     * Priority of the written PDU, the lower ordinal is written first.
+     */
+    public enum Priority {
+        CONTROL, HIGH, BULK
+    }
+}
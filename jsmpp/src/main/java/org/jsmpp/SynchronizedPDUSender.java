@@ -29,6 +29,7 @@ import org.jsmpp.bean.RegisteredDelivery;
 import org.jsmpp.bean.ReplaceIfPresentFlag;
 import org.jsmpp.bean.TypeOfNumber;
 import org.jsmpp.bean.UnsuccessDelivery;
+import org.jsmpp.util.SubmitSmTemplate;
 
 /**
  * PDU sender with synchronized the {@link OutputStream}.
@@ -38,7 +39,7 @@ import org.jsmpp.bean.UnsuccessDelivery;
  * @since 1.0
  * 
  */
-public class SynchronizedPDUSender implements PDUSender {
+public class SynchronizedPDUSender implements ComposedSubmitSmSender {
     private final PDUSender pduSender;
 
     /**
@@ -401,4 +402,17 @@ public class SynchronizedPDUSender implements PDUSender {
                     esmeAddrNpi, esmeAddr, optionalParameters);
         }
     }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.jsmpp.ComposedSubmitSmSender#sendComposedSubmitSm(java.io.OutputStream,
+     *      byte[], int)
+     */
+    public void sendComposedSubmitSm(OutputStream os, byte[] pdu, int length)
+            throws PDUStringException, IOException {
+        synchronized (os) {
+            SubmitSmTemplate.sendComposed(pduSender, os, pdu, length);
+        }
+    }
 }
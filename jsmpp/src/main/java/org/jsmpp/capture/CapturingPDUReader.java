@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import org.jsmpp.InvalidCommandLengthException;
+import org.jsmpp.PDUReader;
+import org.jsmpp.bean.Command;
+
+/**
+ * {@link PDUReader} decorator passing every read PDU to {@link PDUCapture}.
+ */
+public class CapturingPDUReader implements PDUReader {
+    private final PDUReader pduReader;
+    private final PDUCapture capture;
+    
+    /**
+     * Construct with specified {@link PDUReader} and {@link PDUCapture}.
+     * 
+     * @param pduReader is the actual reader.
+     * @param capture is the capture receiving the read PDU.
+     */
+    public CapturingPDUReader(PDUReader pduReader, PDUCapture capture) {
+        this.pduReader = pduReader;
+        this.capture = capture;
+    }
+    
+    /* (non-Javadoc)
+     * @see org.jsmpp.PDUReader#readPDUHeader(java.io.DataInputStream)
+     */
+    public Command readPDUHeader(DataInputStream in)
+            throws InvalidCommandLengthException, IOException {
+        return pduReader.readPDUHeader(in);
+    }
+    
+    /* (non-Javadoc)
+     * @see org.jsmpp.PDUReader#readPDU(java.io.DataInputStream, org.jsmpp.bean.Command)
+     */
+    public byte[] readPDU(DataInputStream in, Command pduHeader)
+            throws IOException {
+        byte[] pdu = pduReader.readPDU(in, pduHeader);
+        capture.capture(PDUDirection.INBOUND, pdu);
+        return pdu;
+    }
+    
+    /* (non-Javadoc)
+     * @see org.jsmpp.PDUReader#readPDU(java.io.DataInputStream, int, int, int, int)
+     */
+    public byte[] readPDU(DataInputStream in, int commandLength, int commandId,
+            int commandStatus, int sequenceNumber) throws IOException {
+        byte[] pdu = pduReader.readPDU(in, commandLength, commandId,
+                commandStatus, sequenceNumber);
+        capture.capture(PDUDirection.INBOUND, pdu);
+        return pdu;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+/**
+ * Capture of the raw PDU read and sent by a session.
+ */
+public interface PDUCapture {
+    
+    /**
+     * Capture the PDU. This method is called on the reading and sending
+     * threads, it should return fast and should not throw any exception.
+     * 
+     * @param direction is the direction of the PDU.
+     * @param pdu is the complete PDU, should not be modified.
+     */
+    void capture(PDUDirection direction, byte[] pdu);
+}
@@ -0,0 +1,283 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PDUCapture} writing the PDU to rotating, memory-mapped capture files.
+ * <p>
+ * Each file starts with a 4 octets magic number followed by the records. A
+ * record is composed of the timestamp in microseconds (8 octets), the
+ * direction (1 octet) and the PDU itself, the PDU length is the
+ * command_length of the PDU. The direction is written last, so a record not
+ * completely written will not be read.
+ * </p>
+ * <p>
+ * Capturing a PDU is only a copy to the mapped file, the operating system
+ * writes the pages to the disk. When the file is full, the next file is
+ * created and the oldest file is deleted when there are more than
+ * <code>maxFiles</code> files, so the disk usage is bounded to
+ * <code>fileSize * maxFiles</code>.
+ * </p>
+ * <p>
+ * The sessions sharing the capture file don't serialize on it: each record
+ * claims its region of the file with a compare-and-set and is copied in
+ * place, only the rotation takes a lock. The records of concurrent threads
+ * may then be written slightly out of timestamp order.
+ * </p>
+ */
+public class PDUCaptureFile implements PDUCapture {
+    private static final Logger logger = LoggerFactory.getLogger(PDUCaptureFile.class);
+
+    static final int MAGIC = 0x534d5043;
+    static final int FILE_HEADER_LENGTH = 4;
+    static final int RECORD_HEADER_LENGTH = 9;
+    static final String SUFFIX = ".cap";
+
+    private final File directory;
+    private final String prefix;
+    private final int fileSize;
+    private final int maxFiles;
+    private final LinkedList<File> files = new LinkedList<File>();
+    private final long baseMicros;
+    private final long baseNanos;
+    private final AtomicLong capturedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private int nextFileNumber;
+    private RandomAccessFile raf;
+    // null once closed
+    private volatile Segment current;
+    private boolean closed;
+
+    /**
+     * Construct capture file.
+     *
+     * @param directory is the directory of the capture files.
+     * @param prefix is the prefix of the capture file names.
+     * @param fileSize is the size of each capture file in octets.
+     * @param maxFiles is the maximum capture files kept.
+     * @throws IOException if there is an IO error found.
+     */
+    public PDUCaptureFile(File directory, String prefix, int fileSize,
+            int maxFiles) throws IOException {
+        if (fileSize <= FILE_HEADER_LENGTH + RECORD_HEADER_LENGTH + 16) {
+            throw new IllegalArgumentException("File size " + fileSize + " is too small");
+        }
+        if (maxFiles < 1) {
+            throw new IllegalArgumentException("maxFiles should be greater than 0");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed creating capture directory " + directory);
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.fileSize = fileSize;
+        this.maxFiles = maxFiles;
+        for (File file : listFiles(directory, prefix)) {
+            files.add(file);
+            nextFileNumber = Math.max(nextFileNumber, fileNumber(prefix, file) + 1);
+        }
+        baseMicros = System.currentTimeMillis() * 1000;
+        baseNanos = System.nanoTime();
+        rotate();
+    }
+
+    public void capture(PDUDirection direction, byte[] pdu) {
+        int length = RECORD_HEADER_LENGTH + pdu.length;
+        if (length > fileSize - FILE_HEADER_LENGTH) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        while (true) {
+            Segment segment = current;
+            if (segment == null) {
+                return;
+            }
+            int offset = segment.claim(length);
+            if (offset >= 0) {
+                segment.write(offset, direction, timestamp(), pdu);
+                capturedCount.incrementAndGet();
+                return;
+            }
+            if (!rotateFull(segment)) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the total captured PDU.
+     */
+    public long getCapturedCount() {
+        return capturedCount.get();
+    }
+
+    /**
+     * @return the total PDU not captured because of too large or IO error.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Stop capturing and close the current capture file. A record being
+     * copied by another thread is still completed in the mapped file.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = null;
+        closeCurrent();
+    }
+
+    private long timestamp() {
+        return baseMicros + (System.nanoTime() - baseNanos) / 1000;
+    }
+
+    /**
+     * Rotate if the full segment is still the current one, the other threads
+     * finding it full wait for the rotation then claim in the new one.
+     *
+     * @param full is the segment found full.
+     * @return <tt>false</tt> if the rotation failed.
+     */
+    private synchronized boolean rotateFull(Segment full) {
+        if (!closed && current == full) {
+            try {
+                rotate();
+            } catch (IOException e) {
+                logger.error("Failed rotating capture file, capturing stopped", e);
+                close();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void closeCurrent() {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                logger.warn("Failed closing capture file: {}", e.getMessage());
+            }
+            raf = null;
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeCurrent();
+        File file = new File(directory, prefix + "-" + String.format("%08d", nextFileNumber++) + SUFFIX);
+        raf = new RandomAccessFile(file, "rw");
+        MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        buffer.putInt(0, MAGIC);
+        current = new Segment(buffer);
+        files.add(file);
+        while (files.size() > maxFiles) {
+            File oldest = files.removeFirst();
+            if (!oldest.delete()) {
+                logger.warn("Failed deleting capture file {}", oldest);
+            }
+        }
+    }
+
+    /**
+     * List the capture files in the order they were written.
+     *
+     * @param directory is the directory of the capture files.
+     * @param prefix is the prefix of the capture file names.
+     * @return the capture files.
+     */
+    public static File[] listFiles(File directory, final String prefix) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith(prefix + "-") && name.endsWith(SUFFIX);
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static int fileNumber(String prefix, File file) {
+        String name = file.getName();
+        try {
+            return Integer.parseInt(name.substring(prefix.length() + 1,
+                    name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The mapped buffer of a capture file with its claimed position. Only the
+     * absolute get and put, or the put through a duplicate, are used so the
+     * threads can share the buffer.
+     */
+    private static class Segment {
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger position = new AtomicInteger(FILE_HEADER_LENGTH);
+
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return the offset of the claimed region or -1 if the segment is
+         *         full.
+         */
+        int claim(int length) {
+            while (true) {
+                int offset = position.get();
+                if (offset + length > buffer.capacity()) {
+                    return -1;
+                }
+                if (position.compareAndSet(offset, offset + length)) {
+                    return offset;
+                }
+            }
+        }
+
+        void write(int offset, PDUDirection direction, long timestamp, byte[] pdu) {
+            buffer.putLong(offset, timestamp);
+            // the position of the shared buffer isn't used, put through a duplicate
+            ByteBuffer region = ((ByteBuffer)buffer).duplicate();
+            ((Buffer)region).position(offset + RECORD_HEADER_LENGTH);
+            region.put(pdu);
+            // the direction written at last mark the record as complete
+            buffer.put(offset + 8, direction.value());
+        }
+    }
+}
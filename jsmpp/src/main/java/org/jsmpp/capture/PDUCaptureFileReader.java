@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reader of the files written by {@link PDUCaptureFile}.
+ * <p>
+ * The files can be read while they are being written. A record claimed by
+ * the writer but not completely written yet looks like the end of the file,
+ * so after reaching the end of the last file {@link #read()} returns
+ * <tt>null</tt> but keeps the position and reads that record again on the
+ * next call, the caller can poll to follow the live file. The ends of the
+ * other files are final, the writer only completes the last one.
+ * </p>
+ *
+ * <pre>
+ * PDUCaptureFileReader reader = new PDUCaptureFileReader(
+ *         PDUCaptureFile.listFiles(directory, &quot;smsc&quot;));
+ * try {
+ *     PDUCaptureRecord record;
+ *     while ((record = reader.read()) != null) {
+ *         ...
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ */
+public class PDUCaptureFileReader {
+    private final File[] files;
+    private int nextFileIndex;
+    private RandomAccessFile raf;
+    private MappedByteBuffer buffer;
+
+    /**
+     * Construct reader of the capture files, the files will be read in the
+     * specified order.
+     *
+     * @param files is the capture files.
+     */
+    public PDUCaptureFileReader(File... files) {
+        this.files = files;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return the next record or <tt>null</tt> if there is no more record
+     *         yet.
+     * @throws IOException if there is an IO error found or the file is not a
+     *         capture file.
+     */
+    public PDUCaptureRecord read() throws IOException {
+        while (true) {
+            if (buffer == null && !openNext()) {
+                return null;
+            }
+            PDUCaptureRecord record = readRecord();
+            if (record != null) {
+                return record;
+            }
+            if (nextFileIndex >= files.length) {
+                // the writer may not have completed the record yet, poll it again on the next read
+                return null;
+            }
+            closeCurrent();
+        }
+    }
+
+    public void close() throws IOException {
+        closeCurrent();
+        nextFileIndex = files.length;
+    }
+
+    private PDUCaptureRecord readRecord() {
+        int offset = buffer.position();
+        if (offset + PDUCaptureFile.RECORD_HEADER_LENGTH + 16 > buffer.limit()) {
+            return null;
+        }
+        PDUDirection direction = PDUDirection.valueOf(buffer.get(offset + 8));
+        int length = buffer.getInt(offset + PDUCaptureFile.RECORD_HEADER_LENGTH);
+        if (direction == null || length < 16
+                || offset + PDUCaptureFile.RECORD_HEADER_LENGTH + length > buffer.limit()) {
+            return null;
+        }
+        long timestamp = buffer.getLong(offset);
+        byte[] pdu = new byte[length];
+        // through Buffer, MappedByteBuffer.position(int) is only since Java 13
+        ((Buffer)buffer).position(offset + PDUCaptureFile.RECORD_HEADER_LENGTH);
+        buffer.get(pdu);
+        return new PDUCaptureRecord(timestamp, direction, pdu);
+    }
+
+    private boolean openNext() throws IOException {
+        if (nextFileIndex >= files.length) {
+            return false;
+        }
+        File file = files[nextFileIndex++];
+        raf = new RandomAccessFile(file, "r");
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        if (buffer.limit() < PDUCaptureFile.FILE_HEADER_LENGTH
+                || buffer.getInt(0) != PDUCaptureFile.MAGIC) {
+            closeCurrent();
+            throw new IOException(file + " is not a PDU capture file");
+        }
+        ((Buffer)buffer).position(PDUCaptureFile.FILE_HEADER_LENGTH);
+        return true;
+    }
+
+    private void closeCurrent() throws IOException {
+        buffer = null;
+        if (raf != null) {
+            raf.close();
+            raf = null;
+        }
+    }
+}
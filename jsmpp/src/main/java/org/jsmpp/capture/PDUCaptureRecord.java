@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+import org.jsmpp.util.OctetUtil;
+
+/**
+ * Record of the capture file.
+ */
+public class PDUCaptureRecord {
+    private final long timestamp;
+    private final PDUDirection direction;
+    private final byte[] pdu;
+
+    public PDUCaptureRecord(long timestamp, PDUDirection direction, byte[] pdu) {
+        this.timestamp = timestamp;
+        this.direction = direction;
+        this.pdu = pdu;
+    }
+
+    /**
+     * @return the capture time in microseconds since epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the direction of the PDU.
+     */
+    public PDUDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return the complete PDU, or the first octets of the PDU for the
+     *         records of {@link PDUFlightRecorder}.
+     */
+    public byte[] getPdu() {
+        return pdu;
+    }
+
+    /**
+     * @return the command_id of the PDU.
+     */
+    public int getCommandId() {
+        return OctetUtil.bytesToInt(pdu, 4);
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.DataCodings;
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.session.SMPPServerSession;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.util.BoundedExecutor;
+import org.jsmpp.util.DefaultDecomposer;
+import org.jsmpp.util.PDUDecomposer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replay the captured short messages through a session. The submit_sm
+ * records are submitted through {@link SMPPSession} and the deliver_sm
+ * records are delivered through {@link SMPPServerSession}, whatever the
+ * direction they were captured; the other records are skipped.
+ * <p>
+ * The records are replayed with the same time distance as they were
+ * captured divided by the speed: 1 is the original speed, 2 is twice faster
+ * and 0 is as fast as possible. At most <code>concurrency</code> short
+ * messages are waiting for response, so the slow responses only delay the
+ * replay when all of them are waiting. They are sent on the executor set by
+ * {@link #setExecutor(Executor)}, or the shared pool of
+ * {@link BoundedExecutor}.
+ * </p>
+ */
+public class PDUCaptureReplayer {
+    private static final Logger logger = LoggerFactory.getLogger(PDUCaptureReplayer.class);
+
+    private final PDUDecomposer decomposer = DefaultDecomposer.getInstance();
+    private final double speed;
+    private final int concurrency;
+    private volatile Executor executor;
+
+    /**
+     * Construct replayer.
+     *
+     * @param speed is the replay speed, 0 means as fast as possible.
+     * @param concurrency is the total threads sending the short messages.
+     */
+    public PDUCaptureReplayer(double speed, int concurrency) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed should not be negative");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency should be greater than 0");
+        }
+        this.speed = speed;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param executor is the executor sending the short messages, or
+     *        <tt>null</tt> for the shared pool.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Submit the captured submit_sm through the session.
+     *
+     * @param reader is the capture reader.
+     * @param session is the bound session.
+     * @return the replay result.
+     * @throws IOException if there is an IO error found while reading the
+     *         capture.
+     * @throws InterruptedException if interrupted while replaying.
+     */
+    public Result replay(PDUCaptureFileReader reader, final SMPPSession session)
+            throws IOException, InterruptedException {
+        return replay(reader, SMPPConstant.CID_SUBMIT_SM, new Sender() {
+            public void send(byte[] pdu) throws Exception {
+                SubmitSm submitSm = decomposer.submitSm(pdu);
+                session.submitShortMessage(submitSm.getServiceType(),
+                        TypeOfNumber.valueOf(submitSm.getSourceAddrTon()),
+                        NumberingPlanIndicator.valueOf(submitSm.getSourceAddrNpi()),
+                        submitSm.getSourceAddr(),
+                        TypeOfNumber.valueOf(submitSm.getDestAddrTon()),
+                        NumberingPlanIndicator.valueOf(submitSm.getDestAddrNpi()),
+                        submitSm.getDestAddress(),
+                        new ESMClass(submitSm.getEsmClass()),
+                        submitSm.getProtocolId(), submitSm.getPriorityFlag(),
+                        submitSm.getScheduleDeliveryTime(),
+                        submitSm.getValidityPeriod(),
+                        new RegisteredDelivery(submitSm.getRegisteredDelivery()),
+                        submitSm.getReplaceIfPresent(),
+                        DataCodings.newInstance(submitSm.getDataCoding()),
+                        submitSm.getSmDefaultMsgId(),
+                        submitSm.getShortMessage(),
+                        optionalParameters(submitSm.getOptionalParameters()));
+            }
+        });
+    }
+
+    /**
+     * Deliver the captured deliver_sm through the session.
+     *
+     * @param reader is the capture reader.
+     * @param session is the bound session.
+     * @return the replay result.
+     * @throws IOException if there is an IO error found while reading the
+     *         capture.
+     * @throws InterruptedException if interrupted while replaying.
+     */
+    public Result replay(PDUCaptureFileReader reader,
+            final SMPPServerSession session) throws IOException,
+            InterruptedException {
+        return replay(reader, SMPPConstant.CID_DELIVER_SM, new Sender() {
+            public void send(byte[] pdu) throws Exception {
+                DeliverSm deliverSm = decomposer.deliverSm(pdu);
+                session.deliverShortMessage(deliverSm.getServiceType(),
+                        TypeOfNumber.valueOf(deliverSm.getSourceAddrTon()),
+                        NumberingPlanIndicator.valueOf(deliverSm.getSourceAddrNpi()),
+                        deliverSm.getSourceAddr(),
+                        TypeOfNumber.valueOf(deliverSm.getDestAddrTon()),
+                        NumberingPlanIndicator.valueOf(deliverSm.getDestAddrNpi()),
+                        deliverSm.getDestAddress(),
+                        new ESMClass(deliverSm.getEsmClass()),
+                        deliverSm.getProtocolId(), deliverSm.getPriorityFlag(),
+                        new RegisteredDelivery(deliverSm.getRegisteredDelivery()),
+                        DataCodings.newInstance(deliverSm.getDataCoding()),
+                        deliverSm.getShortMessage(),
+                        optionalParameters(deliverSm.getOptionalParameters()));
+            }
+        });
+    }
+
+    private Result replay(PDUCaptureFileReader reader, int commandId,
+            final Sender sender) throws IOException, InterruptedException {
+        final Result result = new Result();
+        BoundedExecutor boundedExecutor = new BoundedExecutor(executor, concurrency);
+        try {
+            long startNanos = System.nanoTime();
+            long firstTimestamp = -1;
+            PDUCaptureRecord record;
+            while ((record = reader.read()) != null) {
+                if (record.getCommandId() != commandId) {
+                    result.skipped.incrementAndGet();
+                    continue;
+                }
+                if (speed > 0) {
+                    if (firstTimestamp < 0) {
+                        firstTimestamp = record.getTimestamp();
+                    }
+                    long due = startNanos + (long)((record.getTimestamp() - firstTimestamp) * 1000 / speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+
+                final byte[] pdu = record.getPdu();
+                boundedExecutor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            sender.send(pdu);
+                            result.replayed.incrementAndGet();
+                        } catch (Exception e) {
+                            logger.debug("Failed replaying PDU: {}", e.getMessage());
+                            result.failed.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        } finally {
+            boundedExecutor.awaitCompletion();
+        }
+        return result;
+    }
+
+    /**
+     * The decomposer gives null when there is no optional parameter.
+     */
+    private static OptionalParameter[] optionalParameters(
+            OptionalParameter[] optionalParameters) {
+        return optionalParameters != null ? optionalParameters : new OptionalParameter[0];
+    }
+
+    private interface Sender {
+        void send(byte[] pdu) throws Exception;
+    }
+
+    /**
+     * Result of the replay.
+     */
+    public static class Result {
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+
+        /**
+         * @return the total short messages sent and accepted.
+         */
+        public long getReplayed() {
+            return replayed.get();
+        }
+
+        /**
+         * @return the total short messages failed or rejected.
+         */
+        public long getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * @return the total records of other commands.
+         */
+        public long getSkipped() {
+            return skipped.get();
+        }
+
+        @Override
+        public String toString() {
+            return "replayed=" + replayed + ", failed=" + failed + ", skipped=" + skipped;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+/**
+ * Direction of the captured PDU.
+ */
+public enum PDUDirection {
+    /**
+     * PDU read from the remote side.
+     */
+    INBOUND((byte)1),
+    
+    /**
+     * PDU sent to the remote side.
+     */
+    OUTBOUND((byte)2);
+    
+    private final byte value;
+    
+    private PDUDirection(byte value) {
+        this.value = value;
+    }
+    
+    /**
+     * @return the value of the direction.
+     */
+    public byte value() {
+        return value;
+    }
+    
+    /**
+     * Get the <tt>PDUDirection</tt> based on the specified byte value
+     * representation.
+     * 
+     * @param value is the byte value representation.
+     * @return the <tt>PDUDirection</tt> or <tt>null</tt> if there is no
+     *         direction for the value.
+     */
+    public static PDUDirection valueOf(byte value) {
+        for (PDUDirection direction : values()) {
+            if (direction.value == value) {
+                return direction;
+            }
+        }
+        return null;
+    }
+}
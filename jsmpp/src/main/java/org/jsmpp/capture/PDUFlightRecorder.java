@@ -0,0 +1,282 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jsmpp.util.HexUtil;
+import org.jsmpp.util.OctetUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PDUCapture} keeping the last PDU of a session in a fixed-size ring,
+ * to be dumped after an incident.
+ * <p>
+ * The ring is allocated off-heap once, each slot holds the timestamp, the
+ * direction, the command_length and the first <code>maxBytes</code> octets of
+ * the PDU. Capturing claims the next slot with an atomic increment and copies
+ * into it, without lock and without allocation, so the recorder can stay on
+ * in production. A record overwritten while being dumped is skipped.
+ * </p>
+ * <p>
+ * The session dumps the recorder set by
+ * {@link org.jsmpp.session.AbstractSession#setFlightRecorder(PDUFlightRecorder)}
+ * when a request has no response and when the connection is lost while
+ * bound, at most once per minimum dump interval: the requests pending when
+ * the peer stops responding time out together and would dump the same
+ * records. The dump is logged, or written to a file if the dump directory is
+ * set.
+ * </p>
+ *
+ * <pre>
+ * PDUFlightRecorder recorder = new PDUFlightRecorder(256, 64);
+ * SMPPSession session = new SMPPSession(new SynchronizedPDUSender(
+ *         new CapturingPDUSender(new DefaultPDUSender(), recorder)),
+ *         new CapturingPDUReader(new DefaultPDUReader(), recorder),
+ *         SocketConnectionFactory.getInstance());
+ * session.setFlightRecorder(recorder);
+ * </pre>
+ */
+public class PDUFlightRecorder implements PDUCapture {
+    private static final Logger logger = LoggerFactory.getLogger(PDUFlightRecorder.class);
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final int DEFAULT_MAX_BYTES = 64;
+    public static final long DEFAULT_MIN_DUMP_INTERVAL = 10000;
+
+    private static final int PDU_HEADER_LENGTH = 16;
+    private static final int SLOT_HEADER_LENGTH = 13;
+    private static final long BUSY = -1;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final int maxBytes;
+    private final int slotSize;
+    private final ByteBuffer ring;
+    // sequence + 1 of the record in each slot, BUSY while written
+    private final AtomicLongArray stamps;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong dumpCount = new AtomicLong();
+    private final AtomicLong lastIncidentDumpNanos = new AtomicLong(NEVER);
+    private final AtomicLong skippedIncidentDumps = new AtomicLong();
+    private final long baseMicros;
+    private final long baseNanos;
+    private volatile File dumpDirectory;
+    private volatile long minDumpInterval = DEFAULT_MIN_DUMP_INTERVAL;
+
+    /**
+     * Construct with default capacity and maximum octets per PDU.
+     */
+    public PDUFlightRecorder() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Construct flight recorder.
+     *
+     * @param capacity is the number of PDU kept.
+     * @param maxBytes is the maximum octets kept of each PDU, at least the 16
+     *        octets of the PDU header.
+     */
+    public PDUFlightRecorder(int capacity, int maxBytes) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity should be greater than 0");
+        }
+        if (maxBytes < PDU_HEADER_LENGTH) {
+            throw new IllegalArgumentException("maxBytes should be at least " + PDU_HEADER_LENGTH);
+        }
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        slotSize = SLOT_HEADER_LENGTH + maxBytes;
+        ring = ByteBuffer.allocateDirect(capacity * slotSize);
+        stamps = new AtomicLongArray(capacity);
+        baseMicros = System.currentTimeMillis() * 1000;
+        baseNanos = System.nanoTime();
+    }
+
+    public void capture(PDUDirection direction, byte[] pdu) {
+        long sequence = cursor.getAndIncrement();
+        int slot = (int)(sequence % capacity);
+        int offset = slot * slotSize;
+        stamps.set(slot, BUSY);
+        ring.putLong(offset, baseMicros + (System.nanoTime() - baseNanos) / 1000);
+        ring.put(offset + 8, direction.value());
+        ring.putInt(offset + 9, pdu.length);
+        int length = Math.min(pdu.length, maxBytes);
+        // the ring is shared by the threads, copy through a duplicate positioned at the slot
+        ByteBuffer slotBuffer = ring.duplicate();
+        ((Buffer)slotBuffer).position(offset + SLOT_HEADER_LENGTH);
+        slotBuffer.put(pdu, 0, length);
+        stamps.lazySet(slot, sequence + 1);
+    }
+
+    /**
+     * @return the total captured PDU.
+     */
+    public long getCapturedCount() {
+        return cursor.get();
+    }
+
+    /**
+     * @param dumpDirectory is the directory of the automatic dump files, or
+     *        <tt>null</tt> to log the automatic dumps.
+     */
+    public void setDumpDirectory(File dumpDirectory) {
+        this.dumpDirectory = dumpDirectory;
+    }
+
+    public File getDumpDirectory() {
+        return dumpDirectory;
+    }
+
+    /**
+     * @param minDumpInterval is the minimum milliseconds between two
+     *        incident dumps, 0 to dump every incident.
+     */
+    public void setMinDumpInterval(long minDumpInterval) {
+        if (minDumpInterval < 0) {
+            throw new IllegalArgumentException("minDumpInterval should not be negative");
+        }
+        this.minDumpInterval = minDumpInterval;
+    }
+
+    public long getMinDumpInterval() {
+        return minDumpInterval;
+    }
+
+    /**
+     * Copy the records in the ring, from the oldest.
+     *
+     * @return the records, the PDU of each record is truncated to
+     *         <code>maxBytes</code>.
+     */
+    public List<PDUCaptureRecord> snapshot() {
+        long end = cursor.get();
+        long start = Math.max(0, end - capacity);
+        List<PDUCaptureRecord> records = new ArrayList<PDUCaptureRecord>((int)(end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            int slot = (int)(sequence % capacity);
+            if (stamps.get(slot) != sequence + 1) {
+                continue;
+            }
+            int offset = slot * slotSize;
+            long timestamp = ring.getLong(offset);
+            byte direction = ring.get(offset + 8);
+            byte[] pdu = new byte[Math.min(ring.getInt(offset + 9), maxBytes)];
+            ByteBuffer slotBuffer = ring.duplicate();
+            ((Buffer)slotBuffer).position(offset + SLOT_HEADER_LENGTH);
+            slotBuffer.get(pdu);
+            if (stamps.get(slot) == sequence + 1) {
+                records.add(new PDUCaptureRecord(timestamp,
+                        PDUDirection.valueOf(direction), pdu));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Write the records in the ring as text, one line per PDU with the
+     * timestamp, direction, header fields and the kept octets in hex.
+     *
+     * @param out is the writer.
+     * @throws IOException if there is an IO error found.
+     */
+    public void dump(Writer out) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        for (PDUCaptureRecord record : snapshot()) {
+            byte[] pdu = record.getPdu();
+            if (pdu.length < PDU_HEADER_LENGTH) {
+                continue;
+            }
+            out.write(dateFormat.format(new Date(record.getTimestamp() / 1000)));
+            out.write(String.format("%03d %-3s len=%d cmd=0x%08x status=0x%08x seq=%d %s%n",
+                    record.getTimestamp() % 1000,
+                    record.getDirection() == PDUDirection.INBOUND ? "IN" : "OUT",
+                    OctetUtil.bytesToInt(pdu, 0), record.getCommandId(),
+                    OctetUtil.bytesToInt(pdu, 8), OctetUtil.bytesToInt(pdu, 12),
+                    // the body from the offset up to the end index
+                    HexUtil.convertBytesToHexString(pdu, PDU_HEADER_LENGTH, pdu.length)));
+        }
+        out.flush();
+    }
+
+    /**
+     * Dump the records to a new file in the dump directory, or to the log if
+     * there is no dump directory. Failures are logged, not thrown.
+     *
+     * @param reason is the reason of the dump.
+     */
+    public void dump(String reason) {
+        File directory = dumpDirectory;
+        try {
+            if (directory == null) {
+                StringWriter text = new StringWriter();
+                dump(text);
+                logger.warn("PDU flight recorder dump, {}:{}{}", new Object[] { reason,
+                        System.getProperty("line.separator"), text });
+                return;
+            }
+            File file = new File(directory, "flight-" + System.currentTimeMillis()
+                    + "-" + dumpCount.incrementAndGet() + ".txt");
+            PrintWriter out = new PrintWriter(new FileWriter(file));
+            try {
+                out.println("# " + reason);
+                dump(out);
+            } finally {
+                out.close();
+            }
+            logger.warn("PDU flight recorder dumped to {}, {}", file, reason);
+        } catch (IOException e) {
+            logger.error("Failed dumping PDU flight recorder", e);
+        }
+    }
+
+    /**
+     * Dump the records for an incident, unless an incident has been dumped
+     * within the minimum dump interval. The incidents not dumped are counted
+     * in the reason of the next dump.
+     *
+     * @param reason is the reason of the dump.
+     * @return <tt>true</tt> if dumped.
+     */
+    public boolean dumpIncident(String reason) {
+        long now = System.nanoTime();
+        long last = lastIncidentDumpNanos.get();
+        if ((last != NEVER && now - last < TimeUnit.MILLISECONDS.toNanos(minDumpInterval))
+                || !lastIncidentDumpNanos.compareAndSet(last, now)) {
+            skippedIncidentDumps.incrementAndGet();
+            return false;
+        }
+        long skipped = skippedIncidentDumps.getAndSet(0);
+        dump(skipped > 0 ? reason + " (" + skipped + " incidents not dumped since the last dump)"
+                : reason);
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.relay;
+
+import org.jsmpp.bean.Bind;
+import org.jsmpp.extra.ProcessRequestException;
+
+/**
+ * Authenticate the bind of an ESME to the {@link SMPPRelay}.
+ */
+public interface BindAuthenticator {
+
+    /**
+     * @param bind is the bind request.
+     * @throws ProcessRequestException if the bind should be rejected with the
+     *         error code.
+     */
+    void authenticate(Bind bind) throws ProcessRequestException;
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.relay;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link RelayRouter} selecting the SMSC links round robin, and the ESME links
+ * bound as receiver or transceiver with the address_range matching the
+ * destination round robin.
+ */
+public class DefaultRelayRouter implements RelayRouter {
+    private final AtomicInteger outboundCounter = new AtomicInteger();
+    private final AtomicInteger inboundCounter = new AtomicInteger();
+
+    public OutboundLink selectOutbound(InboundLink source, int commandId,
+            String destinationAddress) {
+        List<OutboundLink> links = source.getRelay().getOutboundLinks();
+        int size = links.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = outboundCounter.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            OutboundLink link = links.get((start + i) % size);
+            if (link.isBound()) {
+                return link;
+            }
+        }
+        return null;
+    }
+
+    public InboundLink selectInbound(OutboundLink source, int commandId,
+            String destinationAddress) {
+        List<InboundLink> links = source.getRelay().getInboundLinks();
+        int size = links.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = inboundCounter.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            InboundLink link = links.get((start + i) % size);
+            if (link.isBound() && link.getBindType().isReceiveable()
+                    && link.matchesAddressRange(destinationAddress)) {
+                return link;
+            }
+        }
+        return null;
+    }
+}
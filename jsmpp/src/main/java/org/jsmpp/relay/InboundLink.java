@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.relay;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.Bind;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.Command;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.util.DefaultDecomposer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RelayLink} accepted from an ESME. The bind is decoded and
+ * authenticated by the relay, the bound requests are forwarded to the
+ * {@link OutboundLink} selected by the router.
+ */
+public class InboundLink extends RelayLink {
+    private static final Logger logger = LoggerFactory.getLogger(InboundLink.class);
+
+    private volatile String addressRange;
+    private volatile Pattern addressRangePattern;
+
+    InboundLink(SMPPRelay relay, Connection conn) {
+        super(relay, conn);
+    }
+
+    /**
+     * @return the address_range of the bind or <tt>null</tt> if the link is
+     *         not bound.
+     */
+    public String getAddressRange() {
+        return addressRange;
+    }
+
+    /**
+     * Check whether the address is in the address_range of the bind, the
+     * address_range is a regular expression. An empty address_range matches
+     * every address.
+     *
+     * @param address is the address.
+     * @return <tt>true</tt> if the address matches.
+     */
+    public boolean matchesAddressRange(String address) {
+        Pattern pattern = addressRangePattern;
+        return pattern == null || address == null
+                || pattern.matcher(address).matches();
+    }
+
+    @Override
+    RelayLink selectTarget(int commandId, String destinationAddress) {
+        return relay.getRouter().selectOutbound(this, commandId, destinationAddress);
+    }
+
+    @Override
+    void processUnbound(Command pduHeader, byte[] pdu) throws IOException {
+        BindType bindType;
+        try {
+            bindType = BindType.valueOf(pduHeader.getCommandId());
+        } catch (IllegalArgumentException e) {
+            write(pduComposer.genericNack(SMPPConstant.STAT_ESME_RINVBNDSTS,
+                    pduHeader.getSequenceNumber()));
+            return;
+        }
+        int responseCommandId = bindType.responseCommandId();
+        Bind bind;
+        try {
+            bind = new DefaultDecomposer().bind(pdu);
+            relay.getBindAuthenticator().authenticate(bind);
+        } catch (PDUStringException e) {
+            write(pduComposer.composeHeader(responseCommandId,
+                    e.getErrorCode(), pduHeader.getSequenceNumber()));
+            return;
+        } catch (ProcessRequestException e) {
+            logger.info("Rejected bind of {}: {}", pduHeader, e.getMessage());
+            write(pduComposer.composeHeader(responseCommandId,
+                    e.getErrorCode(), pduHeader.getSequenceNumber()));
+            return;
+        }
+
+        addressRange = bind.getAddressRange();
+        addressRangePattern = compile(addressRange);
+        byte[] bindResp;
+        try {
+            bindResp = pduComposer.bindResp(responseCommandId,
+                    pduHeader.getSequenceNumber(), relay.getSystemId(),
+                    InterfaceVersion.IF_34.value());
+        } catch (PDUStringException e) {
+            logger.error("Failed composing bind response", e);
+            write(pduComposer.composeHeader(responseCommandId,
+                    SMPPConstant.STAT_ESME_RSYSERR, pduHeader.getSequenceNumber()));
+            return;
+        }
+        bound(bindType, bind.getSystemId());
+        conn.setSoTimeout(relay.getEnquireLinkTimer());
+        write(bindResp);
+        logger.info("{} bound as {}", this, bindType);
+    }
+
+    private static Pattern compile(String addressRange) {
+        if (addressRange == null || addressRange.length() == 0) {
+            return null;
+        }
+        try {
+            return Pattern.compile(addressRange);
+        } catch (PatternSyntaxException e) {
+            return Pattern.compile(Pattern.quote(addressRange));
+        }
+    }
+}
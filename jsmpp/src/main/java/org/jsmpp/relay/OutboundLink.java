@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.relay;
+
+import java.io.IOException;
+
+import org.jsmpp.InvalidCommandLengthException;
+import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.Command;
+import org.jsmpp.session.BindParameter;
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.util.IntUtil;
+
+/**
+ * {@link RelayLink} connected and bound to an SMSC. The bound requests of the
+ * SMSC are forwarded to the {@link InboundLink} selected by the router.
+ */
+public class OutboundLink extends RelayLink {
+
+    OutboundLink(SMPPRelay relay, Connection conn) {
+        super(relay, conn);
+    }
+
+    /**
+     * Bind to the SMSC, waiting for the bind response on the calling thread.
+     *
+     * @param bindParam is the bind parameter.
+     * @param timeout is the time to wait for the bind response in
+     *        milliseconds.
+     * @throws IOException if the bind failed or rejected.
+     */
+    void bind(BindParameter bindParam, int timeout) throws IOException {
+        BindType bindType = bindParam.getBindType();
+        int sequenceNumber = nextSequenceNumber();
+        byte[] bind;
+        try {
+            bind = pduComposer.bind(bindType.commandId(), sequenceNumber,
+                    bindParam.getSystemId(), bindParam.getPassword(),
+                    bindParam.getSystemType(), bindParam.getInterfaceVersion().value(),
+                    bindParam.getAddrTon().value(), bindParam.getAddrNpi().value(),
+                    bindParam.getAddressRange());
+        } catch (PDUStringException e) {
+            throw new IOException("Invalid bind parameter: " + e.getMessage());
+        }
+        conn.setSoTimeout(timeout);
+        write(bind);
+        Command pduHeader;
+        try {
+            pduHeader = pduReader.readPDUHeader(in);
+        } catch (InvalidCommandLengthException e) {
+            throw new IOException("Invalid bind response: " + e.getMessage());
+        }
+        pduReader.readPDU(in, pduHeader);
+        if (pduHeader.getCommandId() != bindType.responseCommandId()
+                || pduHeader.getSequenceNumber() != sequenceNumber) {
+            throw new IOException("Unexpected bind response " + pduHeader);
+        }
+        if (pduHeader.getCommandStatus() != SMPPConstant.STAT_ESME_ROK) {
+            throw new IOException("Bind rejected with status "
+                    + IntUtil.toHexString(pduHeader.getCommandStatus()));
+        }
+        bound(bindType, bindParam.getSystemId());
+        conn.setSoTimeout(relay.getEnquireLinkTimer());
+    }
+
+    @Override
+    RelayLink selectTarget(int commandId, String destinationAddress) {
+        return relay.getRouter().selectInbound(this, commandId, destinationAddress);
+    }
+
+    @Override
+    void processUnbound(Command pduHeader, byte[] pdu) throws IOException {
+        write(pduComposer.genericNack(SMPPConstant.STAT_ESME_RINVBNDSTS,
+                pduHeader.getSequenceNumber()));
+    }
+}
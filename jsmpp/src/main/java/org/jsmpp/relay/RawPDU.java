@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.relay;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.util.OctetUtil;
+
+/**
+ * Access to the few fields of a raw PDU the relay needs, without decoding
+ * the PDU.
+ */
+public final class RawPDU {
+    private static final int HEADER_LENGTH = 16;
+    private static final int SEQUENCE_NUMBER_OFFSET = 12;
+    private static final byte DEST_FLAG_SME_ADDRESS = 1;
+
+    private RawPDU() {
+    }
+
+    public static int getSequenceNumber(byte[] pdu) {
+        return OctetUtil.bytesToInt(pdu, SEQUENCE_NUMBER_OFFSET);
+    }
+
+    public static void setSequenceNumber(byte[] pdu, int sequenceNumber) {
+        OctetUtil.intToBytes(sequenceNumber, pdu, SEQUENCE_NUMBER_OFFSET);
+    }
+
+    /**
+     * Get the destination_addr of submit_sm, data_sm and deliver_sm, or the
+     * first SME destination of submit_multi.
+     *
+     * @param commandId is the command_id of the PDU.
+     * @param pdu is the complete PDU.
+     * @return the destination address or <tt>null</tt> if the command has no
+     *         destination address or the PDU is malformed.
+     */
+    public static String getDestinationAddress(int commandId, byte[] pdu) {
+        switch (commandId) {
+        case SMPPConstant.CID_SUBMIT_SM:
+        case SMPPConstant.CID_DATA_SM:
+        case SMPPConstant.CID_DELIVER_SM:
+            int offset = skipSourceAddress(pdu);
+            return offset < 0 ? null : readCString(pdu, offset + 2);
+        case SMPPConstant.CID_SUBMIT_MULTI:
+            // number_of_dests, then dest_flag of the first destination
+            offset = skipSourceAddress(pdu);
+            if (offset < 0 || offset + 1 >= pdu.length
+                    || pdu[offset + 1] != DEST_FLAG_SME_ADDRESS) {
+                return null;
+            }
+            return readCString(pdu, offset + 4);
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Skip service_type, source_addr_ton, source_addr_npi and source_addr.
+     *
+     * @return the offset of dest_addr_ton or -1.
+     */
+    private static int skipSourceAddress(byte[] pdu) {
+        int offset = skipCString(pdu, HEADER_LENGTH);
+        if (offset < 0) {
+            return -1;
+        }
+        return skipCString(pdu, offset + 2);
+    }
+
+    private static int skipCString(byte[] pdu, int offset) {
+        if (offset < 0) {
+            return -1;
+        }
+        for (int i = offset; i < pdu.length; i++) {
+            if (pdu[i] == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static String readCString(byte[] pdu, int offset) {
+        int end = skipCString(pdu, offset);
+        if (end < 0) {
+            return null;
+        }
+        char[] chars = new char[end - 1 - offset];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char)(pdu[offset + i] & 0xff);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.relay;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.InvalidCommandLengthException;
+import org.jsmpp.PDUReader;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.Command;
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.util.DefaultComposer;
+import org.jsmpp.util.PDUComposer;
+import org.jsmpp.util.Sequence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connection of the {@link SMPPRelay} to an ESME or SMSC.
+ * <p>
+ * After bind, requests are forwarded as raw bytes to the link selected by the
+ * {@link RelayRouter}. Only the sequence_number of the forwarded request is
+ * rewritten, the original one is kept in the pending requests of the target
+ * link and restored on the response. The enquire_link and unbind are
+ * processed by the link itself and never forwarded.
+ * </p>
+ */
+public abstract class RelayLink {
+    private static final Logger logger = LoggerFactory.getLogger(RelayLink.class);
+
+    final SMPPRelay relay;
+    final Connection conn;
+    final DataInputStream in;
+    final PDUReader pduReader = new DefaultPDUReader();
+    final PDUComposer pduComposer = new DefaultComposer();
+    private final OutputStream out;
+    private final Sequence sequence = new Sequence(1);
+    private final ConcurrentMap<Integer, PendingRequest> pendingRequests = new ConcurrentHashMap<Integer, PendingRequest>();
+    private volatile BindType bindType;
+    private volatile String systemId;
+    private volatile boolean closed;
+
+    RelayLink(SMPPRelay relay, Connection conn) {
+        this.relay = relay;
+        this.conn = conn;
+        in = new DataInputStream(conn.getInputStream());
+        out = conn.getOutputStream();
+    }
+
+    public SMPPRelay getRelay() {
+        return relay;
+    }
+
+    public InetAddress getInetAddress() {
+        return conn.getInetAddress();
+    }
+
+    /**
+     * @return the bind type or <tt>null</tt> if the link is not bound.
+     */
+    public BindType getBindType() {
+        return bindType;
+    }
+
+    /**
+     * @return the system_id of the bind or <tt>null</tt> if the link is not
+     *         bound.
+     */
+    public String getSystemId() {
+        return systemId;
+    }
+
+    public boolean isBound() {
+        return bindType != null && !closed;
+    }
+
+    /**
+     * @return the number of requests forwarded to this link waiting for the
+     *         response.
+     */
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Select the link the request received on this link is forwarded to.
+     *
+     * @param commandId is the command_id of the request.
+     * @param destinationAddress is the destination address or <tt>null</tt>.
+     * @return the link or <tt>null</tt> if there is no route.
+     */
+    abstract RelayLink selectTarget(int commandId, String destinationAddress);
+
+    /**
+     * Process the request received before the link is bound.
+     */
+    abstract void processUnbound(Command pduHeader, byte[] pdu)
+            throws IOException;
+
+    void bound(BindType bindType, String systemId) {
+        this.systemId = systemId;
+        this.bindType = bindType;
+    }
+
+    int nextSequenceNumber() {
+        return sequence.nextValue();
+    }
+
+    void start(String name) {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                readPDUs();
+            }
+        }, name);
+        thread.start();
+    }
+
+    /**
+     * Send the request to this link as the relay of the request received on
+     * the source link.
+     *
+     * @param source is the link the request received from.
+     * @param commandId is the command_id of the request.
+     * @param pdu is the complete PDU, the sequence_number will be overwritten.
+     * @throws IOException if an I/O error occurs.
+     */
+    void forward(RelayLink source, int commandId, byte[] pdu) throws IOException {
+        int sequenceNumber = sequence.nextValue();
+        pendingRequests.put(sequenceNumber, new PendingRequest(source, commandId,
+                RawPDU.getSequenceNumber(pdu)));
+        RawPDU.setSequenceNumber(pdu, sequenceNumber);
+        try {
+            write(pdu);
+        } catch (IOException e) {
+            pendingRequests.remove(sequenceNumber);
+            throw e;
+        }
+    }
+
+    void write(byte[] pdu) throws IOException {
+        synchronized (out) {
+            out.write(pdu);
+            out.flush();
+        }
+    }
+
+    private void readPDUs() {
+        try {
+            while (!closed) {
+                try {
+                    Command pduHeader = pduReader.readPDUHeader(in);
+                    byte[] pdu = pduReader.readPDU(in, pduHeader);
+                    process(pduHeader, pdu);
+                } catch (SocketTimeoutException e) {
+                    if (!isBound()) {
+                        logger.info("No bind request received from {}", getInetAddress());
+                        break;
+                    }
+                    write(pduComposer.enquireLink(sequence.nextValue()));
+                }
+            }
+        } catch (InvalidCommandLengthException e) {
+            logger.warn("Receive invalid command length", e);
+            try {
+                write(pduComposer.genericNack(SMPPConstant.STAT_ESME_RINVCMDLEN, 0));
+            } catch (IOException ee) {
+                logger.warn("Failed sending generic nack", ee);
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                logger.debug("Link {} failed: {}", this, e.getMessage());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void process(Command pduHeader, byte[] pdu) throws IOException {
+        int commandId = pduHeader.getCommandId();
+        int sequenceNumber = pduHeader.getSequenceNumber();
+        if ((commandId & SMPPConstant.MASK_CID_RESP) != 0) {
+            processResponse(pduHeader, pdu);
+            return;
+        }
+        switch (commandId) {
+        case SMPPConstant.CID_ENQUIRE_LINK:
+            write(pduComposer.enquireLinkResp(sequenceNumber));
+            return;
+        case SMPPConstant.CID_UNBIND:
+            write(pduComposer.unbindResp(SMPPConstant.STAT_ESME_ROK, sequenceNumber));
+            close();
+            return;
+        }
+        if (!isBound()) {
+            processUnbound(pduHeader, pdu);
+            return;
+        }
+        RelayLink target = selectTarget(commandId,
+                RawPDU.getDestinationAddress(commandId, pdu));
+        if (target == null) {
+            logger.debug("No route for {} from {}", pduHeader, this);
+            write(pduComposer.composeHeader(commandId | SMPPConstant.MASK_CID_RESP,
+                    SMPPConstant.STAT_ESME_RINVDSTADR, sequenceNumber));
+            return;
+        }
+        try {
+            target.forward(this, commandId, pdu);
+        } catch (IOException e) {
+            logger.debug("Failed forwarding {} to {}: {}", new Object[] {
+                    pduHeader, target, e.getMessage() });
+            write(pduComposer.composeHeader(commandId | SMPPConstant.MASK_CID_RESP,
+                    SMPPConstant.STAT_ESME_RSYSERR, sequenceNumber));
+        }
+    }
+
+    private void processResponse(Command pduHeader, byte[] pdu) {
+        PendingRequest request = pendingRequests.remove(pduHeader.getSequenceNumber());
+        if (request == null) {
+            // the response of our own enquire_link or a late response
+            logger.debug("No pending request for {} from {}", pduHeader, this);
+            return;
+        }
+        RawPDU.setSequenceNumber(pdu, request.sequenceNumber);
+        try {
+            request.source.write(pdu);
+        } catch (IOException e) {
+            logger.debug("Failed relaying {} to {}: {}", new Object[] {
+                    pduHeader, request.source, e.getMessage() });
+        }
+    }
+
+    /**
+     * Close the link. The requests still waiting for the response of this
+     * link are responded to the source with system error.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            conn.close();
+        } catch (IOException e) {
+            logger.warn("Failed closing connection", e);
+        }
+        relay.remove(this);
+        Iterator<Map.Entry<Integer, PendingRequest>> iterator = pendingRequests.entrySet().iterator();
+        while (iterator.hasNext()) {
+            PendingRequest request = iterator.next().getValue();
+            iterator.remove();
+            try {
+                request.source.write(pduComposer.composeHeader(
+                        request.commandId | SMPPConstant.MASK_CID_RESP,
+                        SMPPConstant.STAT_ESME_RSYSERR, request.sequenceNumber));
+            } catch (IOException e) {
+                logger.debug("Failed responding pending request to {}", request.source);
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + systemId + "@" + getInetAddress() + "]";
+    }
+
+    private static class PendingRequest {
+        private final RelayLink source;
+        private final int commandId;
+        private final int sequenceNumber;
+
+        PendingRequest(RelayLink source, int commandId, int sequenceNumber) {
+            this.source = source;
+            this.commandId = commandId;
+            this.sequenceNumber = sequenceNumber;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.relay;
+
+/**
+ * Select the link a request is forwarded to by the {@link SMPPRelay}. The
+ * router is called on the reader thread of the source link, so it should not
+ * block.
+ * <p>
+ * query_sm, cancel_sm and replace_sm have no destination address, the router
+ * should send them to the SMSC that accepted the short message.
+ * </p>
+ */
+public interface RelayRouter {
+
+    /**
+     * Select the SMSC link for a request of an ESME.
+     *
+     * @param source is the link of the ESME.
+     * @param commandId is the command_id of the request.
+     * @param destinationAddress is the destination address or <tt>null</tt>
+     *        if the command has none.
+     * @return the bound link or <tt>null</tt> if there is no route.
+     */
+    OutboundLink selectOutbound(InboundLink source, int commandId,
+            String destinationAddress);
+
+    /**
+     * Select the ESME link for a request of an SMSC.
+     *
+     * @param source is the link of the SMSC.
+     * @param commandId is the command_id of the request.
+     * @param destinationAddress is the destination address or <tt>null</tt>
+     *        if the command has none.
+     * @return the bound link or <tt>null</tt> if there is no route.
+     */
+    InboundLink selectInbound(OutboundLink source, int commandId,
+            String destinationAddress);
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.relay;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jsmpp.bean.Bind;
+import org.jsmpp.session.BindParameter;
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ConnectionFactory;
+import org.jsmpp.session.connection.ServerConnection;
+import org.jsmpp.session.connection.ServerConnectionFactory;
+import org.jsmpp.session.connection.socket.ServerSocketConnectionFactory;
+import org.jsmpp.session.connection.socket.SocketConnectionFactory;
+
+/**
+ * Relay between the ESMEs bound to this listener and the SMSCs this relay is
+ * bound to, forwarding the raw PDU bytes.
+ * <p>
+ * Unlike a gateway made of {@link org.jsmpp.session.SMPPServerSession} and
+ * {@link org.jsmpp.session.SMPPSession}, the relayed PDUs are never decoded
+ * nor composed. Only the destination address is read for routing and the
+ * sequence_number is rewritten through the pending requests of the target
+ * link. Only the bind of the ESMEs is decoded.
+ * </p>
+ *
+ * <pre>
+ * SMPPRelay relay = new SMPPRelay(2775);
+ * relay.connectAndBind(&quot;smsc&quot;, 2775, bindParam);
+ * while (running) {
+ *     relay.accept();
+ * }
+ * </pre>
+ */
+public class SMPPRelay {
+    private static final BindAuthenticator ACCEPT_ALL = new BindAuthenticator() {
+        public void authenticate(Bind bind) {
+        }
+    };
+
+    private final ServerConnection serverConn;
+    private final ConnectionFactory connFactory;
+    private final List<InboundLink> inboundLinks = new CopyOnWriteArrayList<InboundLink>();
+    private final List<OutboundLink> outboundLinks = new CopyOnWriteArrayList<OutboundLink>();
+    private volatile RelayRouter router = new DefaultRelayRouter();
+    private volatile BindAuthenticator bindAuthenticator = ACCEPT_ALL;
+    private volatile String systemId = "jsmpp";
+    private int initiationTimer = 5000;
+    private int enquireLinkTimer = 5000;
+    private int transactionTimer = 2000;
+
+    public SMPPRelay(int port) throws IOException {
+        this(port, new ServerSocketConnectionFactory(),
+                SocketConnectionFactory.getInstance());
+    }
+
+    public SMPPRelay(int port, ServerConnectionFactory serverConnFactory,
+            ConnectionFactory connFactory) throws IOException {
+        this(serverConnFactory.listen(port), connFactory);
+    }
+
+    public SMPPRelay(ServerConnection serverConn, ConnectionFactory connFactory) {
+        this.serverConn = serverConn;
+        this.connFactory = connFactory;
+    }
+
+    public RelayRouter getRouter() {
+        return router;
+    }
+
+    public void setRouter(RelayRouter router) {
+        this.router = router;
+    }
+
+    public BindAuthenticator getBindAuthenticator() {
+        return bindAuthenticator;
+    }
+
+    public void setBindAuthenticator(BindAuthenticator bindAuthenticator) {
+        this.bindAuthenticator = bindAuthenticator != null ? bindAuthenticator
+                : ACCEPT_ALL;
+    }
+
+    /**
+     * @return the system_id sent on the bind response to the ESMEs.
+     */
+    public String getSystemId() {
+        return systemId;
+    }
+
+    public void setSystemId(String systemId) {
+        this.systemId = systemId;
+    }
+
+    public int getInitiationTimer() {
+        return initiationTimer;
+    }
+
+    public void setInitiationTimer(int initiationTimer) {
+        this.initiationTimer = initiationTimer;
+    }
+
+    public int getEnquireLinkTimer() {
+        return enquireLinkTimer;
+    }
+
+    public void setEnquireLinkTimer(int enquireLinkTimer) {
+        this.enquireLinkTimer = enquireLinkTimer;
+    }
+
+    public int getTransactionTimer() {
+        return transactionTimer;
+    }
+
+    public void setTransactionTimer(int transactionTimer) {
+        this.transactionTimer = transactionTimer;
+    }
+
+    /**
+     * @return the links of the ESMEs, including the ones not bound yet.
+     */
+    public List<InboundLink> getInboundLinks() {
+        return Collections.unmodifiableList(inboundLinks);
+    }
+
+    /**
+     * @return the bound links of the SMSCs.
+     */
+    public List<OutboundLink> getOutboundLinks() {
+        return Collections.unmodifiableList(outboundLinks);
+    }
+
+    /**
+     * Accept a connection of an ESME and start relaying it. The ESME must
+     * bind within the initiation timer.
+     *
+     * @return the link of the ESME.
+     * @throws IOException if an I/O error occurs.
+     */
+    public InboundLink accept() throws IOException {
+        Connection conn = serverConn.accept();
+        conn.setSoTimeout(initiationTimer);
+        InboundLink link = new InboundLink(this, conn);
+        inboundLinks.add(link);
+        link.start("InboundLink-" + conn.getInetAddress());
+        return link;
+    }
+
+    /**
+     * Connect and bind to an SMSC, the requests of the ESMEs are relayed to it
+     * after this method returns.
+     *
+     * @param host is the SMSC host.
+     * @param port is the SMSC port.
+     * @param bindParam is the bind parameter.
+     * @return the link of the SMSC.
+     * @throws IOException if the connection or bind failed.
+     */
+    public OutboundLink connectAndBind(String host, int port,
+            BindParameter bindParam) throws IOException {
+        Connection conn = connFactory.createConnection(host, port);
+        OutboundLink link = new OutboundLink(this, conn);
+        try {
+            link.bind(bindParam, transactionTimer);
+        } catch (IOException e) {
+            link.close();
+            throw e;
+        }
+        outboundLinks.add(link);
+        link.start("OutboundLink-" + host + ":" + port);
+        return link;
+    }
+
+    void remove(RelayLink link) {
+        inboundLinks.remove(link);
+        outboundLinks.remove(link);
+    }
+
+    /**
+     * Stop listening and close all the links.
+     *
+     * @throws IOException if an I/O error occurs while closing the listener.
+     */
+    public void close() throws IOException {
+        serverConn.close();
+        for (RelayLink link : inboundLinks) {
+            link.close();
+        }
+        for (RelayLink link : outboundLinks) {
+            link.close();
+        }
+    }
+}
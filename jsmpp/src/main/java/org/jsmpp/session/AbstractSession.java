@@ -18,7 +18,13 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jsmpp.InvalidResponseException;
 import org.jsmpp.PDUException;
@@ -33,12 +39,14 @@ import org.jsmpp.bean.NumberingPlanIndicator;
 import org.jsmpp.bean.OptionalParameter;
 import org.jsmpp.bean.RegisteredDelivery;
 import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.capture.PDUFlightRecorder;
 import org.jsmpp.extra.NegativeResponseException;
 import org.jsmpp.extra.PendingResponse;
 import org.jsmpp.extra.ProcessRequestException;
 import org.jsmpp.extra.ResponseTimeoutException;
 import org.jsmpp.extra.SessionState;
 import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.journal.JournalingPDUSender;
 import org.jsmpp.util.IntUtil;
 import org.jsmpp.util.Sequence;
 import org.slf4j.Logger;
@@ -51,16 +59,28 @@ import org.slf4j.LoggerFactory;
 public abstract class AbstractSession implements Session {
     private static final Logger logger = LoggerFactory.getLogger(AbstractSession.class);
     private static final Random random = new Random();
+    private static final int MAX_ENQUIRE_LINK_THREADS = 1024;
+    private static final ThreadPoolExecutor enquireLinkExecutor = newEnquireLinkExecutor();
     
     private final Map<Integer, PendingResponse<Command>> pendingResponse = new ConcurrentHashMap<Integer, PendingResponse<Command>>();
     private final Sequence sequence = new Sequence(1);
     private final PDUSender pduSender;
     private int pduProcessorDegree = 3;
+    private int maxPduProcessorDegree;
+    private volatile PDUProcessorExecutor pduProcessorExecutor;
+    private int pduProcessorHighWatermark;
+    private int pduProcessorLowWatermark;
+    private long pduProcessorMaxPauseTime = PDUProcessorExecutor.DEFAULT_MAX_PAUSE_TIME;
     
     private String sessionId = generateSessionId();
     private int enquireLinkTimer = 5000;
     private long transactionTimer = 2000;
     
+    private volatile JournalingPDUSender journalingSender;
+    private volatile PDUFlightRecorder flightRecorder;
+    private volatile SessionTracer tracer;
+    private boolean tracingStateChanges;
+    
     protected EnquireLinkSender enquireLinkSender;
     
     public AbstractSession(PDUSender pduSender) {
@@ -79,10 +99,131 @@ public abstract class AbstractSession implements Session {
         return sequence;
     }
     
+    /**
+     * Set the sender journaling the outgoing submit_sm. The sender should be
+     * part of the {@link PDUSender} of the session, it appends every
+     * submit_sm to the journal before it's sent. The entry is acknowledged
+     * after the response received, the submit_sm without response will stay
+     * in the journal.
+     * 
+     * @param journalingSender is the journaling sender, or <tt>null</tt> to
+     *        stop acknowledging the journal entries.
+     */
+    protected void setSubmitJournal(JournalingPDUSender journalingSender) {
+        this.journalingSender = journalingSender;
+    }
+    
+    protected JournalingPDUSender getSubmitJournal() {
+        return journalingSender;
+    }
+    
+    /**
+     * Set the flight recorder of the session. The recorder is dumped when a
+     * request has no response and when the session closed while still
+     * bound, see {@link PDUFlightRecorder#dumpIncident(String)}. The recorder should also be given as the {@link org.jsmpp.capture.PDUCapture}
+     * of the session PDU reader and sender.
+     * 
+     * @param flightRecorder is the flight recorder, or <tt>null</tt> to
+     *        disable the automatic dump.
+     */
+    public void setFlightRecorder(PDUFlightRecorder flightRecorder) {
+        this.flightRecorder = flightRecorder;
+    }
+    
+    public PDUFlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+    
+    /**
+     * Set the tracer of the session activity.
+     * 
+     * @param tracer is the tracer, or <tt>null</tt> to stop tracing.
+     */
+    public void setTracer(SessionTracer tracer) {
+        this.tracer = tracer;
+        synchronized (this) {
+            if (tracer != null && !tracingStateChanges) {
+                tracingStateChanges = true;
+                sessionContext().addSessionStateListener(new SessionStateListener() {
+                    public void onStateChange(SessionState newState,
+                            SessionState oldState, Session source) {
+                        SessionTracer stateTracer = AbstractSession.this.tracer;
+                        if (stateTracer != null) {
+                            stateTracer.stateChanged(source, oldState, newState);
+                        }
+                    }
+                });
+            }
+        }
+    }
+    
+    public SessionTracer getTracer() {
+        return tracer;
+    }
+    
+    /**
+     * Wrap the PDU processing task to trace its queue wait and processing
+     * time.
+     * 
+     * @param task is the task.
+     * @param pduHeader is the header of the processed PDU.
+     * @return the traced task, or the task itself if there is no tracer.
+     */
+    protected Runnable tracedTask(final Runnable task, final Command pduHeader) {
+        final SessionTracer taskTracer = tracer;
+        if (taskTracer == null) {
+            return task;
+        }
+        final long queuedNanos = System.nanoTime();
+        return new Runnable() {
+            public void run() {
+                long startNanos = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    taskTracer.pduProcessed(AbstractSession.this, pduHeader,
+                            startNanos - queuedNanos, System.nanoTime() - startNanos);
+                }
+            }
+        };
+    }
+    
+    private void dumpFlightRecorder(String reason) {
+        PDUFlightRecorder recorder = flightRecorder;
+        if (recorder != null) {
+            recorder.dumpIncident("session " + sessionId + ": " + reason);
+        }
+    }
+    
     protected PendingResponse<Command> removePendingResponse(int sequenceNumber) {
         return pendingResponse.remove(sequenceNumber);
     }
     
+    /**
+     * Set the handler of a vendor specific command_id received while bound.
+     * The standard command_id can't be handled.
+     * 
+     * @param commandId is the vendor specific command_id, with the response
+     *        bit for the response command.
+     * @param handler is the handler, <tt>null</tt> to remove the handler.
+     * @throws IllegalArgumentException if the command_id is in the standard
+     *         range.
+     */
+    public void setVendorCommandHandler(int commandId, VendorCommandHandler handler) {
+        if (!AbstractSessionContext.isVendorCommand(commandId)) {
+            throw new IllegalArgumentException("command_id " + IntUtil.toHexString(commandId)
+                    + " is not vendor specific");
+        }
+        sessionContext().setVendorCommandHandler(commandId, handler);
+    }
+    
+    /**
+     * @return the total requests sent and waiting for response.
+     */
+    public int getPendingResponseCount() {
+        return pendingResponse.size();
+    }
+    
     public String getSessionId() {
         return sessionId;
     }
@@ -146,6 +287,128 @@ public abstract class AbstractSession implements Session {
                     "Cannot set pdu processor degree since the pdu dispatcher thread already created.");
         }
         this.pduProcessorDegree = pduProcessorDegree;
+        this.maxPduProcessorDegree = 0;
+    }
+    
+    /**
+     * Set the range of threads processing the PDU parallely. The total threads
+     * is adjusted within the range by the measured load. Unlike
+     * {@link #setPduProcessorDegree(int)}, it can be changed while the session
+     * is running.
+     * 
+     * @param minDegree is the minimum threads.
+     * @param maxDegree is the maximum threads.
+     */
+    public void setAdaptivePduProcessorDegree(int minDegree, int maxDegree) {
+        if (minDegree < 1 || maxDegree < minDegree) {
+            throw new IllegalArgumentException("Invalid degree " + minDegree + ".." + maxDegree);
+        }
+        this.pduProcessorDegree = minDegree;
+        this.maxPduProcessorDegree = maxDegree;
+        PDUProcessorExecutor executor = pduProcessorExecutor;
+        if (executor != null) {
+            executor.setDegree(minDegree, maxDegree);
+        }
+    }
+    
+    /**
+     * Get the maximum threads processing the PDU parallely.
+     * 
+     * @return the maximum threads, the same as the PDU processor degree if not
+     *         adaptive.
+     */
+    public int getMaxPduProcessorDegree() {
+        return Math.max(pduProcessorDegree, maxPduProcessorDegree);
+    }
+    
+    /**
+     * Bound the PDU waiting to be processed, pausing the read at most
+     * {@link PDUProcessorExecutor#DEFAULT_MAX_PAUSE_TIME} at once.
+     * 
+     * @param highWatermark is the waiting PDU pausing the read, 0 means
+     *        unbounded.
+     * @param lowWatermark is the waiting PDU resuming the read.
+     * @see #setPduProcessorQueueWatermarks(int, int, long)
+     */
+    public void setPduProcessorQueueWatermarks(int highWatermark, int lowWatermark) {
+        setPduProcessorQueueWatermarks(highWatermark, lowWatermark,
+                PDUProcessorExecutor.DEFAULT_MAX_PAUSE_TIME);
+    }
+    
+    /**
+     * Bound the PDU waiting to be processed. When the waiting PDU reach the
+     * high watermark, the session stops reading on the next request until
+     * they drop to the low watermark, so a slow listener slows down the peer
+     * through the TCP receive window. It can be changed while the session is
+     * running.
+     * <p>
+     * The responses received after the held request aren't read while the
+     * read is paused, so a PDU processing waiting for the response of a
+     * request it sent waits for the read to resume. The read resumes for one
+     * request after the maximum pause time, which should be lower than the
+     * transaction timer.
+     * </p>
+     * 
+     * @param highWatermark is the waiting PDU pausing the read, 0 means
+     *        unbounded.
+     * @param lowWatermark is the waiting PDU resuming the read.
+     * @param maxPauseTime is the maximum pause time in milliseconds, 0 to
+     *        pause until the low watermark.
+     * @see PDUProcessorExecutor
+     */
+    public void setPduProcessorQueueWatermarks(int highWatermark,
+            int lowWatermark, long maxPauseTime) {
+        if (highWatermark < 0 || lowWatermark < 0 
+                || (highWatermark > 0 && lowWatermark >= highWatermark)) {
+            throw new IllegalArgumentException("Invalid watermarks high=" 
+                    + highWatermark + " low=" + lowWatermark);
+        }
+        if (maxPauseTime < 0) {
+            throw new IllegalArgumentException("maxPauseTime should not be negative");
+        }
+        this.pduProcessorHighWatermark = highWatermark;
+        this.pduProcessorLowWatermark = lowWatermark;
+        this.pduProcessorMaxPauseTime = maxPauseTime;
+        PDUProcessorExecutor executor = pduProcessorExecutor;
+        if (executor != null) {
+            executor.setWatermarks(highWatermark, lowWatermark);
+            executor.setMaxPauseTime(maxPauseTime);
+        }
+    }
+    
+    /**
+     * Get the executor processing the PDU, it provides the queue metrics.
+     * 
+     * @return the executor or <tt>null</tt> if the session is not started.
+     */
+    public PDUProcessorExecutor getPduProcessorExecutor() {
+        return pduProcessorExecutor;
+    }
+    
+    /**
+     * Create the executor processing the PDU of the session.
+     * 
+     * @param degree is the initial threads.
+     * @return the executor.
+     */
+    protected PDUProcessorExecutor newPDUProcessorExecutor(int degree) {
+        PDUProcessorExecutor executor = new PDUProcessorExecutor(degree, degree);
+        executor.setWatermarks(pduProcessorHighWatermark, pduProcessorLowWatermark);
+        executor.setMaxPauseTime(pduProcessorMaxPauseTime);
+        pduProcessorExecutor = executor;
+        return executor;
+    }
+    
+    /**
+     * Apply the PDU processor degree to the executor.
+     */
+    protected void applyPduProcessorDegree() {
+        PDUProcessorExecutor executor = pduProcessorExecutor;
+        if (executor != null) {
+            logger.info("Changing processor degree to {}..{}", getPduProcessorDegree(),
+                    getMaxPduProcessorDegree());
+            executor.setDegree(getPduProcessorDegree(), getMaxPduProcessorDegree());
+        }
     }
     
     /**
@@ -202,6 +465,9 @@ public abstract class AbstractSession implements Session {
     public void close() {
         logger.info("AbstractSession.close() called");
         SessionContext ctx = sessionContext();
+        if (ctx.getSessionState().isBound()) {
+            dumpFlightRecorder("closed while " + ctx.getSessionState());
+        }
         if (!ctx.getSessionState().equals(SessionState.CLOSED)) {
             ctx.close();
             try {
@@ -260,11 +526,16 @@ public abstract class AbstractSession implements Session {
         int seqNum = sequence.nextValue();
         PendingResponse<Command> pendingResp = new PendingResponse<Command>(timeout);
         pendingResponse.put(seqNum, pendingResp);
+        JournalingPDUSender journal = journalingSender;
+        SessionTracer commandTracer = tracer;
+        long sentNanos = commandTracer != null ? System.nanoTime() : 0;
+        int size;
         try {
-            task.executeTask(connection().getOutputStream(), seqNum);
+            size = task.executeTask(connection().getOutputStream(), seqNum);
         } catch (IOException e) {
             logger.error("Failed sending " + task.getCommandName() + " command", e);
             pendingResponse.remove(seqNum);
+            releaseJournalEntry(journal, seqNum);
             close();
             throw e;
         }
@@ -274,25 +545,78 @@ public abstract class AbstractSession implements Session {
             logger.debug(task.getCommandName() + " response received");
         } catch (ResponseTimeoutException e) {
             pendingResponse.remove(seqNum);
+            releaseJournalEntry(journal, seqNum);
+            traceCommand(commandTracer, task, seqNum, size, null, sentNanos);
+            dumpFlightRecorder("no response of " + task.getCommandName()
+                    + " with sequenceNumber " + seqNum);
             throw new ResponseTimeoutException("No response after waiting for "
                     + timeout + " millis when executing "
                     + task.getCommandName() + " with sessionId " + sessionId
                     + " and sequenceNumber " + seqNum, e);
         } catch (InvalidResponseException e) {
             pendingResponse.remove(seqNum);
+            releaseJournalEntry(journal, seqNum);
+            traceCommand(commandTracer, task, seqNum, size, null, sentNanos);
             throw e;
         }
         
         Command resp = pendingResp.getResponse();
+        traceCommand(commandTracer, task, seqNum, size, resp, sentNanos);
+        if (journal != null) {
+            try {
+                journal.acknowledge(seqNum);
+            } catch (IOException e) {
+                logger.error("Failed acknowledging journal entry of sequenceNumber " + seqNum, e);
+            }
+        }
         validateResponse(resp);
         return resp;
         
     }
     
+    private static void releaseJournalEntry(JournalingPDUSender journal, int seqNum) {
+        if (journal != null) {
+            journal.release(seqNum);
+        }
+    }
+    
+    private void traceCommand(SessionTracer commandTracer, SendCommandTask task,
+            int seqNum, int size, Command resp, long sentNanos) {
+        if (commandTracer != null) {
+            commandTracer.commandExecuted(this, task.getCommandId(), seqNum,
+                    size, resp, System.nanoTime() - sentNanos);
+        }
+    }
+    
     private synchronized static final String generateSessionId() {
         return IntUtil.toHexString(random.nextInt());
     }
     
+    /**
+     * The threads sending the enquire_link of all the sessions. Each thread
+     * blocks until the enquire_link_resp or the transaction timer, so the
+     * threads busy at a time are the enquire_link waiting for response:
+     * about the sessions times the response latency divided by the
+     * enquire_link timer, up to every session while the peers don't respond.
+     * A thread is created when all are busy and ends after being idle for a
+     * minute, so the idle sessions only hold the threads their round trips
+     * need. Over {@link #MAX_ENQUIRE_LINK_THREADS} waiting enquire_link, the
+     * enquire_link is skipped until the next enquire_link timer.
+     */
+    private static ThreadPoolExecutor newEnquireLinkExecutor() {
+        return new ThreadPoolExecutor(0, MAX_ENQUIRE_LINK_THREADS,
+                60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "EnquireLinkSender-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
     /**
      * Ensure we have proper link.
      * 
@@ -392,55 +716,77 @@ public abstract class AbstractSession implements Session {
         }
     }
     
-	protected class EnquireLinkSender extends Thread {
+    /**
+     * Sender of the enquire_link of the session. The enquire_link are sent by
+     * threads shared by all the sessions, so an idle session holds no thread
+     * for it.
+     */
+    protected class EnquireLinkSender implements Runnable {
         private final AtomicBoolean sendingEnquireLink = new AtomicBoolean(false);
+        private volatile boolean started;
+        private Thread sendingThread;
         
-        public EnquireLinkSender()
-        {
-        	super("EnquireLinkSender: " + AbstractSession.this);
+        /**
+         * Start sending the enquire_link requested by {@link #enquireLink()}.
+         */
+        public void start() {
+            logger.info("Starting EnquireLinkSender");
+            started = true;
         }
         
-        @Override
         public void run() {
-            logger.info("Starting EnquireLinkSender");
-            while (isReadPdu()) {
-                while (!sendingEnquireLink.compareAndSet(true, false) && isReadPdu()) {
-                    synchronized (sendingEnquireLink) {
-                        try {
-                            sendingEnquireLink.wait(500);
-                        } catch (InterruptedException e) {
-                        }
-                    }
-                }
-                if (!isReadPdu()) {
-                    break;
-                }
-                try {
+            synchronized (this) {
+                sendingThread = Thread.currentThread();
+            }
+            try {
+                if (isReadPdu()) {
                     sendEnquireLink();
-                } catch (ResponseTimeoutException e) {
-                    close();
-                } catch (InvalidResponseException e) {
-                    // lets unbind gracefully
-                    unbindAndClose();
-                } catch (IOException e) {
-                    close();
                 }
+            } catch (ResponseTimeoutException e) {
+                close();
+            } catch (InvalidResponseException e) {
+                // lets unbind gracefully
+                unbindAndClose();
+            } catch (IOException e) {
+                close();
+            } finally {
+                synchronized (this) {
+                    sendingThread = null;
+                    notifyAll();
+                }
+                sendingEnquireLink.set(false);
             }
-            logger.info("EnquireLinkSender stop");
         }
         
         /**
          * This method will send enquire link asynchronously.
          */
         public void enquireLink() {
-            if (sendingEnquireLink.compareAndSet(false, true)) {
-                synchronized (sendingEnquireLink) {
-                    sendingEnquireLink.notify();
+            if (!started || !isReadPdu()) {
+                logger.debug("Not sending enquire link, session is not started or closed");
+            } else if (sendingEnquireLink.compareAndSet(false, true)) {
+                try {
+                    enquireLinkExecutor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    sendingEnquireLink.set(false);
+                    logger.warn("Skipping enquire link of session {}, all the enquire link threads are waiting for response", sessionId);
                 }
             } else {
                 logger.debug("Not sending enquire link notify");
             }
         }
+        
+        /**
+         * Wait for the enquire_link being sent, if any, unless it is sent by
+         * the calling thread.
+         * 
+         * @throws InterruptedException if the wait is interrupted.
+         */
+        public synchronized void join() throws InterruptedException {
+            while (sendingThread != null && sendingThread != Thread.currentThread()) {
+                wait();
+            }
+        }
     }
     
 }
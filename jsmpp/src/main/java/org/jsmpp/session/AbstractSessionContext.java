@@ -14,10 +14,16 @@
  */
 package org.jsmpp.session;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.Command;
+import org.jsmpp.extra.ProcessRequestException;
 import org.jsmpp.extra.SessionState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +36,7 @@ public abstract class AbstractSessionContext implements SessionContext {
     private static final Logger logger = LoggerFactory.getLogger(AbstractSessionContext.class);
     private long lastActivityTimestamp;
     private List<SessionStateListener> sessionStateListeners = new ArrayList<SessionStateListener>();
+    private final ConcurrentMap<Integer, VendorCommandHandler> vendorCommandHandlers = new ConcurrentHashMap<Integer, VendorCommandHandler>();
     
     public AbstractSessionContext() {
     }
@@ -89,6 +96,62 @@ public abstract class AbstractSessionContext implements SessionContext {
         }
     }
     
+    void setVendorCommandHandler(int commandId, VendorCommandHandler handler) {
+        if (handler == null) {
+            vendorCommandHandlers.remove(commandId);
+        } else {
+            vendorCommandHandlers.put(commandId, handler);
+        }
+    }
+    
+    /**
+     * Check whether the command_id is outside the standard command_id
+     * (0x00000000 to 0x000001ff with or without the response bit).
+     * 
+     * @param commandId is the command_id.
+     * @return <tt>true</tt> if it's a vendor specific command_id.
+     */
+    static boolean isVendorCommand(int commandId) {
+        return (commandId & ~(SMPPConstant.MASK_CID_RESP | 0x1ff)) != 0;
+    }
+    
+    /**
+     * Process the PDU by the vendor command handler of its command_id, only
+     * while bound. The status returned by the handler is sent as the
+     * response of the request, nothing is sent for a response.
+     * 
+     * @param sessionState is the state the PDU is processed in.
+     * @param pduHeader is the PDU header.
+     * @param pdu is the complete PDU.
+     * @param responseHandler is the response handler.
+     * @return <tt>true</tt> if processed, <tt>false</tt> if there is no
+     *         handler to process it.
+     * @throws IOException if there is an IO error occur when sending the
+     *         response.
+     */
+    boolean processVendorCommand(SessionState sessionState, Command pduHeader,
+            byte[] pdu, BaseResponseHandler responseHandler) throws IOException {
+        if (!sessionState.isBound() || vendorCommandHandlers.isEmpty()) {
+            return false;
+        }
+        VendorCommandHandler handler = vendorCommandHandlers.get(pduHeader.getCommandId());
+        if (handler == null) {
+            return false;
+        }
+        notifyActivity();
+        int commandStatus;
+        try {
+            commandStatus = handler.processCommand(pduHeader, pdu);
+        } catch (ProcessRequestException e) {
+            commandStatus = e.getErrorCode();
+        }
+        if ((pduHeader.getCommandId() & SMPPConstant.MASK_CID_RESP) == 0) {
+            responseHandler.sendNegativeResponse(pduHeader.getCommandId(),
+                    commandStatus, pduHeader.getSequenceNumber());
+        }
+        return true;
+    }
+    
     public void notifyActivity() {
         lastActivityTimestamp = System.currentTimeMillis();
     }
@@ -54,13 +54,17 @@ public class BindCommandTask extends AbstractSendCommandTask {
         this.addressRange = addressRange;
     }
     
-    public void executeTask(OutputStream out, int sequenceNumber)
+    public int executeTask(OutputStream out, int sequenceNumber)
             throws PDUStringException, IOException {
-        pduSender.sendBind(out, bindType, sequenceNumber, systemId, password,
-                systemType, interfaceVersion, addrTon, addrNpi, addressRange);
+        return pduSender.sendBind(out, bindType, sequenceNumber, systemId, password,
+                systemType, interfaceVersion, addrTon, addrNpi, addressRange).length;
     }
     
     public String getCommandName() {
         return "bind";
     }
+    
+    public int getCommandId() {
+        return bindType.commandId();
+    }
 }
@@ -19,6 +19,7 @@ import java.io.OutputStream;
 
 import org.jsmpp.PDUSender;
 import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.NumberingPlanIndicator;
 import org.jsmpp.bean.TypeOfNumber;
 
@@ -52,12 +53,16 @@ public class CancelSmCommandTask extends AbstractSendCommandTask {
         this.destinationAddress = destinationAddress;
     }
     
-    public void executeTask(OutputStream out, int sequenceNumber)
+    public int executeTask(OutputStream out, int sequenceNumber)
             throws PDUStringException, IOException {
-        pduSender.sendCancelSm(out, sequenceNumber, serviceType, messageId, sourceAddrTon, sourceAddrNpi, sourceAddr, destAddrTon, destAddrNpi, destinationAddress);
+        return pduSender.sendCancelSm(out, sequenceNumber, serviceType, messageId, sourceAddrTon, sourceAddrNpi, sourceAddr, destAddrTon, destAddrNpi, destinationAddress).length;
     }
     
     public String getCommandName() {
         return "cancel_sm";
     }
+    
+    public int getCommandId() {
+        return SMPPConstant.CID_CANCEL_SM;
+    }
 }
@@ -19,6 +19,7 @@ import java.io.OutputStream;
 
 import org.jsmpp.PDUSender;
 import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.DataCoding;
 import org.jsmpp.bean.ESMClass;
 import org.jsmpp.bean.NumberingPlanIndicator;
@@ -64,15 +65,19 @@ public class DataSmCommandTask extends AbstractSendCommandTask {
         this.optionalParameters = optionalParameters;
     }
     
-    public void executeTask(OutputStream out, int sequenceNumber)
+    public int executeTask(OutputStream out, int sequenceNumber)
             throws PDUStringException, IOException {
-        pduSender.sendDataSm(out, sequenceNumber, serviceType, sourceAddrTon,
+        return pduSender.sendDataSm(out, sequenceNumber, serviceType, sourceAddrTon,
                 sourceAddrNpi, sourceAddr, destAddrTon, destAddrNpi,
                 destinationAddr, esmClass, registeredDelivery, dataCoding,
-                optionalParameters);
+                optionalParameters).length;
     }
     
     public String getCommandName() {
         return "data_sm";
     }
+    
+    public int getCommandId() {
+        return SMPPConstant.CID_DATA_SM;
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import java.util.List;
+
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.extra.ProcessRequestException;
+
+/**
+ * This listener receive the incoming short messages (deliver_sm) in batches
+ * instead of one by one. The deliver_sm_resp for every short message in the
+ * batch will be sent after the listener returns, so the listener can commit
+ * the whole batch at once (e.g. a single database transaction).
+ *
+ * <p>
+ * The <code>commandStatuses</code> array is parallel to the
+ * <code>deliverSms</code> list and is initialized with
+ * {@link org.jsmpp.SMPPConstant#STAT_ESME_ROK}. Set a non-zero value to give
+ * negative response for the specific short message. Throwing
+ * {@link ProcessRequestException} will give negative response with the error
+ * code of the exception for all short messages in the batch.
+ * </p>
+ *
+ * @see SMPPSession#setDeliverSmBatchListener(DeliverSmBatchListener, int, long)
+ *
+ */
+public interface DeliverSmBatchListener {
+
+    /**
+     * This event raised when a batch of short message received.
+     *
+     * @param deliverSms is the short messages, in receiving order.
+     * @param commandStatuses is the command_status of the deliver_sm_resp for
+     *        each short message.
+     * @throws ProcessRequestException throw if the whole batch should be
+     *         responded with Non-OK command_status.
+     */
+    void onAcceptDeliverSmBatch(List<DeliverSm> deliverSms,
+            int[] commandStatuses) throws ProcessRequestException;
+}
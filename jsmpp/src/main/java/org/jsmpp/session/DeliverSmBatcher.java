@@ -0,0 +1,200 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.extra.ProcessRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collect the incoming deliver_sm and hand them over to
+ * {@link DeliverSmBatchListener} when the batch is full or the oldest short
+ * message has been waiting for the maximum batch delay. The deliver_sm_resp
+ * will be sent for all short messages in the batch after the listener returns.
+ */
+class DeliverSmBatcher {
+    private static final Logger logger = LoggerFactory.getLogger(DeliverSmBatcher.class);
+
+    private final DeliverSmBatchListener listener;
+    private final ResponseHandler responseHandler;
+    private final int maxBatchSize;
+    private final long maxBatchDelay;
+
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private List<DeliverSm> pending;
+    private long firstPendingTimestamp;
+    private boolean closed;
+    private final FlushTimer flushTimer;
+
+    /**
+     * Construct with specified listener and batch limits.
+     *
+     * @param listener is the batch listener.
+     * @param responseHandler is the response handler used to send the
+     *        deliver_sm_resp.
+     * @param maxBatchSize is the maximum short messages in a batch.
+     * @param maxBatchDelay is the maximum time in millisecond a short message
+     *        waits for the batch to be processed.
+     * @param name is the name of the flush timer thread.
+     */
+    DeliverSmBatcher(DeliverSmBatchListener listener,
+            ResponseHandler responseHandler, int maxBatchSize,
+            long maxBatchDelay, String name) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize should be greater than 0");
+        }
+        if (maxBatchDelay < 1) {
+            throw new IllegalArgumentException("maxBatchDelay should be greater than 0");
+        }
+        this.listener = listener;
+        this.responseHandler = responseHandler;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = maxBatchDelay;
+        pending = new ArrayList<DeliverSm>(maxBatchSize);
+        flushTimer = new FlushTimer(name);
+        flushTimer.start();
+    }
+
+    /**
+     * Add the short message to the current batch. The batch will be processed
+     * on the calling thread when it's full.
+     *
+     * @param deliverSm is the short message.
+     * @return <tt>false</tt> if the batcher has been closed.
+     */
+    boolean add(DeliverSm deliverSm) {
+        List<DeliverSm> fullBatch = null;
+        synchronized (lock) {
+            if (closed) {
+                return false;
+            }
+            if (pending.isEmpty()) {
+                firstPendingTimestamp = System.currentTimeMillis();
+                lock.notify();
+            }
+            pending.add(deliverSm);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = takePending();
+            }
+        }
+        if (fullBatch != null) {
+            process(fullBatch);
+        }
+        return true;
+    }
+
+    /**
+     * Stop the flush timer. The short messages that still waiting will be
+     * discarded without response, the SMSC will deliver them again.
+     */
+    void close() {
+        synchronized (lock) {
+            closed = true;
+            discardPending();
+            lock.notify();
+        }
+        if (Thread.currentThread() != flushTimer) {
+            try {
+                flushTimer.join();
+            } catch (InterruptedException e) {
+                logger.warn("Interrupted while waiting for batch flush timer to exit");
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void discardPending() {
+        if (!pending.isEmpty()) {
+            logger.warn("Discarding {} deliver_sm waiting for batch processing", pending.size());
+            pending.clear();
+        }
+    }
+
+    private List<DeliverSm> takePending() {
+        List<DeliverSm> batch = pending;
+        pending = new ArrayList<DeliverSm>(maxBatchSize);
+        return batch;
+    }
+
+    private void process(List<DeliverSm> batch) {
+        int[] commandStatuses = new int[batch.size()];
+        synchronized (flushLock) {
+            try {
+                listener.onAcceptDeliverSmBatch(batch, commandStatuses);
+            } catch (ProcessRequestException e) {
+                logger.error("Failed processing deliver_sm batch", e);
+                Arrays.fill(commandStatuses, e.getErrorCode());
+            } catch (Exception e) {
+                logger.error("Invalid runtime exception thrown when processing deliver_sm batch", e);
+                Arrays.fill(commandStatuses, SMPPConstant.STAT_ESME_RX_T_APPN);
+            }
+
+            try {
+                for (int i = 0; i < commandStatuses.length; i++) {
+                    responseHandler.sendDeliverSmResp(commandStatuses[i],
+                            batch.get(i).getSequenceNumber());
+                }
+            } catch (IOException e) {
+                logger.warn("Failed sending deliver_sm_resp for batch: {}", e.getMessage());
+            }
+        }
+    }
+
+    private class FlushTimer extends Thread {
+
+        public FlushTimer(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                List<DeliverSm> batch;
+                synchronized (lock) {
+                    long remaining = 0;
+                    while (!closed && (pending.isEmpty() ||
+                            (remaining = firstPendingTimestamp + maxBatchDelay - System.currentTimeMillis()) > 0)) {
+                        try {
+                            if (pending.isEmpty()) {
+                                lock.wait();
+                            } else {
+                                lock.wait(remaining);
+                            }
+                        } catch (InterruptedException e) {
+                            // stop as if closed, the following deliver_sm are not batched
+                            Thread.currentThread().interrupt();
+                            closed = true;
+                            discardPending();
+                        }
+                    }
+                    if (closed) {
+                        break;
+                    }
+                    batch = takePending();
+                }
+                process(batch);
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.io.OutputStream;
 
 import org.jsmpp.PDUSender;
 import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.DataCoding;
 import org.jsmpp.bean.ESMClass;
 import org.jsmpp.bean.NumberingPlanIndicator;
@@ -72,17 +73,21 @@ public class DeliverSmCommandTask extends AbstractSendCommandTask {
         this.optionalParameters = optionalParameters;
     }
     
-    public void executeTask(OutputStream out, int sequenceNumber)
+    public int executeTask(OutputStream out, int sequenceNumber)
             throws PDUStringException, IOException {
         
-        pduSender.sendDeliverSm(out, sequenceNumber, serviceType,
+        return pduSender.sendDeliverSm(out, sequenceNumber, serviceType,
                 sourceAddrTon, sourceAddrNpi, sourceAddr, destAddrTon,
                 destAddrNpi, destinationAddr, esmClass, protocoId,
                 priorityFlag, registeredDelivery, dataCoding, shortMessage,
-                optionalParameters);
+                optionalParameters).length;
     }
     
     public String getCommandName() {
         return "deliver_sm";
     }
+    
+    public int getCommandId() {
+        return SMPPConstant.CID_DELIVER_SM;
+    }
 }
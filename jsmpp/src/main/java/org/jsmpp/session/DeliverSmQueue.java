@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import org.jsmpp.bean.DeliverSm;
+
+/**
+ * Optional capability of a {@link ResponseHandler} queueing the incoming
+ * deliver_sm for batch processing. A handler not implementing it processes
+ * every deliver_sm immediately.
+ * 
+ */
+public interface DeliverSmQueue {
+
+    /**
+     * Queue the deliver for batch processing. The <b>DELIVER_SM_RESP</b> will
+     * be sent after the batch processed.
+     * 
+     * @param deliverSm is the short message.
+     * @return <tt>true</tt> if the deliver has been queued, or <tt>false</tt>
+     *         if the deliver should be processed immediately.
+     */
+    boolean queueDeliverSm(DeliverSm deliverSm);
+}
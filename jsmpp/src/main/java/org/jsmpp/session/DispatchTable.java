@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.jsmpp.session;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.state.SMPPServerSessionState;
+import org.jsmpp.session.state.SMPPSessionState;
+
+/**
+ * The dispatch of the received PDU in one session state: the state processor
+ * and the action of every command_id. The tables are built once per state
+ * and the session context publishes the table of the current state through
+ * a volatile field, so the state processor and the actions are swapped
+ * together on state change.
+ * <p>
+ * The action is a small int looked up in an array indexed by the
+ * command_id, the PDU task switches on it and calls the state processor
+ * directly. The vendor specific command_id are dispatched to the vendor
+ * command handlers only by the tables of the bound states.
+ * </p>
+ *
+ * @param <S> is the state processor type.
+ */
+final class DispatchTable<S> {
+    static final int UNKNOWN = 0;
+    static final int BIND = 1;
+    static final int BIND_RESP = 2;
+    static final int GENERIC_NACK = 3;
+    static final int ENQUIRE_LINK = 4;
+    static final int ENQUIRE_LINK_RESP = 5;
+    static final int SUBMIT_SM = 6;
+    static final int SUBMIT_SM_RESP = 7;
+    static final int SUBMIT_MULTI = 8;
+    static final int SUBMIT_MULTI_RESP = 9;
+    static final int QUERY_SM = 10;
+    static final int QUERY_SM_RESP = 11;
+    static final int DELIVER_SM = 12;
+    static final int DELIVER_SM_RESP = 13;
+    static final int DATA_SM = 14;
+    static final int DATA_SM_RESP = 15;
+    static final int CANCEL_SM = 16;
+    static final int CANCEL_SM_RESP = 17;
+    static final int REPLACE_SM = 18;
+    static final int REPLACE_SM_RESP = 19;
+    static final int ALERT_NOTIFICATION = 20;
+    static final int UNBIND = 21;
+    static final int UNBIND_RESP = 22;
+    static final int VENDOR = 23;
+
+    private static final int CID_MASK = 0x1ff;
+    private static final int RESP_SLOT = CID_MASK + 1;
+
+    /**
+     * The command_id processed by the {@link SMPPSession}, with their action.
+     */
+    private static final int[][] SESSION_COMMANDS = {
+        { SMPPConstant.CID_BIND_RECEIVER_RESP, BIND_RESP },
+        { SMPPConstant.CID_BIND_TRANSMITTER_RESP, BIND_RESP },
+        { SMPPConstant.CID_BIND_TRANSCEIVER_RESP, BIND_RESP },
+        { SMPPConstant.CID_GENERIC_NACK, GENERIC_NACK },
+        { SMPPConstant.CID_ENQUIRE_LINK, ENQUIRE_LINK },
+        { SMPPConstant.CID_ENQUIRE_LINK_RESP, ENQUIRE_LINK_RESP },
+        { SMPPConstant.CID_SUBMIT_SM_RESP, SUBMIT_SM_RESP },
+        { SMPPConstant.CID_SUBMIT_MULTI_RESP, SUBMIT_MULTI_RESP },
+        { SMPPConstant.CID_QUERY_SM_RESP, QUERY_SM_RESP },
+        { SMPPConstant.CID_DELIVER_SM, DELIVER_SM },
+        { SMPPConstant.CID_DATA_SM, DATA_SM },
+        { SMPPConstant.CID_DATA_SM_RESP, DATA_SM_RESP },
+        { SMPPConstant.CID_CANCEL_SM_RESP, CANCEL_SM_RESP },
+        { SMPPConstant.CID_REPLACE_SM_RESP, REPLACE_SM_RESP },
+        { SMPPConstant.CID_ALERT_NOTIFICATION, ALERT_NOTIFICATION },
+        { SMPPConstant.CID_UNBIND, UNBIND },
+        { SMPPConstant.CID_UNBIND_RESP, UNBIND_RESP }
+    };
+
+    /**
+     * The command_id processed by the {@link SMPPServerSession}, with their
+     * action.
+     */
+    private static final int[][] SERVER_SESSION_COMMANDS = {
+        { SMPPConstant.CID_BIND_RECEIVER, BIND },
+        { SMPPConstant.CID_BIND_TRANSMITTER, BIND },
+        { SMPPConstant.CID_BIND_TRANSCEIVER, BIND },
+        { SMPPConstant.CID_GENERIC_NACK, GENERIC_NACK },
+        { SMPPConstant.CID_ENQUIRE_LINK, ENQUIRE_LINK },
+        { SMPPConstant.CID_ENQUIRE_LINK_RESP, ENQUIRE_LINK_RESP },
+        { SMPPConstant.CID_SUBMIT_SM, SUBMIT_SM },
+        { SMPPConstant.CID_SUBMIT_MULTI, SUBMIT_MULTI },
+        { SMPPConstant.CID_QUERY_SM, QUERY_SM },
+        { SMPPConstant.CID_DELIVER_SM_RESP, DELIVER_SM_RESP },
+        { SMPPConstant.CID_DATA_SM, DATA_SM },
+        { SMPPConstant.CID_DATA_SM_RESP, DATA_SM_RESP },
+        { SMPPConstant.CID_CANCEL_SM, CANCEL_SM },
+        { SMPPConstant.CID_REPLACE_SM, REPLACE_SM },
+        { SMPPConstant.CID_UNBIND, UNBIND },
+        { SMPPConstant.CID_UNBIND_RESP, UNBIND_RESP }
+    };
+
+    private final S stateProcessor;
+    private final SessionState sessionState;
+    private final byte[] actions = new byte[RESP_SLOT * 2];
+    private final int vendorAction;
+
+    private DispatchTable(S stateProcessor, SessionState sessionState,
+            int[][] commands) {
+        this.stateProcessor = stateProcessor;
+        this.sessionState = sessionState;
+        for (int[] command : commands) {
+            actions[slot(command[0])] = (byte)command[1];
+        }
+        vendorAction = sessionState.isBound() ? VENDOR : UNKNOWN;
+    }
+
+    /**
+     * Build the table of the {@link SMPPSession} state.
+     *
+     * @param stateProcessor is the state processor.
+     * @return the dispatch table.
+     */
+    static DispatchTable<SMPPSessionState> forSession(
+            SMPPSessionState stateProcessor) {
+        return new DispatchTable<SMPPSessionState>(stateProcessor,
+                stateProcessor.getSessionState(), SESSION_COMMANDS);
+    }
+
+    /**
+     * Build the table of the {@link SMPPServerSession} state.
+     *
+     * @param stateProcessor is the state processor.
+     * @return the dispatch table.
+     */
+    static DispatchTable<SMPPServerSessionState> forServerSession(
+            SMPPServerSessionState stateProcessor) {
+        return new DispatchTable<SMPPServerSessionState>(stateProcessor,
+                stateProcessor.getSessionState(), SERVER_SESSION_COMMANDS);
+    }
+
+    private static int slot(int commandId) {
+        return (commandId & SMPPConstant.MASK_CID_RESP) == 0 ? commandId
+                : (commandId & CID_MASK) | RESP_SLOT;
+    }
+
+    /**
+     * Get the action of the command_id.
+     *
+     * @param commandId is the command_id.
+     * @return the action, {@link #UNKNOWN} if the command_id isn't processed
+     *         in this state.
+     */
+    int action(int commandId) {
+        if (AbstractSessionContext.isVendorCommand(commandId)) {
+            return vendorAction;
+        }
+        return actions[slot(commandId)];
+    }
+
+    public S getStateProcessor() {
+        return stateProcessor;
+    }
+
+    public SessionState getSessionState() {
+        return sessionState;
+    }
+}
@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import org.jsmpp.PDUSender;
+import org.jsmpp.SMPPConstant;
 
 /**
  * @author uudashr
@@ -29,12 +30,16 @@ public class EnquireLinkCommandTask extends AbstractSendCommandTask {
         super(pduSender);
     }
 
-    public void executeTask(OutputStream out, int sequenceNumber)
+    public int executeTask(OutputStream out, int sequenceNumber)
             throws IOException {
-        pduSender.sendEnquireLink(out, sequenceNumber);
+        return pduSender.sendEnquireLink(out, sequenceNumber).length;
     }
     
     public String getCommandName() {
         return "enquire_link";
     }
+    
+    public int getCommandId() {
+        return SMPPConstant.CID_ENQUIRE_LINK;
+    }
 }
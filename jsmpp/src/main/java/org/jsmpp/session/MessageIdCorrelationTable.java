@@ -0,0 +1,503 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.util.InvalidDeliveryReceiptException;
+
+/**
+ * Table to correlate the message_id given by the SMSC on submit_sm_resp with
+ * the application context (e.g. the row id of the outgoing message), so the
+ * context can be found again when the delivery receipt arrives.
+ * <p>
+ * The entries are kept in preallocated {@link ByteBuffer}s, heap or direct,
+ * split into stripes with their own lock. Each entry is 24 octets: the 64 bit
+ * fingerprint of the message_id, the context and the expiry time. The
+ * message_id itself is not stored, two message_id with the same fingerprint
+ * will share one entry, which is unlikely for a 64 bit fingerprint.
+ * </p>
+ * <p>
+ * The expired entries are removed lazily when they are looked up and
+ * incrementally on every put. When the table is full, the entry nearest to
+ * expire among the neighbours of the new entry is evicted.
+ * </p>
+ * <p>
+ * Once the table is set to {@link SMPPSession}, the message_id of every
+ * successful submit_sm and submit_multi of the session is put with the
+ * context set by the submitting thread, or {@link #NO_CONTEXT}.
+ * </p>
+ *
+ * <pre>
+ * long previous = table.setContext(rowId);
+ * try {
+ *     session.submitShortMessage(...);
+ * } finally {
+ *     table.setContext(previous);
+ * }
+ * </pre>
+ */
+public class MessageIdCorrelationTable {
+    /**
+     * The value returned when there is no context for the message_id.
+     */
+    public static final long NOT_FOUND = Long.MIN_VALUE;
+
+    /**
+     * The context of the message_id submitted while no context is set.
+     */
+    public static final long NO_CONTEXT = 0;
+
+    private static final int ENTRY_LENGTH = 24;
+    private static final int CONTEXT_OFFSET = 8;
+    private static final int EXPIRY_OFFSET = 16;
+    private static final int MAX_SLOTS_PER_STRIPE = Integer.MAX_VALUE / ENTRY_LENGTH;
+    private static final int STRIPES = 16;
+    private static final int SWEEP_STEP = 4;
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger size = new AtomicInteger();
+    private final ThreadLocal<Long> currentContext = new ThreadLocal<Long>();
+    private final int maxEntries;
+    private final long defaultTtl;
+
+    /**
+     * Construct heap backed table.
+     *
+     * @param maxEntries is the maximum entries in the table.
+     * @param defaultTtl is the default time to live of the entry in millis.
+     */
+    public MessageIdCorrelationTable(int maxEntries, long defaultTtl) {
+        this(maxEntries, defaultTtl, false);
+    }
+
+    /**
+     * Construct table.
+     *
+     * @param maxEntries is the maximum entries in the table.
+     * @param defaultTtl is the default time to live of the entry in millis.
+     * @param direct is <tt>true</tt> to keep the entries in direct (off-heap)
+     *        buffers.
+     */
+    public MessageIdCorrelationTable(int maxEntries, long defaultTtl, boolean direct) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries should be greater than 0");
+        }
+        if (defaultTtl < 1) {
+            throw new IllegalArgumentException("defaultTtl should be greater than 0");
+        }
+        // leave room for the uneven distribution of the keys to the stripes
+        int maxStripeEntries = (maxEntries + STRIPES - 1) / STRIPES;
+        maxStripeEntries += maxStripeEntries / 4 + 16;
+        // keep at least a fifth of the slots empty to keep the probes short
+        long minSlots = (long)maxStripeEntries * 5 / 4 + 1;
+        int slots = 8;
+        while (slots < minSlots) {
+            slots <<= 1;
+            if (slots > MAX_SLOTS_PER_STRIPE) {
+                throw new IllegalArgumentException("maxEntries " + maxEntries + " is too large");
+            }
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(slots, maxStripeEntries, direct);
+        }
+        this.maxEntries = maxEntries;
+        this.defaultTtl = defaultTtl;
+    }
+
+    /**
+     * Set the context put for the message_id of the short messages submitted
+     * by the current thread.
+     *
+     * @param context is the context, {@link #NO_CONTEXT} to clear it, can't be
+     *        {@link #NOT_FOUND}.
+     * @return the previous context of the current thread, should be restored
+     *         after submitting.
+     */
+    public long setContext(long context) {
+        if (context == NOT_FOUND) {
+            throw new IllegalArgumentException("Invalid context value " + context);
+        }
+        long previous = getContext();
+        if (context != NO_CONTEXT) {
+            currentContext.set(context);
+        } else {
+            currentContext.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * @return the context of the current thread or {@link #NO_CONTEXT}.
+     */
+    public long getContext() {
+        Long context = currentContext.get();
+        return context != null ? context : NO_CONTEXT;
+    }
+
+    /**
+     * Put the context using the default time to live.
+     *
+     * @param messageId is the message_id given by the SMSC.
+     * @param context is the application context.
+     */
+    public void put(String messageId, long context) {
+        put(messageId, context, defaultTtl);
+    }
+
+    /**
+     * Put the context, replace the existing context of the message_id.
+     *
+     * @param messageId is the message_id given by the SMSC.
+     * @param context is the application context, can't be {@link #NOT_FOUND}.
+     * @param ttl is the time to live of the entry in millis, usually the
+     *        validity period of the short message, {@link Long#MAX_VALUE}
+     *        to keep it until evicted.
+     */
+    public void put(String messageId, long context, long ttl) {
+        if (context == NOT_FOUND) {
+            throw new IllegalArgumentException("Invalid context value " + context);
+        }
+        long key = fingerprint(messageId);
+        long now = System.currentTimeMillis();
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.sweep(now, SWEEP_STEP);
+            stripe.put(key, context, expiryOf(now, ttl));
+        }
+    }
+
+    /**
+     * Compute the expiry, saturated at {@link Long#MAX_VALUE} instead of
+     * overflowing to a negative expiry for the very long ttl.
+     */
+    static long expiryOf(long now, long ttl) {
+        long expiry = now + ttl;
+        return ttl > 0 && expiry < now ? Long.MAX_VALUE : expiry;
+    }
+
+    /**
+     * Get the context of the message_id.
+     *
+     * @param messageId is the message_id given by the SMSC.
+     * @return the context or {@link #NOT_FOUND}.
+     */
+    public long get(String messageId) {
+        long key = fingerprint(messageId);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            int index = stripe.find(key);
+            if (index < 0) {
+                return NOT_FOUND;
+            }
+            if (stripe.expiry(index) <= System.currentTimeMillis()) {
+                stripe.delete(index);
+                return NOT_FOUND;
+            }
+            return stripe.context(index);
+        }
+    }
+
+    /**
+     * Remove the context of the message_id.
+     *
+     * @param messageId is the message_id given by the SMSC.
+     * @return the removed context or {@link #NOT_FOUND}.
+     */
+    public long remove(String messageId) {
+        long key = fingerprint(messageId);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            int index = stripe.find(key);
+            if (index < 0) {
+                return NOT_FOUND;
+            }
+            boolean expired = stripe.expiry(index) <= System.currentTimeMillis();
+            long context = stripe.context(index);
+            stripe.delete(index);
+            return expired ? NOT_FOUND : context;
+        }
+    }
+
+    /**
+     * Remove the context of the short message the delivery receipt is for.
+     * The message_id is taken from the receipted_message_id optional
+     * parameter, or from the id field of the receipt text if the optional
+     * parameter is absent.
+     *
+     * @param deliverSm is the delivery receipt.
+     * @return the removed context or {@link #NOT_FOUND}.
+     */
+    public long remove(DeliverSm deliverSm) {
+        String messageId = receiptedMessageId(deliverSm);
+        if (messageId == null) {
+            return NOT_FOUND;
+        }
+        return remove(messageId);
+    }
+
+    /**
+     * Remove all the expired entries.
+     *
+     * @return the total removed entries.
+     */
+    public int purgeExpired() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.purgeExpired(System.currentTimeMillis());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return the total entries, including the expired ones not removed yet.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the total entries evicted because the table was full.
+     */
+    public long getEvictionCount() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.evictionCount;
+            }
+        }
+        return total;
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int)(key >>> 32) & (STRIPES - 1)];
+    }
+
+    private static String receiptedMessageId(DeliverSm deliverSm) {
+        OptionalParameter.Receipted_message_id receiptedMessageId = deliverSm.getOptionalParameter(
+                OptionalParameter.Receipted_message_id.class);
+        if (receiptedMessageId != null) {
+            String value = receiptedMessageId.getValueAsString();
+            int end = value.indexOf('\0');
+            return end < 0 ? value : value.substring(0, end);
+        }
+        if (deliverSm.isSmscDeliveryReceipt()) {
+            try {
+                return deliverSm.getShortMessageAsDeliveryReceipt().getId();
+            } catch (InvalidDeliveryReceiptException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the message_id with the MurmurHash3 finalizer.
+     */
+    private static long fingerprint(String messageId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            h ^= messageId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        // zero marks the empty slot
+        return h != 0 ? h : 1;
+    }
+
+    /**
+     * Open addressing hash table with linear probing.
+     */
+    private class Stripe {
+        private final ByteBuffer slots;
+        private final int mask;
+        private final int maxSize;
+        private int stripeSize;
+        private int sweepCursor;
+        private long evictionCount;
+
+        Stripe(int capacity, int maxSize, boolean direct) {
+            int length = capacity * ENTRY_LENGTH;
+            slots = (direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length))
+                    .order(ByteOrder.nativeOrder());
+            mask = capacity - 1;
+            this.maxSize = maxSize;
+        }
+
+        long key(int index) {
+            return slots.getLong(index * ENTRY_LENGTH);
+        }
+
+        long context(int index) {
+            return slots.getLong(index * ENTRY_LENGTH + CONTEXT_OFFSET);
+        }
+
+        long expiry(int index) {
+            return slots.getLong(index * ENTRY_LENGTH + EXPIRY_OFFSET);
+        }
+
+        int home(long key) {
+            return (int)key & mask;
+        }
+
+        int find(long key) {
+            int index = home(key);
+            while (true) {
+                long k = key(index);
+                if (k == key) {
+                    return index;
+                }
+                if (k == 0) {
+                    return -1;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        void put(long key, long context, long expiry) {
+            int index = find(key);
+            if (index < 0) {
+                if (!reserve()) {
+                    evict(key);
+                    size.incrementAndGet();
+                }
+                index = home(key);
+                while (key(index) != 0) {
+                    index = (index + 1) & mask;
+                }
+                stripeSize++;
+            }
+            int offset = index * ENTRY_LENGTH;
+            slots.putLong(offset, key);
+            slots.putLong(offset + CONTEXT_OFFSET, context);
+            slots.putLong(offset + EXPIRY_OFFSET, expiry);
+        }
+
+        /**
+         * Reserve room for a new entry in the table and in this stripe.
+         */
+        boolean reserve() {
+            if (stripeSize >= maxSize) {
+                return false;
+            }
+            while (true) {
+                int current = size.get();
+                if (current >= maxEntries && stripeSize > 0) {
+                    return false;
+                }
+                if (size.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Evict the entry nearest to expire among the first entries found
+         * from the home slot of the key.
+         */
+        void evict(long key) {
+            int index = home(key);
+            int victim = -1;
+            long victimExpiry = 0;
+            for (int sampled = 0; sampled < EVICTION_SAMPLE && sampled < stripeSize;) {
+                if (key(index) != 0) {
+                    long expiry = expiry(index);
+                    // the first sampled entry is always a candidate
+                    if (victim < 0 || expiry < victimExpiry) {
+                        victim = index;
+                        victimExpiry = expiry;
+                    }
+                    sampled++;
+                }
+                index = (index + 1) & mask;
+            }
+            delete(victim);
+            evictionCount++;
+        }
+
+        /**
+         * Delete the entry and shift back the following entries of the probe
+         * sequence, so no tombstone is needed.
+         */
+        void delete(int index) {
+            int hole = index;
+            int next = index;
+            while (true) {
+                next = (next + 1) & mask;
+                long key = key(next);
+                if (key == 0) {
+                    break;
+                }
+                int home = home(key);
+                // keep the entry if its home lies cyclically in (hole, next]
+                boolean keep = hole <= next ? (hole < home && home <= next)
+                        : (hole < home || home <= next);
+                if (!keep) {
+                    copy(next, hole);
+                    hole = next;
+                }
+            }
+            int offset = hole * ENTRY_LENGTH;
+            slots.putLong(offset, 0);
+            slots.putLong(offset + CONTEXT_OFFSET, 0);
+            slots.putLong(offset + EXPIRY_OFFSET, 0);
+            stripeSize--;
+            size.decrementAndGet();
+        }
+
+        void copy(int from, int to) {
+            int fromOffset = from * ENTRY_LENGTH;
+            int toOffset = to * ENTRY_LENGTH;
+            slots.putLong(toOffset, slots.getLong(fromOffset));
+            slots.putLong(toOffset + CONTEXT_OFFSET, slots.getLong(fromOffset + CONTEXT_OFFSET));
+            slots.putLong(toOffset + EXPIRY_OFFSET, slots.getLong(fromOffset + EXPIRY_OFFSET));
+        }
+
+        void sweep(long now, int steps) {
+            for (int i = 0; i < steps; i++) {
+                if (key(sweepCursor) != 0 && expiry(sweepCursor) <= now) {
+                    // the following entry may be shifted here, check it next
+                    delete(sweepCursor);
+                } else {
+                    sweepCursor = (sweepCursor + 1) & mask;
+                }
+            }
+        }
+
+        int purgeExpired(long now) {
+            int removed = 0;
+            for (int index = 0; index <= mask;) {
+                if (key(index) != 0 && expiry(index) <= now) {
+                    delete(index);
+                    removed++;
+                } else {
+                    index++;
+                }
+            }
+            return removed;
+        }
+    }
+}
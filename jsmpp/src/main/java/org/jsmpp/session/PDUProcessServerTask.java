@@ -16,7 +16,6 @@ package org.jsmpp.session;
 
 import java.io.IOException;
 
-import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.Command;
 import org.jsmpp.session.state.SMPPServerSessionState;
 import org.jsmpp.util.HexUtil;
@@ -32,25 +31,44 @@ public class PDUProcessServerTask implements Runnable {
     
     private final Command pduHeader;
     private final byte[] pdu;
-    private final SMPPServerSessionState stateProcessor;
-    private final ActivityNotifier activityNotifier;
+    private final DispatchTable<SMPPServerSessionState> dispatchTable;
+    private final SMPPServerSessionContext sessionContext;
     private final ServerResponseHandler responseHandler;
     private final Runnable onIOExceptionTask;
     
     
     public PDUProcessServerTask(Command pduHeader, byte[] pdu,
             SMPPServerSessionState stateProcessor,
-            ActivityNotifier activityNotifier,
+            SMPPServerSessionContext sessionContext,
+            ServerResponseHandler responseHandler, Runnable onIOExceptionTask) {
+        this(pduHeader, pdu, DispatchTable.forServerSession(stateProcessor),
+                sessionContext, responseHandler, onIOExceptionTask);
+    }
+    
+    PDUProcessServerTask(Command pduHeader, byte[] pdu,
+            DispatchTable<SMPPServerSessionState> dispatchTable,
+            SMPPServerSessionContext sessionContext,
             ServerResponseHandler responseHandler, Runnable onIOExceptionTask) {
         this.pduHeader = pduHeader;
         this.pdu = pdu;
-        this.stateProcessor = stateProcessor;
-        this.activityNotifier = activityNotifier;
+        this.dispatchTable = dispatchTable;
+        this.sessionContext = sessionContext;
         this.responseHandler = responseHandler;
         this.onIOExceptionTask = onIOExceptionTask;
     }
 
     public void run() {
+        process(pduHeader, pdu, dispatchTable, sessionContext,
+                responseHandler, onIOExceptionTask);
+    }
+
+    /**
+     * Process the PDU on the current thread.
+     */
+    static void process(Command pduHeader, byte[] pdu,
+            DispatchTable<SMPPServerSessionState> dispatchTable,
+            SMPPServerSessionContext sessionContext,
+            ServerResponseHandler responseHandler, Runnable onIOExceptionTask) {
         try {
         	if(logger.isDebugEnabled()) 
         	{
@@ -58,65 +76,71 @@ public class PDUProcessServerTask implements Runnable {
         		logger.debug("Received SMPP message {} {}", pduHeader, hexmsg);
         	}
         	
-            switch (pduHeader.getCommandId()) {
-            case SMPPConstant.CID_BIND_RECEIVER:
-            case SMPPConstant.CID_BIND_TRANSMITTER:
-            case SMPPConstant.CID_BIND_TRANSCEIVER:
-                activityNotifier.notifyActivity();
+            SMPPServerSessionState stateProcessor = dispatchTable.getStateProcessor();
+            switch (dispatchTable.action(pduHeader.getCommandId())) {
+            case DispatchTable.BIND:
+                sessionContext.notifyActivity();
                 stateProcessor.processBind(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_GENERIC_NACK:
-                activityNotifier.notifyActivity();
+            case DispatchTable.GENERIC_NACK:
+                sessionContext.notifyActivity();
                 stateProcessor.processGenericNack(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_ENQUIRE_LINK:
-                activityNotifier.notifyActivity();
+            case DispatchTable.ENQUIRE_LINK:
+                sessionContext.notifyActivity();
                 stateProcessor.processEnquireLink(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_ENQUIRE_LINK_RESP:
-                activityNotifier.notifyActivity();
+            case DispatchTable.ENQUIRE_LINK_RESP:
+                sessionContext.notifyActivity();
                 stateProcessor.processEnquireLinkResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_SUBMIT_SM:
-                activityNotifier.notifyActivity();
+            case DispatchTable.SUBMIT_SM:
+                sessionContext.notifyActivity();
                 stateProcessor.processSubmitSm(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_SUBMIT_MULTI:
-                activityNotifier.notifyActivity();
+            case DispatchTable.SUBMIT_MULTI:
+                sessionContext.notifyActivity();
                 stateProcessor.processSubmitMulti(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_QUERY_SM:
-                activityNotifier.notifyActivity();
+            case DispatchTable.QUERY_SM:
+                sessionContext.notifyActivity();
                 stateProcessor.processQuerySm(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_DELIVER_SM_RESP:
-                activityNotifier.notifyActivity();
+            case DispatchTable.DELIVER_SM_RESP:
+                sessionContext.notifyActivity();
                 stateProcessor.processDeliverSmResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_DATA_SM:
-                activityNotifier.notifyActivity();
+            case DispatchTable.DATA_SM:
+                sessionContext.notifyActivity();
                 stateProcessor.processDataSm(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_DATA_SM_RESP:
-                activityNotifier.notifyActivity();
+            case DispatchTable.DATA_SM_RESP:
+                sessionContext.notifyActivity();
                 stateProcessor.processDataSmResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_CANCEL_SM:
-                activityNotifier.notifyActivity();
+            case DispatchTable.CANCEL_SM:
+                sessionContext.notifyActivity();
                 stateProcessor.processCancelSm(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_REPLACE_SM:
-                activityNotifier.notifyActivity();
+            case DispatchTable.REPLACE_SM:
+                sessionContext.notifyActivity();
                 stateProcessor.processReplaceSm(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_UNBIND:
-                activityNotifier.notifyActivity();
+            case DispatchTable.UNBIND:
+                sessionContext.notifyActivity();
                 stateProcessor.processUnbind(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_UNBIND_RESP:
-                activityNotifier.notifyActivity();
+            case DispatchTable.UNBIND_RESP:
+                sessionContext.notifyActivity();
                 stateProcessor.processUnbindResp(pduHeader, pdu, responseHandler);
                 break;
+            case DispatchTable.VENDOR:
+                if (!sessionContext.processVendorCommand(
+                        dispatchTable.getSessionState(), pduHeader, pdu,
+                        responseHandler)) {
+                    stateProcessor.processUnknownCid(pduHeader, pdu, responseHandler);
+                }
+                break;
             default:
                 stateProcessor.processUnknownCid(pduHeader, pdu, responseHandler);
             }
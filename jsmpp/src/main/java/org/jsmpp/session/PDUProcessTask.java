@@ -18,6 +18,7 @@ import java.io.IOException;
 
 import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.Command;
+import org.jsmpp.session.state.SMPPSessionState;
 import org.jsmpp.util.HexUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,77 +49,134 @@ public class PDUProcessTask implements Runnable {
     }
 
     public void run() {
+        process(pduHeader, pdu, sessionContext, responseHandler,
+                activityNotifier, onIOExceptionTask);
+    }
+
+    /**
+     * Check whether the PDU is processed by the reader thread, of both the
+     * {@link SMPPSession} and the {@link SMPPServerSession}. The known
+     * responses only complete the pending request and the enquire_link only
+     * needs the enquire_link_resp, so they are processed without the executor
+     * and don't wait behind the requests being processed by the application.
+     * The vendor and unknown responses may run application code, they are
+     * processed by the executor as the requests.
+     * <p>
+     * The enquire_link_resp is written by the reader thread, it waits for the
+     * PDU being written by the other threads, the reader is blocked as long
+     * as the peer doesn't read. With {@link org.jsmpp.PriorityPDUSender} the
+     * enquire_link_resp is written before the other waiting PDU.
+     * </p>
+     * 
+     * @param commandId is the command_id.
+     * @return <tt>true</tt> if processed by the reader thread.
+     */
+    static boolean isProcessedByReader(int commandId) {
+        switch (commandId) {
+        case SMPPConstant.CID_ENQUIRE_LINK:
+        case SMPPConstant.CID_ENQUIRE_LINK_RESP:
+        case SMPPConstant.CID_GENERIC_NACK:
+        case SMPPConstant.CID_BIND_RECEIVER_RESP:
+        case SMPPConstant.CID_BIND_TRANSMITTER_RESP:
+        case SMPPConstant.CID_BIND_TRANSCEIVER_RESP:
+        case SMPPConstant.CID_UNBIND_RESP:
+        case SMPPConstant.CID_SUBMIT_SM_RESP:
+        case SMPPConstant.CID_SUBMIT_MULTI_RESP:
+        case SMPPConstant.CID_DELIVER_SM_RESP:
+        case SMPPConstant.CID_DATA_SM_RESP:
+        case SMPPConstant.CID_QUERY_SM_RESP:
+        case SMPPConstant.CID_CANCEL_SM_RESP:
+        case SMPPConstant.CID_REPLACE_SM_RESP:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Process the PDU on the current thread.
+     */
+    static void process(Command pduHeader, byte[] pdu,
+            SMPPSessionContext sessionContext, ResponseHandler responseHandler,
+            ActivityNotifier activityNotifier, Runnable onIOExceptionTask) {
         try {
             if(logger.isDebugEnabled()) {
                 logger.debug("Received SMPP message {} {}", pduHeader, 
                         HexUtil.convertBytesToHexString(pdu, 16, pdu.length, " "));
             }
             
-            switch (pduHeader.getCommandId()) {
-            case SMPPConstant.CID_BIND_RECEIVER_RESP:
-            case SMPPConstant.CID_BIND_TRANSMITTER_RESP:
-            case SMPPConstant.CID_BIND_TRANSCEIVER_RESP:
+            DispatchTable<SMPPSessionState> dispatchTable = sessionContext.getDispatchTable();
+            SMPPSessionState stateProcessor = dispatchTable.getStateProcessor();
+            switch (dispatchTable.action(pduHeader.getCommandId())) {
+            case DispatchTable.BIND_RESP:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processBindResp(pduHeader, pdu, responseHandler);
+                stateProcessor.processBindResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_GENERIC_NACK:
+            case DispatchTable.GENERIC_NACK:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processGenericNack(pduHeader, pdu, responseHandler);
+                stateProcessor.processGenericNack(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_ENQUIRE_LINK:
+            case DispatchTable.ENQUIRE_LINK:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processEnquireLink(pduHeader, pdu, responseHandler);
+                stateProcessor.processEnquireLink(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_ENQUIRE_LINK_RESP:
+            case DispatchTable.ENQUIRE_LINK_RESP:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processEnquireLinkResp(pduHeader, pdu, responseHandler);
+                stateProcessor.processEnquireLinkResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_SUBMIT_SM_RESP:
+            case DispatchTable.SUBMIT_SM_RESP:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processSubmitSmResp(pduHeader, pdu, responseHandler);
+                stateProcessor.processSubmitSmResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_SUBMIT_MULTI_RESP:
+            case DispatchTable.SUBMIT_MULTI_RESP:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processSubmitMultiResp(pduHeader, pdu, responseHandler);
+                stateProcessor.processSubmitMultiResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_QUERY_SM_RESP:
+            case DispatchTable.QUERY_SM_RESP:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processQuerySmResp(pduHeader, pdu, responseHandler);
+                stateProcessor.processQuerySmResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_DELIVER_SM:
+            case DispatchTable.DELIVER_SM:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processDeliverSm(pduHeader, pdu, responseHandler);
+                stateProcessor.processDeliverSm(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_DATA_SM:
+            case DispatchTable.DATA_SM:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processDataSm(pduHeader, pdu, responseHandler);
+                stateProcessor.processDataSm(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_DATA_SM_RESP:
+            case DispatchTable.DATA_SM_RESP:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processDataSmResp(pduHeader, pdu, responseHandler);
+                stateProcessor.processDataSmResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_CANCEL_SM_RESP:
+            case DispatchTable.CANCEL_SM_RESP:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processCancelSmResp(pduHeader, pdu, responseHandler);
+                stateProcessor.processCancelSmResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_REPLACE_SM_RESP:
+            case DispatchTable.REPLACE_SM_RESP:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processReplaceSmResp(pduHeader, pdu, responseHandler);
+                stateProcessor.processReplaceSmResp(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_ALERT_NOTIFICATION:
+            case DispatchTable.ALERT_NOTIFICATION:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processAlertNotification(pduHeader, pdu, responseHandler);
+                stateProcessor.processAlertNotification(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_UNBIND:
+            case DispatchTable.UNBIND:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processUnbind(pduHeader, pdu, responseHandler);
+                stateProcessor.processUnbind(pduHeader, pdu, responseHandler);
                 break;
-            case SMPPConstant.CID_UNBIND_RESP:
+            case DispatchTable.UNBIND_RESP:
                 activityNotifier.notifyActivity();
-                sessionContext.getStateProcessor().processUnbindResp(pduHeader, pdu, responseHandler);
+                stateProcessor.processUnbindResp(pduHeader, pdu, responseHandler);
+                break;
+            case DispatchTable.VENDOR:
+                if (!sessionContext.processVendorCommand(
+                        dispatchTable.getSessionState(), pduHeader, pdu,
+                        responseHandler)) {
+                    stateProcessor.processUnknownCid(pduHeader, pdu, responseHandler);
+                }
                 break;
             default:
-            	sessionContext.getStateProcessor().processUnknownCid(pduHeader, pdu, responseHandler);
+                stateProcessor.processUnknownCid(pduHeader, pdu, responseHandler);
             }
         } catch (IOException e) {
             onIOExceptionTask.run();
@@ -0,0 +1,331 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor of the PDU processing tasks of a session.
+ * <p>
+ * The number of threads is between the minimum and the maximum degree. When
+ * both are the same, it works as a fixed thread pool. Otherwise the degree is
+ * adjusted on every adjust interval from the time spent processing the PDU
+ * and the queued PDU: the degree follows the average busy threads plus a
+ * quarter headroom and grows by half when the threads are saturated with PDU
+ * waiting. In both cases the idle threads are terminated after the keep alive
+ * time, so an idle session doesn't hold processor threads.
+ * </p>
+ * <p>
+ * The queue of PDU waiting to be processed can be bounded by watermarks.
+ * When the queued PDU have reached the high watermark, {@link #execute(Runnable)}
+ * blocks the PDU reader thread before queuing the next PDU until the queued
+ * PDU drop to the low watermark. While the reader doesn't read, the TCP
+ * receive window fills up and the peer is slowed down instead of the heap
+ * filling up with PDU.
+ * </p>
+ * <p>
+ * The responses are processed by the reader thread without this executor,
+ * the reader only pauses once it holds the next request, so the responses
+ * received before it are still processed. The responses received after it
+ * are not read while paused, a task waiting for one of them, such as a
+ * listener sending a request and waiting for its <tt>*_resp</tt>, holds its
+ * thread. To keep such tasks from stalling the queue until their transaction
+ * timer, the reader resumes after the maximum pause time even above the low
+ * watermark: it queues the request it holds and pauses again on the next
+ * one, so the queue grows by at most one PDU per maximum pause time.
+ * </p>
+ */
+public class PDUProcessorExecutor extends ThreadPoolExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(PDUProcessorExecutor.class);
+    private static final long KEEP_ALIVE_MILLIS = 60000;
+    private static final long MAX_AWAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    /**
+     * The default maximum time in milliseconds the reader pauses at once.
+     */
+    public static final long DEFAULT_MAX_PAUSE_TIME = 500;
+    
+    private final ThreadLocal<Long> startNanos = new ThreadLocal<Long>();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicBoolean adjusting = new AtomicBoolean();
+    private volatile long windowStartNanos = System.nanoTime();
+    private volatile long adjustIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+    private volatile int minDegree;
+    private volatile int maxDegree;
+    
+    private final ReentrantLock watermarkLock = new ReentrantLock();
+    private final Condition belowLowWatermark = watermarkLock.newCondition();
+    private volatile int highWatermark;
+    private volatile int lowWatermark;
+    private volatile long maxPauseNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_PAUSE_TIME);
+    private final AtomicLong pausedCount = new AtomicLong();
+    private final AtomicLong pausedNanos = new AtomicLong();
+    private volatile int maxQueueDepth;
+    
+    /**
+     * Construct the executor.
+     * 
+     * @param minDegree is the minimum threads.
+     * @param maxDegree is the maximum threads.
+     */
+    public PDUProcessorExecutor(int minDegree, int maxDegree) {
+        super(minDegree, minDegree, KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        setDegree(minDegree, maxDegree);
+    }
+    
+    /**
+     * Set the minimum and the maximum threads, the same value means fixed
+     * threads.
+     * 
+     * @param minDegree is the minimum threads.
+     * @param maxDegree is the maximum threads.
+     */
+    public synchronized void setDegree(int minDegree, int maxDegree) {
+        if (minDegree < 1 || maxDegree < minDegree) {
+            throw new IllegalArgumentException("Invalid degree " + minDegree + ".." + maxDegree);
+        }
+        this.minDegree = minDegree;
+        this.maxDegree = maxDegree;
+        allowCoreThreadTimeOut(true);
+        resize(Math.min(maxDegree, Math.max(minDegree, getCorePoolSize())));
+    }
+    
+    public int getMinDegree() {
+        return minDegree;
+    }
+    
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+    
+    /**
+     * Set the interval of adjusting the degree.
+     * 
+     * @param adjustInterval is the interval in milliseconds.
+     */
+    public void setAdjustInterval(long adjustInterval) {
+        this.adjustIntervalNanos = TimeUnit.MILLISECONDS.toNanos(adjustInterval);
+    }
+    
+    public long getAdjustInterval() {
+        return TimeUnit.NANOSECONDS.toMillis(adjustIntervalNanos);
+    }
+    
+    /**
+     * Bound the queued PDU, 0 means unbounded.
+     * 
+     * @param highWatermark is the queued PDU pausing the reader.
+     * @param lowWatermark is the queued PDU resuming the reader.
+     */
+    public void setWatermarks(int highWatermark, int lowWatermark) {
+        if (highWatermark < 0 || lowWatermark < 0 
+                || (highWatermark > 0 && lowWatermark >= highWatermark)) {
+            throw new IllegalArgumentException("Invalid watermarks high=" 
+                    + highWatermark + " low=" + lowWatermark);
+        }
+        watermarkLock.lock();
+        try {
+            this.highWatermark = highWatermark;
+            this.lowWatermark = lowWatermark;
+            belowLowWatermark.signalAll();
+        } finally {
+            watermarkLock.unlock();
+        }
+    }
+    
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+    
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+    
+    /**
+     * Set the maximum time the reader pauses before queuing the PDU it holds
+     * even above the low watermark.
+     * 
+     * @param maxPauseTime is the maximum pause time in milliseconds, 0 to
+     *        pause until the low watermark.
+     */
+    public void setMaxPauseTime(long maxPauseTime) {
+        if (maxPauseTime < 0) {
+            throw new IllegalArgumentException("maxPauseTime should not be negative");
+        }
+        this.maxPauseNanos = TimeUnit.MILLISECONDS.toNanos(maxPauseTime);
+    }
+    
+    public long getMaxPauseTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxPauseNanos);
+    }
+    
+    /**
+     * @return the current queued PDU.
+     */
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+    
+    /**
+     * @return the maximum queued PDU observed.
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+    
+    /**
+     * @return the total times the reader paused on the high watermark.
+     */
+    public long getPausedCount() {
+        return pausedCount.get();
+    }
+    
+    /**
+     * @return the total time the reader paused in milliseconds.
+     */
+    public long getPausedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(pausedNanos.get());
+    }
+    
+    @Override
+    public void execute(Runnable command) {
+        int high = highWatermark;
+        if (high > 0 && getQueue().size() >= high) {
+            awaitLowWatermark();
+        }
+        super.execute(command);
+        int depth = getQueue().size();
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+        adjust();
+    }
+    
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        startNanos.set(System.nanoTime());
+        if (highWatermark > 0 && getQueue().size() <= lowWatermark) {
+            watermarkLock.lock();
+            try {
+                belowLowWatermark.signalAll();
+            } finally {
+                watermarkLock.unlock();
+            }
+        }
+    }
+    
+    @Override
+    protected void terminated() {
+        watermarkLock.lock();
+        try {
+            belowLowWatermark.signalAll();
+        } finally {
+            watermarkLock.unlock();
+        }
+        super.terminated();
+    }
+    
+    /**
+     * Block the reader thread, no response is read until it returns.
+     */
+    private void awaitLowWatermark() {
+        long start = System.nanoTime();
+        long maxPause = maxPauseNanos;
+        pausedCount.incrementAndGet();
+        logger.debug("PDU queue reach high watermark {}, pause reading", highWatermark);
+        watermarkLock.lock();
+        try {
+            while (highWatermark > 0 && getQueue().size() > lowWatermark 
+                    && !isShutdown()) {
+                // timed, the queue might be cleared without any task executed
+                long awaitNanos = MAX_AWAIT_NANOS;
+                if (maxPause > 0) {
+                    long remaining = start + maxPause - System.nanoTime();
+                    if (remaining <= 0) {
+                        logger.debug("PDU queue still above low watermark {} after {} ms, resume reading",
+                                lowWatermark, TimeUnit.NANOSECONDS.toMillis(maxPause));
+                        break;
+                    }
+                    awaitNanos = Math.min(awaitNanos, remaining);
+                }
+                belowLowWatermark.await(awaitNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            watermarkLock.unlock();
+            pausedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+    
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        Long start = startNanos.get();
+        if (start != null) {
+            busyNanos.addAndGet(System.nanoTime() - start);
+        }
+        super.afterExecute(r, t);
+    }
+    
+    private void adjust() {
+        if (minDegree == maxDegree) {
+            return;
+        }
+        long now = System.nanoTime();
+        long window = now - windowStartNanos;
+        if (window < adjustIntervalNanos || !adjusting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            windowStartNanos = now;
+            double busyThreads = busyNanos.getAndSet(0) / (double)window;
+            int degree = getCorePoolSize();
+            int target = (int)Math.ceil(busyThreads * 1.25);
+            if (!getQueue().isEmpty() && busyThreads >= degree * 0.9) {
+                target = Math.max(target, degree + Math.max(1, degree / 2));
+            }
+            target = Math.min(maxDegree, Math.max(minDegree, target));
+            if (target != degree) {
+                logger.debug("Adjusting processor degree from {} to {}", degree, target);
+                synchronized (this) {
+                    resize(Math.min(maxDegree, Math.max(minDegree, target)));
+                }
+            }
+        } finally {
+            adjusting.set(false);
+        }
+    }
+    
+    private void resize(int degree) {
+        if (degree > getMaximumPoolSize()) {
+            setMaximumPoolSize(degree);
+            setCorePoolSize(degree);
+        } else {
+            setCorePoolSize(degree);
+            setMaximumPoolSize(degree);
+        }
+    }
+}
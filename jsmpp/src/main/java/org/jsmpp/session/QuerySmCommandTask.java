@@ -19,6 +19,7 @@ import java.io.OutputStream;
 
 import org.jsmpp.PDUSender;
 import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.NumberingPlanIndicator;
 import org.jsmpp.bean.TypeOfNumber;
 
@@ -42,13 +43,17 @@ public class QuerySmCommandTask extends AbstractSendCommandTask {
         this.sourceAddr = sourceAddr;
     }
     
-    public void executeTask(OutputStream out, int sequenceNumber)
+    public int executeTask(OutputStream out, int sequenceNumber)
             throws PDUStringException, IOException {
-        pduSender.sendQuerySm(out, sequenceNumber, messageId, sourceAddrTon,
-                sourceAddrNpi, sourceAddr);
+        return pduSender.sendQuerySm(out, sequenceNumber, messageId, sourceAddrTon,
+                sourceAddrNpi, sourceAddr).length;
     }
     
     public String getCommandName() {
         return "query_sm";
     }
+    
+    public int getCommandId() {
+        return SMPPConstant.CID_QUERY_SM;
+    }
 }
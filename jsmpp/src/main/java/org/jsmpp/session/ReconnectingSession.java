@@ -0,0 +1,431 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jsmpp.InvalidResponseException;
+import org.jsmpp.PDUException;
+import org.jsmpp.bean.DataCoding;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.extra.ResponseTimeoutException;
+import org.jsmpp.extra.SessionState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SMPPSession} wrapper that binds again when the session closed.
+ * <p>
+ * The reconnect attempts are delayed by exponential backoff with jitter, so
+ * many gateways don't reconnect to a restarted SMSC at the same time. While
+ * the session is not bound, the submits wait in a bounded queue instead of
+ * failing. Once bound again, the waiting submits are released in order at
+ * the drain rate, so the SMSC is not flooded by the queued traffic.
+ * </p>
+ * 
+ * <pre>
+ * ReconnectingSession session = new ReconnectingSession(&quot;localhost&quot;, 2775,
+ *         new BindParameter(BindType.BIND_TX, &quot;test&quot;, &quot;test&quot;, &quot;cp&quot;,
+ *                 TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null),
+ *         1000);
+ * session.setDrainRate(100);
+ * session.connect();
+ * String messageId = session.submitShortMessage(...);
+ * </pre>
+ */
+public class ReconnectingSession {
+    private static final Logger logger = LoggerFactory.getLogger(ReconnectingSession.class);
+    
+    private final String host;
+    private final int port;
+    private final BindParameter bindParam;
+    private final BlockingQueue<Waiter> queue;
+    private final ScheduledExecutorService scheduler;
+    private final Random random = new Random();
+    private final SessionStateListener sessionStateListener = new SessionStateListenerImpl();
+    private final Runnable reconnectTask = new Runnable() {
+        public void run() {
+            reconnect();
+        }
+    };
+    private final Runnable drainTask = new Runnable() {
+        public void run() {
+            drain();
+        }
+    };
+    private final Runnable delayedDrainTask = new Runnable() {
+        public void run() {
+            drainDelayed = false;
+            drain();
+        }
+    };
+    
+    private volatile SMPPSession session;
+    private volatile boolean closed;
+    private volatile long initialBackoff = 1000;
+    private volatile long maxBackoff = 60000;
+    private volatile int drainRate;
+    private volatile long queueTimeout = 60000;
+    private volatile MessageReceiverListener messageReceiverListener;
+    
+    // only accessed by the scheduler thread
+    private int attempt;
+    private boolean drainDelayed;
+    private long nextReleaseTime = System.nanoTime();
+    
+    /**
+     * Construct the reconnecting session.
+     * 
+     * @param host is the SMSC host address.
+     * @param port is the SMSC listen port.
+     * @param bindParam is the bind parameters.
+     * @param queueCapacity is the maximum submits waiting for the session.
+     */
+    public ReconnectingSession(String host, int port, BindParameter bindParam,
+            int queueCapacity) {
+        this.host = host;
+        this.port = port;
+        this.bindParam = bindParam;
+        queue = new ArrayBlockingQueue<Waiter>(queueCapacity);
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ReconnectingSession: " + ReconnectingSession.this.host
+                        + ":" + ReconnectingSession.this.port);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+    
+    /**
+     * Set the delay of the first reconnect attempt, doubled on each failed
+     * attempt. The actual delay is randomized between half and the whole
+     * delay.
+     * 
+     * @param initialBackoff is the delay in milliseconds.
+     */
+    public void setInitialBackoff(long initialBackoff) {
+        this.initialBackoff = initialBackoff;
+    }
+    
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+    
+    /**
+     * Set the maximum delay between the reconnect attempts.
+     * 
+     * @param maxBackoff is the delay in milliseconds.
+     */
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+    
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+    
+    /**
+     * Set the rate of releasing the waiting submits after bound, 0 means
+     * releasing all at once.
+     * 
+     * @param drainRate is the submits per second.
+     */
+    public void setDrainRate(int drainRate) {
+        this.drainRate = drainRate;
+    }
+    
+    public int getDrainRate() {
+        return drainRate;
+    }
+    
+    /**
+     * Set the maximum time a submit waits for the bound session.
+     * 
+     * @param queueTimeout is the timeout in milliseconds.
+     */
+    public void setQueueTimeout(long queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+    
+    public long getQueueTimeout() {
+        return queueTimeout;
+    }
+    
+    /**
+     * Set the message receiver listener of the current and the next sessions.
+     * 
+     * @param messageReceiverListener is the listener.
+     */
+    public void setMessageReceiverListener(
+            MessageReceiverListener messageReceiverListener) {
+        this.messageReceiverListener = messageReceiverListener;
+        SMPPSession current = session;
+        if (current != null) {
+            current.setMessageReceiverListener(messageReceiverListener);
+        }
+    }
+    
+    /**
+     * Start connecting and binding in background. The submits wait until the
+     * session is bound.
+     */
+    public void connect() {
+        scheduler.execute(reconnectTask);
+    }
+    
+    /**
+     * @return the current session, may be <tt>null</tt> or not bound.
+     */
+    public SMPPSession getSession() {
+        return session;
+    }
+    
+    public SessionState getSessionState() {
+        SMPPSession current = session;
+        return current != null ? current.getSessionState() : SessionState.CLOSED;
+    }
+    
+    /**
+     * @return the total submits waiting for the bound session.
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+    
+    /**
+     * Submit the short message, waiting for the session to be bound if
+     * necessary.
+     * 
+     * @see SMPPSession#submitShortMessage(String, TypeOfNumber,
+     *      NumberingPlanIndicator, String, TypeOfNumber,
+     *      NumberingPlanIndicator, String, ESMClass, byte, byte, String,
+     *      String, RegisteredDelivery, byte, DataCoding, byte, byte[],
+     *      OptionalParameter[])
+     * @throws IOException if the queue is full, the session not bound within
+     *         the queue timeout or there is an IO error found.
+     */
+    public String submitShortMessage(String serviceType,
+            TypeOfNumber sourceAddrTon, NumberingPlanIndicator sourceAddrNpi,
+            String sourceAddr, TypeOfNumber destAddrTon,
+            NumberingPlanIndicator destAddrNpi, String destinationAddr,
+            ESMClass esmClass, byte protocolId, byte priorityFlag,
+            String scheduleDeliveryTime, String validityPeriod,
+            RegisteredDelivery registeredDelivery, byte replaceIfPresentFlag,
+            DataCoding dataCoding, byte smDefaultMsgId, byte[] shortMessage,
+            OptionalParameter... optionalParameters) throws PDUException,
+            ResponseTimeoutException, InvalidResponseException,
+            NegativeResponseException, IOException {
+        return awaitBoundSession().submitShortMessage(serviceType,
+                sourceAddrTon, sourceAddrNpi, sourceAddr, destAddrTon,
+                destAddrNpi, destinationAddr, esmClass, protocolId,
+                priorityFlag, scheduleDeliveryTime, validityPeriod,
+                registeredDelivery, replaceIfPresentFlag, dataCoding,
+                smDefaultMsgId, shortMessage, optionalParameters);
+    }
+    
+    /**
+     * Stop reconnecting, unbind and close the current session. The waiting
+     * submits fail.
+     */
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        Waiter waiter;
+        while ((waiter = queue.poll()) != null) {
+            waiter.release(null);
+        }
+        SMPPSession current = session;
+        if (current != null) {
+            current.unbindAndClose();
+        }
+    }
+    
+    /**
+     * Create new session. Override to configure the session before binding,
+     * the message receiver listener is set by the caller.
+     * 
+     * @return the new session.
+     */
+    protected SMPPSession newSession() {
+        return new SMPPSession();
+    }
+    
+    private SMPPSession awaitBoundSession() throws IOException {
+        if (closed) {
+            throw new IOException("Session closed");
+        }
+        SMPPSession current = session;
+        // don't overtake the waiting submits
+        if (current != null && current.getSessionState().isBound() && queue.isEmpty()) {
+            return current;
+        }
+        
+        Waiter waiter = new Waiter();
+        if (!queue.offer(waiter)) {
+            throw new IOException("Submit queue is full");
+        }
+        if (closed && queue.remove(waiter)) {
+            throw new IOException("Session closed");
+        }
+        scheduleDrain();
+        try {
+            if (!waiter.await(queueTimeout) && queue.remove(waiter)) {
+                throw new IOException("No bound session after waiting for "
+                        + queueTimeout + " millis");
+            }
+            // already released if not removed from the queue
+            waiter.await(Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+            queue.remove(waiter);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bound session");
+        }
+        if (waiter.session == null) {
+            throw new IOException("Session closed");
+        }
+        return waiter.session;
+    }
+    
+    private void scheduleDrain() {
+        try {
+            scheduler.execute(drainTask);
+        } catch (RuntimeException e) {
+            // rejected since closed
+            logger.debug("Drain not scheduled: {}", e.getMessage());
+        }
+    }
+    
+    private void scheduleReconnect() {
+        if (closed) {
+            return;
+        }
+        long backoff = Math.min(maxBackoff, initialBackoff << Math.min(attempt, 30));
+        // half fixed and half random, so the delay still grows
+        long delay = backoff / 2 + (long)(random.nextDouble() * (backoff / 2 + 1));
+        attempt++;
+        logger.info("Reconnecting to {}:{} in {} millis", new Object[] { host, port, delay });
+        scheduler.schedule(reconnectTask, delay, TimeUnit.MILLISECONDS);
+    }
+    
+    private void reconnect() {
+        if (closed) {
+            return;
+        }
+        SMPPSession current = session;
+        if (current != null && !current.getSessionState().equals(SessionState.CLOSED)) {
+            return;
+        }
+        
+        SMPPSession newSession = newSession();
+        if (messageReceiverListener != null) {
+            newSession.setMessageReceiverListener(messageReceiverListener);
+        }
+        newSession.addSessionStateListener(sessionStateListener);
+        try {
+            newSession.connectAndBind(host, port, bindParam);
+        } catch (IOException e) {
+            logger.warn("Failed binding to " + host + ":" + port + ": " + e.getMessage());
+            scheduleReconnect();
+            return;
+        }
+        attempt = 0;
+        session = newSession;
+        logger.info("Bound to {}:{}, {} submits waiting", new Object[] { host, port, queue.size() });
+        if (closed) {
+            newSession.unbindAndClose();
+        } else if (newSession.getSessionState().equals(SessionState.CLOSED)) {
+            // closed before being the current session
+            scheduleReconnect();
+        } else {
+            drain();
+        }
+    }
+    
+    private void drain() {
+        Waiter waiter;
+        while ((waiter = queue.peek()) != null) {
+            SMPPSession current = session;
+            if (closed || current == null || !current.getSessionState().isBound()) {
+                // continued once bound again
+                return;
+            }
+            int rate = drainRate;
+            if (rate > 0) {
+                long now = System.nanoTime();
+                long wait = nextReleaseTime - now;
+                if (wait > 0) {
+                    if (!drainDelayed) {
+                        drainDelayed = true;
+                        scheduler.schedule(delayedDrainTask, wait, TimeUnit.NANOSECONDS);
+                    }
+                    return;
+                }
+                nextReleaseTime = now + 1000000000L / rate;
+            }
+            if (queue.remove(waiter)) {
+                waiter.release(current);
+            }
+        }
+    }
+    
+    private class SessionStateListenerImpl implements SessionStateListener {
+        public void onStateChange(SessionState newState, SessionState oldState,
+                final Session source) {
+            if (newState.equals(SessionState.CLOSED)) {
+                try {
+                    scheduler.execute(new Runnable() {
+                        public void run() {
+                            if (source == session) {
+                                logger.info("Session to {}:{} closed", host, port);
+                                scheduleReconnect();
+                            }
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    logger.debug("Reconnect not scheduled: {}", e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private static class Waiter {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile SMPPSession session;
+        
+        void release(SMPPSession session) {
+            this.session = session;
+            latch.countDown();
+        }
+        
+        boolean await(long timeout) throws InterruptedException {
+            return latch.await(timeout, TimeUnit.MILLISECONDS);
+        }
+    }
+}
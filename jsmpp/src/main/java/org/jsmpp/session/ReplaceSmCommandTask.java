@@ -19,6 +19,7 @@ import java.io.OutputStream;
 
 import org.jsmpp.PDUSender;
 import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.NumberingPlanIndicator;
 import org.jsmpp.bean.RegisteredDelivery;
 import org.jsmpp.bean.TypeOfNumber;
@@ -51,15 +52,19 @@ public class ReplaceSmCommandTask extends AbstractSendCommandTask {
         this.shortMessage = shortMessage;
     }
     
-    public void executeTask(OutputStream out, int sequenceNumber)
+    public int executeTask(OutputStream out, int sequenceNumber)
             throws PDUStringException, IOException {
-        pduSender.sendReplaceSm(out, sequenceNumber, messageId, sourceAddrTon,
+        return pduSender.sendReplaceSm(out, sequenceNumber, messageId, sourceAddrTon,
                 sourceAddrNpi, sourceAddr, scheduleDeliveryTime,
                 validityPeriod, registeredDelivery, smDefaultMsgId,
-                shortMessage);
+                shortMessage).length;
     }
     
     public String getCommandName() {
         return "replace_sm";
     }
+    
+    public int getCommandId() {
+        return SMPPConstant.CID_REPLACE_SM;
+    }
 }
@@ -20,7 +20,6 @@ import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.SocketTimeoutException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeoutException;
 
 import org.jsmpp.DefaultPDUReader;
@@ -80,6 +79,9 @@ public class SMPPServerSession extends AbstractSession implements ServerSession
     private ServerMessageReceiverListener messageReceiverListener;
     private ServerResponseDeliveryListener responseDeliveryListener;
     private BindRequestReceiver bindRequestReceiver = new BindRequestReceiver(responseHandler);
+    private volatile SubmitThrottle submitThrottle;
+    private volatile String systemId;
+    private volatile String addressRange;
     
     public SMPPServerSession(Connection conn,
             SessionStateListener sessionStateListener,
@@ -115,6 +117,38 @@ public class SMPPServerSession extends AbstractSession implements ServerSession
         return connection().getInetAddress();
     }
     
+    /**
+     * Get the system_id of the bind request.
+     * 
+     * @return the system_id or <tt>null</tt> if no bind request received.
+     */
+    public String getSystemId() {
+        return systemId;
+    }
+    
+    /**
+     * Get the address_range of the bind request.
+     * 
+     * @return the address_range or <tt>null</tt> if no bind request received.
+     */
+    public String getAddressRange() {
+        return addressRange;
+    }
+    
+    /**
+     * Limit the short messages submitted by the ESME, the limit is shared by
+     * all sessions bound with the same system_id and the same throttle.
+     * 
+     * @param submitThrottle is the throttle or <tt>null</tt> for unlimited.
+     */
+    public void setSubmitThrottle(SubmitThrottle submitThrottle) {
+        this.submitThrottle = submitThrottle;
+    }
+    
+    public SubmitThrottle getSubmitThrottle() {
+        return submitThrottle;
+    }
+    
     /**
      * Wait for bind request.
      * 
@@ -329,6 +363,8 @@ public class SMPPServerSession extends AbstractSession implements ServerSession
         }
         
         public void processBind(Bind bind) {
+            systemId = bind.getSystemId();
+            addressRange = bind.getAddressRange();
             bindRequestReceiver.notifyAcceptBind(bind);
         }
         
@@ -495,7 +531,7 @@ public class SMPPServerSession extends AbstractSession implements ServerSession
     }
     
     private class PDUReaderWorker extends Thread {
-        private ExecutorService executorService = Executors.newFixedThreadPool(getPduProcessorDegree());
+        private ExecutorService executorService = newPDUProcessorExecutor(getPduProcessorDegree());
         private Runnable onIOExceptionTask = new Runnable() {
             public void run() {
                 close();
@@ -505,6 +541,7 @@ public class SMPPServerSession extends AbstractSession implements ServerSession
         @Override
         public void run() {
             logger.info("Starting PDUReaderWorker with processor degree:{} ...", getPduProcessorDegree());
+            applyPduProcessorDegree();
             while (isReadPdu()) {
                 readPDU();
             }
@@ -519,11 +556,50 @@ public class SMPPServerSession extends AbstractSession implements ServerSession
                 byte[] pdu = null;
 
                 pduHeader = pduReader.readPDUHeader(in);
+                SessionTracer tracer = getTracer();
+                long readNanos = tracer != null ? System.nanoTime() : 0;
                 pdu = pduReader.readPDU(in, pduHeader);
+                if (tracer != null) {
+                    long processNanos = System.nanoTime();
+                    tracer.pduRead(SMPPServerSession.this, pduHeader, processNanos - readNanos);
+                    readNanos = processNanos;
+                }
                 
-                PDUProcessServerTask task = new PDUProcessServerTask(pduHeader,
-                        pdu, sessionContext.getStateProcessor(),
-                        sessionContext, responseHandler, onIOExceptionTask);
+                if (PDUProcessTask.isProcessedByReader(pduHeader.getCommandId())) {
+                    PDUProcessServerTask.process(pduHeader, pdu,
+                            sessionContext.getDispatchTable(), sessionContext,
+                            responseHandler, onIOExceptionTask);
+                    if (tracer != null) {
+                        tracer.pduProcessed(SMPPServerSession.this, pduHeader, 0,
+                                System.nanoTime() - readNanos);
+                    }
+                    return;
+                }
+                final Runnable task = tracedTask(new PDUProcessServerTask(pduHeader,
+                        pdu, sessionContext.getDispatchTable(), sessionContext,
+                        responseHandler, onIOExceptionTask), pduHeader);
+                final SubmitThrottle throttle = submitThrottle;
+                if (throttle != null && isThrottled(pduHeader.getCommandId())) {
+                    final String throttledSystemId = systemId;
+                    int commandStatus = throttle.tryAcquire(throttledSystemId);
+                    if (commandStatus != 0) {
+                        logger.debug("Reject {} of {} with status {}", new Object[] {
+                                pduHeader, throttledSystemId, commandStatus });
+                        responseHandler.sendNegativeResponse(pduHeader.getCommandId(),
+                                commandStatus, pduHeader.getSequenceNumber());
+                        return;
+                    }
+                    executorService.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                task.run();
+                            } finally {
+                                throttle.release(throttledSystemId);
+                            }
+                        }
+                    });
+                    return;
+                }
                 executorService.execute(task);
             } catch (InvalidCommandLengthException e) {
                 logger.warn("Receive invalid command length", e);
@@ -540,6 +616,13 @@ public class SMPPServerSession extends AbstractSession implements ServerSession
             }
         }
         
+        private boolean isThrottled(int commandId) {
+            return (commandId == SMPPConstant.CID_SUBMIT_SM
+                    || commandId == SMPPConstant.CID_SUBMIT_MULTI
+                    || commandId == SMPPConstant.CID_DATA_SM)
+                    && systemId != null && getSessionState().isBound();
+        }
+        
         /**
          * Notify for no activity.
          */
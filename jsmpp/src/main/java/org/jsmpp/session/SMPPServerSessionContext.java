@@ -22,7 +22,13 @@ import org.jsmpp.session.state.SMPPServerSessionState;
  *
  */
 public class SMPPServerSessionContext extends AbstractSessionContext {
-    private SMPPServerSessionState stateProcessor = SMPPServerSessionState.CLOSED;
+    private static final DispatchTable<SMPPServerSessionState> OPEN = DispatchTable.forServerSession(SMPPServerSessionState.OPEN);
+    private static final DispatchTable<SMPPServerSessionState> BOUND_RX = DispatchTable.forServerSession(SMPPServerSessionState.BOUND_RX);
+    private static final DispatchTable<SMPPServerSessionState> BOUND_TX = DispatchTable.forServerSession(SMPPServerSessionState.BOUND_TX);
+    private static final DispatchTable<SMPPServerSessionState> BOUND_TRX = DispatchTable.forServerSession(SMPPServerSessionState.BOUND_TRX);
+    private static final DispatchTable<SMPPServerSessionState> UNBOUND = DispatchTable.forServerSession(SMPPServerSessionState.UNBOUND);
+    private static final DispatchTable<SMPPServerSessionState> CLOSED = DispatchTable.forServerSession(SMPPServerSessionState.CLOSED);
+    private volatile DispatchTable<SMPPServerSessionState> dispatchTable = CLOSED;
     private final SMPPServerSession smppServerSession;
     
     public SMPPServerSessionContext(SMPPServerSession smppServerSession) {
@@ -31,32 +37,36 @@ public class SMPPServerSessionContext extends AbstractSessionContext {
     
     @Override
     protected void changeState(SessionState newState) {
-        if (!stateProcessor.getSessionState().equals(newState)) {
-            final SessionState oldState = stateProcessor.getSessionState();
+        if (!dispatchTable.getSessionState().equals(newState)) {
+            final SessionState oldState = dispatchTable.getSessionState();
             
-            // change the session state processor
+            // change the dispatch table and its session state processor
             if (newState == SessionState.OPEN) {
-                stateProcessor = SMPPServerSessionState.OPEN;
+                dispatchTable = OPEN;
             } else if (newState == SessionState.BOUND_RX) {
-                stateProcessor = SMPPServerSessionState.BOUND_RX;
+                dispatchTable = BOUND_RX;
             } else if (newState == SessionState.BOUND_TX) {
-                stateProcessor = SMPPServerSessionState.BOUND_TX;
+                dispatchTable = BOUND_TX;
             } else if (newState == SessionState.BOUND_TRX) {
-                stateProcessor = SMPPServerSessionState.BOUND_TRX;
+                dispatchTable = BOUND_TRX;
             } else if (newState == SessionState.UNBOUND) {
-                stateProcessor = SMPPServerSessionState.UNBOUND;
+                dispatchTable = UNBOUND;
             } else if (newState == SessionState.CLOSED) {
-                stateProcessor = SMPPServerSessionState.CLOSED;
+                dispatchTable = CLOSED;
             }
             fireStateChanged(newState, oldState, smppServerSession);
         }
     }
     
-    public synchronized SMPPServerSessionState getStateProcessor() {
-        return stateProcessor;
+    public SMPPServerSessionState getStateProcessor() {
+        return dispatchTable.getStateProcessor();
+    }
+    
+    DispatchTable<SMPPServerSessionState> getDispatchTable() {
+        return dispatchTable;
     }
     
     public synchronized SessionState getSessionState() {
-        return stateProcessor.getSessionState();
+        return dispatchTable.getSessionState();
     }
 }
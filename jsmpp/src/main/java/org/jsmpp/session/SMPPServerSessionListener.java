@@ -17,6 +17,14 @@ package org.jsmpp.session;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
 
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.SynchronizedPDUSender;
+import org.jsmpp.capture.CapturingPDUReader;
+import org.jsmpp.capture.CapturingPDUSender;
+import org.jsmpp.capture.PDUCapture;
+import org.jsmpp.capture.PDUDirection;
+import org.jsmpp.capture.PDUFlightRecorder;
 import org.jsmpp.session.connection.Connection;
 import org.jsmpp.session.connection.ServerConnection;
 import org.jsmpp.session.connection.ServerConnectionFactory;
@@ -52,9 +60,15 @@ public class SMPPServerSessionListener {
     private final ServerConnection serverConn;
     private int initiationTimer = 5000;
     private int pduProcessorDegree = 3;
+    private SubmitThrottle submitThrottle;
+    private final ServerSessionRegistry sessionRegistry = new ServerSessionRegistry();
     private SessionStateListener sessionStateListener;
     private ServerMessageReceiverListener messageReceiverListener;
     private ServerResponseDeliveryListener responseDeliveryListener;
+    private PDUCapture pduCapture;
+    private int flightRecorderCapacity;
+    private int flightRecorderMaxBytes;
+    private SessionTracer tracer;
     
     public SMPPServerSessionListener(int port) throws IOException {
         this(port, new ServerSocketConnectionFactory());
@@ -103,6 +117,30 @@ public class SMPPServerSessionListener {
         return pduProcessorDegree;
     }
     
+    /**
+     * Set the throttle of the accepted sessions.
+     * 
+     * @param submitThrottle is the throttle or <tt>null</tt> for unlimited.
+     * @see SMPPServerSession#setSubmitThrottle(SubmitThrottle)
+     */
+    public void setSubmitThrottle(SubmitThrottle submitThrottle) {
+        this.submitThrottle = submitThrottle;
+    }
+    
+    public SubmitThrottle getSubmitThrottle() {
+        return submitThrottle;
+    }
+    
+    /**
+     * Get the registry of the accepted sessions bound as receiver or
+     * transceiver.
+     * 
+     * @return the session registry.
+     */
+    public ServerSessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+    
     public int getPort() {
         return port;
     }
@@ -138,6 +176,50 @@ public class SMPPServerSessionListener {
         this.responseDeliveryListener = responseDeliveryListener;
     }
     
+    /**
+     * Set the capture of the PDU read and sent by the accepted sessions.
+     * 
+     * @param pduCapture is the capture, or <tt>null</tt> to stop capturing
+     *        on the next accepted sessions.
+     */
+    public void setPDUCapture(PDUCapture pduCapture) {
+        this.pduCapture = pduCapture;
+    }
+    
+    public PDUCapture getPDUCapture() {
+        return pduCapture;
+    }
+    
+    /**
+     * Give each accepted session its own {@link PDUFlightRecorder}, dumped
+     * when a request of the session has no response or the session closed
+     * while bound.
+     * 
+     * @param capacity is the number of PDU kept, or 0 to stop recording on
+     *        the next accepted sessions.
+     * @param maxBytes is the maximum octets kept of each PDU.
+     * @see AbstractSession#setFlightRecorder(PDUFlightRecorder)
+     */
+    public void setFlightRecorder(int capacity, int maxBytes) {
+        flightRecorderCapacity = capacity;
+        flightRecorderMaxBytes = maxBytes;
+    }
+    
+    /**
+     * Set the tracer of the accepted sessions.
+     * 
+     * @param tracer is the tracer, or <tt>null</tt> to stop tracing the next
+     *        accepted sessions.
+     * @see AbstractSession#setTracer(SessionTracer)
+     */
+    public void setTracer(SessionTracer tracer) {
+        this.tracer = tracer;
+    }
+    
+    public SessionTracer getTracer() {
+        return tracer;
+    }
+    
     /**
      * Accept session request from client. The session state is still OPEN. To
      * communicate with ESME properly binding request should be accepted.
@@ -162,9 +244,41 @@ public class SMPPServerSessionListener {
     public SMPPServerSession accept() throws IOException {
         Connection conn = serverConn.accept();
         conn.setSoTimeout(initiationTimer);
-        return new SMPPServerSession(conn, sessionStateListener,
-                messageReceiverListener, responseDeliveryListener,
-                pduProcessorDegree);
+        PDUCapture capture = pduCapture;
+        PDUFlightRecorder flightRecorder = null;
+        if (flightRecorderCapacity > 0) {
+            flightRecorder = new PDUFlightRecorder(flightRecorderCapacity,
+                    flightRecorderMaxBytes);
+            capture = capture != null ? both(capture, flightRecorder) : flightRecorder;
+        }
+        SMPPServerSession session;
+        if (capture != null) {
+            session = new SMPPServerSession(conn, sessionStateListener,
+                    messageReceiverListener, responseDeliveryListener,
+                    pduProcessorDegree, new SynchronizedPDUSender(
+                            new CapturingPDUSender(new DefaultPDUSender(), capture)),
+                    new CapturingPDUReader(new DefaultPDUReader(), capture));
+        } else {
+            session = new SMPPServerSession(conn, sessionStateListener,
+                    messageReceiverListener, responseDeliveryListener,
+                    pduProcessorDegree);
+        }
+        session.setFlightRecorder(flightRecorder);
+        if (tracer != null) {
+            session.setTracer(tracer);
+        }
+        session.setSubmitThrottle(submitThrottle);
+        sessionRegistry.add(session);
+        return session;
+    }
+    
+    private static PDUCapture both(final PDUCapture first, final PDUCapture second) {
+        return new PDUCapture() {
+            public void capture(PDUDirection direction, byte[] pdu) {
+                first.capture(direction, pdu);
+                second.capture(direction, pdu);
+            }
+        };
     }
     
     public void close() throws IOException {
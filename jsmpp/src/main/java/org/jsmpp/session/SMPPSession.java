@@ -19,8 +19,6 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.SocketTimeoutException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.jsmpp.DefaultPDUReader;
@@ -39,6 +37,7 @@ import org.jsmpp.bean.BindResp;
 import org.jsmpp.bean.BindType;
 import org.jsmpp.bean.Command;
 import org.jsmpp.bean.DataCoding;
+import org.jsmpp.bean.DataCodings;
 import org.jsmpp.bean.DataSm;
 import org.jsmpp.bean.DeliverSm;
 import org.jsmpp.bean.ESMClass;
@@ -51,6 +50,7 @@ import org.jsmpp.bean.RegisteredDelivery;
 import org.jsmpp.bean.ReplaceIfPresentFlag;
 import org.jsmpp.bean.SubmitMultiResp;
 import org.jsmpp.bean.SubmitMultiResult;
+import org.jsmpp.bean.SubmitSm;
 import org.jsmpp.bean.SubmitSmResp;
 import org.jsmpp.bean.TypeOfNumber;
 import org.jsmpp.extra.NegativeResponseException;
@@ -61,7 +61,12 @@ import org.jsmpp.extra.SessionState;
 import org.jsmpp.session.connection.Connection;
 import org.jsmpp.session.connection.ConnectionFactory;
 import org.jsmpp.session.connection.socket.SocketConnectionFactory;
+import org.jsmpp.session.journal.JournalEntry;
+import org.jsmpp.session.journal.JournalingPDUSender;
+import org.jsmpp.session.journal.SubmitJournal;
 import org.jsmpp.util.DefaultComposer;
+import org.jsmpp.util.DefaultDecomposer;
+import org.jsmpp.util.SubmitSmTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -106,6 +111,8 @@ public class SMPPSession extends AbstractSession implements ClientSession {
 	private PDUReaderWorker pduReaderWorker;
 	private final ResponseHandler responseHandler = new ResponseHandlerImpl();
 	private MessageReceiverListener messageReceiverListener;
+	private volatile DeliverSmBatcher deliverSmBatcher;
+	private volatile MessageIdCorrelationTable messageIdCorrelationTable;
     private BoundSessionStateListener sessionStateListener = new BoundSessionStateListener();
     private SMPPSessionContext sessionContext = new SMPPSessionContext(this, sessionStateListener);
 	
@@ -330,6 +337,103 @@ public class SMPPSession extends AbstractSession implements ClientSession {
     	return resp.getMessageId();
     }
     
+    /**
+     * Submit the short message composed from the template to the destination.
+     * 
+     * @param template is the precompiled submit_sm.
+     * @param destinationAddr is the destination_addr.
+     * @return the message_id given by the SMSC.
+     * @throws PDUException if there is invalid PDU parameter found.
+     * @throws ResponseTimeoutException if timeout has been reach.
+     * @throws InvalidResponseException if response is invalid.
+     * @throws NegativeResponseException if negative response received.
+     * @throws IOException if there is an I/O error found.
+     */
+    public String submitShortMessage(SubmitSmTemplate template,
+            String destinationAddr) throws PDUException,
+            ResponseTimeoutException, InvalidResponseException,
+            NegativeResponseException, IOException {
+        
+        ensureTransmittable("submitShortMessage");
+        
+        SubmitSmTemplateCommandTask task = new SubmitSmTemplateCommandTask(
+                pduSender(), template, destinationAddr);
+        
+        SubmitSmResp resp = (SubmitSmResp)executeSendCommand(task, getTransactionTimer());
+        return resp.getMessageId();
+    }
+    
+    /**
+     * Submit the short message rendered for the destination, using the
+     * template for the other fields.
+     * 
+     * @param template is the precompiled submit_sm.
+     * @param destinationAddr is the encoded destination_addr.
+     * @param shortMessage is the short_message of the destination.
+     * @return the message_id given by the SMSC.
+     * @throws PDUException if there is invalid PDU parameter found.
+     * @throws ResponseTimeoutException if timeout has been reach.
+     * @throws InvalidResponseException if response is invalid.
+     * @throws NegativeResponseException if negative response received.
+     * @throws IOException if there is an I/O error found.
+     * @see SubmitSmTemplate#compose(int, byte[], byte[])
+     */
+    public String submitShortMessage(SubmitSmTemplate template,
+            byte[] destinationAddr, byte[] shortMessage) throws PDUException,
+            ResponseTimeoutException, InvalidResponseException,
+            NegativeResponseException, IOException {
+        
+        ensureTransmittable("submitShortMessage");
+        
+        SubmitSmTemplateCommandTask task = new SubmitSmTemplateCommandTask(
+                pduSender(), template, destinationAddr, shortMessage);
+        
+        SubmitSmResp resp = (SubmitSmResp)executeSendCommand(task, getTransactionTimer());
+        return resp.getMessageId();
+    }
+    
+    /**
+     * Submit the short message and put the message_id given by the SMSC with
+     * the <code>correlationContext</code> to the correlation table, so the
+     * context can be found when the delivery receipt arrives using
+     * {@link MessageIdCorrelationTable#remove(DeliverSm)}.
+     * 
+     * @param correlationContext is the application context of the short
+     *        message.
+     * @return the message_id given by the SMSC.
+     * @see MessageIdCorrelationTable#setContext(long)
+     * @see #submitShortMessage(String, TypeOfNumber, NumberingPlanIndicator, String, TypeOfNumber, NumberingPlanIndicator, String, ESMClass, byte, byte, String, String, RegisteredDelivery, byte, DataCoding, byte, byte[], OptionalParameter[])
+     */
+    public String submitShortMessage(long correlationContext,
+            String serviceType, TypeOfNumber sourceAddrTon,
+            NumberingPlanIndicator sourceAddrNpi, String sourceAddr,
+            TypeOfNumber destAddrTon, NumberingPlanIndicator destAddrNpi,
+            String destinationAddr, ESMClass esmClass, byte protocolId,
+            byte priorityFlag, String scheduleDeliveryTime,
+            String validityPeriod, RegisteredDelivery registeredDelivery,
+            byte replaceIfPresentFlag, DataCoding dataCoding,
+            byte smDefaultMsgId, byte[] shortMessage,
+            OptionalParameter... optionalParameters) throws PDUException,
+            ResponseTimeoutException, InvalidResponseException,
+            NegativeResponseException, IOException {
+        
+        MessageIdCorrelationTable table = messageIdCorrelationTable;
+        if (table == null) {
+            throw new IllegalStateException("MessageIdCorrelationTable hasn't been set yet");
+        }
+        long previous = table.setContext(correlationContext);
+        try {
+            return submitShortMessage(serviceType, sourceAddrTon,
+                    sourceAddrNpi, sourceAddr, destAddrTon, destAddrNpi,
+                    destinationAddr, esmClass, protocolId, priorityFlag,
+                    scheduleDeliveryTime, validityPeriod, registeredDelivery,
+                    replaceIfPresentFlag, dataCoding, smDefaultMsgId,
+                    shortMessage, optionalParameters);
+        } finally {
+            table.setContext(previous);
+        }
+    }
+    
     /* (non-Javadoc)
      * @see org.jsmpp.session.ClientSession#submitMultiple(java.lang.String, org.jsmpp.bean.TypeOfNumber, org.jsmpp.bean.NumberingPlanIndicator, java.lang.String, org.jsmpp.bean.Address[], org.jsmpp.bean.ESMClass, byte, byte, java.lang.String, java.lang.String, org.jsmpp.bean.RegisteredDelivery, org.jsmpp.bean.ReplaceIfPresentFlag, org.jsmpp.bean.DataCoding, byte, byte[], org.jsmpp.bean.OptionalParameter[])
      */
@@ -436,6 +540,151 @@ public class SMPPSession extends AbstractSession implements ClientSession {
 		this.messageReceiverListener = messageReceiverListener;
 	}
 	
+	/**
+	 * Set the listener to receive the short messages (deliver_sm) in batches.
+	 * A batch is handed over when it reach <code>maxBatchSize</code> short
+	 * messages or the oldest short message has been waiting for
+	 * <code>maxBatchDelay</code> millis, whichever comes first. All the
+	 * deliver_sm_resp of the batch will be sent after the listener returns.
+	 * While this listener is set,
+	 * {@link MessageReceiverListener#onAcceptDeliverSm(DeliverSm)} will not be
+	 * called.
+	 * 
+	 * @param deliverSmBatchListener is the batch listener, or <tt>null</tt> to
+	 *        switch back to {@link MessageReceiverListener}.
+	 * @param maxBatchSize is the maximum short messages in a batch.
+	 * @param maxBatchDelay is the maximum time in millisecond a short message
+	 *        waits before the batch is handed over.
+	 */
+	public void setDeliverSmBatchListener(
+	        DeliverSmBatchListener deliverSmBatchListener, int maxBatchSize,
+	        long maxBatchDelay) {
+	    DeliverSmBatcher oldBatcher = deliverSmBatcher;
+	    if (deliverSmBatchListener != null) {
+	        deliverSmBatcher = new DeliverSmBatcher(deliverSmBatchListener,
+	                responseHandler, maxBatchSize, maxBatchDelay,
+	                "DeliverSmBatcher: " + this);
+	    } else {
+	        deliverSmBatcher = null;
+	    }
+	    if (oldBatcher != null) {
+	        oldBatcher.close();
+	    }
+	}
+	
+	/**
+	 * Set the table to correlate the message_id with the application context.
+	 * The message_id of every successful submit_sm and submit_multi is put
+	 * with the context set by the submitting thread using
+	 * {@link MessageIdCorrelationTable#setContext(long)}. The table can be
+	 * shared by several sessions.
+	 * 
+	 * @param messageIdCorrelationTable is the correlation table, or
+	 *        <tt>null</tt> to stop the correlation.
+	 */
+	public void setMessageIdCorrelationTable(
+	        MessageIdCorrelationTable messageIdCorrelationTable) {
+	    this.messageIdCorrelationTable = messageIdCorrelationTable;
+	}
+	
+	public MessageIdCorrelationTable getMessageIdCorrelationTable() {
+	    return messageIdCorrelationTable;
+	}
+	
+	@Override
+	protected Command executeSendCommand(SendCommandTask task, long timeout)
+	        throws PDUException, ResponseTimeoutException,
+	        InvalidResponseException, NegativeResponseException, IOException {
+	    Command resp = super.executeSendCommand(task, timeout);
+	    MessageIdCorrelationTable table = messageIdCorrelationTable;
+	    if (table != null) {
+	        String messageId = null;
+	        if (resp instanceof SubmitSmResp) {
+	            messageId = ((SubmitSmResp)resp).getMessageId();
+	        } else if (resp instanceof SubmitMultiResp) {
+	            messageId = ((SubmitMultiResp)resp).getMessageId();
+	        }
+	        if (messageId != null && messageId.length() > 0) {
+	            table.put(messageId, table.getContext());
+	        }
+	    }
+	    return resp;
+	}
+	
+	/**
+	 * Set the sender journaling the outgoing submit_sm. The sender should be
+	 * part of the {@link PDUSender} given to this session. Every submit_sm is
+	 * appended to the journal before it's sent and acknowledged after the
+	 * response received, so the submit_sm without response can be replayed
+	 * using {@link #replaySubmitJournal()} after the application restarted.
+	 * 
+	 * @param journalingSender is the journaling sender, or <tt>null</tt> to
+	 *        stop acknowledging the journal entries.
+	 */
+	@Override
+	public void setSubmitJournal(JournalingPDUSender journalingSender) {
+	    super.setSubmitJournal(journalingSender);
+	}
+	
+	/**
+	 * Submit again the entries recovered when the journal was opened, the
+	 * entries that were sent but no response received before the previous
+	 * application ended. Each entry is acknowledged once it has been
+	 * submitted again. The new submit_sm are journaled as any other submit_sm.
+	 * <p>
+	 * The submit_sm timing out while this application runs are not replayed,
+	 * they stay unacknowledged in the journal, copied to the new segment on
+	 * every roll, until the journal is opened again.
+	 * </p>
+	 * 
+	 * @return the total replayed entries accepted by the SMSC.
+	 * @throws IOException if there is an IO error found, the remaining entries
+	 *         are left in the journal.
+	 */
+	public int replaySubmitJournal() throws IOException {
+	    JournalingPDUSender journalingSender = getSubmitJournal();
+	    if (journalingSender == null) {
+	        throw new IllegalStateException("Submit journal hasn't been set yet");
+	    }
+	    SubmitJournal journal = journalingSender.getJournal();
+	    int accepted = 0;
+	    for (JournalEntry entry : journal.getRecoveredEntries()) {
+	        try {
+	            SubmitSm submitSm = DefaultDecomposer.getInstance().submitSm(entry.getPdu());
+	            // the decomposer gives null when there is no optional parameter
+	            OptionalParameter[] optionalParameters = submitSm.getOptionalParameters();
+	            submitShortMessage(submitSm.getServiceType(),
+	                    TypeOfNumber.valueOf(submitSm.getSourceAddrTon()),
+	                    NumberingPlanIndicator.valueOf(submitSm.getSourceAddrNpi()),
+	                    submitSm.getSourceAddr(),
+	                    TypeOfNumber.valueOf(submitSm.getDestAddrTon()),
+	                    NumberingPlanIndicator.valueOf(submitSm.getDestAddrNpi()),
+	                    submitSm.getDestAddress(),
+	                    new ESMClass(submitSm.getEsmClass()),
+	                    submitSm.getProtocolId(), submitSm.getPriorityFlag(),
+	                    submitSm.getScheduleDeliveryTime(),
+	                    submitSm.getValidityPeriod(),
+	                    new RegisteredDelivery(submitSm.getRegisteredDelivery()),
+	                    submitSm.getReplaceIfPresent(),
+	                    DataCodings.newInstance(submitSm.getDataCoding()),
+	                    submitSm.getSmDefaultMsgId(),
+	                    submitSm.getShortMessage(),
+	                    optionalParameters != null ? optionalParameters : new OptionalParameter[0]);
+	            accepted++;
+	        } catch (PDUException e) {
+	            logger.warn("Discarding invalid journal entry " + entry.getId(), e);
+	        } catch (NegativeResponseException e) {
+	            logger.warn("Replay of journal entry {} rejected: {}", entry.getId(), e.getMessage());
+	        } catch (ResponseTimeoutException e) {
+	            logger.warn("Replay of journal entry {} timeout: {}", entry.getId(), e.getMessage());
+	        } catch (InvalidResponseException e) {
+	            logger.warn("Replay of journal entry {} got invalid response: {}", entry.getId(), e.getMessage());
+	        }
+	        journal.acknowledge(entry.getId());
+	    }
+	    return accepted;
+	}
+	
 	@Override
 	protected Connection connection() {
 	    return conn;
@@ -455,6 +704,11 @@ public class SMPPSession extends AbstractSession implements ClientSession {
 	public void close()
 	{
 		super.close();
+		
+		DeliverSmBatcher batcher = deliverSmBatcher;
+		if (batcher != null) {
+		    batcher.close();
+		}
 
 		if(Thread.currentThread() != pduReaderWorker) {
 			try {
@@ -489,7 +743,7 @@ public class SMPPSession extends AbstractSession implements ClientSession {
 	    }
 	}
 	
-	private class ResponseHandlerImpl implements ResponseHandler {
+	private class ResponseHandlerImpl implements ResponseHandler, DeliverSmQueue {
 		
 		public void processDeliverSm(DeliverSm deliverSm) throws ProcessRequestException {
 			try {
@@ -503,6 +757,11 @@ public class SMPPSession extends AbstractSession implements ClientSession {
 			}
 		}
 		
+		public boolean queueDeliverSm(DeliverSm deliverSm) {
+		    DeliverSmBatcher batcher = deliverSmBatcher;
+		    return batcher != null && batcher.add(deliverSm);
+		}
+		
 		public DataSmResult processDataSm(DataSm dataSm)
 		        throws ProcessRequestException {
 			try {
@@ -579,7 +838,7 @@ public class SMPPSession extends AbstractSession implements ClientSession {
 	 */
 	private class PDUReaderWorker extends Thread {
 		// start with serial execution of pdu processing, when the session is bound the pool will be enlarge up to the PduProcessorDegree
-	    private ExecutorService executorService = Executors.newFixedThreadPool(1); 
+	    private ExecutorService executorService = newPDUProcessorExecutor(1);
 		
 	    public PDUReaderWorker() {
         	super("PDUReaderWorker: " + SMPPSession.this);
@@ -613,8 +872,25 @@ public class SMPPSession extends AbstractSession implements ClientSession {
 	            byte[] pdu = null;
 	            
                 pduHeader = pduReader.readPDUHeader(in);
+                SessionTracer tracer = getTracer();
+                long readNanos = tracer != null ? System.nanoTime() : 0;
                 pdu = pduReader.readPDU(in, pduHeader);
+                if (tracer != null) {
+                    long processNanos = System.nanoTime();
+                    tracer.pduRead(SMPPSession.this, pduHeader, processNanos - readNanos);
+                    readNanos = processNanos;
+                }
 	            
+                if (PDUProcessTask.isProcessedByReader(pduHeader.getCommandId())) {
+                    PDUProcessTask.process(pduHeader, pdu, sessionContext,
+                            responseHandler, sessionContext, onIOExceptionTask);
+                    if (tracer != null) {
+                        tracer.pduProcessed(SMPPSession.this, pduHeader, 0,
+                                System.nanoTime() - readNanos);
+                    }
+                    return;
+                }
+                
                 /*
                  * When the processing PDU is need user interaction via event,
                  * the code on event might take non-short time, so we need to
@@ -623,7 +899,7 @@ public class SMPPSession extends AbstractSession implements ClientSession {
                 PDUProcessTask task = new PDUProcessTask(pduHeader, pdu,
                         sessionContext, responseHandler,
                         sessionContext, onIOExceptionTask);
-	            executorService.execute(task);
+	            executorService.execute(tracedTask(task, pduHeader));
 	            
 	        } catch (InvalidCommandLengthException e) {
 	            logger.warn("Receive invalid command length", e);
@@ -674,9 +950,7 @@ public class SMPPSession extends AbstractSession implements ClientSession {
                     logger.error("Failed setting so_timeout for session timer", e);
                 }
     	        
-               	logger.info("Changing processor degree to {}", getPduProcessorDegree());
-               	((ThreadPoolExecutor)pduReaderWorker.executorService).setCorePoolSize(getPduProcessorDegree());
-               	((ThreadPoolExecutor)pduReaderWorker.executorService).setMaximumPoolSize(getPduProcessorDegree());
+               	applyPduProcessorDegree();
 	        }
 	    }
 	}
@@ -22,8 +22,14 @@ import org.jsmpp.session.state.SMPPSessionState;
  *
  */
 public class SMPPSessionContext extends AbstractSessionContext {
+    private static final DispatchTable<SMPPSessionState> OPEN = DispatchTable.forSession(SMPPSessionState.OPEN);
+    private static final DispatchTable<SMPPSessionState> BOUND_RX = DispatchTable.forSession(SMPPSessionState.BOUND_RX);
+    private static final DispatchTable<SMPPSessionState> BOUND_TX = DispatchTable.forSession(SMPPSessionState.BOUND_TX);
+    private static final DispatchTable<SMPPSessionState> BOUND_TRX = DispatchTable.forSession(SMPPSessionState.BOUND_TRX);
+    private static final DispatchTable<SMPPSessionState> UNBOUND = DispatchTable.forSession(SMPPSessionState.UNBOUND);
+    private static final DispatchTable<SMPPSessionState> CLOSED = DispatchTable.forSession(SMPPSessionState.CLOSED);
     private final SMPPSession smppSession;
-    private SMPPSessionState stateProcessor = SMPPSessionState.CLOSED;
+    private volatile DispatchTable<SMPPSessionState> dispatchTable = CLOSED;
     
     public SMPPSessionContext(SMPPSession smppSession,
             SessionStateListener sessionStateListener) {
@@ -31,32 +37,36 @@ public class SMPPSessionContext extends AbstractSessionContext {
         this.smppSession = smppSession;
     }
     
-    public synchronized SMPPSessionState getStateProcessor() {
-        return stateProcessor;
+    public SMPPSessionState getStateProcessor() {
+        return dispatchTable.getStateProcessor();
+    }
+    
+    DispatchTable<SMPPSessionState> getDispatchTable() {
+        return dispatchTable;
     }
     
     public synchronized SessionState getSessionState() {
-        return stateProcessor.getSessionState();
+        return dispatchTable.getSessionState();
     }
     
     @Override
     protected void changeState(SessionState newState) {
-        if (!stateProcessor.getSessionState().equals(newState)) {
-            final SessionState oldState = stateProcessor.getSessionState();
+        if (!dispatchTable.getSessionState().equals(newState)) {
+            final SessionState oldState = dispatchTable.getSessionState();
             
-            // change the session state processor
+            // change the dispatch table and its session state processor
             if (newState == SessionState.OPEN) {
-                stateProcessor = SMPPSessionState.OPEN;
+                dispatchTable = OPEN;
             } else if (newState == SessionState.BOUND_RX) {
-                stateProcessor = SMPPSessionState.BOUND_RX;
+                dispatchTable = BOUND_RX;
             } else if (newState == SessionState.BOUND_TX) {
-                stateProcessor = SMPPSessionState.BOUND_TX;
+                dispatchTable = BOUND_TX;
             } else if (newState == SessionState.BOUND_TRX) {
-                stateProcessor = SMPPSessionState.BOUND_TRX;
+                dispatchTable = BOUND_TRX;
             } else if (newState == SessionState.UNBOUND) {
-                stateProcessor = SMPPSessionState.UNBOUND;
+                dispatchTable = UNBOUND;
             } else if (newState == SessionState.CLOSED) {
-                stateProcessor = SMPPSessionState.CLOSED;
+                dispatchTable = CLOSED;
             }
             fireStateChanged(newState, oldState, smppSession);
         }
@@ -32,10 +32,11 @@ public interface SendCommandTask {
      * 
      * @param out is the output stream.
      * @param sequenceNumber is the sequence number.
+     * @return the length of the PDU sent.
      * @throws PDUException if there is an invalid PDU parameter found.
      * @throws IOException if there is an IO error found.
      */
-    void executeTask(OutputStream out, int sequenceNumber)
+    int executeTask(OutputStream out, int sequenceNumber)
             throws PDUException, IOException;
     
     /**
@@ -44,4 +45,9 @@ public interface SendCommandTask {
      * @return the command name.
      */
     String getCommandName();
+    
+    /**
+     * @return the command_id of the request.
+     */
+    int getCommandId();
 }
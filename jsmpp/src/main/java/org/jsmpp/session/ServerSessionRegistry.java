@@ -0,0 +1,237 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jsmpp.extra.SessionState;
+
+/**
+ * Registry of the server sessions bound as receiver or transceiver, indexed
+ * by the system_id and the address_range of the bind. It is used to find the
+ * session to deliver a short message to.
+ * <p>
+ * The sessions are registered when bound and removed when unbound or closed.
+ * Each index entry keeps its sessions in an array replaced atomically, so the
+ * selection is a lock-free hash lookup and array read. The address_range is
+ * indexed literally, not as a regular expression.
+ * </p>
+ *
+ * <pre>
+ * SMPPServerSession session = sessionListener.getSessionRegistry().select(&quot;esme&quot;);
+ * if (session != null) {
+ *     session.deliverShortMessage(...);
+ * }
+ * </pre>
+ */
+public class ServerSessionRegistry {
+    private static final SMPPServerSession[] EMPTY = new SMPPServerSession[0];
+
+    /**
+     * Selection of the session among the sessions of the same key.
+     */
+    public enum Selection {
+        /**
+         * Select the sessions in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * Select the session with the least requests waiting for response.
+         */
+        LEAST_LOADED
+    }
+
+    private final ConcurrentMap<String, Group> bySystemId = new ConcurrentHashMap<String, Group>();
+    private final ConcurrentMap<String, Group> byAddressRange = new ConcurrentHashMap<String, Group>();
+    private final SessionStateListener stateListener = new StateListener();
+    private volatile Selection selection = Selection.ROUND_ROBIN;
+
+    public void setSelection(Selection selection) {
+        this.selection = selection;
+    }
+
+    public Selection getSelection() {
+        return selection;
+    }
+
+    /**
+     * Register the session, it will be indexed when bound as receiver or
+     * transceiver.
+     *
+     * @param session is the session.
+     */
+    public void add(SMPPServerSession session) {
+        session.addSessionStateListener(stateListener);
+        if (session.getSessionState().isReceivable()) {
+            index(session);
+        }
+    }
+
+    /**
+     * Select the session of the system_id.
+     *
+     * @param systemId is the system_id of the bind.
+     * @return the session or <tt>null</tt> if there is no bound session.
+     */
+    public SMPPServerSession select(String systemId) {
+        return select(bySystemId.get(systemId));
+    }
+
+    /**
+     * Select the session of the address_range.
+     *
+     * @param addressRange is the address_range of the bind.
+     * @return the session or <tt>null</tt> if there is no bound session.
+     */
+    public SMPPServerSession selectByAddressRange(String addressRange) {
+        return select(byAddressRange.get(addressRange));
+    }
+
+    /**
+     * @param systemId is the system_id of the bind.
+     * @return the bound sessions of the system_id.
+     */
+    public List<SMPPServerSession> getSessions(String systemId) {
+        Group group = bySystemId.get(systemId);
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(group.sessions.get()));
+    }
+
+    private SMPPServerSession select(Group group) {
+        if (group == null) {
+            return null;
+        }
+        SMPPServerSession[] sessions = group.sessions.get();
+        if (sessions.length == 0) {
+            return null;
+        } else if (sessions.length == 1) {
+            return sessions[0];
+        }
+        if (selection == Selection.LEAST_LOADED) {
+            SMPPServerSession selected = sessions[0];
+            int selectedLoad = selected.getPendingResponseCount();
+            for (int i = 1; i < sessions.length && selectedLoad > 0; i++) {
+                int load = sessions[i].getPendingResponseCount();
+                if (load < selectedLoad) {
+                    selected = sessions[i];
+                    selectedLoad = load;
+                }
+            }
+            return selected;
+        }
+        int next = group.next.getAndIncrement() & Integer.MAX_VALUE;
+        return sessions[next % sessions.length];
+    }
+
+    private void index(SMPPServerSession session) {
+        add(bySystemId, session.getSystemId(), session);
+        add(byAddressRange, session.getAddressRange(), session);
+    }
+
+    private void unindex(SMPPServerSession session) {
+        remove(bySystemId, session.getSystemId(), session);
+        remove(byAddressRange, session.getAddressRange(), session);
+    }
+
+    private static void add(ConcurrentMap<String, Group> index, String key,
+            SMPPServerSession session) {
+        if (key == null || key.length() == 0) {
+            return;
+        }
+        Group group = index.get(key);
+        if (group == null) {
+            group = new Group();
+            Group existing = index.putIfAbsent(key, group);
+            if (existing != null) {
+                group = existing;
+            }
+        }
+        while (true) {
+            SMPPServerSession[] sessions = group.sessions.get();
+            for (SMPPServerSession s : sessions) {
+                if (s == session) {
+                    return;
+                }
+            }
+            SMPPServerSession[] updated = Arrays.copyOf(sessions, sessions.length + 1);
+            updated[sessions.length] = session;
+            if (group.sessions.compareAndSet(sessions, updated)) {
+                return;
+            }
+        }
+    }
+
+    private static void remove(ConcurrentMap<String, Group> index, String key,
+            SMPPServerSession session) {
+        if (key == null) {
+            return;
+        }
+        Group group = index.get(key);
+        if (group == null) {
+            return;
+        }
+        while (true) {
+            SMPPServerSession[] sessions = group.sessions.get();
+            int found = -1;
+            for (int i = 0; i < sessions.length; i++) {
+                if (sessions[i] == session) {
+                    found = i;
+                    break;
+                }
+            }
+            if (found < 0) {
+                return;
+            }
+            SMPPServerSession[] updated = EMPTY;
+            if (sessions.length > 1) {
+                updated = new SMPPServerSession[sessions.length - 1];
+                System.arraycopy(sessions, 0, updated, 0, found);
+                System.arraycopy(sessions, found + 1, updated, found, updated.length - found);
+            }
+            if (group.sessions.compareAndSet(sessions, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * The sessions of the same key. The group is kept when empty, so a
+     * rebinding session doesn't race with the removal of the group.
+     */
+    private static class Group {
+        final AtomicReference<SMPPServerSession[]> sessions = new AtomicReference<SMPPServerSession[]>(EMPTY);
+        final AtomicInteger next = new AtomicInteger();
+    }
+
+    private class StateListener implements SessionStateListener {
+        public void onStateChange(SessionState newState, SessionState oldState,
+                Session source) {
+            SMPPServerSession session = (SMPPServerSession)source;
+            if (newState.isReceivable() && !oldState.isReceivable()) {
+                index(session);
+            } else if (!newState.isReceivable() && oldState.isReceivable()) {
+                unindex(session);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import org.jsmpp.bean.Command;
+import org.jsmpp.extra.SessionState;
+
+/**
+ * Tracer of the session activity, for profilers and metrics. The methods are
+ * called on the session threads after the activity, they should return fast
+ * and should not throw any exception. Without tracer the session doesn't
+ * measure anything.
+ *
+ * @see AbstractSession#setTracer(SessionTracer)
+ */
+public interface SessionTracer {
+
+    /**
+     * Called when the request sent by the session has been responded or
+     * failed waiting for response.
+     *
+     * @param session is the session.
+     * @param commandId is the command_id of the request.
+     * @param sequenceNumber is the sequence_number of the request.
+     * @param size is the length of the request PDU.
+     * @param response is the response header, or <tt>null</tt> if there is
+     *        no valid response.
+     * @param latencyNanos is the time from sending the request until the
+     *        response or the failure.
+     */
+    void commandExecuted(Session session, int commandId, int sequenceNumber,
+            int size, Command response, long latencyNanos);
+
+    /**
+     * Called when a PDU has been read by the session.
+     *
+     * @param session is the session.
+     * @param pduHeader is the header of the PDU.
+     * @param readNanos is the time reading the PDU body after the header.
+     */
+    void pduRead(Session session, Command pduHeader, long readNanos);
+
+    /**
+     * Called when a read PDU has been processed.
+     *
+     * @param session is the session.
+     * @param pduHeader is the header of the PDU.
+     * @param queueWaitNanos is the time waiting for a processor thread, 0 for
+     *        the PDU processed by the reader thread.
+     * @param processNanos is the processing time.
+     */
+    void pduProcessed(Session session, Command pduHeader, long queueWaitNanos,
+            long processNanos);
+
+    /**
+     * Called when the session state changed.
+     *
+     * @param session is the session.
+     * @param oldState is the old state.
+     * @param newState is the new state.
+     */
+    void stateChanged(Session session, SessionState oldState,
+            SessionState newState);
+}
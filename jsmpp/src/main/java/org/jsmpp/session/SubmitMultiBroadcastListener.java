@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import org.jsmpp.bean.Address;
+import org.jsmpp.bean.SubmitMultiResult;
+
+/**
+ * Listener of the submit_multi chunks sent by {@link SubmitMultiBroadcaster}.
+ * The methods are called by the threads sending the chunks.
+ */
+public interface SubmitMultiBroadcastListener {
+    
+    /**
+     * Called when the chunk accepted by the SMSC.
+     * 
+     * @param destinationAddresses is the destination addresses of the chunk.
+     * @param result is the result of the chunk, contains the destinations
+     *        the SMSC failed to deliver to.
+     */
+    void onChunkSubmitted(Address[] destinationAddresses, SubmitMultiResult result);
+    
+    /**
+     * Called when the chunk failed to be submitted.
+     * 
+     * @param destinationAddresses is the destination addresses of the chunk.
+     * @param cause is the failure cause.
+     */
+    void onChunkFailed(Address[] destinationAddresses, Exception cause);
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jsmpp.bean.Address;
+import org.jsmpp.bean.DataCoding;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.ReplaceIfPresentFlag;
+import org.jsmpp.bean.SubmitMultiResult;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.util.BoundedExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Broadcast a short message to an arbitrary number of destinations by
+ * splitting them into submit_multi of at most 254 destinations. The
+ * destinations are read from an {@link Iterator} as the chunks are sent, and
+ * at most <code>maxConcurrentChunks</code> chunks are waiting for response at
+ * the same time, so millions of destinations can be broadcasted without
+ * loading them all.
+ * <p>
+ * <code>maxConcurrentChunks</code> is the window the broadcast takes on the
+ * session: it should stay within the outstanding requests the SMSC accepts
+ * on the session, less what the other senders of the session use. The
+ * chunks are sent on the executor set by {@link #setExecutor(Executor)}, or
+ * the shared pool of {@link BoundedExecutor}, no thread is created per
+ * broadcast.
+ * </p>
+ * 
+ * <pre>
+ * SubmitMultiBroadcaster broadcaster = new SubmitMultiBroadcaster(session, 10);
+ * SubmitMultiBroadcaster.Result result = broadcaster.broadcast(destinations,
+ *         listener, &quot;CMT&quot;, TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
+ *         &quot;1616&quot;, new ESMClass(), (byte)0, (byte)1, null, null,
+ *         new RegisteredDelivery(), new ReplaceIfPresentFlag((byte)0),
+ *         new GeneralDataCoding(), (byte)0, &quot;Hello&quot;.getBytes());
+ * </pre>
+ */
+public class SubmitMultiBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(SubmitMultiBroadcaster.class);
+    
+    /**
+     * Maximum number_of_dests of submit_multi.
+     */
+    public static final int MAX_DESTINATIONS = 254;
+    
+    private final SMPPSession session;
+    private final int maxConcurrentChunks;
+    private final int chunkSize;
+    private volatile Executor executor;
+    
+    /**
+     * Construct with maximum chunk size.
+     * 
+     * @param session is the bound session.
+     * @param maxConcurrentChunks is the maximum chunks waiting for response.
+     */
+    public SubmitMultiBroadcaster(SMPPSession session, int maxConcurrentChunks) {
+        this(session, maxConcurrentChunks, MAX_DESTINATIONS);
+    }
+    
+    /**
+     * Construct with specified chunk size.
+     * 
+     * @param session is the bound session.
+     * @param maxConcurrentChunks is the maximum chunks waiting for response.
+     * @param chunkSize is the maximum destinations of each submit_multi, 1 to
+     *        254.
+     */
+    public SubmitMultiBroadcaster(SMPPSession session, int maxConcurrentChunks,
+            int chunkSize) {
+        if (maxConcurrentChunks < 1) {
+            throw new IllegalArgumentException("maxConcurrentChunks should be greater than 0");
+        }
+        if (chunkSize < 1 || chunkSize > MAX_DESTINATIONS) {
+            throw new IllegalArgumentException("chunkSize should be 1 to " + MAX_DESTINATIONS);
+        }
+        this.session = session;
+        this.maxConcurrentChunks = maxConcurrentChunks;
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * @param executor is the executor sending the chunks, or <tt>null</tt>
+     *        for the shared pool.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+    
+    /**
+     * Broadcast the short message. This method returns after all the chunks
+     * have been responded or failed.
+     * 
+     * @param destinationAddresses is the destination addresses.
+     * @param listener is the listener of the chunk results, may be
+     *        <tt>null</tt>.
+     * @return the summary of the broadcast.
+     * @throws InterruptedException if interrupted while waiting for the chunk
+     *         responses.
+     * @see SMPPSession#submitMultiple(String, TypeOfNumber, NumberingPlanIndicator, String, Address[], ESMClass, byte, byte, String, String, RegisteredDelivery, ReplaceIfPresentFlag, DataCoding, byte, byte[], OptionalParameter[])
+     */
+    public Result broadcast(Iterator<? extends Address> destinationAddresses,
+            final SubmitMultiBroadcastListener listener,
+            final String serviceType, final TypeOfNumber sourceAddrTon,
+            final NumberingPlanIndicator sourceAddrNpi,
+            final String sourceAddr, final ESMClass esmClass,
+            final byte protocolId, final byte priorityFlag,
+            final String scheduleDeliveryTime, final String validityPeriod,
+            final RegisteredDelivery registeredDelivery,
+            final ReplaceIfPresentFlag replaceIfPresentFlag,
+            final DataCoding dataCoding, final byte smDefaultMsgId,
+            final byte[] shortMessage,
+            final OptionalParameter... optionalParameters)
+            throws InterruptedException {
+        
+        final Result result = new Result();
+        BoundedExecutor boundedExecutor = new BoundedExecutor(executor, maxConcurrentChunks);
+        try {
+            while (destinationAddresses.hasNext()) {
+                final Address[] chunk = nextChunk(destinationAddresses);
+                result.chunks.incrementAndGet();
+                result.destinations.addAndGet(chunk.length);
+                boundedExecutor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            SubmitMultiResult chunkResult = session.submitMultiple(
+                                    serviceType, sourceAddrTon, sourceAddrNpi,
+                                    sourceAddr, chunk, esmClass, protocolId,
+                                    priorityFlag, scheduleDeliveryTime,
+                                    validityPeriod, registeredDelivery,
+                                    replaceIfPresentFlag, dataCoding,
+                                    smDefaultMsgId, shortMessage,
+                                    optionalParameters);
+                            int unsuccess = chunkResult.getUnsuccessDeliveries() != null
+                                    ? chunkResult.getUnsuccessDeliveries().length : 0;
+                            result.unsuccessDeliveries.addAndGet(unsuccess);
+                            if (listener != null) {
+                                listener.onChunkSubmitted(chunk, chunkResult);
+                            }
+                        } catch (Exception e) {
+                            logger.debug("Failed submitting submit_multi chunk: {}", e.getMessage());
+                            result.failedChunks.incrementAndGet();
+                            result.failedDestinations.addAndGet(chunk.length);
+                            if (listener != null) {
+                                listener.onChunkFailed(chunk, e);
+                            }
+                        }
+                    }
+                });
+            }
+        } finally {
+            boundedExecutor.awaitCompletion();
+        }
+        return result;
+    }
+    
+    private Address[] nextChunk(Iterator<? extends Address> destinationAddresses) {
+        Address[] chunk = new Address[chunkSize];
+        int size = 0;
+        while (size < chunkSize && destinationAddresses.hasNext()) {
+            chunk[size++] = destinationAddresses.next();
+        }
+        if (size < chunkSize) {
+            Address[] lastChunk = new Address[size];
+            System.arraycopy(chunk, 0, lastChunk, 0, size);
+            return lastChunk;
+        }
+        return chunk;
+    }
+    
+    /**
+     * Summary of the broadcast.
+     */
+    public static class Result {
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicLong destinations = new AtomicLong();
+        private final AtomicLong failedChunks = new AtomicLong();
+        private final AtomicLong failedDestinations = new AtomicLong();
+        private final AtomicLong unsuccessDeliveries = new AtomicLong();
+        
+        /**
+         * @return the total submit_multi sent.
+         */
+        public long getChunks() {
+            return chunks.get();
+        }
+        
+        /**
+         * @return the total destinations.
+         */
+        public long getDestinations() {
+            return destinations.get();
+        }
+        
+        /**
+         * @return the total submit_multi failed or rejected.
+         */
+        public long getFailedChunks() {
+            return failedChunks.get();
+        }
+        
+        /**
+         * @return the total destinations of the failed submit_multi.
+         */
+        public long getFailedDestinations() {
+            return failedDestinations.get();
+        }
+        
+        /**
+         * @return the total unsuccess_sme reported by the accepted
+         *         submit_multi.
+         */
+        public long getUnsuccessDeliveries() {
+            return unsuccessDeliveries.get();
+        }
+        
+        @Override
+        public String toString() {
+            return "chunks=" + chunks + ", destinations=" + destinations
+                    + ", failedChunks=" + failedChunks + ", failedDestinations="
+                    + failedDestinations + ", unsuccessDeliveries="
+                    + unsuccessDeliveries;
+        }
+    }
+}
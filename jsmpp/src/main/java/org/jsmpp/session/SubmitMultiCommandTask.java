@@ -19,6 +19,7 @@ import java.io.OutputStream;
 
 import org.jsmpp.PDUException;
 import org.jsmpp.PDUSender;
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.DataCoding;
 import org.jsmpp.bean.DestinationAddress;
 import org.jsmpp.bean.ESMClass;
@@ -78,17 +79,21 @@ public class SubmitMultiCommandTask extends AbstractSendCommandTask {
         this.optionalParameters = optionalParameters;
     }
     
-    public void executeTask(OutputStream out, int sequenceNumber)
+    public int executeTask(OutputStream out, int sequenceNumber)
             throws PDUException, IOException {
-        pduSender.sendSubmiMulti(out, sequenceNumber, serviceType,
+        return pduSender.sendSubmiMulti(out, sequenceNumber, serviceType,
                 sourceAddrTon, sourceAddrNpi, sourceAddr, destinationAddresses,
                 esmClass, protocolId, priorityFlag, scheduleDeliveryTime,
                 validityPeriod, registeredDelivery, replaceIfPresentFlag,
-                dataCoding, smDefaultMsgId, shortMessage, optionalParameters);
+                dataCoding, smDefaultMsgId, shortMessage, optionalParameters).length;
     }
     
     public String getCommandName() {
         return "submit_multi";
     }
     
+    public int getCommandId() {
+        return SMPPConstant.CID_SUBMIT_MULTI;
+    }
+    
 }
@@ -19,6 +19,7 @@ import java.io.OutputStream;
 
 import org.jsmpp.PDUSender;
 import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.DataCoding;
 import org.jsmpp.bean.ESMClass;
 import org.jsmpp.bean.NumberingPlanIndicator;
@@ -81,17 +82,21 @@ public class SubmitSmCommandTask extends AbstractSendCommandTask {
         this.optionalParameters = optionalParameters;
     }
 
-    public void executeTask(OutputStream out, int sequenceNumber)
+    public int executeTask(OutputStream out, int sequenceNumber)
             throws PDUStringException, IOException {
-        pduSender.sendSubmitSm(out, sequenceNumber, serviceType, sourceAddrTon,
+        return pduSender.sendSubmitSm(out, sequenceNumber, serviceType, sourceAddrTon,
                 sourceAddrNpi, sourceAddr, destAddrTon, destAddrNpi,
                 destinationAddr, esmClass, protocolId, priorityFlag,
                 scheduleDeliveryTime, validityPeriod, registeredDelivery,
                 replaceIfPresentFlag, dataCoding, smDefaultMsgId, shortMessage,
-                optionalParameters);
+                optionalParameters).length;
     }
     
     public String getCommandName() {
         return "submit_sm";
     }
+    
+    public int getCommandId() {
+        return SMPPConstant.CID_SUBMIT_SM;
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.jsmpp.PDUSender;
+import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.util.SubmitSmTemplate;
+
+/**
+ * Send command task for submit_sm composed from {@link SubmitSmTemplate}.
+ */
+public class SubmitSmTemplateCommandTask extends AbstractSendCommandTask {
+    private final SubmitSmTemplate template;
+    private final String destinationAddr;
+    private final byte[] encodedDestinationAddr;
+    private final byte[] shortMessage;
+    
+    public SubmitSmTemplateCommandTask(PDUSender pduSender,
+            SubmitSmTemplate template, String destinationAddr) {
+        super(pduSender);
+        this.template = template;
+        this.destinationAddr = destinationAddr;
+        encodedDestinationAddr = null;
+        shortMessage = null;
+    }
+    
+    public SubmitSmTemplateCommandTask(PDUSender pduSender,
+            SubmitSmTemplate template, byte[] destinationAddr,
+            byte[] shortMessage) {
+        super(pduSender);
+        this.template = template;
+        this.destinationAddr = null;
+        encodedDestinationAddr = destinationAddr;
+        this.shortMessage = shortMessage;
+    }
+    
+    public int executeTask(OutputStream out, int sequenceNumber)
+            throws PDUStringException, IOException {
+        if (shortMessage != null) {
+            return template.send(pduSender, out, sequenceNumber,
+                    encodedDestinationAddr, shortMessage);
+        } else {
+            return template.send(pduSender, out, sequenceNumber, destinationAddr);
+        }
+    }
+    
+    public String getCommandName() {
+        return "submit_sm";
+    }
+    
+    public int getCommandId() {
+        return SMPPConstant.CID_SUBMIT_SM;
+    }
+}
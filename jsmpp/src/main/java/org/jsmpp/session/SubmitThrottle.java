@@ -0,0 +1,197 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.util.TokenBucket;
+
+/**
+ * Server side limit of the short messages submitted by the ESME, keyed by the
+ * system_id of the bind. Each system_id is limited by a submit rate (token
+ * bucket) and a window of submits not responded yet, shared by all the
+ * sessions bound with the system_id.
+ * <p>
+ * The limit is checked by {@link SMPPServerSession} right after reading the
+ * PDU header, before the PDU is decoded or passed to the listener. A submit
+ * over the rate is responded with {@link SMPPConstant#STAT_ESME_RTHROTTLED},
+ * a submit over the window with {@link SMPPConstant#STAT_ESME_RMSGQFUL}.
+ * </p>
+ * <p>
+ * The limits can be changed anytime, they apply to the next submit of the
+ * bound sessions.
+ * </p>
+ *
+ * <pre>
+ * SubmitThrottle throttle = new SubmitThrottle();
+ * throttle.setDefaultLimit(50, 10, 20);
+ * throttle.setLimit(&quot;bulk&quot;, 500, 100, 200);
+ * sessionListener.setSubmitThrottle(throttle);
+ * </pre>
+ */
+public class SubmitThrottle {
+    private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<String, Limit>();
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+    private volatile Limit defaultLimit = Limit.UNLIMITED;
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong windowFullCount = new AtomicLong();
+
+    /**
+     * Set the limit of the system_id without specific limit.
+     *
+     * @param rate is the submits per second, 0 means unlimited.
+     * @param burst is the submits accepted at once over the rate.
+     * @param window is the submits not responded yet, 0 means unlimited.
+     */
+    public void setDefaultLimit(double rate, int burst, int window) {
+        defaultLimit = new Limit(rate, burst, window);
+    }
+
+    /**
+     * Set the limit of the system_id.
+     *
+     * @param systemId is the system_id of the bind.
+     * @param rate is the submits per second, 0 means unlimited.
+     * @param burst is the submits accepted at once over the rate.
+     * @param window is the submits not responded yet, 0 means unlimited.
+     */
+    public void setLimit(String systemId, double rate, int burst, int window) {
+        limits.put(systemId, new Limit(rate, burst, window));
+    }
+
+    /**
+     * Remove the specific limit of the system_id, the default limit applies.
+     *
+     * @param systemId is the system_id of the bind.
+     */
+    public void removeLimit(String systemId) {
+        limits.remove(systemId);
+    }
+
+    /**
+     * Take a permit of submit.
+     *
+     * @param systemId is the system_id of the bind.
+     * @return 0 if the submit is permitted and should be released by
+     *         {@link #release(String)}, otherwise the command_status of the
+     *         response.
+     */
+    public int tryAcquire(String systemId) {
+        Limit limit = limits.get(systemId);
+        if (limit == null) {
+            limit = defaultLimit;
+        }
+        Counter counter = counter(systemId);
+        int inFlight = counter.inFlight.incrementAndGet();
+        if (limit.window > 0 && inFlight > limit.window) {
+            counter.inFlight.decrementAndGet();
+            windowFullCount.incrementAndGet();
+            return SMPPConstant.STAT_ESME_RMSGQFUL;
+        }
+        if (limit.rate > 0 && !counter.tryAcquire(limit)) {
+            counter.inFlight.decrementAndGet();
+            throttledCount.incrementAndGet();
+            return SMPPConstant.STAT_ESME_RTHROTTLED;
+        }
+        return 0;
+    }
+
+    /**
+     * Release the permit when the submit has been responded.
+     *
+     * @param systemId is the system_id of the bind.
+     */
+    public void release(String systemId) {
+        Counter counter = counters.get(systemId);
+        if (counter != null) {
+            counter.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @param systemId is the system_id of the bind.
+     * @return the submits not responded yet.
+     */
+    public int getInFlight(String systemId) {
+        Counter counter = counters.get(systemId);
+        return counter != null ? counter.inFlight.get() : 0;
+    }
+
+    /**
+     * @return the total submits rejected because of the rate.
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * @return the total submits rejected because of the window.
+     */
+    public long getWindowFullCount() {
+        return windowFullCount.get();
+    }
+
+    private Counter counter(String systemId) {
+        Counter counter = counters.get(systemId);
+        if (counter == null) {
+            counter = new Counter();
+            Counter existing = counters.putIfAbsent(systemId, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        return counter;
+    }
+
+    private static class Limit {
+        static final Limit UNLIMITED = new Limit(0, 1, 0);
+
+        final double rate;
+        final int burst;
+        final int window;
+
+        Limit(double rate, int burst, int window) {
+            if (rate < 0 || window < 0) {
+                throw new IllegalArgumentException("rate and window should not be negative");
+            }
+            if (burst < 1) {
+                throw new IllegalArgumentException("burst should be greater than 0");
+            }
+            this.rate = rate;
+            this.burst = burst;
+            this.window = window;
+        }
+    }
+
+    private static class Counter {
+        final AtomicInteger inFlight = new AtomicInteger();
+        private Limit limit;
+        private TokenBucket bucket;
+
+        synchronized boolean tryAcquire(Limit limit) {
+            if (bucket == null) {
+                bucket = new TokenBucket(limit.rate, limit.burst);
+            } else if (this.limit != limit) {
+                bucket.setRate(limit.rate, limit.burst);
+            }
+            this.limit = limit;
+            return bucket.tryAcquire();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import org.jsmpp.bean.Command;
+import org.jsmpp.extra.ProcessRequestException;
+
+/**
+ * Handler of the vendor specific command_id received while the session is
+ * bound. Without a handler, the vendor specific commands are responded with
+ * generic_nack.
+ *
+ * @see AbstractSession#setVendorCommandHandler(int, VendorCommandHandler)
+ */
+public interface VendorCommandHandler {
+
+    /**
+     * Process the vendor specific command. The request is responded with
+     * a response header (the command_id with the response bit set) of the
+     * returned command_status, nothing is sent for a response command.
+     *
+     * @param pduHeader is the PDU header.
+     * @param pdu is the complete PDU.
+     * @return the command_status of the response.
+     * @throws ProcessRequestException if the command should be responded with
+     *         the error code.
+     */
+    int processCommand(Command pduHeader, byte[] pdu)
+            throws ProcessRequestException;
+}
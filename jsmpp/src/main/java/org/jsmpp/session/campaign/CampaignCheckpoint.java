@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.campaign;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Checkpoint of a campaign, the position in the {@link RecipientSource} before
+ * which all the recipients have been processed. The position is kept in a
+ * small memory-mapped file, updating it is a memory write that survives a
+ * crash of the process. It's forced to the storage device on
+ * {@link #sync()} and {@link #close()}.
+ */
+public class CampaignCheckpoint {
+    private static final int MAGIC = 0x4a534331;
+    private static final int LENGTH = 16;
+    private static final int POSITION_OFFSET = 8;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Open the checkpoint file, a new file starts at position 0.
+     *
+     * @param file is the checkpoint file.
+     * @throws IOException if the file is not a checkpoint or there is an IO
+     *         error found.
+     */
+    public CampaignCheckpoint(File file) throws IOException {
+        this.file = file;
+        raf = new RandomAccessFile(file, "rw");
+        try {
+            boolean created = raf.length() == 0;
+            if (!created && raf.length() != LENGTH) {
+                throw new IOException("Invalid checkpoint file " + file);
+            }
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, LENGTH);
+            if (created) {
+                buffer.putInt(0, MAGIC);
+            } else if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Invalid checkpoint file " + file);
+            }
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the checkpoint file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the position to resume from.
+     */
+    public synchronized long getPosition() {
+        return buffer.getLong(POSITION_OFFSET);
+    }
+
+    /**
+     * @param position is the position before which all the recipients have
+     *        been processed.
+     */
+    public synchronized void update(long position) {
+        buffer.putLong(POSITION_OFFSET, position);
+    }
+
+    /**
+     * Force the position to the storage device.
+     */
+    public synchronized void sync() {
+        buffer.force();
+    }
+
+    /**
+     * Sync and close the checkpoint.
+     *
+     * @throws IOException if there is an IO error found.
+     */
+    public synchronized void close() throws IOException {
+        buffer.force();
+        raf.close();
+    }
+}
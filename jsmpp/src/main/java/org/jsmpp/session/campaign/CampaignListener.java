@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.campaign;
+
+/**
+ * Listener of the short messages submitted by {@link CampaignRunner}. The
+ * methods are called by the threads submitting the short messages.
+ */
+public interface CampaignListener {
+
+    /**
+     * Called when the short message accepted by the SMSC.
+     *
+     * @param destinationAddr is the encoded destination_addr.
+     * @param messageId is the message_id given by the SMSC.
+     */
+    void onSubmitted(byte[] destinationAddr, String messageId);
+
+    /**
+     * Called when the short message is invalid, rejected or not responded.
+     * The recipient will not be submitted again when the campaign is resumed.
+     *
+     * @param destinationAddr is the encoded destination_addr.
+     * @param cause is the failure cause.
+     */
+    void onFailed(byte[] destinationAddr, Exception cause);
+}
@@ -0,0 +1,354 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.campaign;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jsmpp.PDUStringException;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.util.BoundedExecutor;
+import org.jsmpp.util.SubmitSmTemplate;
+import org.jsmpp.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Submit a short message rendered for each recipient read from a
+ * {@link RecipientSource}. The recipients are streamed, at most
+ * <code>window</code> submit_sm are waiting for response at the same time
+ * and the submit rate can be limited, so campaigns of any size run in
+ * constant memory.
+ * <p>
+ * The progress is kept in a {@link CampaignCheckpoint}: the position after
+ * the last recipient of the processed prefix, submitted or failed. Running
+ * the campaign again with the same checkpoint resumes from that position.
+ * The recipients after the checkpoint when the process stopped are
+ * submitted again, some of them possibly accepted by the SMSC: the
+ * checkpoint waits for the slowest response while the others go ahead, so
+ * up to 4 times <code>window</code> recipients.
+ * </p>
+ * <p>
+ * The submit_sm are sent on the executor set by
+ * {@link #setExecutor(Executor)}, or the shared pool of
+ * {@link BoundedExecutor}, no thread is created per run.
+ * </p>
+ * <p>
+ * The campaign stops when the session fails with {@link IOException}. The
+ * recipient not submitted because of the failure is not counted as failed
+ * and the checkpoint stays before it, so the campaign can be resumed once
+ * the session is bound again.
+ * </p>
+ *
+ * <pre>
+ * CampaignRunner runner = new CampaignRunner(session, template,
+ *         new MessageRenderer(&quot;Dear {1}, ...&quot;, charset), 10);
+ * runner.setRateLimiter(new TokenBucket(100, 1));
+ * CampaignRunner.Result result = runner.run(new MappedRecipientFile(file),
+ *         new CampaignCheckpoint(checkpointFile), listener);
+ * </pre>
+ */
+public class CampaignRunner {
+    private static final Logger logger = LoggerFactory.getLogger(CampaignRunner.class);
+
+    private final SMPPSession session;
+    private final SubmitSmTemplate template;
+    private final MessageRenderer renderer;
+    private final int window;
+    private volatile TokenBucket rateLimiter;
+    private volatile Executor executor;
+
+    // progress of the running campaign, guarded by this
+    private final boolean[] processed;
+    private final long[] positions;
+    private long nextOrdinal;
+    private long checkpointOrdinal;
+    private int outstanding;
+    private boolean running;
+    private boolean stopped;
+    private Exception failure;
+
+    /**
+     * @param session is the bound session.
+     * @param template is the submit_sm template, the destination_addr and
+     *        short_message are given per recipient.
+     * @param renderer is the renderer of the short messages.
+     * @param window is the maximum submit_sm waiting for response.
+     */
+    public CampaignRunner(SMPPSession session, SubmitSmTemplate template,
+            MessageRenderer renderer, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window should be greater than 0");
+        }
+        this.session = session;
+        this.template = template;
+        this.renderer = renderer;
+        this.window = window;
+        // a slow response holds the checkpoint, let the others go ahead
+        processed = new boolean[window * 4];
+        positions = new long[window * 4];
+    }
+
+    /**
+     * @param rateLimiter is the limiter of the submit rate, or <tt>null</tt>
+     *        for no limit.
+     */
+    public void setRateLimiter(TokenBucket rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * @param executor is the executor sending the submit_sm, or
+     *        <tt>null</tt> for the shared pool.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Run the campaign. This method returns after all the recipients have
+     * been processed, or the campaign stopped and the outstanding submit_sm
+     * responded.
+     *
+     * @param source is the recipient source.
+     * @param checkpoint is the checkpoint to resume from and to update, may
+     *        be <tt>null</tt>.
+     * @param listener is the listener of the submit results, may be
+     *        <tt>null</tt>.
+     * @return the summary of the run.
+     * @throws IOException if reading the source failed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Result run(RecipientSource source, CampaignCheckpoint checkpoint,
+            CampaignListener listener) throws IOException, InterruptedException {
+        synchronized (this) {
+            if (running) {
+                throw new IllegalStateException("Campaign is already running");
+            }
+            running = true;
+            stopped = false;
+            failure = null;
+            nextOrdinal = 0;
+            checkpointOrdinal = 0;
+            outstanding = 0;
+        }
+
+        Result result = new Result();
+        BoundedExecutor boundedExecutor = new BoundedExecutor(executor, window);
+        try {
+            if (checkpoint != null) {
+                source.seek(checkpoint.getPosition());
+            }
+            Recipient recipient;
+            while (!isStopped() && (recipient = source.next()) != null) {
+                byte[] destinationAddr = new byte[recipient.getFieldLength(0)];
+                recipient.copyField(0, destinationAddr, 0);
+                byte[] shortMessage = renderer.render(recipient);
+                long ordinal = begin(source.getPosition());
+                if (ordinal < 0) {
+                    break;
+                }
+                try {
+                    template.validate(destinationAddr, shortMessage);
+                } catch (PDUStringException e) {
+                    result.failed.incrementAndGet();
+                    if (listener != null) {
+                        listener.onFailed(destinationAddr, e);
+                    }
+                    end(ordinal, true, checkpoint);
+                    continue;
+                }
+                TokenBucket limiter = rateLimiter;
+                if (limiter != null) {
+                    limiter.acquire();
+                }
+                try {
+                    boundedExecutor.execute(new SubmitTask(ordinal,
+                            destinationAddr, shortMessage, result, checkpoint,
+                            listener));
+                } catch (RejectedExecutionException e) {
+                    end(ordinal, false, checkpoint);
+                    throw e;
+                }
+            }
+        } finally {
+            boundedExecutor.awaitCompletion();
+            if (checkpoint != null) {
+                checkpoint.sync();
+            }
+            synchronized (this) {
+                running = false;
+                result.completed = !stopped;
+                result.failure = failure;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stop submitting, the running campaign returns after the outstanding
+     * submit_sm responded.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    private synchronized boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Wait for the window and take the ordinal of the recipient.
+     *
+     * @param position is the position after the recipient.
+     * @return the ordinal or -1 if stopped.
+     */
+    private synchronized long begin(long position) throws InterruptedException {
+        while (!stopped && (outstanding >= window
+                || nextOrdinal - checkpointOrdinal >= processed.length)) {
+            wait();
+        }
+        if (stopped) {
+            return -1;
+        }
+        int slot = (int)(nextOrdinal % processed.length);
+        processed[slot] = false;
+        positions[slot] = position;
+        outstanding++;
+        return nextOrdinal++;
+    }
+
+    /**
+     * Release the window of the recipient and advance the checkpoint over the
+     * processed recipients.
+     */
+    private synchronized void end(long ordinal, boolean done,
+            CampaignCheckpoint checkpoint) {
+        outstanding--;
+        if (done) {
+            processed[(int)(ordinal % processed.length)] = true;
+            long position = -1;
+            while (checkpointOrdinal < nextOrdinal
+                    && processed[(int)(checkpointOrdinal % processed.length)]) {
+                position = positions[(int)(checkpointOrdinal % processed.length)];
+                checkpointOrdinal++;
+            }
+            if (position >= 0 && checkpoint != null) {
+                checkpoint.update(position);
+            }
+        }
+        notifyAll();
+    }
+
+    private synchronized void fail(Exception cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        stopped = true;
+    }
+
+    private class SubmitTask implements Runnable {
+        private final long ordinal;
+        private final byte[] destinationAddr;
+        private final byte[] shortMessage;
+        private final Result result;
+        private final CampaignCheckpoint checkpoint;
+        private final CampaignListener listener;
+
+        SubmitTask(long ordinal, byte[] destinationAddr, byte[] shortMessage,
+                Result result, CampaignCheckpoint checkpoint,
+                CampaignListener listener) {
+            this.ordinal = ordinal;
+            this.destinationAddr = destinationAddr;
+            this.shortMessage = shortMessage;
+            this.result = result;
+            this.checkpoint = checkpoint;
+            this.listener = listener;
+        }
+
+        public void run() {
+            boolean done = true;
+            try {
+                String messageId = session.submitShortMessage(template,
+                        destinationAddr, shortMessage);
+                result.submitted.incrementAndGet();
+                if (listener != null) {
+                    listener.onSubmitted(destinationAddr, messageId);
+                }
+            } catch (IOException e) {
+                logger.warn("Stopping campaign, failed submitting: {}", e.getMessage());
+                done = false;
+                fail(e);
+            } catch (Exception e) {
+                logger.debug("Failed submitting campaign message: {}", e.getMessage());
+                result.failed.incrementAndGet();
+                if (listener != null) {
+                    listener.onFailed(destinationAddr, e);
+                }
+            } finally {
+                end(ordinal, done, checkpoint);
+            }
+        }
+    }
+
+    /**
+     * Summary of the campaign run.
+     */
+    public static class Result {
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile boolean completed;
+        private volatile Exception failure;
+
+        /**
+         * @return the total short messages accepted by the SMSC.
+         */
+        public long getSubmitted() {
+            return submitted.get();
+        }
+
+        /**
+         * @return the total short messages invalid, rejected or not
+         *         responded.
+         */
+        public long getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * @return <tt>true</tt> if all the recipients have been processed,
+         *         <tt>false</tt> if the campaign stopped.
+         */
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        /**
+         * @return the session failure stopping the campaign, or <tt>null</tt>.
+         */
+        public Exception getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return "submitted=" + submitted + ", failed=" + failed
+                    + ", completed=" + completed;
+        }
+    }
+}
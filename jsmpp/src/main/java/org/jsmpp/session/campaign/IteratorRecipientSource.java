@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.campaign;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+
+/**
+ * {@link RecipientSource} reading the recipient fields from an
+ * {@link Iterator}, the first field is the destination_addr. The position is
+ * the number of recipients read, so resuming requires an iterator returning
+ * the recipients in the same order, the recipients before the position are
+ * skipped.
+ */
+public class IteratorRecipientSource implements RecipientSource {
+    private final Iterator<String[]> iterator;
+    private final Charset charset;
+    private final ArrayRecipient recipient = new ArrayRecipient();
+    private long position;
+
+    /**
+     * @param iterator is the recipient fields.
+     * @param charset is the charset of the fields.
+     */
+    public IteratorRecipientSource(Iterator<String[]> iterator, Charset charset) {
+        this.iterator = iterator;
+        this.charset = charset;
+    }
+
+    public Recipient next() throws IOException {
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        String[] fields = iterator.next();
+        position++;
+        byte[][] encoded = new byte[fields.length][];
+        for (int i = 0; i < fields.length; i++) {
+            encoded[i] = fields[i] != null ? fields[i].getBytes(charset) : new byte[0];
+        }
+        recipient.fields = encoded;
+        return recipient;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void seek(long position) throws IOException {
+        if (position < this.position) {
+            throw new IOException("Can't seek backward from " + this.position + " to " + position);
+        }
+        while (this.position < position) {
+            if (!iterator.hasNext()) {
+                throw new IOException("Position " + position + " is out of " + this.position + " recipients");
+            }
+            iterator.next();
+            this.position++;
+        }
+    }
+
+    public void close() throws IOException {
+    }
+
+    private static class ArrayRecipient implements Recipient {
+        private byte[][] fields;
+
+        public int getFieldCount() {
+            return fields.length;
+        }
+
+        public int getFieldLength(int index) {
+            return fields[index].length;
+        }
+
+        public void copyField(int index, byte[] dest, int offset) {
+            System.arraycopy(fields[index], 0, dest, offset, fields[index].length);
+        }
+    }
+}
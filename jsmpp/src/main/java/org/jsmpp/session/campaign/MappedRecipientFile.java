@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.campaign;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link RecipientSource} reading a text file through memory-mapped regions,
+ * so files larger than the heap can be read without loading them.
+ * <p>
+ * Each line is a recipient, with the fields separated by comma and no
+ * quoting. Empty lines are skipped and line ends may be LF or CR LF. The
+ * fields are not decoded, they are copied as is into the destination_addr
+ * and the rendered message, so the file should use the same charset as the
+ * message. The position is the file offset.
+ * </p>
+ */
+public class MappedRecipientFile implements RecipientSource {
+    public static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+    private static final byte SEPARATOR = ',';
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long length;
+    private final int regionSize;
+    private final MappedRecipient recipient = new MappedRecipient();
+    private ByteBuffer region;
+    private long regionStart;
+    private long position;
+
+    /**
+     * Construct with default region size.
+     *
+     * @param file is the recipient file.
+     * @throws IOException if there is an IO error found.
+     */
+    public MappedRecipientFile(File file) throws IOException {
+        this(file, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Construct with specified region size.
+     *
+     * @param file is the recipient file.
+     * @param regionSize is the size of the mapped region, should be larger
+     *        than the longest line.
+     * @throws IOException if there is an IO error found.
+     */
+    public MappedRecipientFile(File file, int regionSize) throws IOException {
+        if (regionSize < 1) {
+            throw new IllegalArgumentException("regionSize should be greater than 0");
+        }
+        this.file = new RandomAccessFile(file, "r");
+        channel = this.file.getChannel();
+        length = channel.size();
+        this.regionSize = regionSize;
+    }
+
+    public Recipient next() throws IOException {
+        while (position < length) {
+            if (region == null || position < regionStart
+                    || position >= regionStart + region.limit()) {
+                map(position);
+            }
+            int start = (int)(position - regionStart);
+            int end = indexOf('\n', start);
+            if (end < 0) {
+                if (regionStart + region.limit() < length) {
+                    if (start == 0) {
+                        throw new IOException("Line at position " + position
+                                + " is longer than the region size " + regionSize);
+                    }
+                    // the line continues in the next region
+                    map(position);
+                    continue;
+                }
+                end = region.limit();
+            }
+            position = regionStart + Math.min(end + 1, region.limit());
+            if (end > start && region.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end > start) {
+                recipient.parse(start, end);
+                return recipient;
+            }
+        }
+        return null;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void seek(long position) throws IOException {
+        if (position < 0 || position > length) {
+            throw new IOException("Position " + position + " is out of file length " + length);
+        }
+        this.position = position;
+    }
+
+    public void close() throws IOException {
+        region = null;
+        file.close();
+    }
+
+    private void map(long position) throws IOException {
+        region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(regionSize, length - position));
+        regionStart = position;
+    }
+
+    private int indexOf(char c, int from) {
+        int limit = region.limit();
+        for (int i = from; i < limit; i++) {
+            if (region.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Recipient referring to the fields in the mapped region.
+     */
+    private class MappedRecipient implements Recipient {
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private int fieldCount;
+
+        void parse(int start, int end) {
+            fieldCount = 0;
+            int fieldStart = start;
+            for (int i = start; i <= end; i++) {
+                if (i == end || region.get(i) == SEPARATOR) {
+                    if (fieldCount == starts.length) {
+                        int[] newStarts = new int[fieldCount * 2];
+                        int[] newEnds = new int[fieldCount * 2];
+                        System.arraycopy(starts, 0, newStarts, 0, fieldCount);
+                        System.arraycopy(ends, 0, newEnds, 0, fieldCount);
+                        starts = newStarts;
+                        ends = newEnds;
+                    }
+                    starts[fieldCount] = fieldStart;
+                    ends[fieldCount] = i;
+                    fieldCount++;
+                    fieldStart = i + 1;
+                }
+            }
+        }
+
+        public int getFieldCount() {
+            return fieldCount;
+        }
+
+        public int getFieldLength(int index) {
+            return ends[index] - starts[index];
+        }
+
+        public void copyField(int index, byte[] dest, int offset) {
+            ByteBuffer field = ((ByteBuffer)region).duplicate();
+            ((Buffer)field).position(starts[index]);
+            field.get(dest, offset, ends[index] - starts[index]);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.campaign;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Render the short message of each recipient from a text template. The
+ * placeholder <tt>{n}</tt> is replaced by the field <tt>n</tt> of the
+ * recipient, <tt>{0}</tt> being the destination_addr. The text of the
+ * template is encoded once, rendering only copies the encoded text and the
+ * recipient fields.
+ *
+ * <pre>
+ * MessageRenderer renderer = new MessageRenderer(
+ *         &quot;Dear {1}, your balance is {2}&quot;, Charset.forName(&quot;ISO-8859-1&quot;));
+ * </pre>
+ */
+public class MessageRenderer {
+    private final byte[][] texts;
+    private final int[] fields;
+
+    /**
+     * @param template is the message template.
+     * @param charset is the charset of the message, the recipient fields
+     *        should use the same charset.
+     */
+    public MessageRenderer(String template, Charset charset) {
+        List<byte[]> textList = new ArrayList<byte[]>();
+        List<Integer> fieldList = new ArrayList<Integer>();
+        int textStart = 0;
+        int i = 0;
+        while (i < template.length()) {
+            int end = placeholderEnd(template, i);
+            if (end < 0) {
+                i++;
+                continue;
+            }
+            textList.add(template.substring(textStart, i).getBytes(charset));
+            fieldList.add(Integer.valueOf(template.substring(i + 1, end - 1)));
+            textStart = end;
+            i = end;
+        }
+        textList.add(template.substring(textStart).getBytes(charset));
+
+        texts = textList.toArray(new byte[textList.size()][]);
+        fields = new int[fieldList.size()];
+        for (int j = 0; j < fields.length; j++) {
+            fields[j] = fieldList.get(j);
+        }
+    }
+
+    /**
+     * Render the short message. The placeholder of a missing field is
+     * rendered empty.
+     *
+     * @param recipient is the recipient.
+     * @return the encoded short message.
+     */
+    public byte[] render(Recipient recipient) {
+        int length = 0;
+        for (byte[] text : texts) {
+            length += text.length;
+        }
+        for (int field : fields) {
+            if (field < recipient.getFieldCount()) {
+                length += recipient.getFieldLength(field);
+            }
+        }
+
+        byte[] message = new byte[length];
+        int offset = 0;
+        for (int j = 0; j < texts.length; j++) {
+            System.arraycopy(texts[j], 0, message, offset, texts[j].length);
+            offset += texts[j].length;
+            if (j < fields.length && fields[j] < recipient.getFieldCount()) {
+                recipient.copyField(fields[j], message, offset);
+                offset += recipient.getFieldLength(fields[j]);
+            }
+        }
+        return message;
+    }
+
+    /**
+     * @return the index after the placeholder starting at <code>start</code>,
+     *         or -1 if there is no placeholder.
+     */
+    private static int placeholderEnd(String template, int start) {
+        if (template.charAt(start) != '{') {
+            return -1;
+        }
+        int i = start + 1;
+        while (i < template.length() && Character.isDigit(template.charAt(i))) {
+            i++;
+        }
+        if (i == start + 1 || i - start > 4 || i == template.length()
+                || template.charAt(i) != '}') {
+            return -1;
+        }
+        return i + 1;
+    }
+}
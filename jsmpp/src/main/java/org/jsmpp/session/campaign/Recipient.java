@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.campaign;
+
+/**
+ * Recipient of a campaign read from {@link RecipientSource}. The fields are
+ * kept encoded, the first field is the destination_addr and the others are
+ * the values rendered into the message by {@link MessageRenderer}.
+ */
+public interface Recipient {
+
+    /**
+     * @return the number of fields, at least 1.
+     */
+    int getFieldCount();
+
+    /**
+     * @param index is the field index.
+     * @return the encoded length of the field.
+     */
+    int getFieldLength(int index);
+
+    /**
+     * Copy the encoded field.
+     *
+     * @param index is the field index.
+     * @param dest is the destination array.
+     * @param offset is the offset in the destination array.
+     */
+    void copyField(int index, byte[] dest, int offset);
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.campaign;
+
+import java.io.IOException;
+
+/**
+ * Source of the recipients of a campaign, read one by one. The position
+ * identifies the place in the source after a recipient, so the campaign can
+ * be resumed from a {@link CampaignCheckpoint}.
+ */
+public interface RecipientSource {
+
+    /**
+     * Read the next recipient. The returned recipient is only valid until the
+     * next call.
+     *
+     * @return the next recipient or <tt>null</tt> if there is no more.
+     * @throws IOException if there is an IO error found.
+     */
+    Recipient next() throws IOException;
+
+    /**
+     * @return the position after the last recipient read.
+     */
+    long getPosition();
+
+    /**
+     * Continue reading from the position previously returned by
+     * {@link #getPosition()}.
+     *
+     * @param position is the position.
+     * @throws IOException if the position is invalid or there is an IO error
+     *         found.
+     */
+    void seek(long position) throws IOException;
+
+    /**
+     * Close the source.
+     *
+     * @throws IOException if there is an IO error found.
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.memory;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded byte ring buffer between one reading thread and one writing thread
+ * at a time. The read and write positions are only ever increased, each by
+ * its own side, so the data is passed without any lock. A side finding the
+ * ring empty (or full) spins shortly, then parks until the other side
+ * unparks it.
+ */
+class ByteRing {
+    private static final int SPINS = 64;
+
+    private final byte[] buffer;
+    private final int mask;
+    private final AtomicLong readPosition = new AtomicLong();
+    private final AtomicLong writePosition = new AtomicLong();
+    private volatile Thread waitingReader;
+    private volatile Thread waitingWriter;
+    private volatile boolean closed;
+
+    /**
+     * @param capacity is the size of the ring, rounded up to a power of two.
+     */
+    ByteRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        buffer = new byte[size];
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    int available() {
+        return (int)(writePosition.get() - readPosition.get());
+    }
+
+    /**
+     * Read at least one byte, waiting for the data if the ring is empty.
+     *
+     * @param b is the destination.
+     * @param off is the offset in the destination.
+     * @param len is the maximum number of bytes to read.
+     * @param timeout is the read timeout in millisecond, 0 to wait forever.
+     * @return the number of bytes read or -1 if the ring is closed and empty.
+     * @throws SocketTimeoutException if no data is written within the timeout.
+     */
+    int read(byte[] b, int off, int len, int timeout) throws SocketTimeoutException {
+        long head = readPosition.get();
+        long tail = writePosition.get();
+        if (tail == head) {
+            tail = awaitData(head, timeout);
+            if (tail == head) {
+                return -1;
+            }
+        }
+        int n = (int)Math.min(len, tail - head);
+        int index = (int)head & mask;
+        int first = Math.min(n, buffer.length - index);
+        System.arraycopy(buffer, index, b, off, first);
+        System.arraycopy(buffer, 0, b, off + first, n - first);
+        readPosition.set(head + n);
+        Thread writer = waitingWriter;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+        return n;
+    }
+
+    /**
+     * Write all the bytes, waiting for space while the ring is full.
+     *
+     * @param b is the source.
+     * @param off is the offset in the source.
+     * @param len is the number of bytes to write.
+     * @throws IOException if the ring is closed.
+     */
+    void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+            long tail = writePosition.get();
+            int free = buffer.length - (int)(tail - readPosition.get());
+            if (free == 0) {
+                awaitSpace(tail);
+                continue;
+            }
+            int n = Math.min(len, free);
+            int index = (int)tail & mask;
+            int first = Math.min(n, buffer.length - index);
+            System.arraycopy(b, off, buffer, index, first);
+            System.arraycopy(b, off + first, buffer, 0, n - first);
+            writePosition.set(tail + n);
+            Thread reader = waitingReader;
+            if (reader != null) {
+                LockSupport.unpark(reader);
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Close the ring. The data already written can still be read, the
+     * following writes fail.
+     */
+    void close() {
+        closed = true;
+        Thread thread = waitingReader;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        thread = waitingWriter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private long awaitData(long head, int timeout) throws SocketTimeoutException {
+        long tail;
+        for (int i = 0; i < SPINS; i++) {
+            tail = writePosition.get();
+            if (tail != head || closed) {
+                return writePosition.get();
+            }
+            Thread.yield();
+        }
+        long deadline = System.nanoTime() + timeout * 1000000L;
+        boolean interrupted = false;
+        // publish the waiting thread before checking again, so the writer
+        // either sees it or the check sees the written data
+        waitingReader = Thread.currentThread();
+        try {
+            while (true) {
+                tail = writePosition.get();
+                if (tail != head || closed) {
+                    return writePosition.get();
+                }
+                if (timeout > 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SocketTimeoutException("Read timed out");
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                } else {
+                    LockSupport.park(this);
+                }
+                // like the socket reads, not interruptible
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            waitingReader = null;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void awaitSpace(long tail) {
+        for (int i = 0; i < SPINS; i++) {
+            if (tail - readPosition.get() < buffer.length || closed) {
+                return;
+            }
+            Thread.yield();
+        }
+        boolean interrupted = false;
+        waitingWriter = Thread.currentThread();
+        try {
+            while (tail - readPosition.get() == buffer.length && !closed) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            waitingWriter = null;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.memory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.jsmpp.session.connection.Connection;
+
+/**
+ * {@link Connection} to another connection of the same JVM, passing the bytes
+ * through a pair of {@link ByteRing}, one for each direction. There is no
+ * socket and no system call, so the sessions over it run at memory speed.
+ * <p>
+ * The connections are created in pairs by {@link #createPair(int)} or by
+ * {@link MemoryConnectionFactory} connecting to a
+ * {@link MemoryServerConnection}. Each stream is meant to be read by one
+ * thread at a time; the writes are serialized. Closing either side makes the
+ * other side read the end of stream once the written data are consumed.
+ * </p>
+ */
+public class MemoryConnection implements Connection {
+    public static final int DEFAULT_BUFFER_SIZE = 65536;
+    private static final InetAddress LOOPBACK;
+    static {
+        try {
+            LOOPBACK = InetAddress.getByAddress("localhost", new byte[] { 127, 0, 0, 1 });
+        } catch (UnknownHostException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ByteRing inRing;
+    private final ByteRing outRing;
+    private final InputStream in = new RingInputStream();
+    private final OutputStream out = new RingOutputStream();
+    private volatile int soTimeout;
+
+    MemoryConnection(ByteRing inRing, ByteRing outRing) {
+        this.inRing = inRing;
+        this.outRing = outRing;
+    }
+
+    /**
+     * Create two connected connections.
+     *
+     * @param bufferSize is the size of the buffer of each direction.
+     * @return the two ends of the connection.
+     */
+    public static MemoryConnection[] createPair(int bufferSize) {
+        ByteRing ring1 = new ByteRing(bufferSize);
+        ByteRing ring2 = new ByteRing(bufferSize);
+        return new MemoryConnection[] { new MemoryConnection(ring1, ring2),
+                new MemoryConnection(ring2, ring1) };
+    }
+
+    public static MemoryConnection[] createPair() {
+        return createPair(DEFAULT_BUFFER_SIZE);
+    }
+
+    public void setSoTimeout(int timeout) throws IOException {
+        soTimeout = timeout;
+    }
+
+    public boolean isOpen() {
+        return !inRing.isClosed() && !outRing.isClosed();
+    }
+
+    public InetAddress getInetAddress() {
+        return LOOPBACK;
+    }
+
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    public void close() {
+        outRing.close();
+        inRing.close();
+    }
+
+    private class RingInputStream extends InputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            if (inRing.read(single, 0, 1, soTimeout) < 0) {
+                return -1;
+            }
+            return single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            return inRing.read(b, off, len, soTimeout);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return inRing.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            MemoryConnection.this.close();
+        }
+    }
+
+    private class RingOutputStream extends OutputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            single[0] = (byte)b;
+            outRing.write(single, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            outRing.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            MemoryConnection.this.close();
+        }
+    }
+}
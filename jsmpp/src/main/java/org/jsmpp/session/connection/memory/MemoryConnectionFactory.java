@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.memory;
+
+import java.io.IOException;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ConnectionFactory;
+
+/**
+ * {@link ConnectionFactory} connecting to the in-memory ports of a
+ * {@link MemoryServerConnectionFactory}. The host is ignored.
+ */
+public class MemoryConnectionFactory implements ConnectionFactory {
+    private final MemoryServerConnectionFactory serverConnFactory;
+
+    public MemoryConnectionFactory(MemoryServerConnectionFactory serverConnFactory) {
+        this.serverConnFactory = serverConnFactory;
+    }
+
+    public Connection createConnection(String host, int port)
+            throws IOException {
+        return serverConnFactory.connect(port);
+    }
+}
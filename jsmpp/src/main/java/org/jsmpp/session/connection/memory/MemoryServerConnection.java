@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.memory;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.LinkedList;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ServerConnection;
+
+/**
+ * {@link ServerConnection} accepting the {@link MemoryConnection} of an
+ * in-memory port. The connections are established as soon as they are
+ * requested and wait in the backlog to be accepted.
+ */
+public class MemoryServerConnection implements ServerConnection {
+    private final MemoryServerConnectionFactory factory;
+    private final int port;
+    private final int backlog;
+    private final LinkedList<MemoryConnection> pending = new LinkedList<MemoryConnection>();
+    private int soTimeout;
+    private boolean closed;
+
+    MemoryServerConnection(MemoryServerConnectionFactory factory, int port, int backlog) {
+        this.factory = factory;
+        this.port = port;
+        this.backlog = backlog;
+    }
+
+    public synchronized void setSoTimeout(int timeout) throws IOException {
+        soTimeout = timeout;
+    }
+
+    public synchronized int getSoTimeout() throws IOException {
+        return soTimeout;
+    }
+
+    public synchronized Connection accept() throws IOException {
+        long deadline = System.currentTimeMillis() + soTimeout;
+        while (pending.isEmpty()) {
+            if (closed) {
+                throw new SocketException("Socket is closed");
+            }
+            try {
+                if (soTimeout > 0) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new SocketTimeoutException("Accept timed out");
+                    }
+                    wait(remaining);
+                } else {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SocketException("Interrupted while accepting");
+            }
+        }
+        return pending.removeFirst();
+    }
+
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (MemoryConnection conn : pending) {
+                conn.close();
+            }
+            pending.clear();
+            notifyAll();
+        }
+        factory.remove(port, this);
+    }
+
+    synchronized MemoryConnection connect(int bufferSize) throws IOException {
+        if (closed || pending.size() >= backlog) {
+            throw new ConnectException("Connection refused: " + port);
+        }
+        MemoryConnection[] pair = MemoryConnection.createPair(bufferSize);
+        pending.add(pair[1]);
+        notifyAll();
+        return pair[0];
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.memory;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jsmpp.session.connection.ServerConnection;
+import org.jsmpp.session.connection.ServerConnectionFactory;
+
+/**
+ * {@link ServerConnectionFactory} listening on in-memory ports. The ports are
+ * only visible to the {@link MemoryConnectionFactory} created with this
+ * factory, so independent tests don't share them.
+ *
+ * <pre>
+ * MemoryServerConnectionFactory serverConnFactory = new MemoryServerConnectionFactory();
+ * SMPPServerSessionListener listener = new SMPPServerSessionListener(2775, serverConnFactory);
+ * SMPPSession session = new SMPPSession(new SynchronizedPDUSender(new DefaultPDUSender()),
+ *         new DefaultPDUReader(), new MemoryConnectionFactory(serverConnFactory));
+ * session.connectAndBind("localhost", 2775, bindParam);
+ * </pre>
+ */
+public class MemoryServerConnectionFactory implements ServerConnectionFactory {
+    private static final int DEFAULT_BACKLOG = 50;
+
+    private final ConcurrentMap<Integer, MemoryServerConnection> listeners = new ConcurrentHashMap<Integer, MemoryServerConnection>();
+    private final int bufferSize;
+
+    public MemoryServerConnectionFactory() {
+        this(MemoryConnection.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize is the size of the buffer of each direction of the
+     *        connections.
+     */
+    public MemoryServerConnectionFactory(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public ServerConnection listen(int port) throws IOException {
+        return listen(port, 0, DEFAULT_BACKLOG);
+    }
+
+    public ServerConnection listen(int port, int timeout) throws IOException {
+        return listen(port, timeout, DEFAULT_BACKLOG);
+    }
+
+    public ServerConnection listen(int port, int timeout, int backlog) throws IOException {
+        MemoryServerConnection serverConn = new MemoryServerConnection(this,
+                port, backlog > 0 ? backlog : DEFAULT_BACKLOG);
+        serverConn.setSoTimeout(timeout);
+        if (listeners.putIfAbsent(port, serverConn) != null) {
+            throw new BindException("Address already in use: " + port);
+        }
+        return serverConn;
+    }
+
+    MemoryConnection connect(int port) throws IOException {
+        MemoryServerConnection serverConn = listeners.get(port);
+        if (serverConn == null) {
+            throw new ConnectException("Connection refused: " + port);
+        }
+        return serverConn.connect(bufferSize);
+    }
+
+    void remove(int port, MemoryServerConnection serverConn) {
+        listeners.remove(port, serverConn);
+    }
+}
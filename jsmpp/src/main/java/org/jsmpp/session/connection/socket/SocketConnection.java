@@ -22,7 +22,7 @@ import java.net.Socket;
 
 import org.jsmpp.session.SMPPSession;
 import org.jsmpp.session.connection.Connection;
-import org.jsmpp.util.StrictBufferedInputStream;
+import org.jsmpp.util.ElasticBufferedInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,7 +39,8 @@ public class SocketConnection implements Connection {
     
     public SocketConnection(Socket socket) throws IOException {
         this.socket = socket;
-        this.in = new StrictBufferedInputStream(socket.getInputStream(), 65536);// 64 KB buffer
+        // 1 KB buffer growing up to 64 KB under load, released when idle
+        this.in = new ElasticBufferedInputStream(socket.getInputStream(), 1024, 65536);
         this.out = socket.getOutputStream();
     }
     
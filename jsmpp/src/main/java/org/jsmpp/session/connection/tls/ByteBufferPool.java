@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.tls;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+
+/**
+ * Pool of the direct buffers used by the TLS connections. The direct buffers
+ * are expensive to allocate, so the buffers of the closed connections are
+ * kept for the next connections.
+ * <p>
+ * The buffer size grows to the largest capacity requested, such as the
+ * larger records negotiated by the engine, so the next connections start with
+ * buffers large enough and the smaller pooled buffers are dropped.
+ * </p>
+ */
+class ByteBufferPool {
+    private final AtomicInteger bufferSize;
+    private final int maxPooled;
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    
+    /**
+     * Construct the pool.
+     * 
+     * @param bufferSize is the initial capacity of the buffers.
+     * @param maxPooled is the maximum buffers kept by the pool.
+     */
+    ByteBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = new AtomicInteger(bufferSize);
+        this.maxPooled = maxPooled;
+    }
+    
+    /**
+     * Create the pool of the buffers large enough for the network and
+     * application data of the engines of the SSL context.
+     * 
+     * @param sslContext is the SSL context.
+     * @param maxPooled is the maximum buffers kept by the pool.
+     * @return the pool.
+     */
+    static ByteBufferPool newInstance(SSLContext sslContext, int maxPooled) {
+        SSLSession session = sslContext.createSSLEngine().getSession();
+        return new ByteBufferPool(Math.max(session.getPacketBufferSize(),
+                session.getApplicationBufferSize()), maxPooled);
+    }
+    
+    int getBufferSize() {
+        return bufferSize.get();
+    }
+    
+    /**
+     * Take a cleared buffer from the pool or allocate a new one if the pool is
+     * empty.
+     * 
+     * @return the buffer.
+     */
+    ByteBuffer acquire() {
+        return acquire(0);
+    }
+    
+    /**
+     * Take a cleared buffer of at least the specified capacity from the pool
+     * or allocate a new one. The buffer size of the pool grows to the
+     * capacity.
+     * 
+     * @param minCapacity is the minimum capacity.
+     * @return the buffer.
+     */
+    ByteBuffer acquire(int minCapacity) {
+        int size = grow(minCapacity);
+        ByteBuffer buffer;
+        while ((buffer = buffers.poll()) != null) {
+            pooled.decrementAndGet();
+            if (buffer.capacity() >= size) {
+                ((Buffer)buffer).clear();
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(size);
+    }
+    
+    /**
+     * Return the buffer to the pool. The buffers smaller than the buffer size
+     * are left to the garbage collector.
+     * 
+     * @param buffer is the buffer.
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() < bufferSize.get() || !buffer.isDirect()) {
+            return;
+        }
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffers.offer(buffer);
+    }
+    
+    private int grow(int minCapacity) {
+        while (true) {
+            int size = bufferSize.get();
+            if (minCapacity <= size || bufferSize.compareAndSet(size, minCapacity)) {
+                return Math.max(size, minCapacity);
+            }
+        }
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.tls;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLEngineResult.Status;
+import javax.net.ssl.SSLException;
+
+import org.jsmpp.session.connection.Connection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TLS {@link Connection} over a non-blocking {@link SocketChannel} using
+ * {@link SSLEngine}.
+ * <p>
+ * The handshake is not done when the connection created, it is done by the
+ * first read or write. On the server side the first read is done by the
+ * session thread, so the handshakes don't block the listener accepting the
+ * other connections. The network buffers are taken from the pool of the
+ * factory and returned when the connection closed.
+ * </p>
+ * <p>
+ * A single selector per connection is used by the reader to wait for the
+ * network data with the read timeout. The writer only waits when the send
+ * buffer of the socket is full, the peer isn't reading, it backs off polling
+ * the channel instead of selecting concurrently with the reader.
+ * </p>
+ */
+public class TLSConnection implements Connection {
+    private static final Logger logger = LoggerFactory.getLogger(TLSConnection.class);
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final long MAX_WRITE_BACKOFF = TimeUnit.MILLISECONDS.toNanos(10);
+    
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private final ByteBufferPool bufferPool;
+    private final int handshakeTimeout;
+    private final Selector selector;
+    private final Lock readLock = new ReentrantLock();
+    private final Lock writeLock = new ReentrantLock();
+    private final Object handshakeLock = new Object();
+    private final InputStream in = new TLSInputStream();
+    private final OutputStream out = new TLSOutputStream();
+    
+    // guarded by readLock
+    private ByteBuffer netIn;
+    private ByteBuffer appIn;
+    // guarded by writeLock
+    private ByteBuffer netOut;
+    
+    private volatile int soTimeout;
+    private volatile boolean handshaked;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    
+    TLSConnection(SocketChannel channel, SSLEngine engine,
+            ByteBufferPool bufferPool, int handshakeTimeout) throws IOException {
+        this.channel = channel;
+        this.engine = engine;
+        this.bufferPool = bufferPool;
+        this.handshakeTimeout = handshakeTimeout;
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+        netIn = bufferPool.acquire();
+        appIn = bufferPool.acquire();
+        netOut = bufferPool.acquire();
+    }
+    
+    public void setSoTimeout(int timeout) throws IOException {
+        soTimeout = timeout;
+    }
+    
+    public boolean isOpen() {
+        return !closed.get() && channel.isOpen();
+    }
+    
+    public InetAddress getInetAddress() {
+        return channel.socket().getInetAddress();
+    }
+    
+    public InputStream getInputStream() {
+        return in;
+    }
+    
+    public OutputStream getOutputStream() {
+        return out;
+    }
+    
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        engine.closeOutbound();
+        // the close_notify is only sent if no thread is blocked on writing
+        if (writeLock.tryLock()) {
+            try {
+                sendCloseNotify();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Suppressing IOException while closing channel: " + e);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.warn("Suppressing IOException while closing selector: " + e);
+        }
+        
+        // the blocked threads are released by the closed channel
+        readLock.lock();
+        try {
+            bufferPool.release(netIn);
+            bufferPool.release(appIn);
+            netIn = null;
+            appIn = null;
+        } finally {
+            readLock.unlock();
+        }
+        writeLock.lock();
+        try {
+            bufferPool.release(netOut);
+            netOut = null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        ensureHandshake();
+        readLock.lock();
+        try {
+            ensureOpen();
+            while (appIn.position() == 0) {
+                if (engine.isInboundDone()) {
+                    return -1;
+                }
+                SSLEngineResult result = unwrap();
+                if (result.getStatus() == Status.CLOSED) {
+                    flushHandshake();
+                    return -1;
+                }
+                if (result.getStatus() == Status.BUFFER_UNDERFLOW
+                        && readChannel(soTimeout) < 0) {
+                    try {
+                        engine.closeInbound();
+                    } catch (SSLException e) {
+                        logger.debug("Connection closed without close_notify");
+                    }
+                    return -1;
+                }
+                if (engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+                    flushHandshake();
+                }
+            }
+            ((Buffer)appIn).flip();
+            int n = Math.min(len, appIn.remaining());
+            appIn.get(b, off, n);
+            appIn.compact();
+            return n;
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    private void write(byte[] b, int off, int len) throws IOException {
+        ensureHandshake();
+        ByteBuffer src = ByteBuffer.wrap(b, off, len);
+        writeLock.lock();
+        try {
+            while (src.hasRemaining()) {
+                ensureOpen();
+                SSLEngineResult result = wrap(src);
+                if (result.getStatus() == Status.CLOSED) {
+                    throw new SocketException("Connection closed");
+                }
+                if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                    // renegotiation waiting for the peer, let the reader unwrap
+                    writeLock.unlock();
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SocketException("Interrupted while waiting for renegotiation");
+                    } finally {
+                        writeLock.lock();
+                    }
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private void ensureHandshake() throws IOException {
+        if (handshaked) {
+            return;
+        }
+        synchronized (handshakeLock) {
+            if (handshaked) {
+                return;
+            }
+            readLock.lock();
+            writeLock.lock();
+            try {
+                ensureOpen();
+                handshake();
+            } finally {
+                writeLock.unlock();
+                readLock.unlock();
+            }
+            handshaked = true;
+        }
+    }
+    
+    private void handshake() throws IOException {
+        long deadline = System.currentTimeMillis() + handshakeTimeout;
+        engine.beginHandshake();
+        HandshakeStatus status = engine.getHandshakeStatus();
+        while (status != HandshakeStatus.FINISHED
+                && status != HandshakeStatus.NOT_HANDSHAKING) {
+            switch (status) {
+            case NEED_WRAP:
+                if (wrap(EMPTY).getStatus() == Status.CLOSED) {
+                    throw new SSLException("Connection closed during TLS handshake");
+                }
+                break;
+            case NEED_UNWRAP:
+                SSLEngineResult result = unwrap();
+                if (result.getStatus() == Status.CLOSED) {
+                    throw new SSLException("Connection closed during TLS handshake");
+                }
+                if (result.getStatus() == Status.BUFFER_UNDERFLOW) {
+                    long timeout = deadline - System.currentTimeMillis();
+                    if (timeout <= 0) {
+                        throw new SocketTimeoutException("TLS handshake timed out");
+                    }
+                    if (readChannel((int)timeout) < 0) {
+                        throw new EOFException("Connection closed during TLS handshake");
+                    }
+                }
+                break;
+            default:
+                runDelegatedTasks();
+            }
+            status = engine.getHandshakeStatus();
+        }
+        logger.debug("TLS handshake finished using {} {}",
+                engine.getSession().getProtocol(),
+                engine.getSession().getCipherSuite());
+    }
+    
+    /**
+     * Wrap the source and write it to the channel. Called while holding the
+     * write lock.
+     */
+    private SSLEngineResult wrap(ByteBuffer src) throws IOException {
+        ((Buffer)netOut).clear();
+        SSLEngineResult result = engine.wrap(src, netOut);
+        while (result.getStatus() == Status.BUFFER_OVERFLOW) {
+            netOut = enlarge(netOut, engine.getSession().getPacketBufferSize());
+            result = engine.wrap(src, netOut);
+        }
+        ((Buffer)netOut).flip();
+        writeChannel(netOut);
+        if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+            runDelegatedTasks();
+        }
+        return result;
+    }
+    
+    /**
+     * Unwrap the received network data. Called while holding the read lock.
+     */
+    private SSLEngineResult unwrap() throws IOException {
+        SSLEngineResult result;
+        while (true) {
+            ((Buffer)netIn).flip();
+            try {
+                result = engine.unwrap(netIn, appIn);
+            } finally {
+                netIn.compact();
+            }
+            if (result.getStatus() != Status.BUFFER_OVERFLOW) {
+                break;
+            }
+            appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize()
+                    + appIn.position());
+        }
+        if (result.getStatus() == Status.BUFFER_UNDERFLOW && !netIn.hasRemaining()) {
+            // the record is larger than the buffer
+            netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+        }
+        if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+            runDelegatedTasks();
+        }
+        return result;
+    }
+    
+    /**
+     * Send the handshake data required by the engine after unwrapping, such
+     * as the renegotiation or the close_notify reply.
+     */
+    private void flushHandshake() throws IOException {
+        writeLock.lock();
+        try {
+            while (engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+                ensureOpen();
+                SSLEngineResult result = wrap(EMPTY);
+                if (result.getStatus() == Status.CLOSED && result.bytesProduced() == 0) {
+                    break;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private int readChannel(int timeout) throws IOException {
+        long deadline = System.currentTimeMillis() + timeout;
+        int n = channel.read(netIn);
+        while (n == 0) {
+            long wait = 0;
+            if (timeout > 0) {
+                wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+            }
+            try {
+                selector.select(wait);
+                selector.selectedKeys().clear();
+            } catch (ClosedSelectorException e) {
+                throw new SocketException("Connection closed");
+            }
+            ensureOpen();
+            n = channel.read(netIn);
+        }
+        return n;
+    }
+    
+    private void writeChannel(ByteBuffer src) throws IOException {
+        long backoff = 0;
+        while (src.hasRemaining()) {
+            if (channel.write(src) > 0) {
+                backoff = 0;
+                continue;
+            }
+            // the send buffer is full, wait for the peer reading
+            backoff = Math.min(Math.max(backoff * 2, 10000), MAX_WRITE_BACKOFF);
+            LockSupport.parkNanos(backoff);
+            if (Thread.currentThread().isInterrupted()) {
+                throw new SocketException("Interrupted while writing");
+            }
+            ensureOpen();
+        }
+    }
+    
+    private void sendCloseNotify() {
+        if (netOut == null) {
+            return;
+        }
+        try {
+            ((Buffer)netOut).clear();
+            engine.wrap(EMPTY, netOut);
+            ((Buffer)netOut).flip();
+            // best effort, don't wait for the peer reading
+            channel.write(netOut);
+        } catch (IOException e) {
+            logger.debug("Failed sending close_notify: {}", e.getMessage());
+        }
+    }
+    
+    private void runDelegatedTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+    
+    private ByteBuffer enlarge(ByteBuffer buffer, int requiredCapacity) {
+        int capacity = requiredCapacity > buffer.capacity() ? requiredCapacity
+                : buffer.capacity() * 2;
+        ByteBuffer enlarged = bufferPool.acquire(capacity);
+        ((Buffer)buffer).flip();
+        enlarged.put(buffer);
+        bufferPool.release(buffer);
+        return enlarged;
+    }
+    
+    private void ensureOpen() throws SocketException {
+        if (closed.get()) {
+            throw new SocketException("Connection closed");
+        }
+    }
+    
+    private class TLSInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = TLSConnection.this.read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return TLSConnection.this.read(b, off, len);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            TLSConnection.this.close();
+        }
+    }
+    
+    private class TLSOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            TLSConnection.this.write(new byte[] { (byte)b }, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            TLSConnection.this.write(b, off, len);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            TLSConnection.this.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.tls;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ConnectionFactory;
+
+/**
+ * {@link ConnectionFactory} of the {@link TLSConnection}.
+ * <p>
+ * The engines are created for the host and port, so the TLS sessions cached
+ * by the {@link SSLContext} are resumed when reconnecting to the same SMSC
+ * instead of doing the full handshake. Use the same factory for all sessions
+ * to share the session cache and the buffer pool.
+ * </p>
+ * 
+ * <pre>
+ * SSLContext sslContext = SSLContext.getInstance(&quot;TLS&quot;);
+ * sslContext.init(null, trustManagers, null);
+ * SMPPSession session = new SMPPSession(new SynchronizedPDUSender(
+ *         new DefaultPDUSender()), new DefaultPDUReader(),
+ *         new TLSConnectionFactory(sslContext));
+ * </pre>
+ */
+public class TLSConnectionFactory implements ConnectionFactory {
+    static final int DEFAULT_MAX_POOLED_BUFFERS = 96;
+    static final int DEFAULT_HANDSHAKE_TIMEOUT = 60000;
+    
+    private final SSLContext sslContext;
+    private final ByteBufferPool bufferPool;
+    private int connectTimeout;
+    private int handshakeTimeout = DEFAULT_HANDSHAKE_TIMEOUT;
+    
+    public TLSConnectionFactory(SSLContext sslContext) {
+        this(sslContext, DEFAULT_MAX_POOLED_BUFFERS);
+    }
+    
+    /**
+     * Construct with specified SSL context and buffer pool size.
+     * 
+     * @param sslContext is the initialized SSL context.
+     * @param maxPooledBuffers is the maximum network buffers kept for the
+     *        next connections, each connection uses 3 buffers.
+     */
+    public TLSConnectionFactory(SSLContext sslContext, int maxPooledBuffers) {
+        this.sslContext = sslContext;
+        this.bufferPool = ByteBufferPool.newInstance(sslContext, maxPooledBuffers);
+    }
+    
+    /**
+     * Set the connect timeout in milliseconds, 0 means no timeout.
+     * 
+     * @param connectTimeout is the connect timeout.
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+    
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+    
+    /**
+     * Set the handshake timeout in milliseconds.
+     * 
+     * @param handshakeTimeout is the handshake timeout.
+     */
+    public void setHandshakeTimeout(int handshakeTimeout) {
+        this.handshakeTimeout = handshakeTimeout;
+    }
+    
+    public int getHandshakeTimeout() {
+        return handshakeTimeout;
+    }
+    
+    public Connection createConnection(String host, int port)
+            throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(new InetSocketAddress(host, port), connectTimeout);
+            SSLEngine engine = sslContext.createSSLEngine(host, port);
+            engine.setUseClientMode(true);
+            configureEngine(engine);
+            return new TLSConnection(channel, engine, bufferPool, handshakeTimeout);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Configure the engine before the handshake, such as the enabled protocols
+     * and cipher suites. Override to change the default configuration of the
+     * SSL context.
+     * 
+     * @param engine is the client mode engine.
+     */
+    protected void configureEngine(SSLEngine engine) {
+    }
+}
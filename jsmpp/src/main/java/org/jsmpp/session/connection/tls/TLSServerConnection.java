@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.tls;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ServerConnection;
+
+/**
+ * {@link ServerConnection} accepting the TLS connections. The handshake of
+ * the accepted connection is done by the first read of the session, not by
+ * the accepting thread.
+ */
+public class TLSServerConnection implements ServerConnection {
+    private final ServerSocketChannel serverChannel;
+    private final TLSServerConnectionFactory factory;
+    private final Selector selector;
+    private volatile int soTimeout;
+    
+    TLSServerConnection(ServerSocketChannel serverChannel,
+            TLSServerConnectionFactory factory) throws IOException {
+        this.serverChannel = serverChannel;
+        this.factory = factory;
+        serverChannel.configureBlocking(false);
+        selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+    
+    public void setSoTimeout(int timeout) throws IOException {
+        soTimeout = timeout;
+    }
+    
+    public int getSoTimeout() throws IOException {
+        return soTimeout;
+    }
+    
+    public Connection accept() throws IOException {
+        int timeout = soTimeout;
+        long deadline = System.currentTimeMillis() + timeout;
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) == null) {
+            long wait = 0;
+            if (timeout > 0) {
+                wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new SocketTimeoutException("Accept timed out");
+                }
+            }
+            try {
+                selector.select(wait);
+                selector.selectedKeys().clear();
+            } catch (ClosedSelectorException e) {
+                throw new SocketException("Server connection closed");
+            }
+        }
+        try {
+            return factory.newConnection(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    public void close() throws IOException {
+        try {
+            serverChannel.close();
+        } finally {
+            selector.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.tls;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ServerConnection;
+import org.jsmpp.session.connection.ServerConnectionFactory;
+
+/**
+ * {@link ServerConnectionFactory} of the TLS connections.
+ * 
+ * <pre>
+ * SSLContext sslContext = SSLContext.getInstance(&quot;TLS&quot;);
+ * sslContext.init(keyManagers, null, null);
+ * SMPPServerSessionListener listener = new SMPPServerSessionListener(2775,
+ *         new TLSServerConnectionFactory(sslContext));
+ * </pre>
+ */
+public class TLSServerConnectionFactory implements ServerConnectionFactory {
+    private final SSLContext sslContext;
+    private final ByteBufferPool bufferPool;
+    private int handshakeTimeout = TLSConnectionFactory.DEFAULT_HANDSHAKE_TIMEOUT;
+    
+    public TLSServerConnectionFactory(SSLContext sslContext) {
+        this(sslContext, TLSConnectionFactory.DEFAULT_MAX_POOLED_BUFFERS);
+    }
+    
+    /**
+     * Construct with specified SSL context and buffer pool size.
+     * 
+     * @param sslContext is the initialized SSL context.
+     * @param maxPooledBuffers is the maximum network buffers kept for the
+     *        next connections, each connection uses 3 buffers.
+     */
+    public TLSServerConnectionFactory(SSLContext sslContext, int maxPooledBuffers) {
+        this.sslContext = sslContext;
+        this.bufferPool = ByteBufferPool.newInstance(sslContext, maxPooledBuffers);
+    }
+    
+    /**
+     * Set the handshake timeout in milliseconds.
+     * 
+     * @param handshakeTimeout is the handshake timeout.
+     */
+    public void setHandshakeTimeout(int handshakeTimeout) {
+        this.handshakeTimeout = handshakeTimeout;
+    }
+    
+    public int getHandshakeTimeout() {
+        return handshakeTimeout;
+    }
+    
+    public ServerConnection listen(int port) throws IOException {
+        return listen(port, 0);
+    }
+    
+    public ServerConnection listen(int port, int timeout) throws IOException {
+        return listen(port, timeout, 50);
+    }
+    
+    public ServerConnection listen(int port, int timeout, int backlog)
+            throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.socket().bind(new InetSocketAddress(port), backlog);
+            TLSServerConnection serverConn = new TLSServerConnection(serverChannel, this);
+            serverConn.setSoTimeout(timeout);
+            return serverConn;
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Configure the engine before the handshake, such as requiring the client
+     * authentication. Override to change the default configuration of the SSL
+     * context.
+     * 
+     * @param engine is the server mode engine.
+     */
+    protected void configureEngine(SSLEngine engine) {
+    }
+    
+    Connection newConnection(SocketChannel channel) throws IOException {
+        SSLEngine engine = sslContext.createSSLEngine();
+        engine.setUseClientMode(false);
+        configureEngine(engine);
+        return new TLSConnection(channel, engine, bufferPool, handshakeTimeout);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.journal;
+
+/**
+ * Entry of {@link SubmitJournal}.
+ */
+public class JournalEntry {
+    private final long id;
+    private final byte[] pdu;
+
+    public JournalEntry(long id, byte[] pdu) {
+        this.id = id;
+        this.pdu = pdu;
+    }
+
+    /**
+     * @return the id of the entry.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the journaled request PDU.
+     */
+    public byte[] getPdu() {
+        return pdu;
+    }
+}
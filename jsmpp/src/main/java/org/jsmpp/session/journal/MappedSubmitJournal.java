@@ -0,0 +1,401 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.journal;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SubmitJournal} implementation using append-only, memory-mapped
+ * segment files.
+ * <p>
+ * Each segment file starts with a 4 octets magic number followed by the
+ * records. A record is composed of type (1 octet), entry id (8 octets), length
+ * of the PDU (4 octets) and the PDU itself. The type is written last, so a
+ * record that is not completely written when the process crashes will not be
+ * read on recovery.
+ * </p>
+ * <p>
+ * The mapped segment is forced to the storage device every
+ * <code>syncInterval</code> millis by a background thread, or on every append
+ * if the <code>syncInterval</code> is 0. When the active segment is full, the
+ * unacknowledged entries are copied to the new segment and the old segments
+ * are deleted, so the journal only holds the entries still waiting for
+ * acknowledgement.
+ * </p>
+ */
+public class MappedSubmitJournal implements SubmitJournal {
+    private static final Logger logger = LoggerFactory.getLogger(MappedSubmitJournal.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final long DEFAULT_SYNC_INTERVAL = 100;
+
+    private static final int MAGIC = 0x4a534a31;
+    private static final int SEGMENT_HEADER_LENGTH = 4;
+    private static final int RECORD_HEADER_LENGTH = 13;
+    private static final byte TYPE_REQUEST = 1;
+    private static final byte TYPE_ACK = 2;
+    private static final String SEGMENT_PREFIX = "submit-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final File directory;
+    private final int segmentSize;
+    private final long syncInterval;
+    private final Map<Long, Location> unacknowledged = new LinkedHashMap<Long, Location>();
+    private final List<Segment> segments = new ArrayList<Segment>();
+    private final List<JournalEntry> recoveredEntries;
+    private final SyncThread syncThread;
+    private Segment active;
+    private long nextSegmentNumber;
+    private long nextId = 1;
+    private boolean dirty;
+    private boolean closed;
+
+    /**
+     * Construct with default segment size and sync interval.
+     *
+     * @param directory is the directory of the segment files.
+     * @throws IOException if there is an IO error found.
+     */
+    public MappedSubmitJournal(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_SYNC_INTERVAL);
+    }
+
+    /**
+     * Construct with specified segment size and sync interval. The existing
+     * segment files in the directory will be recovered.
+     *
+     * @param directory is the directory of the segment files.
+     * @param segmentSize is the size of segment file in octets.
+     * @param syncInterval is the interval in millis to force the appended
+     *        entries to the storage device, 0 means force on every append.
+     * @throws IOException if there is an IO error found.
+     */
+    public MappedSubmitJournal(File directory, int segmentSize,
+            long syncInterval) throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_LENGTH + RECORD_HEADER_LENGTH) {
+            throw new IllegalArgumentException("Segment size " + segmentSize + " is too small");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed creating journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncInterval = syncInterval;
+
+        recover();
+        List<JournalEntry> entries = new ArrayList<JournalEntry>(unacknowledged.size());
+        for (Map.Entry<Long, Location> entry : unacknowledged.entrySet()) {
+            entries.add(new JournalEntry(entry.getKey(), entry.getValue().readPdu()));
+        }
+        recoveredEntries = Collections.unmodifiableList(entries);
+        if (!entries.isEmpty()) {
+            logger.info("Recovered {} unacknowledged entries from journal {}", entries.size(), directory);
+        }
+        synchronized (this) {
+            roll(0);
+        }
+
+        if (syncInterval > 0) {
+            syncThread = new SyncThread();
+            syncThread.start();
+        } else {
+            syncThread = null;
+        }
+    }
+
+    public synchronized long append(byte[] pdu) throws IOException {
+        ensureOpen();
+        long id = nextId++;
+        Location location = write(TYPE_REQUEST, id, pdu);
+        unacknowledged.put(id, location);
+        afterWrite();
+        return id;
+    }
+
+    public synchronized void acknowledge(long entryId) throws IOException {
+        ensureOpen();
+        if (unacknowledged.remove(entryId) != null) {
+            write(TYPE_ACK, entryId, null);
+            afterWrite();
+        }
+    }
+
+    public List<JournalEntry> getRecoveredEntries() {
+        return recoveredEntries;
+    }
+
+    /**
+     * Get total entries that have not been acknowledged.
+     *
+     * @return the total unacknowledged entries.
+     */
+    public synchronized int getUnacknowledgedCount() {
+        return unacknowledged.size();
+    }
+
+    public void sync() throws IOException {
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            if (!dirty || closed) {
+                return;
+            }
+            dirty = false;
+            buffer = active.buffer;
+        }
+        buffer.force();
+    }
+
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            active.buffer.force();
+            closed = true;
+            for (Segment segment : segments) {
+                segment.close();
+            }
+            notifyAll();
+        }
+        if (syncThread != null && Thread.currentThread() != syncThread) {
+            try {
+                syncThread.join();
+            } catch (InterruptedException e) {
+                logger.warn("Interrupted while waiting for journal sync thread to exit");
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Journal " + directory + " has been closed");
+        }
+    }
+
+    private void afterWrite() {
+        if (syncInterval > 0) {
+            dirty = true;
+        } else {
+            active.buffer.force();
+        }
+    }
+
+    /**
+     * Write a record to the active segment, roll the segment if there is not
+     * enough room.
+     */
+    private Location write(byte type, long id, byte[] pdu) throws IOException {
+        int length = pdu != null ? pdu.length : 0;
+        if (active.buffer.remaining() < RECORD_HEADER_LENGTH + length) {
+            roll(RECORD_HEADER_LENGTH + length);
+        }
+        /*
+         * The buffer methods are called through Buffer and ByteBuffer, newer
+         * JDK declare covariant overrides in MappedByteBuffer which don't
+         * exist on the older runtimes.
+         */
+        ByteBuffer buffer = active.buffer;
+        int offset = buffer.position();
+        buffer.putLong(offset + 1, id);
+        buffer.putInt(offset + 9, length);
+        if (pdu != null) {
+            ((Buffer)buffer).position(offset + RECORD_HEADER_LENGTH);
+            buffer.put(pdu);
+        }
+        // the type written at last mark the record as complete
+        buffer.put(offset, type);
+        ((Buffer)buffer).position(offset + RECORD_HEADER_LENGTH + length);
+        return new Location(active, offset, length);
+    }
+
+    /**
+     * Start a new segment, copy the unacknowledged entries to the new segment
+     * and delete the old segments.
+     *
+     * @param reserved is the room needed on the new segment after the copy.
+     */
+    private void roll(int reserved) throws IOException {
+        int required = SEGMENT_HEADER_LENGTH + reserved;
+        for (Location location : unacknowledged.values()) {
+            required += RECORD_HEADER_LENGTH + location.length;
+        }
+        if (required > segmentSize) {
+            throw new IOException("Journal segment size " + segmentSize
+                    + " is too small, " + required + " octets required");
+        }
+
+        List<Segment> oldSegments = new ArrayList<Segment>(segments);
+        active = createSegment(nextSegmentNumber++);
+        segments.add(active);
+
+        for (Iterator<Map.Entry<Long, Location>> iterator = unacknowledged.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<Long, Location> entry = iterator.next();
+            entry.setValue(write(TYPE_REQUEST, entry.getKey(), entry.getValue().readPdu()));
+        }
+        active.buffer.force();
+
+        for (Segment segment : oldSegments) {
+            segments.remove(segment);
+            segment.close();
+            if (!segment.file.delete()) {
+                logger.warn("Failed deleting journal segment {}", segment.file);
+            }
+        }
+    }
+
+    private Segment createSegment(long number) throws IOException {
+        File file = new File(directory, SEGMENT_PREFIX + String.format("%016x", number) + SEGMENT_SUFFIX);
+        Segment segment = new Segment(file, segmentSize);
+        segment.buffer.putInt(0, MAGIC);
+        ((Buffer)segment.buffer).position(SEGMENT_HEADER_LENGTH);
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            throw new IOException("Failed listing journal directory " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            long number = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - SEGMENT_SUFFIX.length()), 16);
+            nextSegmentNumber = Math.max(nextSegmentNumber, number + 1);
+
+            Segment segment = new Segment(file, (int)file.length());
+            segments.add(segment);
+            MappedByteBuffer buffer = segment.buffer;
+            if (buffer.limit() < SEGMENT_HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+                logger.warn("Ignoring invalid journal segment {}", file);
+                continue;
+            }
+
+            int offset = SEGMENT_HEADER_LENGTH;
+            while (offset + RECORD_HEADER_LENGTH <= buffer.limit()) {
+                byte type = buffer.get(offset);
+                long id = buffer.getLong(offset + 1);
+                int length = buffer.getInt(offset + 9);
+                if (type == TYPE_REQUEST && length >= 0
+                        && offset + RECORD_HEADER_LENGTH + length <= buffer.limit()) {
+                    unacknowledged.put(id, new Location(segment, offset, length));
+                } else if (type == TYPE_ACK) {
+                    unacknowledged.remove(id);
+                } else {
+                    break;
+                }
+                nextId = Math.max(nextId, id + 1);
+                offset += RECORD_HEADER_LENGTH + length;
+            }
+        }
+    }
+
+    private static class Segment {
+        private final File file;
+        private final RandomAccessFile raf;
+        private final MappedByteBuffer buffer;
+
+        Segment(File file, int size) throws IOException {
+            this.file = file;
+            raf = new RandomAccessFile(file, "rw");
+            try {
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                logger.warn("Failed closing journal segment {}", file);
+            }
+        }
+    }
+
+    private static class Location {
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        Location(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        byte[] readPdu() {
+            byte[] pdu = new byte[length];
+            ByteBuffer buffer = ((ByteBuffer)segment.buffer).duplicate();
+            ((Buffer)buffer).position(offset + RECORD_HEADER_LENGTH);
+            buffer.get(pdu);
+            return pdu;
+        }
+    }
+
+    private class SyncThread extends Thread {
+
+        public SyncThread() {
+            super("MappedSubmitJournal: " + directory);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                synchronized (MappedSubmitJournal.this) {
+                    if (closed) {
+                        break;
+                    }
+                    try {
+                        MappedSubmitJournal.this.wait(syncInterval);
+                    } catch (InterruptedException e) {
+                    }
+                    if (closed) {
+                        break;
+                    }
+                }
+                try {
+                    sync();
+                } catch (IOException e) {
+                    logger.error("Failed syncing journal " + directory, e);
+                }
+            }
+        }
+    }
+}
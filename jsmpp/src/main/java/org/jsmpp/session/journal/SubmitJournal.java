@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.journal;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Journal of the outgoing submit requests. Every request is appended to the
+ * journal before it's sent and acknowledged after the response received, so
+ * the unacknowledged requests can be submitted again after a crash.
+ */
+public interface SubmitJournal {
+
+    /**
+     * Append the request PDU to the journal.
+     *
+     * @param pdu is the complete request PDU.
+     * @return the id of the journal entry.
+     * @throws IOException if there is an IO error found.
+     */
+    long append(byte[] pdu) throws IOException;
+
+    /**
+     * Acknowledge the journal entry, the entry will not be replayed anymore.
+     *
+     * @param entryId is the id of the journal entry.
+     * @throws IOException if there is an IO error found.
+     */
+    void acknowledge(long entryId) throws IOException;
+
+    /**
+     * Get the entries that have not been acknowledged when the journal was
+     * opened, in the order they were appended. These are the requests need to
+     * be replayed.
+     *
+     * @return the recovered unacknowledged entries.
+     */
+    List<JournalEntry> getRecoveredEntries();
+
+    /**
+     * Force all the appended entries to the storage device.
+     *
+     * @throws IOException if there is an IO error found.
+     */
+    void sync() throws IOException;
+
+    /**
+     * Sync and close the journal.
+     *
+     * @throws IOException if there is an IO error found.
+     */
+    void close() throws IOException;
+}
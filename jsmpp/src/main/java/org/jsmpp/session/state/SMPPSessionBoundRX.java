@@ -23,6 +23,7 @@ import org.jsmpp.bean.Command;
 import org.jsmpp.bean.DeliverSm;
 import org.jsmpp.extra.ProcessRequestException;
 import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.DeliverSmQueue;
 import org.jsmpp.session.ResponseHandler;
 import org.jsmpp.util.DefaultDecomposer;
 import org.jsmpp.util.PDUDecomposer;
@@ -106,6 +107,11 @@ class SMPPSessionBoundRX extends SMPPSessionBound implements SMPPSessionState {
             ResponseHandler responseHandler) throws IOException {
         try {
             DeliverSm deliverSm = pduDecomposer.deliverSm(pdu);
+            if (responseHandler instanceof DeliverSmQueue
+                    && ((DeliverSmQueue)responseHandler).queueDeliverSm(deliverSm)) {
+                // the deliver_sm_resp will be sent by the batch
+                return;
+            }
             responseHandler.processDeliverSm(deliverSm);
             responseHandler.sendDeliverSmResp(0, pduHeader.getSequenceNumber());
         } catch (PDUStringException e) {
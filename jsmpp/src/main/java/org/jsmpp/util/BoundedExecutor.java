@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run tasks on an {@link Executor} with at most <code>maxPending</code> of
+ * them queued or running, the submitter waits for a permit. It is the window
+ * of the bulk senders streaming their requests, such as the broadcast or the
+ * campaign: the requests are read as the responses come, whatever their
+ * total.
+ * <p>
+ * The tasks run on the given executor, or on a shared pool of daemon threads
+ * reused across the runs, so a run doesn't create its own pool.
+ * </p>
+ */
+public class BoundedExecutor {
+    private static final Executor SHARED_EXECUTOR = newSharedExecutor();
+
+    private final Executor executor;
+    private final int maxPending;
+    private final Semaphore permits;
+
+    /**
+     * Construct running on the shared pool.
+     *
+     * @param maxPending is the maximum tasks queued or running.
+     */
+    public BoundedExecutor(int maxPending) {
+        this(null, maxPending);
+    }
+
+    /**
+     * Construct running on the specified executor.
+     *
+     * @param executor is the executor, or <tt>null</tt> for the shared pool.
+     * @param maxPending is the maximum tasks queued or running.
+     */
+    public BoundedExecutor(Executor executor, int maxPending) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending should be greater than 0");
+        }
+        this.executor = executor != null ? executor : SHARED_EXECUTOR;
+        this.maxPending = maxPending;
+        permits = new Semaphore(maxPending);
+    }
+
+    /**
+     * Wait for a permit and run the task.
+     *
+     * @param task is the task.
+     * @throws InterruptedException if interrupted while waiting for a permit.
+     * @throws RejectedExecutionException if the executor rejected the task.
+     */
+    public void execute(final Runnable task) throws InterruptedException {
+        permits.acquire();
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Wait until all the tasks executed have completed.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void awaitCompletion() throws InterruptedException {
+        permits.acquire(maxPending);
+        permits.release(maxPending);
+    }
+
+    private static Executor newSharedExecutor() {
+        return new ThreadPoolExecutor(0,
+                Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger sequence = new AtomicInteger();
+
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "BoundedExecutor-" + sequence.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+}
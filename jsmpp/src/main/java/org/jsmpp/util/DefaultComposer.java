@@ -64,21 +64,15 @@ public class DefaultComposer implements PDUComposer {
             String password, String systemType, byte interfaceVersion,
             byte addrTon, byte addrNpi, String addressRange)
             throws PDUStringException {
-        StringValidator.validateString(systemId, StringParameter.SYSTEM_ID);
-        StringValidator.validateString(password, StringParameter.PASSWORD);
-        StringValidator.validateString(systemType, StringParameter.SYSTEM_TYPE);
-        StringValidator.validateString(addressRange,
-                StringParameter.ADDRESS_RANGE);
-
         PDUByteBuffer buf = new PDUByteBuffer(commandId, 0, sequenceNumber);
 
-        buf.append(systemId);
-        buf.append(password);
-        buf.append(systemType);
+        buf.append(systemId, StringParameter.SYSTEM_ID);
+        buf.append(password, StringParameter.PASSWORD);
+        buf.append(systemType, StringParameter.SYSTEM_TYPE);
         buf.append(interfaceVersion);
         buf.append(addrTon);
         buf.append(addrNpi);
-        buf.append(addressRange);
+        buf.append(addressRange, StringParameter.ADDRESS_RANGE);
         return buf.toBytes();
     }
 
@@ -90,9 +84,8 @@ public class DefaultComposer implements PDUComposer {
      */
     public byte[] bindResp(int commandId, int sequenceNumber, String systemId,
             OptionalParameter... optionalParameters) throws PDUStringException {
-        StringValidator.validateString(systemId, StringParameter.SYSTEM_ID);
         PDUByteBuffer buf = new PDUByteBuffer(commandId, 0, sequenceNumber);
-        buf.append(systemId);
+        buf.append(systemId, StringParameter.SYSTEM_ID);
         buf.appendAll(optionalParameters);
         return buf.toBytes();
     }
@@ -105,9 +98,8 @@ public class DefaultComposer implements PDUComposer {
      */
     public byte[] bindResp(int commandId, int sequenceNumber, String systemId,
             byte scInterfaceVersion) throws PDUStringException {
-        StringValidator.validateString(systemId, StringParameter.SYSTEM_ID);
         PDUByteBuffer buf = new PDUByteBuffer(commandId, 0, sequenceNumber);
-        buf.append(systemId);
+        buf.append(systemId, StringParameter.SYSTEM_ID);
 
         OptionalParameter optParam = new OptionalParameter.Byte(
                 Tag.SC_INTERFACE_VERSION, scInterfaceVersion);
@@ -144,13 +136,10 @@ public class DefaultComposer implements PDUComposer {
      */
     public byte[] outbind(int sequenceNumber, String systemId, String password)
             throws PDUStringException {
-        StringValidator.validateString(systemId, StringParameter.SYSTEM_ID);
-        StringValidator.validateString(password, StringParameter.PASSWORD);
-
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_OUTBIND, 0,
                 sequenceNumber);
-        buf.append(systemId);
-        buf.append(password);
+        buf.append(systemId, StringParameter.SYSTEM_ID);
+        buf.append(password, StringParameter.PASSWORD);
         return buf.toBytes();
     }
 
@@ -202,33 +191,23 @@ public class DefaultComposer implements PDUComposer {
             byte registeredDelivery, byte replaceIfPresentFlag,
             byte dataCoding, byte smDefaultMsgId, byte[] shortMessage,
             OptionalParameter... optionalParameters) throws PDUStringException {
-
-        StringValidator.validateString(serviceType,
-                StringParameter.SERVICE_TYPE);
-        StringValidator.validateString(sourceAddr, StringParameter.SOURCE_ADDR);
-        StringValidator.validateString(destinationAddr,
-                StringParameter.DESTINATION_ADDR);
-        StringValidator.validateString(scheduleDeliveryTime,
-                StringParameter.SCHEDULE_DELIVERY_TIME);
-        StringValidator.validateString(validityPeriod,
-                StringParameter.VALIDITY_PERIOD);
         StringValidator.validateString(shortMessage,
                 StringParameter.SHORT_MESSAGE);
 
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_SUBMIT_SM, 0,
                 sequenceNumber);
-        buf.append(serviceType);
+        buf.append(serviceType, StringParameter.SERVICE_TYPE);
         buf.append(sourceAddrTon);
         buf.append(sourceAddrNpi);
-        buf.append(sourceAddr);
+        buf.append(sourceAddr, StringParameter.SOURCE_ADDR);
         buf.append(destAddrTon);
         buf.append(destAddrNpi);
-        buf.append(destinationAddr);
+        buf.append(destinationAddr, StringParameter.DESTINATION_ADDR);
         buf.append(esmClass);
         buf.append(protocolId);
         buf.append(priorityFlag);
-        buf.append(scheduleDeliveryTime);
-        buf.append(validityPeriod);
+        buf.append(scheduleDeliveryTime, StringParameter.SCHEDULE_DELIVERY_TIME);
+        buf.append(validityPeriod, StringParameter.VALIDITY_PERIOD);
         buf.append(registeredDelivery);
         buf.append(replaceIfPresentFlag);
         buf.append(dataCoding);
@@ -246,11 +225,9 @@ public class DefaultComposer implements PDUComposer {
      */
     public byte[] submitSmResp(int sequenceNumber, String messageId)
             throws PDUStringException {
-        StringValidator.validateString(messageId, StringParameter.MESSAGE_ID);
-
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_SUBMIT_SM_RESP,
                 0, sequenceNumber);
-        buf.append(messageId);
+        buf.append(messageId, StringParameter.MESSAGE_ID);
         return buf.toBytes();
     }
 
@@ -264,15 +241,12 @@ public class DefaultComposer implements PDUComposer {
     public byte[] querySm(int sequenceNumber, String messageId,
             byte sourceAddrTon, byte sourceAddrNpi, String sourceAddr)
             throws PDUStringException {
-        StringValidator.validateString(messageId, StringParameter.MESSAGE_ID);
-        StringValidator.validateString(sourceAddr, StringParameter.SOURCE_ADDR);
-
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_QUERY_SM, 0,
                 sequenceNumber);
-        buf.append(messageId);
+        buf.append(messageId, StringParameter.MESSAGE_ID);
         buf.append(sourceAddrTon);
         buf.append(sourceAddrNpi);
-        buf.append(sourceAddr);
+        buf.append(sourceAddr, StringParameter.SOURCE_ADDR);
         return buf.toBytes();
     }
 
@@ -285,13 +259,10 @@ public class DefaultComposer implements PDUComposer {
     public byte[] querySmResp(int sequenceNumber, String messageId,
             String finalDate, byte messageState, byte errorCode)
             throws PDUStringException {
-        StringValidator.validateString(messageId, StringParameter.MESSAGE_ID);
-        StringValidator.validateString(finalDate, StringParameter.FINAL_DATE);
-
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_QUERY_SM_RESP,
                 0, sequenceNumber);
-        buf.append(messageId);
-        buf.append(finalDate);
+        buf.append(messageId, StringParameter.MESSAGE_ID);
+        buf.append(finalDate, StringParameter.FINAL_DATE);
         buf.append(messageState);
         buf.append(errorCode);
         return buf.toBytes();
@@ -311,24 +282,18 @@ public class DefaultComposer implements PDUComposer {
             byte esmClass, byte protocolId, byte priorityFlag,
             byte registeredDelivery, byte dataCoding, byte[] shortMessage,
             OptionalParameter... optionalParameters) throws PDUStringException {
-
-        StringValidator.validateString(serviceType,
-                StringParameter.SERVICE_TYPE);
-        StringValidator.validateString(sourceAddr, StringParameter.SOURCE_ADDR);
-        StringValidator.validateString(destinationAddr,
-                StringParameter.DESTINATION_ADDR);
         StringValidator.validateString(shortMessage,
                 StringParameter.SHORT_MESSAGE);
 
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_DELIVER_SM, 0,
                 sequenceNumber);
-        buf.append(serviceType);
+        buf.append(serviceType, StringParameter.SERVICE_TYPE);
         buf.append(sourceAddrTon);
         buf.append(sourceAddrNpi);
-        buf.append(sourceAddr);
+        buf.append(sourceAddr, StringParameter.SOURCE_ADDR);
         buf.append(destAddrTon);
         buf.append(destAddrNpi);
-        buf.append(destinationAddr);
+        buf.append(destinationAddr, StringParameter.DESTINATION_ADDR);
         buf.append(esmClass);
         buf.append(protocolId);
         buf.append(priorityFlag);
@@ -373,22 +338,15 @@ public class DefaultComposer implements PDUComposer {
             byte destAddrTon, byte destAddrNpi, String destinationAddr,
             byte esmClass, byte registeredDelivery, byte dataCoding,
             OptionalParameter... optionalParameters) throws PDUStringException {
-
-        StringValidator.validateString(serviceType,
-                StringParameter.SERVICE_TYPE);
-        StringValidator.validateString(sourceAddr, StringParameter.SOURCE_ADDR);
-        StringValidator.validateString(destinationAddr,
-                StringParameter.DESTINATION_ADDR);
-
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_DATA_SM, 0,
                 sequenceNumber);
-        buf.append(serviceType);
+        buf.append(serviceType, StringParameter.SERVICE_TYPE);
         buf.append(sourceAddrTon);
         buf.append(sourceAddrNpi);
-        buf.append(sourceAddr);
+        buf.append(sourceAddr, StringParameter.SOURCE_ADDR);
         buf.append(destAddrTon);
         buf.append(destAddrNpi);
-        buf.append(destinationAddr);
+        buf.append(destinationAddr, StringParameter.DESTINATION_ADDR);
         buf.append(esmClass);
         buf.append(registeredDelivery);
         buf.append(dataCoding);
@@ -404,11 +362,9 @@ public class DefaultComposer implements PDUComposer {
      */
     public byte[] dataSmResp(int sequenceNumber, String messageId,
             OptionalParameter... optionalParameters) throws PDUStringException {
-        StringValidator.validateString(messageId, StringParameter.MESSAGE_ID);
-
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_DATA_SM_RESP, 0,
                 sequenceNumber);
-        buf.append(messageId);
+        buf.append(messageId, StringParameter.MESSAGE_ID);
 
         return buf.toBytes();
     }
@@ -417,24 +373,16 @@ public class DefaultComposer implements PDUComposer {
             String messageId, byte sourceAddrTon, byte sourceAddrNpi,
             String sourceAddr, byte destAddrTon, byte destAddrNpi,
             String destinationAddr) throws PDUStringException {
-
-        StringValidator.validateString(serviceType,
-                StringParameter.SERVICE_TYPE);
-        StringValidator.validateString(messageId, StringParameter.MESSAGE_ID);
-        StringValidator.validateString(sourceAddr, StringParameter.SOURCE_ADDR);
-        StringValidator.validateString(destinationAddr,
-                StringParameter.DESTINATION_ADDR);
-
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_CANCEL_SM, 0,
                 sequenceNumber);
-        buf.append(serviceType);
-        buf.append(messageId);
+        buf.append(serviceType, StringParameter.SERVICE_TYPE);
+        buf.append(messageId, StringParameter.MESSAGE_ID);
         buf.append(sourceAddrTon);
         buf.append(sourceAddrNpi);
-        buf.append(sourceAddr);
+        buf.append(sourceAddr, StringParameter.SOURCE_ADDR);
         buf.append(destAddrTon);
         buf.append(destAddrNpi);
-        buf.append(destinationAddr);
+        buf.append(destinationAddr, StringParameter.DESTINATION_ADDR);
 
         return buf.toBytes();
     }
@@ -450,12 +398,6 @@ public class DefaultComposer implements PDUComposer {
             String scheduleDeliveryTime, String validityPeriod,
             byte registeredDelivery, byte smDefaultMsgId, byte[] shortMessage)
             throws PDUStringException {
-
-        StringValidator.validateString(sourceAddr, StringParameter.SOURCE_ADDR);
-        StringValidator.validateString(scheduleDeliveryTime,
-                StringParameter.SCHEDULE_DELIVERY_TIME);
-        StringValidator.validateString(validityPeriod,
-                StringParameter.VALIDITY_PERIOD);
         StringValidator.validateString(shortMessage,
                 StringParameter.SHORT_MESSAGE);
 
@@ -464,9 +406,9 @@ public class DefaultComposer implements PDUComposer {
         buf.append(messageId);
         buf.append(sourceAddrTon);
         buf.append(sourceAddrNpi);
-        buf.append(sourceAddr);
-        buf.append(scheduleDeliveryTime);
-        buf.append(validityPeriod);
+        buf.append(sourceAddr, StringParameter.SOURCE_ADDR);
+        buf.append(scheduleDeliveryTime, StringParameter.SCHEDULE_DELIVERY_TIME);
+        buf.append(validityPeriod, StringParameter.VALIDITY_PERIOD);
         buf.append(registeredDelivery);
         buf.append(smDefaultMsgId);
         buf.append((byte)shortMessage.length);
@@ -488,14 +430,6 @@ public class DefaultComposer implements PDUComposer {
             byte replaceIfPresentFlag, byte dataCoding, byte smDefaultMsgId,
             byte[] shortMessage, OptionalParameter... optionalParameters)
             throws PDUStringException, InvalidNumberOfDestinationsException {
-
-        StringValidator.validateString(serviceType,
-                StringParameter.SERVICE_TYPE);
-        StringValidator.validateString(sourceAddr, StringParameter.SOURCE_ADDR);
-        StringValidator.validateString(scheduleDeliveryTime,
-                StringParameter.SCHEDULE_DELIVERY_TIME);
-        StringValidator.validateString(validityPeriod,
-                StringParameter.VALIDITY_PERIOD);
         StringValidator.validateString(shortMessage,
                 StringParameter.SHORT_MESSAGE);
         
@@ -507,21 +441,19 @@ public class DefaultComposer implements PDUComposer {
         
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_SUBMIT_MULTI, 0,
                 sequenceNumber);
-        buf.append(serviceType);
+        buf.append(serviceType, StringParameter.SERVICE_TYPE);
         buf.append(sourceAddrTon);
         buf.append(sourceAddrNpi);
-        buf.append(sourceAddr);
+        buf.append(sourceAddr, StringParameter.SOURCE_ADDR);
         
         buf.append((byte)destinationAddresses.length);
         for (DestinationAddress destAddr : destinationAddresses) {
             buf.append(destAddr.getFlag().getValue());
             if (destAddr instanceof Address) {
                 Address addr = (Address)destAddr;
-                StringValidator.validateString(addr.getAddress(),
-                        StringParameter.DESTINATION_ADDR);
                 buf.append(addr.getTon());
                 buf.append(addr.getNpi());
-                buf.append(addr.getAddress());
+                buf.append(addr.getAddress(), StringParameter.DESTINATION_ADDR);
             } else if (destAddr instanceof DistributionList) {
                 DistributionList dl = (DistributionList)destAddr;
                 StringValidator.validateString(dl.getName(), StringParameter.DL_NAME);
@@ -534,8 +466,8 @@ public class DefaultComposer implements PDUComposer {
         buf.append(esmClass);
         buf.append(protocolId);
         buf.append(priorityFlag);
-        buf.append(scheduleDeliveryTime);
-        buf.append(validityPeriod);
+        buf.append(scheduleDeliveryTime, StringParameter.SCHEDULE_DELIVERY_TIME);
+        buf.append(validityPeriod, StringParameter.VALIDITY_PERIOD);
         buf.append(registeredDelivery);
         buf.append(replaceIfPresentFlag);
         buf.append(dataCoding);
@@ -548,19 +480,15 @@ public class DefaultComposer implements PDUComposer {
     
     public byte[] submitMultiResp(int sequenceNumber, String messageId,
             UnsuccessDelivery... unsuccessDeliveries) throws PDUStringException {
-        StringValidator.validateString(messageId, StringParameter.MESSAGE_ID);
-
         PDUByteBuffer buf = new PDUByteBuffer(
                 SMPPConstant.CID_SUBMIT_MULTI_RESP, 0, sequenceNumber);
-        buf.append(messageId);
+        buf.append(messageId, StringParameter.MESSAGE_ID);
         buf.append((byte)unsuccessDeliveries.length); // no_unsuccess
         for (UnsuccessDelivery delivery : unsuccessDeliveries) {
-            StringValidator.validateString(delivery.getDestinationAddress()
-                    .getAddress(), StringParameter.DESTINATION_ADDR);
             Address destAddr = delivery.getDestinationAddress();
             buf.append(destAddr.getTon());
             buf.append(destAddr.getNpi());
-            buf.append(destAddr.getAddress());
+            buf.append(destAddr.getAddress(), StringParameter.DESTINATION_ADDR);
             buf.append(delivery.getErrorStatusCode());
         }
         return buf.toBytes();
@@ -570,15 +498,13 @@ public class DefaultComposer implements PDUComposer {
             byte sourceAddrNpi, String sourceAddr, byte esmeAddrTon,
             byte esmeAddrNpi, String esmeAddr,
             OptionalParameter... optionalParameters) throws PDUStringException {
-        StringValidator.validateString(sourceAddr, StringParameter.SOURCE_ADDR);
-        StringValidator.validateString(esmeAddr, StringParameter.ESME_ADDR);
         PDUByteBuffer buf = new PDUByteBuffer(SMPPConstant.CID_ALERT_NOTIFICATION, 0, sequenceNumber);
         buf.append(sourceAddrTon);
         buf.append(sourceAddrNpi);
-        buf.append(sourceAddr);
+        buf.append(sourceAddr, StringParameter.SOURCE_ADDR);
         buf.append(esmeAddrTon);
         buf.append(esmeAddrNpi);
-        buf.append(esmeAddr);
+        buf.append(esmeAddr, StringParameter.ESME_ADDR);
         buf.appendAll(optionalParameters);
         return buf.toBytes();
     }
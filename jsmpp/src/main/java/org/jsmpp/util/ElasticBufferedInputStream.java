@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+
+/**
+ * Buffered input stream sizing its buffer on demand. The buffer is allocated
+ * on the first read with the initial size, doubled up to the maximum size
+ * each time a read fills it completely, and released when a read times out,
+ * so an idle connection holds no buffer at all.
+ * <p>
+ * Like {@link StrictBufferedInputStream}, {@link #read(byte[], int, int)}
+ * reads again when the first read returns less than requested. Mark and reset
+ * are not supported.
+ * </p>
+ */
+public class ElasticBufferedInputStream extends FilterInputStream {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int initialSize;
+    private final int maxSize;
+    private byte[] buf = EMPTY;
+    private int pos;
+    private int count;
+    private boolean grow;
+
+    /**
+     * @param in is the underlying input stream.
+     * @param initialSize is the size of the buffer allocated on demand.
+     * @param maxSize is the maximum size of the buffer.
+     */
+    public ElasticBufferedInputStream(InputStream in, int initialSize, int maxSize) {
+        super(in);
+        if (initialSize <= 0 || maxSize < initialSize) {
+            throw new IllegalArgumentException("Invalid buffer size "
+                    + initialSize + ".." + maxSize);
+        }
+        this.initialSize = initialSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the current size of the buffer, 0 if it is released.
+     */
+    public synchronized int getBufferSize() {
+        return buf.length;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        if (pos >= count && fill() <= 0) {
+            return -1;
+        }
+        return buf[pos++] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int i = read1(b, off, len);
+        if (i == len || i == -1) {
+            return i;
+        }
+        int j = read1(b, off + i, len - i);
+        if (j == -1) {
+            return i;
+        }
+        return i + j;
+    }
+
+    private int read1(byte[] b, int off, int len) throws IOException {
+        if (pos >= count) {
+            if (len >= maxSize) {
+                // large read, don't copy through the buffer
+                return in.read(b, off, len);
+            }
+            if (fill() <= 0) {
+                return -1;
+            }
+        }
+        int n = Math.min(count - pos, len);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    /**
+     * Fill the empty buffer.
+     *
+     * @return the number of bytes read or -1 on end of stream.
+     */
+    private int fill() throws IOException {
+        if (buf.length == 0) {
+            buf = new byte[initialSize];
+        } else if (grow) {
+            buf = new byte[Math.min(buf.length * 2, maxSize)];
+        }
+        pos = 0;
+        count = 0;
+        int n;
+        try {
+            n = in.read(buf, 0, buf.length);
+        } catch (SocketTimeoutException e) {
+            // idle, the buffer is allocated again on the next read
+            buf = EMPTY;
+            grow = false;
+            throw e;
+        }
+        if (n > 0) {
+            count = n;
+        }
+        grow = n == buf.length && buf.length < maxSize;
+        return n;
+    }
+
+    @Override
+    public synchronized long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        int buffered = count - pos;
+        if (buffered <= 0) {
+            return in.skip(n);
+        }
+        long skipped = Math.min(buffered, n);
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public synchronized int available() throws IOException {
+        return (count - pos) + in.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    @Override
+    public void close() throws IOException {
+        // close first, releasing a reader blocked while holding the lock
+        in.close();
+        synchronized (this) {
+            buf = EMPTY;
+            pos = 0;
+            count = 0;
+        }
+    }
+}
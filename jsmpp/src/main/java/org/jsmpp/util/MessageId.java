@@ -37,6 +37,27 @@ public class MessageId {
         this.value = value;
     }
     
+    /**
+     * Construct <code>MessageId</code> without validation, the
+     * <code>chars</code> have been generated as a valid message_id.
+     * 
+     * @param chars is the message_id characters.
+     */
+    private MessageId(char[] chars) {
+        this.value = new String(chars);
+    }
+    
+    /**
+     * Create <code>MessageId</code> from the generated <code>chars</code>
+     * known to be a valid message_id, skip the validation.
+     * 
+     * @param chars is the valid message_id characters, copied.
+     * @return the <code>MessageId</code>.
+     */
+    static MessageId newValidatedInstance(char[] chars) {
+        return new MessageId(chars);
+    }
+    
     /**
      * Get the message_id value.
      * 
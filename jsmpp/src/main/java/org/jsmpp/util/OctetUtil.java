@@ -38,6 +38,20 @@ public class OctetUtil {
         return result;
     }
 
+    /**
+     * Write integer (4 octets) value to the bytes at the offset.
+     *
+     * @param value is the integer value.
+     * @param bytes is the destination bytes.
+     * @param offset is the offset of the first octet.
+     */
+    public static void intToBytes(int value, byte[] bytes, int offset) {
+        bytes[offset] = (byte)(value >> 24 & 0xff);
+        bytes[offset + 1] = (byte)(value >> 16 & 0xff);
+        bytes[offset + 2] = (byte)(value >> 8 & 0xff);
+        bytes[offset + 3] = (byte)(value & 0xff);
+    }
+
     /**
      * Convert integer (2 octets) value to bytes.
      * 
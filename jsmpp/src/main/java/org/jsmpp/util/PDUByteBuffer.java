@@ -14,6 +14,13 @@
  */
 package org.jsmpp.util;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+import org.jsmpp.PDUStringException;
 import org.jsmpp.bean.OptionalParameter;
 
 
@@ -28,6 +35,21 @@ import org.jsmpp.bean.OptionalParameter;
  */
 public class PDUByteBuffer {
     private static CapacityPolicy DEFAULT_CAPACITY_POLICY = new SimpleCapacityPolicy();
+    /*
+     * Strings are encoded with the platform default charset as
+     * String#getBytes() does. The characters below this limit are encoded to
+     * the same single octet, 0x80 for ASCII compatible charsets and 0x100 for
+     * ISO-8859-1, so they are copied without the encoder.
+     */
+    private static final int DIRECT_ENCODING_LIMIT = directEncodingLimit(Charset.defaultCharset());
+    private static final ThreadLocal<CharsetEncoder> ENCODER = new ThreadLocal<CharsetEncoder>() {
+        @Override
+        protected CharsetEncoder initialValue() {
+            return Charset.defaultCharset().newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+    };
     private CapacityPolicy capacityPolicy;
     private byte[] bytes;
     private int bytesLength;
@@ -92,15 +114,9 @@ public class PDUByteBuffer {
      * @return the latest length of the byte buffer.
      */
     public int append(byte[] b, int offset, int length) {
-        int oldLength = bytesLength;
+        ensureCapacity(bytesLength + length);
+        System.arraycopy(b, offset, bytes, bytesLength, length); // assign value
         bytesLength += length;
-        int newCapacity = capacityPolicy.ensureCapacity(bytesLength, bytes.length);
-        if (newCapacity > bytes.length) {
-            byte[] newB = new byte[newCapacity];
-            System.arraycopy(bytes, 0, newB, 0, bytes.length); // copy current bytes to new bytes
-            bytes = newB;
-        }
-        System.arraycopy(b, offset, bytes, oldLength, length); // assign value
         normalizeCommandLength();
         return bytesLength;
     }
@@ -122,7 +138,10 @@ public class PDUByteBuffer {
      * @return the latest length of the buffer.
      */
     public int append(byte b) {
-        return append(new byte[] { b });
+        ensureCapacity(bytesLength + 1);
+        bytes[bytesLength++] = b;
+        normalizeCommandLength();
+        return bytesLength;
     }
 
     /**
@@ -132,7 +151,11 @@ public class PDUByteBuffer {
      * @return the latest length of the buffer.
      */
     public int append(int intValue) {
-        return append(OctetUtil.intToBytes(intValue));
+        ensureCapacity(bytesLength + 4);
+        putInt(bytesLength, intValue);
+        bytesLength += 4;
+        normalizeCommandLength();
+        return bytesLength;
     }
 
     /**
@@ -145,9 +168,10 @@ public class PDUByteBuffer {
      */
     public int append(String stringValue, boolean nullTerminated) {
         if (stringValue != null)
-            append(stringValue.getBytes());
+            encode(stringValue);
         if (nullTerminated)
             append((byte)0);
+        normalizeCommandLength();
         return bytesLength;
     }
 
@@ -161,6 +185,36 @@ public class PDUByteBuffer {
         return append(stringValue, true);
     }
     
+    /**
+     * Append and validate the <tt>String</tt> value of the parameter. The
+     * value is validated against the length of the encoded octets, the
+     * C-Octet String is appended with the null terminator.
+     * 
+     * @param stringValue is the value to append.
+     * @param param is the parameter of the value.
+     * @return the latest length of the buffer.
+     * @throws PDUStringException if the encoded value is invalid for the
+     *         parameter.
+     */
+    public int append(String stringValue, StringParameter param)
+            throws PDUStringException {
+        int offset = bytesLength;
+        if (stringValue != null) {
+            encode(stringValue);
+        }
+        try {
+            StringValidator.validateEncodedLength(stringValue, bytesLength - offset, param);
+        } catch (PDUStringException e) {
+            bytesLength = offset;
+            throw e;
+        }
+        if (param.getType() == StringType.C_OCTEC_STRING) {
+            append((byte)0);
+        }
+        normalizeCommandLength();
+        return bytesLength;
+    }
+    
     /**
      * Append an optional parameter.
      * 
@@ -189,7 +243,69 @@ public class PDUByteBuffer {
      * Assign the proper command length to the first 4 octet.
      */
     private void normalizeCommandLength() {
-        System.arraycopy(OctetUtil.intToBytes(bytesLength), 0, bytes, 0, 4);
+        putInt(0, bytesLength);
+    }
+    
+    private void putInt(int offset, int value) {
+        bytes[offset] = (byte)(value >>> 24);
+        bytes[offset + 1] = (byte)(value >>> 16);
+        bytes[offset + 2] = (byte)(value >>> 8);
+        bytes[offset + 3] = (byte)value;
+    }
+    
+    private void ensureCapacity(int requiredCapacity) {
+        int newCapacity = capacityPolicy.ensureCapacity(requiredCapacity, bytes.length);
+        if (newCapacity > bytes.length) {
+            byte[] newB = new byte[newCapacity];
+            System.arraycopy(bytes, 0, newB, 0, bytesLength); // copy current bytes to new bytes
+            bytes = newB;
+        }
+    }
+    
+    /**
+     * Encode the value directly to the buffer, without the null terminator.
+     * 
+     * @param value is the value to encode.
+     */
+    private void encode(String value) {
+        int length = value.length();
+        ensureCapacity(bytesLength + length);
+        int i = 0;
+        while (i < length) {
+            char c = value.charAt(i);
+            if (c >= DIRECT_ENCODING_LIMIT) {
+                break;
+            }
+            bytes[bytesLength + i++] = (byte)c;
+        }
+        bytesLength += i;
+        if (i == length) {
+            return;
+        }
+        
+        CharsetEncoder encoder = ENCODER.get();
+        encoder.reset();
+        CharBuffer in = CharBuffer.wrap(value, i, length);
+        ensureCapacity(bytesLength + (int)Math.ceil(in.remaining() * encoder.maxBytesPerChar()));
+        ByteBuffer out = ByteBuffer.wrap(bytes, bytesLength, bytes.length - bytesLength);
+        encoder.encode(in, out, true);
+        encoder.flush(out);
+        bytesLength = out.position();
+    }
+    
+    private static int directEncodingLimit(Charset charset) {
+        int limit = 0;
+        while (limit < 0x100) {
+            byte[] b = String.valueOf((char)limit).getBytes(charset);
+            if (b.length != 1 || (b[0] & 0xff) != limit) {
+                break;
+            }
+            limit++;
+        }
+        if (limit == 0x100) {
+            return limit;
+        }
+        return limit >= 0x80 ? 0x80 : 0;
     }
 
     /**
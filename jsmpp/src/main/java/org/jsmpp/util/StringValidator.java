@@ -77,6 +77,42 @@ public final class StringValidator {
         }
     }
 
+    /**
+     * Validate the encoded length of the string value, the null terminator of
+     * the C-Octet String is not counted.
+     * 
+     * @param value is the string value, used for the error message.
+     * @param encodedLength is the total octets of the encoded value.
+     * @param param is the parameter of the value.
+     * @throws PDUStringException if the encoded length is invalid.
+     */
+    static void validateEncodedLength(String value, int encodedLength,
+            StringParameter param) throws PDUStringException {
+        if (value == null) {
+            return;
+        }
+        if (param.getType() == StringType.C_OCTEC_STRING) {
+            if (param.isRangeMinAndMax()) {
+                if (encodedLength >= param.getMax()) {
+                    throw new PDUStringException("C-Octet String value '"
+                            + value + "' length must be less than " + param.getMax()
+                            + ". Actual length is " + encodedLength,
+                            param);
+                }
+            } else if (encodedLength != 0 && encodedLength != param.getMax() - 1) {
+                throw new PDUStringException(
+                        "C-Octet String value '" + value + "' length should be 1 or " + (param.getMax() - 1)
+                                + ". Actual length is "
+                                + encodedLength, param);
+            }
+        } else if (param.getType() == StringType.OCTET_STRING
+                && encodedLength > param.getMax()) {
+            throw new PDUStringException("Octet String value '" + value
+                    + "' length must be less than or equal to " + param.getMax()
+                    + ". Actual length is " + encodedLength, param);
+        }
+    }
+
     /**
      * Validate the C-Octet String.
      * 
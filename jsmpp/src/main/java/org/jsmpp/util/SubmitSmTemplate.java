@@ -0,0 +1,382 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.jsmpp.ComposedSubmitSmSender;
+import org.jsmpp.PDUSender;
+import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.DataCoding;
+import org.jsmpp.bean.DataCodings;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+
+/**
+ * Precompiled submit_sm for sending the same short message to many
+ * destinations. All the fields except the destination_addr are validated and
+ * encoded once, composing the submit_sm for a destination only copies the
+ * encoded fields and the destination_addr.
+ *
+ * <pre>
+ * SubmitSmTemplate template = new SubmitSmTemplate(&quot;CMT&quot;,
+ *         TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, &quot;1616&quot;,
+ *         TypeOfNumber.INTERNATIONAL, NumberingPlanIndicator.ISDN,
+ *         new ESMClass(), (byte)0, (byte)1, null, null,
+ *         new RegisteredDelivery(), (byte)0, new GeneralDataCoding(),
+ *         (byte)0, &quot;Hello&quot;.getBytes());
+ * for (String destination : destinations) {
+ *     session.submitShortMessage(template, destination);
+ * }
+ * </pre>
+ * <p>
+ * The short message can also be given per destination with
+ * {@link #compose(int, byte[], byte[])}, for messages rendered per recipient.
+ * </p>
+ * <p>
+ * The <code>send</code> methods compose into a buffer of the calling thread,
+ * reused for the next submit_sm, and send it through the {@link PDUSender}
+ * chain of the session, see {@link ComposedSubmitSmSender}. The
+ * destination_addr given as <code>String</code> is encoded in US-ASCII, the
+ * other characters are replaced by '?'.
+ * </p>
+ */
+public class SubmitSmTemplate {
+    private static final int HEADER_LENGTH = 16;
+    private static final Charset ADDRESS_CHARSET = Charset.forName("US-ASCII");
+    // larger submit_sm, with message_payload, are allocated per call
+    private static final int MAX_REUSED_LENGTH = 1024;
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[MAX_REUSED_LENGTH];
+        }
+    };
+
+    private final byte[] prefix;
+    private final byte[] middle;
+    private final byte[] shortMessage;
+    private final byte[] optionalParameters;
+
+    /**
+     * Construct the template, the parameters are the same as submit_sm except
+     * the destination_addr.
+     *
+     * @throws PDUStringException if there is an invalid string constraint
+     *         found.
+     */
+    public SubmitSmTemplate(String serviceType, TypeOfNumber sourceAddrTon,
+            NumberingPlanIndicator sourceAddrNpi, String sourceAddr,
+            TypeOfNumber destAddrTon, NumberingPlanIndicator destAddrNpi,
+            ESMClass esmClass, byte protocolId, byte priorityFlag,
+            String scheduleDeliveryTime, String validityPeriod,
+            RegisteredDelivery registeredDelivery, byte replaceIfPresentFlag,
+            DataCoding dataCoding, byte smDefaultMsgId, byte[] shortMessage,
+            OptionalParameter... optionalParameters) throws PDUStringException {
+
+        StringValidator.validateString(shortMessage,
+                StringParameter.SHORT_MESSAGE);
+
+        PDUByteBuffer buf = new PDUByteBuffer();
+        buf.append(serviceType, StringParameter.SERVICE_TYPE);
+        buf.append(sourceAddrTon.value());
+        buf.append(sourceAddrNpi.value());
+        buf.append(sourceAddr, StringParameter.SOURCE_ADDR);
+        buf.append(destAddrTon.value());
+        buf.append(destAddrNpi.value());
+        prefix = withoutCommandLength(buf.toBytes());
+
+        buf = new PDUByteBuffer();
+        buf.append(esmClass.value());
+        buf.append(protocolId);
+        buf.append(priorityFlag);
+        buf.append(scheduleDeliveryTime, StringParameter.SCHEDULE_DELIVERY_TIME);
+        buf.append(validityPeriod, StringParameter.VALIDITY_PERIOD);
+        buf.append(registeredDelivery.value());
+        buf.append(replaceIfPresentFlag);
+        buf.append(dataCoding.toByte());
+        buf.append(smDefaultMsgId);
+        middle = withoutCommandLength(buf.toBytes());
+        this.shortMessage = shortMessage.clone();
+
+        buf = new PDUByteBuffer();
+        buf.appendAll(optionalParameters);
+        this.optionalParameters = withoutCommandLength(buf.toBytes());
+    }
+
+    /**
+     * Compose the submit_sm for the destination.
+     *
+     * @param sequenceNumber is the sequence_number.
+     * @param destinationAddr is the destination_addr.
+     * @return the composed submit_sm.
+     * @throws PDUStringException if the destination_addr is invalid.
+     */
+    public byte[] compose(int sequenceNumber, String destinationAddr)
+            throws PDUStringException {
+        byte[] encoded = encode(destinationAddr);
+        int length = length(destinationLength(destinationAddr, encoded), shortMessage.length);
+        byte[] b = new byte[length];
+        put(b, length, sequenceNumber, destinationAddr, encoded);
+        return b;
+    }
+
+    /**
+     * Compose the submit_sm for the destination with its own short message.
+     *
+     * @param sequenceNumber is the sequence_number.
+     * @param destinationAddr is the encoded destination_addr, without the
+     *        terminating null.
+     * @param shortMessage is the short_message replacing the one of the
+     *        template.
+     * @return the composed submit_sm.
+     * @throws PDUStringException if the destination_addr or short_message is
+     *         too long.
+     */
+    public byte[] compose(int sequenceNumber, byte[] destinationAddr,
+            byte[] shortMessage) throws PDUStringException {
+        validate(destinationAddr, shortMessage);
+        int length = length(destinationAddr.length, shortMessage.length);
+        byte[] b = new byte[length];
+        put(b, length, sequenceNumber, destinationAddr, shortMessage);
+        return b;
+    }
+
+    /**
+     * Compose the submit_sm for the destination and send it.
+     *
+     * @param pduSender is the sender.
+     * @param os is the {@link OutputStream}.
+     * @param sequenceNumber is the sequence_number.
+     * @param destinationAddr is the destination_addr.
+     * @return the length of the submit_sm.
+     * @throws PDUStringException if the destination_addr is invalid.
+     * @throws IOException if there is an IO error found.
+     */
+    public int send(PDUSender pduSender, OutputStream os, int sequenceNumber,
+            String destinationAddr) throws PDUStringException, IOException {
+        byte[] encoded = encode(destinationAddr);
+        int length = length(destinationLength(destinationAddr, encoded), shortMessage.length);
+        byte[] b = buffer(length);
+        put(b, length, sequenceNumber, destinationAddr, encoded);
+        sendComposed(pduSender, os, b, length);
+        return length;
+    }
+
+    /**
+     * Compose the submit_sm for the destination with its own short message
+     * and send it.
+     *
+     * @param pduSender is the sender.
+     * @param os is the {@link OutputStream}.
+     * @param sequenceNumber is the sequence_number.
+     * @param destinationAddr is the encoded destination_addr, without the
+     *        terminating null.
+     * @param shortMessage is the short_message replacing the one of the
+     *        template.
+     * @return the length of the submit_sm.
+     * @throws PDUStringException if the destination_addr or short_message is
+     *         too long.
+     * @throws IOException if there is an IO error found.
+     */
+    public int send(PDUSender pduSender, OutputStream os, int sequenceNumber,
+            byte[] destinationAddr, byte[] shortMessage)
+            throws PDUStringException, IOException {
+        validate(destinationAddr, shortMessage);
+        int length = length(destinationAddr.length, shortMessage.length);
+        byte[] b = buffer(length);
+        put(b, length, sequenceNumber, destinationAddr, shortMessage);
+        sendComposed(pduSender, os, b, length);
+        return length;
+    }
+
+    /**
+     * Send the composed submit_sm through the sender: as is if the sender is
+     * a {@link ComposedSubmitSmSender}, decomposed to its fields otherwise.
+     *
+     * @param pduSender is the sender.
+     * @param os is the {@link OutputStream}.
+     * @param pdu is the buffer holding the submit_sm from its first octet.
+     * @param length is the length of the submit_sm.
+     * @throws PDUStringException if the submit_sm can't be decomposed.
+     * @throws IOException if there is an IO error found.
+     */
+    public static void sendComposed(PDUSender pduSender, OutputStream os,
+            byte[] pdu, int length) throws PDUStringException, IOException {
+        if (pduSender instanceof ComposedSubmitSmSender) {
+            ((ComposedSubmitSmSender)pduSender).sendComposedSubmitSm(os, pdu, length);
+            return;
+        }
+        SubmitSm submitSm = DefaultDecomposer.getInstance().submitSm(
+                Arrays.copyOf(pdu, length));
+        // the decomposer gives null when there is no optional parameter
+        OptionalParameter[] decodedParameters = submitSm.getOptionalParameters();
+        pduSender.sendSubmitSm(os, submitSm.getSequenceNumber(),
+                submitSm.getServiceType(),
+                TypeOfNumber.valueOf(submitSm.getSourceAddrTon()),
+                NumberingPlanIndicator.valueOf(submitSm.getSourceAddrNpi()),
+                submitSm.getSourceAddr(),
+                TypeOfNumber.valueOf(submitSm.getDestAddrTon()),
+                NumberingPlanIndicator.valueOf(submitSm.getDestAddrNpi()),
+                submitSm.getDestAddress(), new ESMClass(submitSm.getEsmClass()),
+                submitSm.getProtocolId(), submitSm.getPriorityFlag(),
+                submitSm.getScheduleDeliveryTime(),
+                submitSm.getValidityPeriod(),
+                new RegisteredDelivery(submitSm.getRegisteredDelivery()),
+                submitSm.getReplaceIfPresent(),
+                DataCodings.newInstance(submitSm.getDataCoding()),
+                submitSm.getSmDefaultMsgId(), submitSm.getShortMessage(),
+                decodedParameters != null ? decodedParameters : new OptionalParameter[0]);
+    }
+
+    /**
+     * Validate the destination_addr and short_message given to
+     * {@link #compose(int, byte[], byte[])}.
+     *
+     * @param destinationAddr is the encoded destination_addr.
+     * @param shortMessage is the short_message.
+     * @throws PDUStringException if the destination_addr or short_message is
+     *         too long.
+     */
+    public void validate(byte[] destinationAddr, byte[] shortMessage)
+            throws PDUStringException {
+        if (destinationAddr.length >= StringParameter.DESTINATION_ADDR.getMax()) {
+            throw new PDUStringException("C-Octet String value '"
+                    + new String(destinationAddr) + "' length must be less than "
+                    + StringParameter.DESTINATION_ADDR.getMax() + ". Actual length is "
+                    + destinationAddr.length, StringParameter.DESTINATION_ADDR);
+        }
+        StringValidator.validateString(shortMessage,
+                StringParameter.SHORT_MESSAGE);
+    }
+
+    /**
+     * Validate the destination_addr and encode it if it isn't ASCII.
+     *
+     * @return the encoded destination_addr, or <tt>null</tt> if the
+     *         characters can be copied.
+     */
+    private static byte[] encode(String destinationAddr) throws PDUStringException {
+        StringValidator.validateString(destinationAddr,
+                StringParameter.DESTINATION_ADDR);
+        // most destination_addr are ASCII digits, copy them without encoding
+        if (isAscii(destinationAddr)) {
+            return null;
+        }
+        return destinationAddr.getBytes(ADDRESS_CHARSET);
+    }
+
+    private static int destinationLength(String destinationAddr, byte[] encoded) {
+        if (encoded != null) {
+            return encoded.length;
+        }
+        return destinationAddr != null ? destinationAddr.length() : 0;
+    }
+
+    private int length(int destinationLength, int shortMessageLength) {
+        return HEADER_LENGTH + prefix.length + destinationLength + 1
+                + middle.length + 1 + shortMessageLength
+                + optionalParameters.length;
+    }
+
+    private static byte[] buffer(int length) {
+        // put writes every octet of the PDU, the reused buffer isn't cleared
+        return length > MAX_REUSED_LENGTH ? new byte[length] : BUFFER.get();
+    }
+
+    private void put(byte[] b, int length, int sequenceNumber,
+            String destinationAddr, byte[] encoded) {
+        int offset = putHeader(b, length, sequenceNumber);
+        int destinationLength;
+        if (encoded != null) {
+            destinationLength = encoded.length;
+            System.arraycopy(encoded, 0, b, offset, destinationLength);
+        } else {
+            destinationLength = destinationAddr != null ? destinationAddr.length() : 0;
+            for (int i = 0; i < destinationLength; i++) {
+                b[offset + i] = (byte)destinationAddr.charAt(i);
+            }
+        }
+        b[offset + destinationLength] = 0;
+        putShortMessage(b, offset + destinationLength + 1, shortMessage);
+    }
+
+    private void put(byte[] b, int length, int sequenceNumber,
+            byte[] destinationAddr, byte[] shortMessage) {
+        int offset = putHeader(b, length, sequenceNumber);
+        System.arraycopy(destinationAddr, 0, b, offset, destinationAddr.length);
+        b[offset + destinationAddr.length] = 0;
+        putShortMessage(b, offset + destinationAddr.length + 1, shortMessage);
+    }
+
+    /**
+     * Put the header and the fields before the destination_addr.
+     *
+     * @return the offset of the destination_addr.
+     */
+    private int putHeader(byte[] b, int length, int sequenceNumber) {
+        putInt(b, 0, length);
+        putInt(b, 4, SMPPConstant.CID_SUBMIT_SM);
+        putInt(b, 8, 0);
+        putInt(b, 12, sequenceNumber);
+        System.arraycopy(prefix, 0, b, HEADER_LENGTH, prefix.length);
+        return HEADER_LENGTH + prefix.length;
+    }
+
+    /**
+     * Put the fields after the destination_addr.
+     */
+    private void putShortMessage(byte[] b, int offset, byte[] shortMessage) {
+        System.arraycopy(middle, 0, b, offset, middle.length);
+        offset += middle.length;
+        b[offset++] = (byte)shortMessage.length;
+        System.arraycopy(shortMessage, 0, b, offset, shortMessage.length);
+        offset += shortMessage.length;
+        System.arraycopy(optionalParameters, 0, b, offset, optionalParameters.length);
+    }
+
+    private static boolean isAscii(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void putInt(byte[] b, int offset, int value) {
+        b[offset] = (byte)(value >>> 24);
+        b[offset + 1] = (byte)(value >>> 16);
+        b[offset + 2] = (byte)(value >>> 8);
+        b[offset + 3] = (byte)value;
+    }
+
+    private static byte[] withoutCommandLength(byte[] b) {
+        byte[] result = new byte[b.length - 4];
+        System.arraycopy(b, 4, result, 0, result.length);
+        return result;
+    }
+}
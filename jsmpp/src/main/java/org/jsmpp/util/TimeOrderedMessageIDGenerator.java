@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+/**
+ * Generate time ordered, unique message_id without lock. The message_id is 28
+ * hexadecimal characters: the timestamp in millis (12), the node id (4), the
+ * generating thread index (4) and the per-thread counter (8).
+ * <p>
+ * Each generating thread holds a thread index as long as it is alive. The
+ * index of a dead thread is recycled, with its timestamp and counter, once the
+ * thread has been garbage collected, so the message_id generated by one node
+ * are unique no matter how many threads come and go. At most 65536 threads may
+ * be generating at the same time, the next one gets an
+ * {@link IllegalStateException}. Each node sharing the message_id space
+ * should have its own node id.
+ * </p>
+ */
+public class TimeOrderedMessageIDGenerator implements MessageIDGenerator {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int LENGTH = 28;
+    private static final int NODE_OFFSET = 12;
+    private static final int THREAD_OFFSET = 16;
+    private static final int COUNTER_OFFSET = 20;
+    
+    private final int nodeId;
+    private final ReferenceQueue<State> deadStates = new ReferenceQueue<State>();
+    private final Set<StateReference> liveStates = new HashSet<StateReference>();
+    private final LinkedList<Slot> freeSlots = new LinkedList<Slot>();
+    private int nextIndex;
+    private final ThreadLocal<State> state = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State(acquireSlot());
+        }
+    };
+    
+    /**
+     * Construct with random node id.
+     */
+    public TimeOrderedMessageIDGenerator() {
+        this(new SecureRandom().nextInt(0x10000));
+    }
+    
+    /**
+     * Construct with specified node id.
+     * 
+     * @param nodeId is the node id, 0 to 65535.
+     */
+    public TimeOrderedMessageIDGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > 0xffff) {
+            throw new IllegalArgumentException("Node id should be 0 to 65535");
+        }
+        this.nodeId = nodeId;
+    }
+    
+    /* (non-Javadoc)
+     * @see org.jsmpp.util.MessageIDGenerator#newMessageId()
+     */
+    public MessageId newMessageId() {
+        return MessageId.newValidatedInstance(state.get().next());
+    }
+    
+    /**
+     * Acquire the slot of a new generating thread, recycling the slot of the
+     * collected ones. Only called once per thread.
+     * 
+     * @return the slot.
+     * @throws IllegalStateException if all the 65536 thread indexes are held
+     *         by live threads.
+     */
+    private synchronized Slot acquireSlot() {
+        StateReference ref;
+        while ((ref = (StateReference)deadStates.poll()) != null) {
+            liveStates.remove(ref);
+            freeSlots.add(ref.slot);
+        }
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.removeFirst();
+        }
+        if (nextIndex > 0xffff) {
+            throw new IllegalStateException("More than 65536 threads are generating message_id");
+        }
+        return new Slot(nextIndex++);
+    }
+    
+    private synchronized void register(State state) {
+        liveStates.add(new StateReference(state, deadStates));
+    }
+    
+    private static void writeHex(char[] chars, int offset, int length, long value) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            chars[i] = HEX[(int)value & 0xf];
+            value >>>= 4;
+        }
+    }
+    
+    /**
+     * The thread index with the last timestamp and counter generated with it,
+     * outliving the thread holding it.
+     */
+    private static class Slot {
+        private final int index;
+        private long lastTimestamp;
+        private int counter;
+        
+        Slot(int index) {
+            this.index = index;
+        }
+    }
+    
+    /**
+     * The state of the generating thread.
+     */
+    private class State {
+        private final char[] chars = new char[LENGTH];
+        private final Slot slot;
+        
+        State(Slot slot) {
+            this.slot = slot;
+            writeHex(chars, NODE_OFFSET, 4, nodeId);
+            writeHex(chars, THREAD_OFFSET, 4, slot.index);
+            register(this);
+        }
+        
+        char[] next() {
+            long timestamp = System.currentTimeMillis();
+            // the clock may go backward, keep the message_id ordered
+            if (timestamp > slot.lastTimestamp) {
+                slot.lastTimestamp = timestamp;
+            }
+            writeHex(chars, 0, NODE_OFFSET, slot.lastTimestamp);
+            writeHex(chars, COUNTER_OFFSET, 8, slot.counter++);
+            return chars;
+        }
+    }
+    
+    /**
+     * Hand the slot back once the thread holding the state has been collected.
+     */
+    private static class StateReference extends WeakReference<State> {
+        private final Slot slot;
+        
+        StateReference(State state, ReferenceQueue<State> queue) {
+            super(state, queue);
+            this.slot = state.slot;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter. The tokens are refilled continuously on the
+ * rate and up to the burst, each permit takes one token.
+ */
+public class TokenBucket {
+    private double rate;
+    private int burst;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Construct token bucket starting full.
+     *
+     * @param rate is the permits per second.
+     * @param burst is the maximum permits taken at once.
+     */
+    public TokenBucket(double rate, int burst) {
+        validate(rate, burst);
+        this.rate = rate;
+        this.burst = burst;
+        tokens = burst;
+        lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Change the rate, the available tokens are kept up to the new burst.
+     *
+     * @param rate is the permits per second.
+     * @param burst is the maximum permits taken at once.
+     */
+    public synchronized void setRate(double rate, int burst) {
+        validate(rate, burst);
+        refill();
+        this.rate = rate;
+        this.burst = burst;
+        tokens = Math.min(tokens, burst);
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public synchronized int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Take a permit if available.
+     *
+     * @return <tt>true</tt> if the permit taken.
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Take a permit, waiting until a token is refilled if none available.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = acquireOrWaitNanos()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Take a permit if available, otherwise return the time until the next
+     * token.
+     */
+    private synchronized long acquireOrWaitNanos() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long)((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / rate));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * rate
+                / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+    }
+
+    private static void validate(double rate, int burst) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate should be greater than 0");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst should be greater than 0");
+        }
+    }
+}
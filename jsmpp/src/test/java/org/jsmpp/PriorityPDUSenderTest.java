@@ -0,0 +1,263 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jsmpp.PriorityPDUSender.Priority;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.util.OctetUtil;
+import org.testng.annotations.Test;
+
+public class PriorityPDUSenderTest {
+
+    @Test(groups="checkintest")
+    public void testWaitingPduWrittenByPriority() throws Exception {
+        final PriorityPDUSender sender = new PriorityPDUSender(new DefaultPDUSender(), 1);
+        final BlockingOutputStream os = new BlockingOutputStream();
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        try {
+            // the first bulk submit_sm blocks the stream
+            executorService.execute(new Sender(sender, os, 1, (byte)0));
+            assertTrue(os.firstWrite.await(5, TimeUnit.SECONDS));
+            
+            executorService.execute(new Sender(sender, os, 2, (byte)0));
+            executorService.execute(new Sender(sender, os, 3, (byte)0));
+            Thread.sleep(100);
+            executorService.execute(new Sender(sender, os, 4, (byte)1));
+            Thread.sleep(100);
+            executorService.execute(new Runnable() {
+                public void run() {
+                    try {
+                        sender.sendEnquireLinkResp(os, 5);
+                    } catch (IOException e) {
+                        fail(e.getMessage());
+                    }
+                }
+            });
+            Thread.sleep(100);
+            
+            os.unblock.countDown();
+            executorService.shutdown();
+            assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+            
+            List<Integer> sequences = os.getSequences();
+            assertEquals(sequences.size(), 5);
+            assertEquals(sequences.get(0), Integer.valueOf(1));
+            assertEquals(sequences.get(1), Integer.valueOf(5));
+            assertEquals(sequences.get(2), Integer.valueOf(4));
+            assertEquals(os.commandIds.get(1), Integer.valueOf(SMPPConstant.CID_ENQUIRE_LINK_RESP));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+    
+    @Test(groups="checkintest")
+    public void testOverriddenPriority() throws Exception {
+        final PriorityPDUSender sender = new PriorityPDUSender(new DefaultPDUSender(), 1);
+        final BlockingOutputStream os = new BlockingOutputStream();
+        ByteArrayOutputStream composed = new ByteArrayOutputStream();
+        new DefaultPDUSender().sendSubmitSm(composed, 3, "CMT",
+                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "1616",
+                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "62161616",
+                new ESMClass(), (byte)0, (byte)1, null, null,
+                new RegisteredDelivery(), (byte)0, new GeneralDataCoding(),
+                (byte)0, "Hello".getBytes());
+        final byte[] pdu = composed.toByteArray();
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        try {
+            executorService.execute(new Sender(sender, os, 1, (byte)0));
+            assertTrue(os.firstWrite.await(5, TimeUnit.SECONDS));
+            
+            executorService.execute(new Sender(sender, os, 2, (byte)0));
+            Thread.sleep(100);
+            executorService.execute(new Runnable() {
+                public void run() {
+                    try {
+                        sender.sendComposedSubmitSm(os, pdu, pdu.length);
+                    } catch (Exception e) {
+                        fail(e.getMessage());
+                    }
+                }
+            });
+            Thread.sleep(100);
+            executorService.execute(new Sender(sender, os, 4, (byte)0, Priority.HIGH));
+            Thread.sleep(100);
+            executorService.execute(new Sender(sender, os, 5, (byte)0, Priority.CONTROL));
+            Thread.sleep(100);
+            
+            os.unblock.countDown();
+            executorService.shutdown();
+            assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+            
+            assertEquals(os.getSequences(), Arrays.asList(1, 5, 3, 4, 2));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+    
+    @Test(groups="checkintest")
+    public void testBulkWrittenUnderSteadyHighPriority() throws Exception {
+        final PriorityPDUSender sender = new PriorityPDUSender(new DefaultPDUSender(), 1, 4);
+        final RecordingOutputStream os = new RecordingOutputStream();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        try {
+            // the high priority senders keep a PDU waiting all the time
+            for (int i = 0; i < 3; i++) {
+                executorService.execute(new Runnable() {
+                    public void run() {
+                        while (running.get()) {
+                            new Sender(sender, os, 1, (byte)1).run();
+                        }
+                    }
+                });
+            }
+            while (os.count(1) < 20) {
+                Thread.sleep(10);
+            }
+            Future<?> bulk = executorService.submit(new Sender(sender, os, 2, (byte)0));
+            bulk.get(5, TimeUnit.SECONDS);
+            assertEquals(os.count(2), 1);
+        } finally {
+            running.set(false);
+            executorService.shutdown();
+            assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+    
+    @Test(groups="checkintest")
+    public void testOverridePriorityReturnsPrevious() {
+        PriorityPDUSender sender = new PriorityPDUSender();
+        assertNull(sender.overridePriority(Priority.HIGH));
+        assertEquals(sender.overridePriority(Priority.BULK), Priority.HIGH);
+        assertEquals(sender.overridePriority(null), Priority.BULK);
+        assertNull(sender.overridePriority(null));
+    }
+    
+    private static class Sender implements Runnable {
+        private final PriorityPDUSender sender;
+        private final OutputStream os;
+        private final int sequenceNumber;
+        private final byte priorityFlag;
+        private final Priority priority;
+        
+        Sender(PriorityPDUSender sender, OutputStream os, int sequenceNumber,
+                byte priorityFlag) {
+            this(sender, os, sequenceNumber, priorityFlag, null);
+        }
+        
+        Sender(PriorityPDUSender sender, OutputStream os, int sequenceNumber,
+                byte priorityFlag, Priority priority) {
+            this.sender = sender;
+            this.os = os;
+            this.sequenceNumber = sequenceNumber;
+            this.priorityFlag = priorityFlag;
+            this.priority = priority;
+        }
+        
+        public void run() {
+            Priority previous = sender.overridePriority(priority);
+            try {
+                sender.sendSubmitSm(os, sequenceNumber, "CMT",
+                        TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
+                        "1616", TypeOfNumber.UNKNOWN,
+                        NumberingPlanIndicator.UNKNOWN, "62161616",
+                        new ESMClass(), (byte)0, priorityFlag, null, null,
+                        new RegisteredDelivery(), (byte)0,
+                        new GeneralDataCoding(), (byte)0, "Hello".getBytes());
+            } catch (Exception e) {
+                fail(e.getMessage());
+            } finally {
+                sender.overridePriority(previous);
+            }
+        }
+    }
+    
+    private static class RecordingOutputStream extends OutputStream {
+        private final int[] counts = new int[3];
+        
+        @Override
+        public void write(int b) {
+            // the PDU are written whole by the other write
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (this) {
+                counts[OctetUtil.bytesToInt(b, off + 12)]++;
+            }
+            // a slow peer, the other senders are waiting when the write ends
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted");
+            }
+        }
+        
+        synchronized int count(int sequenceNumber) {
+            return counts[sequenceNumber];
+        }
+    }
+    
+    private static class BlockingOutputStream extends OutputStream {
+        private final CountDownLatch firstWrite = new CountDownLatch(1);
+        private final CountDownLatch unblock = new CountDownLatch(1);
+        private final List<Integer> commandIds = new ArrayList<Integer>();
+        private final List<Integer> sequences = new ArrayList<Integer>();
+        
+        @Override
+        public void write(int b) {
+            // the PDU are written whole by the other write
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (sequences) {
+                commandIds.add(OctetUtil.bytesToInt(b, off + 4));
+                sequences.add(OctetUtil.bytesToInt(b, off + 12));
+            }
+            firstWrite.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted");
+            }
+        }
+        
+        List<Integer> getSequences() {
+            synchronized (sequences) {
+                return new ArrayList<Integer>(sequences);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.PDUSender;
+import org.jsmpp.SMPPConstant;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PDUCaptureFileTest {
+    private File directory;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = File.createTempFile("jsmpp-capture", "");
+        directory.delete();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test(groups="checkintest")
+    public void testCaptureAndRead() throws Exception {
+        PDUCaptureFile captureFile = new PDUCaptureFile(directory, "test", 1024, 10);
+        PDUSender sender = new CapturingPDUSender(new DefaultPDUSender(), captureFile);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sender.sendEnquireLink(out, 1);
+        sender.sendEnquireLinkResp(out, 1);
+        captureFile.capture(PDUDirection.INBOUND, new byte[10000]);
+        captureFile.close();
+        assertEquals(captureFile.getCapturedCount(), 2);
+        assertEquals(captureFile.getDroppedCount(), 1);
+
+        PDUCaptureFileReader reader = new PDUCaptureFileReader(
+                PDUCaptureFile.listFiles(directory, "test"));
+        try {
+            PDUCaptureRecord record = reader.read();
+            assertEquals(record.getDirection(), PDUDirection.OUTBOUND);
+            assertEquals(record.getCommandId(), SMPPConstant.CID_ENQUIRE_LINK);
+            assertEquals(record.getPdu().length, 16);
+            PDUCaptureRecord next = reader.read();
+            assertEquals(next.getCommandId(), SMPPConstant.CID_ENQUIRE_LINK_RESP);
+            assertTrue(next.getTimestamp() >= record.getTimestamp());
+            assertNull(reader.read());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testReadLiveFile() throws Exception {
+        PDUCaptureFile captureFile = new PDUCaptureFile(directory, "test", 1024, 10);
+        PDUSender sender = new CapturingPDUSender(new DefaultPDUSender(), captureFile);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sender.sendEnquireLink(out, 1);
+
+        PDUCaptureFileReader reader = new PDUCaptureFileReader(
+                PDUCaptureFile.listFiles(directory, "test"));
+        try {
+            assertEquals(reader.read().getCommandId(), SMPPConstant.CID_ENQUIRE_LINK);
+            assertNull(reader.read());
+            sender.sendEnquireLinkResp(out, 1);
+            PDUCaptureRecord record = reader.read();
+            assertEquals(record.getCommandId(), SMPPConstant.CID_ENQUIRE_LINK_RESP);
+            assertEquals(record.getPdu().length, 16);
+            assertNull(reader.read());
+        } finally {
+            reader.close();
+            captureFile.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testRotation() throws Exception {
+        PDUCaptureFile captureFile = new PDUCaptureFile(directory, "test", 256, 3);
+        byte[] pdu = new byte[100];
+        pdu[3] = 100;
+        for (int i = 0; i < 20; i++) {
+            pdu[15] = (byte)i;
+            captureFile.capture(PDUDirection.INBOUND, pdu);
+        }
+        captureFile.close();
+
+        File[] files = PDUCaptureFile.listFiles(directory, "test");
+        assertEquals(files.length, 3);
+        PDUCaptureFileReader reader = new PDUCaptureFileReader(files);
+        try {
+            PDUCaptureRecord record;
+            int last = -1;
+            int total = 0;
+            while ((record = reader.read()) != null) {
+                assertTrue(record.getPdu()[15] > last);
+                last = record.getPdu()[15];
+                total++;
+            }
+            assertEquals(last, 19);
+            assertEquals(total, 6);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testConcurrentCapture() throws Exception {
+        final PDUCaptureFile captureFile = new PDUCaptureFile(directory, "test", 4096, 1000);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        byte[] pdu = new byte[20 + i % 50];
+                        pdu[3] = (byte)pdu.length;
+                        pdu[12] = (byte)id;
+                        pdu[14] = (byte)(i >> 8);
+                        pdu[15] = (byte)i;
+                        captureFile.capture(PDUDirection.OUTBOUND, pdu);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        captureFile.close();
+        assertEquals(captureFile.getCapturedCount(), 4000);
+        assertEquals(captureFile.getDroppedCount(), 0);
+
+        PDUCaptureFileReader reader = new PDUCaptureFileReader(
+                PDUCaptureFile.listFiles(directory, "test"));
+        Set<Integer> seen = new HashSet<Integer>();
+        try {
+            PDUCaptureRecord record;
+            while ((record = reader.read()) != null) {
+                byte[] pdu = record.getPdu();
+                int i = ((pdu[14] & 0xff) << 8) | (pdu[15] & 0xff);
+                assertEquals(pdu.length, 20 + i % 50);
+                assertTrue(seen.add(pdu[12] * 1000 + i));
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(seen.size(), 4000);
+    }
+}
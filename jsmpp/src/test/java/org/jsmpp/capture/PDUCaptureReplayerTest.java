@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.PDUSender;
+import org.jsmpp.SynchronizedPDUSender;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.CancelSm;
+import org.jsmpp.bean.DataSm;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.QuerySm;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.ReplaceSm;
+import org.jsmpp.bean.SubmitMulti;
+import org.jsmpp.bean.SubmitMultiResult;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.BindParameter;
+import org.jsmpp.session.DataSmResult;
+import org.jsmpp.session.QuerySmResult;
+import org.jsmpp.session.SMPPServerSession;
+import org.jsmpp.session.SMPPServerSessionListener;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.session.ServerMessageReceiverListener;
+import org.jsmpp.session.Session;
+import org.jsmpp.session.connection.memory.MemoryConnectionFactory;
+import org.jsmpp.session.connection.memory.MemoryServerConnectionFactory;
+import org.jsmpp.util.MessageId;
+import org.jsmpp.util.RandomMessageIDGenerator;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PDUCaptureReplayerTest {
+    private File directory;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = File.createTempFile("jsmpp-replay", "");
+        directory.delete();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test(groups="checkintest")
+    public void testReplaySubmitSm() throws Exception {
+        PDUCaptureFile captureFile = new PDUCaptureFile(directory, "test", 4096, 2);
+        PDUSender sender = new CapturingPDUSender(new DefaultPDUSender(), captureFile);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 1; i <= 3; i++) {
+            sender.sendSubmitSm(out, i, "CMT",
+                    TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "1616",
+                    TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "628",
+                    new ESMClass(), (byte)0, (byte)0, null, null,
+                    new RegisteredDelivery(), (byte)0, new GeneralDataCoding(),
+                    (byte)0, "Hello".getBytes());
+        }
+        sender.sendEnquireLink(out, 4);
+        captureFile.close();
+
+        MemoryServerConnectionFactory serverConnFactory = new MemoryServerConnectionFactory();
+        final SMPPServerSessionListener listener = new SMPPServerSessionListener(2775, serverConnFactory);
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    SMPPServerSession session = listener.accept();
+                    session.setMessageReceiverListener(new SubmitCounter(received));
+                    session.waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        };
+        acceptor.start();
+
+        SMPPSession session = new SMPPSession(new SynchronizedPDUSender(),
+                new DefaultPDUReader(), new MemoryConnectionFactory(serverConnFactory));
+        PDUCaptureFileReader reader = new PDUCaptureFileReader(
+                PDUCaptureFile.listFiles(directory, "test"));
+        try {
+            session.connectAndBind("localhost", 2775, new BindParameter(
+                    BindType.BIND_TX, "esme", "pwd", "",
+                    TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null));
+            acceptor.join(5000);
+            assertNull(failure.get());
+            PDUCaptureReplayer.Result result = new PDUCaptureReplayer(0, 2).replay(reader, session);
+            assertEquals(result.getReplayed(), 3);
+            assertEquals(result.getFailed(), 0);
+            assertEquals(result.getSkipped(), 1);
+            assertEquals(received.get(), 3);
+        } finally {
+            reader.close();
+            session.unbindAndClose();
+            listener.close();
+        }
+    }
+
+    private static class SubmitCounter implements ServerMessageReceiverListener {
+        private final AtomicInteger received;
+
+        SubmitCounter(AtomicInteger received) {
+            this.received = received;
+        }
+
+        public MessageId onAcceptSubmitSm(SubmitSm submitSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            received.incrementAndGet();
+            return new RandomMessageIDGenerator().newMessageId();
+        }
+
+        public SubmitMultiResult onAcceptSubmitMulti(SubmitMulti submitMulti,
+                SMPPServerSession source) throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public QuerySmResult onAcceptQuerySm(QuerySm querySm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public void onAcceptReplaceSm(ReplaceSm replaceSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public void onAcceptCancelSm(CancelSm cancelSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public DataSmResult onAcceptDataSm(DataSm dataSm, Session source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+    }
+}
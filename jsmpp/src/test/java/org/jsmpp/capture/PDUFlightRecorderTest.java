@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.capture;
+
+import static org.testng.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.util.DefaultComposer;
+import org.jsmpp.util.OctetUtil;
+import org.testng.annotations.Test;
+
+public class PDUFlightRecorderTest {
+
+    @Test(groups="checkintest")
+    public void testKeepLastTruncatedPDU() throws Exception {
+        PDUFlightRecorder recorder = new PDUFlightRecorder(4, 20);
+        DefaultComposer composer = new DefaultComposer();
+        for (int i = 1; i <= 10; i++) {
+            recorder.capture(i % 2 == 0 ? PDUDirection.OUTBOUND : PDUDirection.INBOUND,
+                    composer.submitSmResp(i, "message" + i));
+        }
+
+        assertEquals(recorder.getCapturedCount(), 10);
+        List<PDUCaptureRecord> records = recorder.snapshot();
+        assertEquals(records.size(), 4);
+        for (int i = 0; i < 4; i++) {
+            PDUCaptureRecord record = records.get(i);
+            byte[] pdu = record.getPdu();
+            assertEquals(pdu.length, 20);
+            assertEquals(record.getCommandId(), SMPPConstant.CID_SUBMIT_SM_RESP);
+            assertEquals(OctetUtil.bytesToInt(pdu, 12), 7 + i);
+            // command_length is the original length
+            assertEquals(OctetUtil.bytesToInt(pdu, 0), 16 + ("message" + (7 + i)).length() + 1);
+        }
+        assertEquals(records.get(0).getDirection(), PDUDirection.INBOUND);
+        assertEquals(records.get(3).getDirection(), PDUDirection.OUTBOUND);
+
+        StringWriter dump = new StringWriter();
+        recorder.dump(dump);
+        String[] lines = dump.toString().split("\r?\n");
+        assertEquals(lines.length, 4);
+        assertTrue(lines[3].contains(" OUT len=26 cmd=0x80000004 status=0x00000000 seq=10 6d657373"), lines[3]);
+    }
+
+    @Test(groups="checkintest")
+    public void testIncidentDumpRateLimited() throws Exception {
+        File directory = File.createTempFile("jsmpp-flight", "");
+        directory.delete();
+        directory.mkdir();
+        try {
+            PDUFlightRecorder recorder = new PDUFlightRecorder(4, 16);
+            recorder.setDumpDirectory(directory);
+            recorder.capture(PDUDirection.OUTBOUND, new DefaultComposer().enquireLink(1));
+            recorder.setMinDumpInterval(60000);
+
+            assertTrue(recorder.dumpIncident("timeout 1"));
+            assertFalse(recorder.dumpIncident("timeout 2"));
+            assertFalse(recorder.dumpIncident("closed"));
+            assertEquals(directory.listFiles().length, 1);
+
+            recorder.setMinDumpInterval(0);
+            assertTrue(recorder.dumpIncident("timeout 3"));
+            File[] files = directory.listFiles();
+            assertEquals(files.length, 2);
+            Arrays.sort(files);
+            BufferedReader in = new BufferedReader(new FileReader(files[1]));
+            try {
+                assertEquals(in.readLine(), "# timeout 3 (2 incidents not dumped since the last dump)");
+            } finally {
+                in.close();
+            }
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testConcurrentCapture() throws Exception {
+        final PDUFlightRecorder recorder = new PDUFlightRecorder(64, 16);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    DefaultComposer composer = new DefaultComposer();
+                    for (int i = 0; i < 10000; i++) {
+                        byte[] pdu = composer.enquireLink(i);
+                        // command_status tells the thread of the PDU
+                        OctetUtil.intToBytes(thread, pdu, 8);
+                        recorder.capture(PDUDirection.OUTBOUND, pdu);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        int snapshots = 0;
+        while (threads[threads.length - 1].isAlive() && snapshots < 100) {
+            assertConsistent(recorder.snapshot());
+            snapshots++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(recorder.getCapturedCount(), 40000);
+        List<PDUCaptureRecord> records = recorder.snapshot();
+        assertEquals(records.size(), 64);
+        assertConsistent(records);
+    }
+
+    private static void assertConsistent(List<PDUCaptureRecord> records) {
+        for (PDUCaptureRecord record : records) {
+            byte[] pdu = record.getPdu();
+            assertEquals(OctetUtil.bytesToInt(pdu, 0), 16);
+            assertEquals(record.getCommandId(), SMPPConstant.CID_ENQUIRE_LINK);
+            int thread = OctetUtil.bytesToInt(pdu, 8);
+            assertTrue(thread >= 0 && thread < 4, "Invalid thread " + thread);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.relay;
+
+import static org.testng.Assert.*;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.Address;
+import org.jsmpp.bean.DestinationAddress;
+import org.jsmpp.bean.DistributionList;
+import org.jsmpp.util.DefaultComposer;
+import org.jsmpp.util.PDUComposer;
+import org.testng.annotations.Test;
+
+public class RawPDUTest {
+    private final PDUComposer composer = new DefaultComposer();
+
+    @Test(groups="checkintest")
+    public void testSequenceNumber() throws Exception {
+        byte[] pdu = composer.enquireLink(0x01020304);
+        assertEquals(RawPDU.getSequenceNumber(pdu), 0x01020304);
+        RawPDU.setSequenceNumber(pdu, 0x7ffffffe);
+        assertEquals(RawPDU.getSequenceNumber(pdu), 0x7ffffffe);
+        assertEquals(pdu, composer.enquireLink(0x7ffffffe));
+    }
+
+    @Test(groups="checkintest")
+    public void testSubmitSmDestination() throws Exception {
+        byte[] pdu = composer.submitSm(1, "CMT", (byte)1, (byte)1, "6281234",
+                (byte)1, (byte)1, "62899887766", (byte)0, (byte)0, (byte)0,
+                null, null, (byte)0, (byte)0, (byte)0, (byte)0,
+                "hello".getBytes());
+        assertEquals(RawPDU.getDestinationAddress(SMPPConstant.CID_SUBMIT_SM, pdu),
+                "62899887766");
+    }
+
+    @Test(groups="checkintest")
+    public void testDeliverSmDestination() throws Exception {
+        byte[] pdu = composer.deliverSm(1, null, (byte)0, (byte)0, "",
+                (byte)0, (byte)0, "1234", (byte)0, (byte)0, (byte)0, (byte)0,
+                (byte)0, new byte[0]);
+        assertEquals(RawPDU.getDestinationAddress(SMPPConstant.CID_DELIVER_SM, pdu),
+                "1234");
+    }
+
+    @Test(groups="checkintest")
+    public void testSubmitMultiDestination() throws Exception {
+        byte[] pdu = composer.submitMulti(1, null, (byte)0, (byte)0, "src",
+                new DestinationAddress[] { new Address((byte)1, (byte)1, "555"),
+                        new Address((byte)1, (byte)1, "666") },
+                (byte)0, (byte)0, (byte)0, null, null, (byte)0, (byte)0,
+                (byte)0, (byte)0, new byte[0]);
+        assertEquals(RawPDU.getDestinationAddress(SMPPConstant.CID_SUBMIT_MULTI, pdu),
+                "555");
+
+        pdu = composer.submitMulti(1, null, (byte)0, (byte)0, "src",
+                new DestinationAddress[] { new DistributionList("friends") },
+                (byte)0, (byte)0, (byte)0, null, null, (byte)0, (byte)0,
+                (byte)0, (byte)0, new byte[0]);
+        assertNull(RawPDU.getDestinationAddress(SMPPConstant.CID_SUBMIT_MULTI, pdu));
+    }
+
+    @Test(groups="checkintest")
+    public void testMalformedOrWithoutDestination() throws Exception {
+        byte[] header = composer.composeHeader(SMPPConstant.CID_SUBMIT_SM, 0, 1);
+        assertNull(RawPDU.getDestinationAddress(SMPPConstant.CID_SUBMIT_SM, header));
+        assertNull(RawPDU.getDestinationAddress(SMPPConstant.CID_QUERY_SM,
+                composer.querySm(1, "abc", (byte)0, (byte)0, "src")));
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.relay;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.PDUReader;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.Command;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.session.BindParameter;
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ConnectionFactory;
+import org.jsmpp.session.connection.ServerConnection;
+import org.jsmpp.session.connection.socket.SocketConnection;
+import org.jsmpp.util.DefaultComposer;
+import org.jsmpp.util.PDUComposer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SMPPRelayTest {
+    private final PDUComposer composer = new DefaultComposer();
+    private final PDUReader pduReader = new DefaultPDUReader();
+
+    private SMPPRelay relay;
+    private SocketPair smsc;
+    private SocketPair esme;
+    private OutboundLink outboundLink;
+    private InboundLink inboundLink;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        final SocketPair smscPair = new SocketPair();
+        final SocketPair esmePair = new SocketPair();
+        smsc = smscPair;
+        esme = esmePair;
+        relay = new SMPPRelay(new ServerConnection() {
+            private final BlockingQueue<Connection> pending = new ArrayBlockingQueue<Connection>(1,
+                    false, Arrays.<Connection>asList(esmePair.relaySide));
+
+            public Connection accept() throws IOException {
+                try {
+                    return pending.take();
+                } catch (InterruptedException e) {
+                    throw new IOException("Interrupted");
+                }
+            }
+
+            public void setSoTimeout(int timeout) {
+            }
+
+            public int getSoTimeout() {
+                return 0;
+            }
+
+            public void close() {
+            }
+        }, new ConnectionFactory() {
+            public Connection createConnection(String host, int port) {
+                return smscPair.relaySide;
+            }
+        });
+
+        final BindParameter bindParam = new BindParameter(BindType.BIND_TRX,
+                "relay", "secret", "", TypeOfNumber.UNKNOWN,
+                NumberingPlanIndicator.UNKNOWN, null);
+        final AtomicReference<OutboundLink> bound = new AtomicReference<OutboundLink>();
+        final AtomicReference<IOException> bindFailure = new AtomicReference<IOException>();
+        Thread binder = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    bound.set(relay.connectAndBind("smsc", 2775, bindParam));
+                } catch (IOException e) {
+                    bindFailure.set(e);
+                }
+            }
+        };
+        binder.start();
+        byte[] bind = read(smsc);
+        assertEquals(RawPDU.getSequenceNumber(bind), 1);
+        smsc.write(composer.bindResp(SMPPConstant.CID_BIND_TRANSCEIVER_RESP, 1, "smsc"));
+        binder.join(2000);
+        assertNull(bindFailure.get());
+        outboundLink = bound.get();
+        assertNotNull(outboundLink);
+        assertTrue(outboundLink.isBound());
+
+        inboundLink = relay.accept();
+        esme.write(composer.bind(SMPPConstant.CID_BIND_TRANSMITTER, 5, "esme",
+                "pwd", "", (byte)0x34, (byte)0, (byte)0, null));
+        byte[] bindResp = read(esme);
+        assertEquals(header(bindResp).getCommandId(), SMPPConstant.CID_BIND_TRANSMITTER_RESP);
+        assertEquals(header(bindResp).getCommandStatus(), SMPPConstant.STAT_ESME_ROK);
+        assertEquals(RawPDU.getSequenceNumber(bindResp), 5);
+        assertEquals(inboundLink.getSystemId(), "esme");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        relay.close();
+        esme.close();
+        smsc.close();
+    }
+
+    @Test(groups="checkintest")
+    public void testRelaySubmitSm() throws Exception {
+        byte[] submitSm = submitSm(77);
+        esme.write(submitSm.clone());
+
+        byte[] relayed = read(smsc);
+        int relayedSequenceNumber = RawPDU.getSequenceNumber(relayed);
+        assertFalse(relayedSequenceNumber == 77);
+        RawPDU.setSequenceNumber(relayed, 77);
+        assertEquals(relayed, submitSm);
+        assertEquals(outboundLink.getPendingRequestCount(), 1);
+
+        smsc.write(composer.submitSmResp(relayedSequenceNumber, "msg-1"));
+        assertEquals(read(esme), composer.submitSmResp(77, "msg-1"));
+        assertEquals(outboundLink.getPendingRequestCount(), 0);
+    }
+
+    @Test(groups="checkintest")
+    public void testEnquireLinkNotRelayed() throws Exception {
+        esme.write(composer.enquireLink(9));
+        assertEquals(read(esme), composer.enquireLinkResp(9));
+        assertEquals(outboundLink.getPendingRequestCount(), 0);
+    }
+
+    @Test(groups="checkintest")
+    public void testDeliverSmWithoutReceiver() throws Exception {
+        // the ESME is bound as transmitter
+        smsc.write(composer.deliverSm(3, null, (byte)0, (byte)0, "", (byte)0,
+                (byte)0, "1234", (byte)0, (byte)0, (byte)0, (byte)0, (byte)0,
+                new byte[0]));
+        assertEquals(read(smsc), composer.composeHeader(SMPPConstant.CID_DELIVER_SM_RESP,
+                SMPPConstant.STAT_ESME_RINVDSTADR, 3));
+    }
+
+    @Test(groups="checkintest")
+    public void testPendingRequestFailedOnClose() throws Exception {
+        esme.write(submitSm(78));
+        read(smsc);
+        outboundLink.close();
+        assertEquals(read(esme), composer.composeHeader(SMPPConstant.CID_SUBMIT_SM_RESP,
+                SMPPConstant.STAT_ESME_RSYSERR, 78));
+        assertTrue(relay.getOutboundLinks().isEmpty());
+
+        esme.write(submitSm(79));
+        assertEquals(read(esme), composer.composeHeader(SMPPConstant.CID_SUBMIT_SM_RESP,
+                SMPPConstant.STAT_ESME_RINVDSTADR, 79));
+    }
+
+    private byte[] submitSm(int sequenceNumber) throws Exception {
+        return composer.submitSm(sequenceNumber, "CMT", (byte)1, (byte)1,
+                "6281234", (byte)1, (byte)1, "62899887766", (byte)0, (byte)0,
+                (byte)0, null, null, (byte)0, (byte)0, (byte)0, (byte)0,
+                "hello".getBytes());
+    }
+
+    private byte[] read(SocketPair conn) throws Exception {
+        DataInputStream in = new DataInputStream(conn.getInputStream());
+        return pduReader.readPDU(in, pduReader.readPDUHeader(in));
+    }
+
+    private Command header(byte[] pdu) throws Exception {
+        return pduReader.readPDUHeader(new DataInputStream(
+                new ByteArrayInputStream(pdu)));
+    }
+
+    private static class SocketPair {
+        final Connection relaySide;
+        final Socket remote;
+
+        SocketPair() throws IOException {
+            ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+            try {
+                relaySide = new SocketConnection(new Socket(serverSocket.getInetAddress(),
+                        serverSocket.getLocalPort()));
+                remote = serverSocket.accept();
+                remote.setSoTimeout(5000);
+            } finally {
+                serverSocket.close();
+            }
+        }
+
+        void write(byte[] pdu) throws IOException {
+            OutputStream out = remote.getOutputStream();
+            out.write(pdu);
+            out.flush();
+        }
+
+        InputStream getInputStream() throws IOException {
+            return remote.getInputStream();
+        }
+
+        void close() throws IOException {
+            remote.close();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.AlertNotification;
+import org.jsmpp.bean.Command;
+import org.jsmpp.bean.DataSm;
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.extra.PendingResponse;
+import org.jsmpp.extra.ProcessRequestException;
+import org.testng.annotations.Test;
+
+public class DeliverSmBatcherTest {
+
+    @Test(groups="checkintest")
+    public void testFlushOnBatchSize() throws Exception {
+        RecordingResponseHandler responseHandler = new RecordingResponseHandler();
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        DeliverSmBatcher batcher = new DeliverSmBatcher(new DeliverSmBatchListener() {
+            public void onAcceptDeliverSmBatch(List<DeliverSm> deliverSms,
+                    int[] commandStatuses) throws ProcessRequestException {
+                batchSizes.add(deliverSms.size());
+                commandStatuses[1] = SMPPConstant.STAT_ESME_RX_T_APPN;
+            }
+        }, responseHandler, 3, 60000, "test");
+        try {
+            batcher.add(newDeliverSm(10));
+            batcher.add(newDeliverSm(11));
+            assertTrue(responseHandler.sequenceNumbers.isEmpty());
+            batcher.add(newDeliverSm(12));
+
+            assertEquals(batchSizes.size(), 1);
+            assertEquals(batchSizes.get(0).intValue(), 3);
+            assertEquals(responseHandler.sequenceNumbers.size(), 3);
+            assertEquals(responseHandler.sequenceNumbers.get(0).intValue(), 10);
+            assertEquals(responseHandler.commandStatuses.get(0).intValue(), SMPPConstant.STAT_ESME_ROK);
+            assertEquals(responseHandler.commandStatuses.get(1).intValue(), SMPPConstant.STAT_ESME_RX_T_APPN);
+            assertEquals(responseHandler.sequenceNumbers.get(2).intValue(), 12);
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testFlushOnBatchDelay() throws Exception {
+        RecordingResponseHandler responseHandler = new RecordingResponseHandler();
+        DeliverSmBatcher batcher = new DeliverSmBatcher(new DeliverSmBatchListener() {
+            public void onAcceptDeliverSmBatch(List<DeliverSm> deliverSms,
+                    int[] commandStatuses) throws ProcessRequestException {
+                throw new ProcessRequestException("Database down", SMPPConstant.STAT_ESME_RX_T_APPN);
+            }
+        }, responseHandler, 100, 50, "test");
+        try {
+            batcher.add(newDeliverSm(1));
+            batcher.add(newDeliverSm(2));
+
+            long timeout = System.currentTimeMillis() + 5000;
+            while (responseHandler.size() < 2 && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            assertEquals(responseHandler.size(), 2);
+            assertEquals(responseHandler.commandStatuses.get(0).intValue(), SMPPConstant.STAT_ESME_RX_T_APPN);
+            assertEquals(responseHandler.commandStatuses.get(1).intValue(), SMPPConstant.STAT_ESME_RX_T_APPN);
+        } finally {
+            batcher.close();
+        }
+        assertFalse(batcher.add(newDeliverSm(3)));
+    }
+
+    private static DeliverSm newDeliverSm(int sequenceNumber) {
+        DeliverSm deliverSm = new DeliverSm();
+        deliverSm.setSequenceNumber(sequenceNumber);
+        return deliverSm;
+    }
+
+    private static class RecordingResponseHandler implements ResponseHandler {
+        private final List<Integer> sequenceNumbers = new ArrayList<Integer>();
+        private final List<Integer> commandStatuses = new ArrayList<Integer>();
+
+        synchronized int size() {
+            return sequenceNumbers.size();
+        }
+
+        public synchronized void sendDeliverSmResp(int commandStatus, int sequenceNumber)
+                throws IOException {
+            commandStatuses.add(commandStatus);
+            sequenceNumbers.add(sequenceNumber);
+        }
+
+        public void processDeliverSm(DeliverSm deliverSm)
+                throws ProcessRequestException {
+        }
+
+        public void processAlertNotification(AlertNotification alertNotification) {
+        }
+
+        public PendingResponse<Command> removeSentItem(int sequenceNumber) {
+            return null;
+        }
+
+        public void sendGenerickNack(int commandStatus, int sequenceNumber)
+                throws IOException {
+        }
+
+        public void sendNegativeResponse(int originalCommandId,
+                int commandStatus, int sequenceNumber) throws IOException {
+        }
+
+        public void sendEnquireLinkResp(int sequenceNumber) throws IOException {
+        }
+
+        public void sendUnbindResp(int sequenceNumber) throws IOException {
+        }
+
+        public DataSmResult processDataSm(DataSm dataSm)
+                throws ProcessRequestException {
+            return null;
+        }
+
+        public void sendDataSmResp(DataSmResult dataSmResult, int sequenceNumber)
+                throws IOException {
+        }
+
+        public void notifyUnbonded() {
+        }
+    }
+}
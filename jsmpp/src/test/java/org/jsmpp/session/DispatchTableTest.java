@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.state.SMPPServerSessionState;
+import org.jsmpp.session.state.SMPPSessionState;
+import org.testng.annotations.Test;
+
+public class DispatchTableTest {
+    private static final int VENDOR_COMMAND = 0x00010200;
+
+    @Test(groups="checkintest")
+    public void testSessionActions() {
+        DispatchTable<SMPPSessionState> table = DispatchTable.forSession(SMPPSessionState.BOUND_TRX);
+        assertEquals(table.action(SMPPConstant.CID_BIND_TRANSCEIVER_RESP), DispatchTable.BIND_RESP);
+        assertEquals(table.action(SMPPConstant.CID_SUBMIT_SM_RESP), DispatchTable.SUBMIT_SM_RESP);
+        assertEquals(table.action(SMPPConstant.CID_DELIVER_SM), DispatchTable.DELIVER_SM);
+        assertEquals(table.action(SMPPConstant.CID_ALERT_NOTIFICATION), DispatchTable.ALERT_NOTIFICATION);
+        assertEquals(table.action(SMPPConstant.CID_SUBMIT_SM), DispatchTable.UNKNOWN);
+        assertEquals(table.action(0x80000100), DispatchTable.UNKNOWN);
+    }
+
+    @Test(groups="checkintest")
+    public void testServerSessionActions() {
+        DispatchTable<SMPPServerSessionState> table = DispatchTable.forServerSession(SMPPServerSessionState.BOUND_TX);
+        assertEquals(table.action(SMPPConstant.CID_BIND_TRANSMITTER), DispatchTable.BIND);
+        assertEquals(table.action(SMPPConstant.CID_SUBMIT_SM), DispatchTable.SUBMIT_SM);
+        assertEquals(table.action(SMPPConstant.CID_DELIVER_SM_RESP), DispatchTable.DELIVER_SM_RESP);
+        assertEquals(table.action(SMPPConstant.CID_SUBMIT_SM_RESP), DispatchTable.UNKNOWN);
+        assertEquals(table.action(SMPPConstant.CID_OUTBIND), DispatchTable.UNKNOWN);
+    }
+
+    @Test(groups="checkintest")
+    public void testVendorCommandOnlyWhileBound() {
+        assertEquals(DispatchTable.forServerSession(SMPPServerSessionState.BOUND_RX)
+                .action(VENDOR_COMMAND), DispatchTable.VENDOR);
+        assertEquals(DispatchTable.forServerSession(SMPPServerSessionState.BOUND_RX)
+                .action(VENDOR_COMMAND | SMPPConstant.MASK_CID_RESP), DispatchTable.VENDOR);
+        assertEquals(DispatchTable.forServerSession(SMPPServerSessionState.OPEN)
+                .action(VENDOR_COMMAND), DispatchTable.UNKNOWN);
+        assertEquals(DispatchTable.forSession(SMPPSessionState.UNBOUND)
+                .action(VENDOR_COMMAND), DispatchTable.UNKNOWN);
+    }
+
+    @Test(groups="checkintest")
+    public void testTableSwappedOnStateChange() {
+        SMPPServerSessionContext context = new SMPPServerSessionContext(null);
+        DispatchTable<SMPPServerSessionState> closed = context.getDispatchTable();
+        assertEquals(closed.getSessionState(), SessionState.CLOSED);
+        context.open();
+        assertEquals(context.getDispatchTable().getSessionState(), SessionState.OPEN);
+        context.bound(BindType.BIND_TRX);
+        assertSame(context.getDispatchTable().getStateProcessor(), SMPPServerSessionState.BOUND_TRX);
+        assertSame(context.getStateProcessor(), SMPPServerSessionState.BOUND_TRX);
+        context.close();
+        assertSame(context.getDispatchTable(), closed);
+    }
+}
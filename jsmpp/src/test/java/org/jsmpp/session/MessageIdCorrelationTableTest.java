@@ -0,0 +1,255 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.SynchronizedPDUSender;
+import org.jsmpp.bean.Address;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.CancelSm;
+import org.jsmpp.bean.DataSm;
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.QuerySm;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.ReplaceIfPresentFlag;
+import org.jsmpp.bean.ReplaceSm;
+import org.jsmpp.bean.SubmitMulti;
+import org.jsmpp.bean.SubmitMultiResult;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.connection.memory.MemoryConnectionFactory;
+import org.jsmpp.session.connection.memory.MemoryServerConnectionFactory;
+import org.jsmpp.util.MessageId;
+import org.testng.annotations.Test;
+
+public class MessageIdCorrelationTableTest {
+
+    @Test(groups="checkintest")
+    public void testPutAndRemove() {
+        MessageIdCorrelationTable table = new MessageIdCorrelationTable(1000, 60000);
+        for (int i = 0; i < 1000; i++) {
+            table.put("msg" + i, i);
+        }
+        assertEquals(table.size(), 1000);
+        assertEquals(table.get("msg10"), 10);
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(table.remove("msg" + i), i);
+        }
+        assertEquals(table.size(), 500);
+        for (int i = 0; i < 1000; i++) {
+            long expected = i % 2 == 0 ? MessageIdCorrelationTable.NOT_FOUND : i;
+            assertEquals(table.get("msg" + i), expected);
+        }
+        assertEquals(table.remove("unknown"), MessageIdCorrelationTable.NOT_FOUND);
+    }
+
+    @Test(groups="checkintest")
+    public void testExpiry() throws Exception {
+        MessageIdCorrelationTable table = new MessageIdCorrelationTable(100, 60000, true);
+        table.put("a", 1, 1);
+        table.put("b", 2);
+        Thread.sleep(20);
+        assertEquals(table.get("a"), MessageIdCorrelationTable.NOT_FOUND);
+        assertEquals(table.get("b"), 2);
+        table.put("c", 3, 1);
+        Thread.sleep(20);
+        assertEquals(table.purgeExpired(), 1);
+        assertEquals(table.size(), 1);
+    }
+
+    @Test(groups="checkintest")
+    public void testUnlimitedTtl() {
+        MessageIdCorrelationTable table = new MessageIdCorrelationTable(160, 60000);
+        for (int i = 0; i < 1000; i++) {
+            table.put("msg" + i, i, Long.MAX_VALUE);
+        }
+        assertEquals(table.purgeExpired(), 0);
+        assertEquals(table.getEvictionCount(), 1000 - table.size());
+        assertEquals(table.get("msg999"), 999);
+    }
+
+    @Test(groups="checkintest")
+    public void testEvictionWhenFull() {
+        MessageIdCorrelationTable table = new MessageIdCorrelationTable(160, 60000);
+        for (int i = 0; i < 1000; i++) {
+            table.put("msg" + i, i);
+        }
+        assertTrue(table.size() <= 160);
+        assertEquals(table.getEvictionCount(), 1000 - table.size());
+        assertEquals(table.get("msg999"), 999);
+    }
+
+    @Test(groups="checkintest")
+    public void testRemoveByReceiptedMessageId() {
+        MessageIdCorrelationTable table = new MessageIdCorrelationTable(100, 60000);
+        table.put("abc123", 77);
+        DeliverSm deliverSm = new DeliverSm();
+        deliverSm.setOptionalParameters(new OptionalParameter.Receipted_message_id("abc123\0".getBytes()));
+        assertEquals(table.remove(deliverSm), 77);
+        assertEquals(table.remove(deliverSm), MessageIdCorrelationTable.NOT_FOUND);
+    }
+
+    @Test(groups="checkintest")
+    public void testContextOfThread() throws Exception {
+        final MessageIdCorrelationTable table = new MessageIdCorrelationTable(100, 60000);
+        assertEquals(table.getContext(), MessageIdCorrelationTable.NO_CONTEXT);
+        assertEquals(table.setContext(5), MessageIdCorrelationTable.NO_CONTEXT);
+        final AtomicReference<Long> otherContext = new AtomicReference<Long>();
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                otherContext.set(table.getContext());
+            }
+        };
+        other.start();
+        other.join();
+        assertEquals(otherContext.get().longValue(), MessageIdCorrelationTable.NO_CONTEXT);
+        assertEquals(table.setContext(MessageIdCorrelationTable.NO_CONTEXT), 5);
+        assertEquals(table.getContext(), MessageIdCorrelationTable.NO_CONTEXT);
+        try {
+            table.setContext(MessageIdCorrelationTable.NOT_FOUND);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testPopulatedOnSubmit() throws Exception {
+        MemoryServerConnectionFactory serverConnFactory = new MemoryServerConnectionFactory();
+        final SMPPServerSessionListener listener = new SMPPServerSessionListener(2775, serverConnFactory);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    SMPPServerSession session = listener.accept();
+                    session.setMessageReceiverListener(new SequentialMessageIds());
+                    session.waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        };
+        acceptor.start();
+
+        MessageIdCorrelationTable table = new MessageIdCorrelationTable(100, 60000);
+        SMPPSession session = new SMPPSession(new SynchronizedPDUSender(),
+                new DefaultPDUReader(), new MemoryConnectionFactory(serverConnFactory));
+        session.setMessageIdCorrelationTable(table);
+        try {
+            session.connectAndBind("localhost", 2775, new BindParameter(
+                    BindType.BIND_TX, "esme", "pwd", "",
+                    TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null));
+            acceptor.join(5000);
+            assertNull(failure.get());
+
+            String messageId = submit(session);
+            assertEquals(table.get(messageId), MessageIdCorrelationTable.NO_CONTEXT);
+
+            long previous = table.setContext(42);
+            try {
+                messageId = submit(session);
+            } finally {
+                table.setContext(previous);
+            }
+            assertEquals(table.get(messageId), 42);
+
+            messageId = session.submitShortMessage(43, "CMT",
+                    TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "1616",
+                    TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "628",
+                    new ESMClass(), (byte)0, (byte)0, null, null,
+                    new RegisteredDelivery(), (byte)0, new GeneralDataCoding(),
+                    (byte)0, "Hello".getBytes());
+            assertEquals(table.get(messageId), 43);
+            assertEquals(table.getContext(), MessageIdCorrelationTable.NO_CONTEXT);
+
+            table.setContext(44);
+            try {
+                messageId = session.submitMultiple("CMT",
+                        TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "1616",
+                        new Address[] { new Address(TypeOfNumber.UNKNOWN,
+                                NumberingPlanIndicator.UNKNOWN, "628") },
+                        new ESMClass(), (byte)0, (byte)0, null, null,
+                        new RegisteredDelivery(), ReplaceIfPresentFlag.DEFAULT,
+                        new GeneralDataCoding(), (byte)0, "Hello".getBytes()).getMessageId();
+            } finally {
+                table.setContext(MessageIdCorrelationTable.NO_CONTEXT);
+            }
+            assertEquals(table.get(messageId), 44);
+            assertEquals(table.size(), 4);
+        } finally {
+            session.unbindAndClose();
+            listener.close();
+        }
+    }
+
+    private static String submit(SMPPSession session) throws Exception {
+        return session.submitShortMessage("CMT",
+                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "1616",
+                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "628",
+                new ESMClass(), (byte)0, (byte)0, null, null,
+                new RegisteredDelivery(), (byte)0, new GeneralDataCoding(),
+                (byte)0, "Hello".getBytes());
+    }
+
+    private static class SequentialMessageIds implements ServerMessageReceiverListener {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public MessageId onAcceptSubmitSm(SubmitSm submitSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            try {
+                return new MessageId("id" + count.incrementAndGet());
+            } catch (Exception e) {
+                throw new ProcessRequestException(e.getMessage(), 0x08);
+            }
+        }
+
+        public SubmitMultiResult onAcceptSubmitMulti(SubmitMulti submitMulti,
+                SMPPServerSession source) throws ProcessRequestException {
+            return new SubmitMultiResult("multi" + count.incrementAndGet());
+        }
+
+        public QuerySmResult onAcceptQuerySm(QuerySm querySm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public void onAcceptReplaceSm(ReplaceSm replaceSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public void onAcceptCancelSm(CancelSm cancelSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public DataSmResult onAcceptDataSm(DataSm dataSm, Session source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+    }
+}
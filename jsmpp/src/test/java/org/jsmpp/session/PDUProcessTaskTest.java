@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.SynchronizedPDUSender;
+import org.jsmpp.bean.AlertNotification;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.CancelSm;
+import org.jsmpp.bean.DataSm;
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.QuerySm;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.ReplaceSm;
+import org.jsmpp.bean.SubmitMulti;
+import org.jsmpp.bean.SubmitMultiResult;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.connection.memory.MemoryConnectionFactory;
+import org.jsmpp.session.connection.memory.MemoryServerConnectionFactory;
+import org.jsmpp.util.DefaultComposer;
+import org.jsmpp.util.MessageId;
+import org.jsmpp.util.RandomMessageIDGenerator;
+import org.testng.annotations.Test;
+
+public class PDUProcessTaskTest {
+
+    @Test(groups="checkintest")
+    public void testProcessedByReader() {
+        assertTrue(PDUProcessTask.isProcessedByReader(SMPPConstant.CID_ENQUIRE_LINK));
+        assertTrue(PDUProcessTask.isProcessedByReader(SMPPConstant.CID_ENQUIRE_LINK_RESP));
+        assertTrue(PDUProcessTask.isProcessedByReader(SMPPConstant.CID_SUBMIT_SM_RESP));
+        assertTrue(PDUProcessTask.isProcessedByReader(SMPPConstant.CID_BIND_TRANSCEIVER_RESP));
+        assertTrue(PDUProcessTask.isProcessedByReader(SMPPConstant.CID_GENERIC_NACK));
+        assertTrue(PDUProcessTask.isProcessedByReader(SMPPConstant.CID_DELIVER_SM_RESP));
+        
+        assertFalse(PDUProcessTask.isProcessedByReader(SMPPConstant.CID_DELIVER_SM));
+        assertFalse(PDUProcessTask.isProcessedByReader(SMPPConstant.CID_UNBIND));
+        assertFalse(PDUProcessTask.isProcessedByReader(SMPPConstant.CID_SUBMIT_SM));
+        assertFalse(PDUProcessTask.isProcessedByReader(SMPPConstant.CID_BIND_TRANSMITTER));
+        // vendor and unknown responses may run application code
+        assertFalse(PDUProcessTask.isProcessedByReader(0x80010200));
+        assertFalse(PDUProcessTask.isProcessedByReader(0x80000100));
+    }
+    
+    /**
+     * The only PDU processor thread of the client is blocked by a deliver_sm,
+     * the enquire_link of the server and the submit_sm_resp are still
+     * processed by the reader thread.
+     */
+    @Test(groups="checkintest")
+    public void testReaderProcessesWhileProcessorBlocked() throws Exception {
+        MemoryServerConnectionFactory serverConnFactory = new MemoryServerConnectionFactory();
+        final SMPPServerSessionListener listener = new SMPPServerSessionListener(2775, serverConnFactory);
+        final AtomicReference<SMPPServerSession> serverSession = new AtomicReference<SMPPServerSession>();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    SMPPServerSession session = listener.accept();
+                    session.setMessageReceiverListener(new SubmitAcceptor());
+                    session.waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+                    session.setTransactionTimer(300);
+                    session.setEnquireLinkTimer(100);
+                    serverSession.set(session);
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        };
+        acceptor.start();
+        
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        SMPPSession session = new SMPPSession(
+                new SynchronizedPDUSender(new DefaultPDUSender(new DefaultComposer())),
+                new DefaultPDUReader(), new MemoryConnectionFactory(serverConnFactory));
+        session.setPduProcessorDegree(1);
+        session.setMessageReceiverListener(new MessageReceiverListener() {
+            public void onAcceptDeliverSm(DeliverSm deliverSm) throws ProcessRequestException {
+                delivered.countDown();
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            public void onAcceptAlertNotification(AlertNotification alertNotification) {
+            }
+            
+            public DataSmResult onAcceptDataSm(DataSm dataSm, Session source)
+                    throws ProcessRequestException {
+                throw new ProcessRequestException("Not supported", 0x03);
+            }
+        });
+        try {
+            session.connectAndBind("localhost", 2775, new BindParameter(
+                    BindType.BIND_TRX, "esme", "pwd", "",
+                    TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null));
+            acceptor.join(5000);
+            assertNull(failure.get());
+            
+            final SMPPServerSession server = serverSession.get();
+            Thread deliverer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        server.deliverShortMessage("CMT", TypeOfNumber.UNKNOWN,
+                                NumberingPlanIndicator.UNKNOWN, "1616",
+                                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
+                                "62161616", new ESMClass(), (byte)0, (byte)0,
+                                new RegisteredDelivery(), new GeneralDataCoding(),
+                                "Hello".getBytes());
+                    } catch (Exception e) {
+                        // the deliver_sm_resp comes after the transaction timer
+                    }
+                }
+            };
+            deliverer.start();
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            
+            String messageId = session.submitShortMessage("CMT", TypeOfNumber.UNKNOWN,
+                    NumberingPlanIndicator.UNKNOWN, "1616", TypeOfNumber.UNKNOWN,
+                    NumberingPlanIndicator.UNKNOWN, "62161616", new ESMClass(),
+                    (byte)0, (byte)0, null, null, new RegisteredDelivery(), (byte)0,
+                    new GeneralDataCoding(), (byte)0, "Hello".getBytes());
+            assertNotNull(messageId);
+            
+            // several enquire_link of the server are answered meanwhile
+            Thread.sleep(1000);
+            assertEquals(server.getSessionState(), SessionState.BOUND_TRX);
+            assertEquals(session.getSessionState(), SessionState.BOUND_TRX);
+            
+            unblock.countDown();
+            deliverer.join(5000);
+        } finally {
+            unblock.countDown();
+            session.unbindAndClose();
+            listener.close();
+        }
+    }
+    
+    private static class SubmitAcceptor implements ServerMessageReceiverListener {
+        
+        public MessageId onAcceptSubmitSm(SubmitSm submitSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            return new RandomMessageIDGenerator().newMessageId();
+        }
+        
+        public SubmitMultiResult onAcceptSubmitMulti(SubmitMulti submitMulti,
+                SMPPServerSession source) throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+        
+        public QuerySmResult onAcceptQuerySm(QuerySm querySm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+        
+        public void onAcceptReplaceSm(ReplaceSm replaceSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+        
+        public void onAcceptCancelSm(CancelSm cancelSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+        
+        public DataSmResult onAcceptDataSm(DataSm dataSm, Session source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.connection.memory.MemoryConnectionFactory;
+import org.jsmpp.session.connection.memory.MemoryServerConnectionFactory;
+import org.testng.annotations.Test;
+
+public class PDUProcessorExecutorTest {
+
+    @Test(groups="checkintest")
+    public void testFixedDegree() throws Exception {
+        PDUProcessorExecutor executor = new PDUProcessorExecutor(2, 2);
+        try {
+            executor.setAdjustInterval(1);
+            for (int i = 0; i < 50; i++) {
+                executor.execute(new Sleep(2));
+            }
+            assertEquals(executor.getCorePoolSize(), 2);
+            assertEquals(executor.getMaximumPoolSize(), 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testGrowWithinBoundsUnderLoad() throws Exception {
+        PDUProcessorExecutor executor = new PDUProcessorExecutor(1, 4);
+        try {
+            executor.setAdjustInterval(10);
+            int maxSeen = 0;
+            for (int i = 0; i < 200; i++) {
+                executor.execute(new Sleep(5));
+                maxSeen = Math.max(maxSeen, executor.getCorePoolSize());
+                Thread.sleep(1);
+            }
+            assertTrue(maxSeen > 1, "degree should grow, was " + maxSeen);
+            assertTrue(maxSeen <= 4, "degree should be bounded, was " + maxSeen);
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test(groups="checkintest")
+    public void testSetDegree() {
+        PDUProcessorExecutor executor = new PDUProcessorExecutor(1, 1);
+        try {
+            executor.setDegree(3, 6);
+            assertEquals(executor.getCorePoolSize(), 3);
+            assertEquals(executor.getMinDegree(), 3);
+            assertEquals(executor.getMaxDegree(), 6);
+            executor.setDegree(1, 2);
+            assertEquals(executor.getCorePoolSize(), 2);
+            assertEquals(executor.getMaximumPoolSize(), 2);
+            try {
+                executor.setDegree(3, 2);
+                fail("should reject max lower than min");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testPauseOnHighWatermark() throws Exception {
+        final PDUProcessorExecutor executor = new PDUProcessorExecutor(1, 1);
+        executor.setWatermarks(5, 2);
+        executor.setMaxPauseTime(0);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger submitted = new AtomicInteger();
+        final AtomicInteger processed = new AtomicInteger();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            processed.incrementAndGet();
+                        }
+                    });
+                    submitted.incrementAndGet();
+                }
+            }
+        };
+        try {
+            reader.start();
+            reader.join(300);
+            assertTrue(reader.isAlive(), "reader should be paused");
+            // paused holding the next PDU, before queuing it
+            assertEquals(executor.getQueueDepth(), 5);
+            assertEquals(submitted.get(), 6);
+            assertEquals(executor.getPausedCount(), 1);
+            
+            release.countDown();
+            reader.join(5000);
+            assertFalse(reader.isAlive());
+            assertEquals(submitted.get(), 10);
+            assertTrue(executor.getMaxQueueDepth() <= 5);
+            assertTrue(executor.getPausedTime() >= 200);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(processed.get(), 10);
+    }
+
+    /**
+     * The tasks never complete, as if waiting for the responses behind the
+     * next request. The reader still queues one PDU per maximum pause time.
+     */
+    @Test(groups="checkintest")
+    public void testResumeAfterMaxPause() throws Exception {
+        final PDUProcessorExecutor executor = new PDUProcessorExecutor(1, 1);
+        executor.setWatermarks(2, 1);
+        executor.setMaxPauseTime(100);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 6; i++) {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    });
+                }
+            }
+        };
+        try {
+            long start = System.currentTimeMillis();
+            reader.start();
+            reader.join(5000);
+            assertFalse(reader.isAlive(), "reader should resume after the max pause");
+            assertTrue(System.currentTimeMillis() - start >= 300);
+            assertEquals(executor.getPausedCount(), 3);
+            assertEquals(executor.getQueueDepth(), 5);
+            assertEquals(executor.getMaxQueueDepth(), 5);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test(groups="checkintest")
+    public void testResumeOnShutdown() throws Exception {
+        final PDUProcessorExecutor executor = new PDUProcessorExecutor(1, 1);
+        executor.setWatermarks(2, 1);
+        executor.setMaxPauseTime(0);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 4; i++) {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    });
+                }
+            }
+        };
+        try {
+            reader.start();
+            reader.join(200);
+            assertTrue(reader.isAlive(), "reader should be paused");
+            executor.shutdownNow();
+            reader.join(5000);
+            assertFalse(reader.isAlive());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testInvalidWatermarks() {
+        PDUProcessorExecutor executor = new PDUProcessorExecutor(1, 1);
+        try {
+            executor.setWatermarks(0, 0);
+            try {
+                executor.setWatermarks(5, 5);
+                fail("should reject low watermark not lower than high");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testAdaptiveDegreeAppliedBeforeBind() throws Exception {
+        MemoryServerConnectionFactory serverConnFactory = new MemoryServerConnectionFactory();
+        SMPPServerSessionListener listener = new SMPPServerSessionListener(2775, serverConnFactory);
+        try {
+            new MemoryConnectionFactory(serverConnFactory).createConnection("localhost", 2775);
+            final SMPPServerSession session = listener.accept();
+            // the reader starts waiting for the bind request, never sent
+            Thread binder = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        session.waitForBind(1000);
+                    } catch (Exception e) {
+                        // expected timeout
+                    }
+                }
+            };
+            binder.start();
+            try {
+                long deadline = System.currentTimeMillis() + 1000;
+                while (session.getPduProcessorExecutor() == null
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(session.getSessionState(), SessionState.OPEN);
+                session.setAdaptivePduProcessorDegree(2, 6);
+                PDUProcessorExecutor executor = session.getPduProcessorExecutor();
+                assertEquals(executor.getMinDegree(), 2);
+                assertEquals(executor.getMaxDegree(), 6);
+            } finally {
+                binder.join(5000);
+                session.close();
+            }
+        } finally {
+            listener.close();
+        }
+    }
+
+    private static class Sleep implements Runnable {
+        private final long millis;
+
+        Sleep(long millis) {
+            this.millis = millis;
+        }
+
+        public void run() {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
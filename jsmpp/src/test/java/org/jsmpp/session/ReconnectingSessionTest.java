@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.DataCoding;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.SessionState;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ReconnectingSessionTest {
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final List<FakeSession> sessions = new ArrayList<FakeSession>();
+    private ExecutorService executorService;
+    
+    @BeforeMethod
+    public void setUp() {
+        executorService = Executors.newCachedThreadPool();
+        failures.set(0);
+        submitted.set(0);
+        sessions.clear();
+    }
+    
+    @AfterMethod
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+    
+    @Test(groups="checkintest")
+    public void testSubmitWaitsForReconnect() throws Exception {
+        failures.set(2);
+        ReconnectingSession session = newReconnectingSession(10);
+        try {
+            Future<String> first = submitLater(session);
+            Thread.sleep(50);
+            assertFalse(first.isDone());
+            assertEquals(session.getQueuedCount(), 1);
+            
+            session.connect();
+            assertEquals(first.get(5, TimeUnit.SECONDS), "id");
+            assertEquals(sessions.size(), 3);
+            
+            lastSession().drop();
+            Future<String> second = submitLater(session);
+            assertEquals(second.get(5, TimeUnit.SECONDS), "id");
+            assertEquals(sessions.size(), 4);
+            assertEquals(submitted.get(), 2);
+        } finally {
+            session.close();
+        }
+    }
+    
+    @Test(groups="checkintest")
+    public void testQueueFullAndClose() throws Exception {
+        ReconnectingSession session = newReconnectingSession(1);
+        Future<String> waiting = submitLater(session);
+        Thread.sleep(50);
+        try {
+            submit(session);
+            fail("Queue should be full");
+        } catch (IOException e) {
+        }
+        
+        session.close();
+        try {
+            waiting.get(5, TimeUnit.SECONDS);
+            fail("Waiting submit should fail on close");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(submitted.get(), 0);
+    }
+    
+    @Test(groups="checkintest")
+    public void testDrainRate() throws Exception {
+        ReconnectingSession session = newReconnectingSession(10);
+        session.setDrainRate(50);
+        try {
+            List<Future<String>> waiting = new ArrayList<Future<String>>();
+            for (int i = 0; i < 10; i++) {
+                waiting.add(submitLater(session));
+            }
+            Thread.sleep(50);
+            assertEquals(session.getQueuedCount(), 10);
+            
+            long start = System.currentTimeMillis();
+            session.connect();
+            for (Future<String> future : waiting) {
+                assertEquals(future.get(5, TimeUnit.SECONDS), "id");
+            }
+            // 9 intervals of 20 millis
+            assertTrue(System.currentTimeMillis() - start >= 150);
+            assertEquals(session.getQueuedCount(), 0);
+        } finally {
+            session.close();
+        }
+    }
+    
+    private ReconnectingSession newReconnectingSession(int queueCapacity) {
+        ReconnectingSession session = new ReconnectingSession("localhost", 2775,
+                new BindParameter(BindType.BIND_TX, "test", "test", "cp",
+                        TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null),
+                queueCapacity) {
+            @Override
+            protected SMPPSession newSession() {
+                FakeSession session = new FakeSession();
+                synchronized (sessions) {
+                    sessions.add(session);
+                }
+                return session;
+            }
+        };
+        session.setInitialBackoff(10);
+        session.setMaxBackoff(40);
+        return session;
+    }
+    
+    private FakeSession lastSession() {
+        synchronized (sessions) {
+            return sessions.get(sessions.size() - 1);
+        }
+    }
+    
+    private Future<String> submitLater(final ReconnectingSession session) {
+        return executorService.submit(new Callable<String>() {
+            public String call() throws Exception {
+                return submit(session);
+            }
+        });
+    }
+    
+    private static String submit(ReconnectingSession session) throws Exception {
+        return session.submitShortMessage("CMT", TypeOfNumber.UNKNOWN,
+                NumberingPlanIndicator.UNKNOWN, "1616", TypeOfNumber.UNKNOWN,
+                NumberingPlanIndicator.UNKNOWN, "62161616", new ESMClass(),
+                (byte)0, (byte)1, null, null, new RegisteredDelivery(),
+                (byte)0, new GeneralDataCoding(), (byte)0, "Hello".getBytes());
+    }
+    
+    private class FakeSession extends SMPPSession {
+        private volatile SessionState state = SessionState.CLOSED;
+        private volatile SessionStateListener listener;
+        
+        @Override
+        public void addSessionStateListener(SessionStateListener l) {
+            listener = l;
+        }
+        
+        @Override
+        public SessionState getSessionState() {
+            return state;
+        }
+        
+        @Override
+        public String connectAndBind(String host, int port,
+                BindParameter bindParam) throws IOException {
+            if (failures.getAndDecrement() > 0) {
+                throw new IOException("Connection refused");
+            }
+            state = SessionState.BOUND_TX;
+            return "smsc";
+        }
+        
+        @Override
+        public String submitShortMessage(String serviceType,
+                TypeOfNumber sourceAddrTon,
+                NumberingPlanIndicator sourceAddrNpi, String sourceAddr,
+                TypeOfNumber destAddrTon, NumberingPlanIndicator destAddrNpi,
+                String destinationAddr, ESMClass esmClass, byte protocolId,
+                byte priorityFlag, String scheduleDeliveryTime,
+                String validityPeriod, RegisteredDelivery registeredDelivery,
+                byte replaceIfPresentFlag, DataCoding dataCoding,
+                byte smDefaultMsgId, byte[] shortMessage,
+                OptionalParameter... optionalParameters) {
+            submitted.incrementAndGet();
+            return "id";
+        }
+        
+        @Override
+        public void unbindAndClose() {
+            state = SessionState.CLOSED;
+        }
+        
+        void drop() {
+            state = SessionState.CLOSED;
+            listener.onStateChange(SessionState.CLOSED, SessionState.BOUND_TX, this);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.InetAddress;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.util.DefaultComposer;
+import org.testng.annotations.Test;
+
+public class ServerSessionRegistryTest {
+
+    @Test(groups="checkintest")
+    public void testSelectReceivableSessions() throws Exception {
+        ServerSessionRegistry registry = new ServerSessionRegistry();
+        SMPPServerSession rx = bind(registry, SMPPConstant.CID_BIND_RECEIVER, "esme", "1616");
+        SMPPServerSession trx = bind(registry, SMPPConstant.CID_BIND_TRANSCEIVER, "esme", null);
+        SMPPServerSession tx = bind(registry, SMPPConstant.CID_BIND_TRANSMITTER, "esme", null);
+        try {
+            assertEquals(registry.getSessions("esme").size(), 2);
+            assertFalse(registry.getSessions("esme").contains(tx));
+            assertNull(registry.select("other"));
+            assertSame(registry.selectByAddressRange("1616"), rx);
+
+            // round robin
+            SMPPServerSession first = registry.select("esme");
+            SMPPServerSession second = registry.select("esme");
+            assertNotSame(first, second);
+            assertSame(registry.select("esme"), first);
+
+            rx.close();
+            assertEquals(registry.getSessions("esme").size(), 1);
+            assertSame(registry.select("esme"), trx);
+            assertNull(registry.selectByAddressRange("1616"));
+
+            trx.close();
+            assertNull(registry.select("esme"));
+        } finally {
+            rx.close();
+            trx.close();
+            tx.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testLeastLoaded() throws Exception {
+        ServerSessionRegistry registry = new ServerSessionRegistry();
+        registry.setSelection(ServerSessionRegistry.Selection.LEAST_LOADED);
+        SMPPServerSession first = bind(registry, SMPPConstant.CID_BIND_RECEIVER, "esme", null);
+        SMPPServerSession second = bind(registry, SMPPConstant.CID_BIND_RECEIVER, "esme", null);
+        try {
+            // no pending response, keep selecting the first
+            assertSame(registry.select("esme"), first);
+            assertSame(registry.select("esme"), first);
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    private static SMPPServerSession bind(ServerSessionRegistry registry,
+            int commandId, String systemId, String addressRange) throws Exception {
+        StubConnection conn = new StubConnection();
+        SMPPServerSession session = new SMPPServerSession(conn,
+                new SessionStateListener() {
+                    public void onStateChange(SessionState newState,
+                            SessionState oldState, Session source) {
+                    }
+                }, null, null, 1);
+        registry.add(session);
+        conn.feed.write(new DefaultComposer().bind(commandId, 1, systemId,
+                "pwd", "", InterfaceVersion.IF_34.value(), (byte)0, (byte)0,
+                addressRange));
+        session.waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+        return session;
+    }
+
+    private static class StubConnection implements Connection {
+        final PipedOutputStream feed = new PipedOutputStream();
+        final PipedInputStream in;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        volatile boolean open = true;
+
+        StubConnection() throws IOException {
+            in = new PipedInputStream(feed, 1024);
+        }
+
+        public boolean isOpen() {
+            return open;
+        }
+
+        public InetAddress getInetAddress() {
+            return null;
+        }
+
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        public void setSoTimeout(int timeout) throws IOException {
+        }
+
+        public void close() throws IOException {
+            open = false;
+            feed.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import java.io.DataInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.Command;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.connection.memory.MemoryConnection;
+import org.jsmpp.util.DefaultComposer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Check that idle bound sessions hold no thread of their own besides the PDU
+ * reader. The heap retained by the idle sessions is measured by
+ * <code>org.jsmpp.examples.SessionFootprintBenchmark</code>.
+ */
+public class SessionFootprintTest {
+    private static final int SESSIONS = 20;
+
+    private final List<MemoryConnection> clients = new ArrayList<MemoryConnection>();
+    private final List<SMPPServerSession> sessions = new ArrayList<SMPPServerSession>();
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        for (SMPPServerSession session : sessions) {
+            session.close();
+        }
+        for (MemoryConnection client : clients) {
+            client.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testNoEnquireLinkThreadPerSession() throws Exception {
+        int before = enquireLinkThreads();
+        bindSessions(SESSIONS);
+        for (SMPPServerSession session : sessions) {
+            assertEquals(session.getSessionState(), SessionState.BOUND_RX);
+        }
+        assertEquals(enquireLinkThreads(), before);
+    }
+
+    private void bindSessions(int count) throws Exception {
+        DefaultComposer composer = new DefaultComposer();
+        DefaultPDUReader pduReader = new DefaultPDUReader();
+        for (int i = 0; i < count; i++) {
+            MemoryConnection[] pair = MemoryConnection.createPair();
+            MemoryConnection client = pair[1];
+            clients.add(client);
+            SMPPServerSession session = new SMPPServerSession(pair[0], null, null, null, 1);
+            sessions.add(session);
+            session.setEnquireLinkTimer(60000);
+
+            client.getOutputStream().write(composer.bind(SMPPConstant.CID_BIND_RECEIVER,
+                    1, "esme" + i, "pwd", "", InterfaceVersion.IF_34.value(),
+                    (byte)0, (byte)0, null));
+            session.waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+            DataInputStream in = new DataInputStream(client.getInputStream());
+            Command bindResp = pduReader.readPDUHeader(in);
+            pduReader.readPDU(in, bindResp);
+            assertEquals(bindResp.getCommandStatus(), SMPPConstant.STAT_ESME_ROK);
+        }
+    }
+
+    /**
+     * @return the live threads sending enquire_link, per session or shared.
+     */
+    private static int enquireLinkThreads() {
+        int total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("EnquireLinkSender")) {
+                total++;
+            }
+        }
+        return total;
+    }
+}
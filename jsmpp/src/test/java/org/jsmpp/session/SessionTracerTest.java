@@ -0,0 +1,195 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.SynchronizedPDUSender;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.Command;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.connection.memory.MemoryConnectionFactory;
+import org.jsmpp.session.connection.memory.MemoryServerConnectionFactory;
+import org.jsmpp.session.connection.socket.SocketConnection;
+import org.jsmpp.util.DefaultComposer;
+import org.testng.annotations.Test;
+
+public class SessionTracerTest {
+
+    @Test(groups="checkintest")
+    public void testTraceServerSession() throws Exception {
+        RecordingTracer tracer = new RecordingTracer();
+        DefaultComposer composer = new DefaultComposer();
+        DefaultPDUReader pduReader = new DefaultPDUReader();
+        ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+        final SMPPServerSession session = new SMPPServerSession(
+                new SocketConnection(serverSocket.accept()), null, null, null, 1);
+        serverSocket.close();
+        try {
+            session.setTracer(tracer);
+            OutputStream out = client.getOutputStream();
+            DataInputStream in = new DataInputStream(client.getInputStream());
+
+            out.write(composer.bind(SMPPConstant.CID_BIND_TRANSCEIVER, 1, "esme",
+                    "pwd", "", InterfaceVersion.IF_34.value(), (byte)0, (byte)0, null));
+            session.waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+            read(pduReader, in);
+            out.write(composer.enquireLink(2));
+            assertEquals(read(pduReader, in).getCommandId(), SMPPConstant.CID_ENQUIRE_LINK_RESP);
+
+            Thread deliver = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        session.deliverShortMessage("CMT", TypeOfNumber.UNKNOWN,
+                                NumberingPlanIndicator.UNKNOWN, "1616",
+                                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
+                                "628", new ESMClass(), (byte)0, (byte)0,
+                                new RegisteredDelivery(), new GeneralDataCoding(),
+                                "Hello".getBytes());
+                    } catch (Exception e) {
+                    }
+                }
+            };
+            deliver.start();
+            Command deliverSm = read(pduReader, in);
+            assertEquals(deliverSm.getCommandId(), SMPPConstant.CID_DELIVER_SM);
+            out.write(composer.deliverSmResp(0, deliverSm.getSequenceNumber()));
+            deliver.join(5000);
+
+            List<String> events = tracer.events;
+            assertTrue(events.contains("state OPEN BOUND_TRX"), events.toString());
+            assertTrue(events.contains("read 0x00000009 seq=1"), events.toString());
+            assertTrue(events.contains("processed 0x00000009 seq=1 queued"), events.toString());
+            assertTrue(events.contains("read 0x00000015 seq=2"), events.toString());
+            assertTrue(events.contains("processed 0x00000015 seq=2"), events.toString());
+            assertTrue(events.contains("executed 0x00000005 seq=" + deliverSm.getSequenceNumber()
+                    + " size=" + deliverSm.getCommandLength() + " status=0"), events.toString());
+        } finally {
+            session.close();
+            client.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testTraceCommandSentThroughPDUSender() throws Exception {
+        RecordingTracer tracer = new RecordingTracer();
+        final AtomicInteger bindSize = new AtomicInteger();
+        DefaultPDUSender pduSender = new DefaultPDUSender(new DefaultComposer()) {
+            @Override
+            public byte[] sendBind(OutputStream os, BindType bindType,
+                    int sequenceNumber, String systemId, String password,
+                    String systemType, InterfaceVersion interfaceVersion,
+                    TypeOfNumber addrTon, NumberingPlanIndicator addrNpi,
+                    String addressRange) throws PDUStringException, IOException {
+                byte[] b = super.sendBind(os, bindType, sequenceNumber, systemId,
+                        password, systemType, interfaceVersion, addrTon, addrNpi,
+                        addressRange);
+                bindSize.set(b.length);
+                return b;
+            }
+        };
+        MemoryServerConnectionFactory serverConnFactory = new MemoryServerConnectionFactory();
+        final SMPPServerSessionListener listener = new SMPPServerSessionListener(2775, serverConnFactory);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    listener.accept().waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        };
+        acceptor.start();
+
+        SMPPSession session = new SMPPSession(new SynchronizedPDUSender(pduSender),
+                new DefaultPDUReader(), new MemoryConnectionFactory(serverConnFactory));
+        try {
+            session.setTracer(tracer);
+            session.connectAndBind("localhost", 2775, new BindParameter(
+                    BindType.BIND_TRX, "esme", "pwd", "",
+                    TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null));
+            acceptor.join(5000);
+            assertNull(failure.get());
+
+            assertTrue(bindSize.get() > 0);
+            List<String> events = tracer.events;
+            assertTrue(events.contains("executed 0x00000009 seq=1 size=" + bindSize.get()
+                    + " status=0"), events.toString());
+        } finally {
+            session.unbindAndClose();
+            listener.close();
+        }
+    }
+
+    private static Command read(DefaultPDUReader pduReader, DataInputStream in) throws Exception {
+        Command pduHeader = pduReader.readPDUHeader(in);
+        pduReader.readPDU(in, pduHeader);
+        return pduHeader;
+    }
+
+    private static class RecordingTracer implements SessionTracer {
+        private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+        public void commandExecuted(Session session, int commandId,
+                int sequenceNumber, int size, Command response, long latencyNanos) {
+            assertTrue(latencyNanos >= 0);
+            events.add(String.format("executed 0x%08x seq=%d size=%d status=%d", commandId,
+                    sequenceNumber, size, response.getCommandStatus()));
+        }
+
+        public void pduRead(Session session, Command pduHeader, long readNanos) {
+            events.add(String.format("read 0x%08x seq=%d", pduHeader.getCommandId(),
+                    pduHeader.getSequenceNumber()));
+        }
+
+        public void pduProcessed(Session session, Command pduHeader,
+                long queueWaitNanos, long processNanos) {
+            // requests other than enquire_link are queued to the processor threads
+            events.add(String.format("processed 0x%08x seq=%d%s", pduHeader.getCommandId(),
+                    pduHeader.getSequenceNumber(), queueWaitNanos > 0 ? " queued" : ""));
+        }
+
+        public void stateChanged(Session session, SessionState oldState,
+                SessionState newState) {
+            events.add("state " + oldState + " " + newState);
+        }
+    }
+}
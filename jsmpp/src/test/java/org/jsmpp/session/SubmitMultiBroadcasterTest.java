@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jsmpp.bean.Address;
+import org.jsmpp.bean.DataCoding;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.ReplaceIfPresentFlag;
+import org.jsmpp.bean.SubmitMultiResult;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.bean.UnsuccessDelivery;
+import org.testng.annotations.Test;
+
+public class SubmitMultiBroadcasterTest {
+
+    @Test(groups="checkintest")
+    public void testBroadcastInChunks() throws Exception {
+        final List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        SMPPSession session = new SMPPSession() {
+            @Override
+            public SubmitMultiResult submitMultiple(String serviceType,
+                    TypeOfNumber sourceAddrTon,
+                    NumberingPlanIndicator sourceAddrNpi, String sourceAddr,
+                    Address[] destinationAddresses, ESMClass esmClass,
+                    byte protocolId, byte priorityFlag,
+                    String scheduleDeliveryTime, String validityPeriod,
+                    RegisteredDelivery registeredDelivery,
+                    ReplaceIfPresentFlag replaceIfPresentFlag,
+                    DataCoding dataCoding, byte smDefaultMsgId,
+                    byte[] shortMessage, OptionalParameter... optionalParameters)
+                    throws IOException {
+                chunkSizes.add(destinationAddresses.length);
+                if (destinationAddresses[0].getAddress().equals("254")) {
+                    throw new IOException("Connection reset");
+                }
+                return new SubmitMultiResult("id", new UnsuccessDelivery(destinationAddresses[0], 1));
+            }
+        };
+
+        List<Address> destinations = new ArrayList<Address>();
+        for (int i = 0; i < 1000; i++) {
+            destinations.add(new Address(TypeOfNumber.INTERNATIONAL, NumberingPlanIndicator.ISDN, String.valueOf(i)));
+        }
+        SubmitMultiBroadcaster broadcaster = new SubmitMultiBroadcaster(session, 2);
+        SubmitMultiBroadcaster.Result result = broadcaster.broadcast(destinations.iterator(),
+                null, "CMT", TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
+                "1616", new ESMClass(), (byte)0, (byte)1, null, null,
+                new RegisteredDelivery(), new ReplaceIfPresentFlag((byte)0),
+                new GeneralDataCoding(), (byte)0, "Hello".getBytes());
+
+        assertEquals(result.getChunks(), 4);
+        assertEquals(result.getDestinations(), 1000);
+        assertEquals(result.getFailedChunks(), 1);
+        assertEquals(result.getFailedDestinations(), 254);
+        assertEquals(result.getUnsuccessDeliveries(), 3);
+        Collections.sort(chunkSizes);
+        assertEquals(chunkSizes.get(0).intValue(), 238);
+        assertEquals(chunkSizes.get(3).intValue(), 254);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import org.jsmpp.SMPPConstant;
+import org.testng.annotations.Test;
+
+public class SubmitThrottleTest {
+
+    @Test(groups="checkintest")
+    public void testUnlimitedByDefault() {
+        SubmitThrottle throttle = new SubmitThrottle();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(throttle.tryAcquire("esme"), 0);
+        }
+        assertEquals(throttle.getInFlight("esme"), 1000);
+    }
+
+    @Test(groups="checkintest")
+    public void testWindow() {
+        SubmitThrottle throttle = new SubmitThrottle();
+        throttle.setDefaultLimit(0, 1, 2);
+        assertEquals(throttle.tryAcquire("esme"), 0);
+        assertEquals(throttle.tryAcquire("esme"), 0);
+        assertEquals(throttle.tryAcquire("esme"), SMPPConstant.STAT_ESME_RMSGQFUL);
+        // other system_id has its own window
+        assertEquals(throttle.tryAcquire("other"), 0);
+
+        throttle.release("esme");
+        assertEquals(throttle.tryAcquire("esme"), 0);
+        assertEquals(throttle.getInFlight("esme"), 2);
+        assertEquals(throttle.getWindowFullCount(), 1);
+    }
+
+    @Test(groups="checkintest")
+    public void testRate() throws Exception {
+        SubmitThrottle throttle = new SubmitThrottle();
+        throttle.setLimit("esme", 10, 3, 0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(throttle.tryAcquire("esme"), 0);
+        }
+        assertEquals(throttle.tryAcquire("esme"), SMPPConstant.STAT_ESME_RTHROTTLED);
+        // rejected submit doesn't take the window
+        assertEquals(throttle.getInFlight("esme"), 3);
+        assertEquals(throttle.getThrottledCount(), 1);
+        // the default limit is still unlimited
+        assertEquals(throttle.tryAcquire("other"), 0);
+
+        Thread.sleep(250);
+        assertEquals(throttle.tryAcquire("esme"), 0);
+    }
+
+    @Test(groups="checkintest")
+    public void testChangeLimitAtRuntime() {
+        SubmitThrottle throttle = new SubmitThrottle();
+        throttle.setLimit("esme", 1, 1, 0);
+        assertEquals(throttle.tryAcquire("esme"), 0);
+        assertEquals(throttle.tryAcquire("esme"), SMPPConstant.STAT_ESME_RTHROTTLED);
+
+        throttle.setLimit("esme", 1, 1, 1);
+        assertEquals(throttle.tryAcquire("esme"), SMPPConstant.STAT_ESME_RMSGQFUL);
+
+        throttle.removeLimit("esme");
+        assertEquals(throttle.tryAcquire("esme"), 0);
+    }
+}
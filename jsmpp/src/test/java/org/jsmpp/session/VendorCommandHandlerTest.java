@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session;
+
+import static org.testng.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.Command;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.state.SMPPServerSessionState;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class VendorCommandHandlerTest {
+    private static final int VENDOR_COMMAND = 0x00010201;
+
+    private List<String> calls;
+    private ServerResponseHandler responseHandler;
+    private SMPPServerSessionContext sessionContext;
+
+    @BeforeMethod
+    public void setUp() {
+        calls = new ArrayList<String>();
+        responseHandler = (ServerResponseHandler)Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] { ServerResponseHandler.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) {
+                        calls.add(method.getName() + Arrays.toString(args));
+                        return null;
+                    }
+                });
+        sessionContext = new SMPPServerSessionContext(null);
+    }
+
+    @Test(groups="checkintest")
+    public void testIsVendorCommand() {
+        assertFalse(AbstractSessionContext.isVendorCommand(SMPPConstant.CID_SUBMIT_SM));
+        assertFalse(AbstractSessionContext.isVendorCommand(SMPPConstant.CID_SUBMIT_SM_RESP));
+        assertFalse(AbstractSessionContext.isVendorCommand(SMPPConstant.CID_DATA_SM));
+        assertTrue(AbstractSessionContext.isVendorCommand(VENDOR_COMMAND));
+        assertTrue(AbstractSessionContext.isVendorCommand(VENDOR_COMMAND | SMPPConstant.MASK_CID_RESP));
+    }
+
+    @Test(groups="checkintest")
+    public void testUnknownCommandWithoutHandler() throws Exception {
+        process(VENDOR_COMMAND, 7);
+        assertEquals(calls, Arrays.asList("sendGenerickNack["
+                + SMPPConstant.STAT_ESME_RINVCMDID + ", 7]"));
+    }
+
+    @Test(groups="checkintest")
+    public void testVendorCommandHandler() throws Exception {
+        final List<Integer> processed = new ArrayList<Integer>();
+        sessionContext.setVendorCommandHandler(VENDOR_COMMAND, new VendorCommandHandler() {
+            public int processCommand(Command pduHeader, byte[] pdu) {
+                processed.add(pduHeader.getSequenceNumber());
+                return SMPPConstant.STAT_ESME_ROK;
+            }
+        });
+        process(VENDOR_COMMAND, 7);
+        assertEquals(processed, Arrays.asList(7));
+        assertEquals(calls, Arrays.asList("sendNegativeResponse["
+                + VENDOR_COMMAND + ", 0, 7]"));
+    }
+
+    @Test(groups="checkintest")
+    public void testVendorCommandRejected() throws Exception {
+        sessionContext.setVendorCommandHandler(VENDOR_COMMAND, new VendorCommandHandler() {
+            public int processCommand(Command pduHeader, byte[] pdu)
+                    throws ProcessRequestException {
+                throw new ProcessRequestException("rejected", SMPPConstant.STAT_ESME_RSYSERR);
+            }
+        });
+        process(VENDOR_COMMAND, 8);
+        assertEquals(calls, Arrays.asList("sendNegativeResponse["
+                + VENDOR_COMMAND + ", " + SMPPConstant.STAT_ESME_RSYSERR + ", 8]"));
+    }
+
+    @Test(groups="checkintest")
+    public void testVendorResponseNotResponded() throws Exception {
+        final int responseCommand = VENDOR_COMMAND | SMPPConstant.MASK_CID_RESP;
+        sessionContext.setVendorCommandHandler(responseCommand, new VendorCommandHandler() {
+            public int processCommand(Command pduHeader, byte[] pdu) {
+                return SMPPConstant.STAT_ESME_ROK;
+            }
+        });
+        process(responseCommand, 9);
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test(groups="checkintest")
+    public void testVendorCommandNotProcessedWhileNotBound() throws Exception {
+        final List<Integer> processed = new ArrayList<Integer>();
+        sessionContext.setVendorCommandHandler(VENDOR_COMMAND, new VendorCommandHandler() {
+            public int processCommand(Command pduHeader, byte[] pdu) {
+                processed.add(pduHeader.getSequenceNumber());
+                return SMPPConstant.STAT_ESME_ROK;
+            }
+        });
+        process(SMPPServerSessionState.OPEN, VENDOR_COMMAND, 10);
+        assertTrue(processed.isEmpty());
+        assertEquals(calls, Arrays.asList("onIOException"));
+    }
+
+    private void process(int commandId, int sequenceNumber) {
+        process(SMPPServerSessionState.BOUND_TRX, commandId, sequenceNumber);
+    }
+
+    private void process(SMPPServerSessionState state, int commandId,
+            int sequenceNumber) {
+        Command pduHeader = new Command();
+        pduHeader.setCommandLength(16);
+        pduHeader.setCommandId(commandId);
+        pduHeader.setSequenceNumber(sequenceNumber);
+        PDUProcessServerTask.process(pduHeader, new byte[16],
+                DispatchTable.forServerSession(state), sessionContext,
+                responseHandler, new Runnable() {
+                    public void run() {
+                        calls.add("onIOException");
+                    }
+                });
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.campaign;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.util.SubmitSmTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class CampaignRunnerTest {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private File checkpointFile;
+    private SubmitSmTemplate template;
+    private MessageRenderer renderer;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        checkpointFile = File.createTempFile("jsmpp-campaign", ".checkpoint");
+        checkpointFile.delete();
+        template = new SubmitSmTemplate("CMT", TypeOfNumber.UNKNOWN,
+                NumberingPlanIndicator.UNKNOWN, "1616", TypeOfNumber.INTERNATIONAL,
+                NumberingPlanIndicator.ISDN, new ESMClass(), (byte)0, (byte)1,
+                null, null, new RegisteredDelivery(), (byte)0,
+                new GeneralDataCoding(), (byte)0, new byte[0]);
+        renderer = new MessageRenderer("Hello {1}", ASCII);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        checkpointFile.delete();
+    }
+
+    @Test(groups="checkintest")
+    public void testRunWithinWindow() throws Exception {
+        RecordingSession session = new RecordingSession(-1);
+        CampaignRunner runner = new CampaignRunner(session, template, renderer, 4);
+        CampaignRunner.Result result = runner.run(recipients(100), null, null);
+
+        assertTrue(result.isCompleted());
+        assertEquals(result.getSubmitted(), 99);
+        assertEquals(result.getFailed(), 1);
+        assertEquals(session.submitted.size(), 99);
+        assertTrue(session.submitted.contains("628042:Hello name42"));
+        assertTrue(session.maxConcurrent <= 4, "Concurrent submits " + session.maxConcurrent);
+    }
+
+    @Test(groups="checkintest")
+    public void testRunOnExecutor() throws Exception {
+        final AtomicInteger executed = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            RecordingSession session = new RecordingSession(-1);
+            CampaignRunner runner = new CampaignRunner(session, template, renderer, 4);
+            runner.setExecutor(new Executor() {
+                public void execute(Runnable command) {
+                    executed.incrementAndGet();
+                    executorService.execute(command);
+                }
+            });
+            CampaignRunner.Result result = runner.run(recipients(50), null, null);
+
+            assertTrue(result.isCompleted());
+            assertEquals(result.getSubmitted(), 50);
+            assertEquals(executed.get(), 50);
+            assertTrue(session.maxConcurrent <= 2, "Concurrent submits " + session.maxConcurrent);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testResumeFromCheckpoint() throws Exception {
+        // connection lost on the 30th submit
+        RecordingSession session = new RecordingSession(30);
+        CampaignRunner runner = new CampaignRunner(session, template, renderer, 1);
+        CampaignCheckpoint checkpoint = new CampaignCheckpoint(checkpointFile);
+        CampaignRunner.Result result = runner.run(recipients(100), checkpoint, null);
+        checkpoint.close();
+
+        assertFalse(result.isCompleted());
+        assertTrue(result.getFailure() instanceof IOException);
+        assertEquals(result.getSubmitted(), 29);
+
+        checkpoint = new CampaignCheckpoint(checkpointFile);
+        assertEquals(checkpoint.getPosition(), 29);
+        session.failAt = -1;
+        result = runner.run(recipients(100), checkpoint, null);
+        checkpoint.close();
+
+        assertTrue(result.isCompleted());
+        assertEquals(result.getSubmitted(), 70);
+        assertEquals(result.getFailed(), 1);
+        // each accepted recipient submitted once
+        assertEquals(session.submitted.size(), 99);
+        assertEquals(new HashSet<String>(session.submitted).size(), 99);
+    }
+
+    private static IteratorRecipientSource recipients(int count) {
+        List<String[]> recipients = new ArrayList<String[]>();
+        for (int i = 0; i < count; i++) {
+            recipients.add(new String[] { "628" + (i < 10 ? "00" : i < 100 ? "0" : "") + i, "name" + i });
+        }
+        return new IteratorRecipientSource(recipients.iterator(), ASCII);
+    }
+
+    /**
+     * Records the submitted messages, rejects the destination 628099 and
+     * fails the connection on the <code>failAt</code> submit.
+     */
+    private static class RecordingSession extends SMPPSession {
+        private final List<String> submitted = Collections.synchronizedList(new ArrayList<String>());
+        private volatile int failAt;
+        private int count;
+        private int concurrent;
+        private int maxConcurrent;
+
+        RecordingSession(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public String submitShortMessage(SubmitSmTemplate template,
+                byte[] destinationAddr, byte[] shortMessage)
+                throws NegativeResponseException, IOException {
+            synchronized (this) {
+                if (++count == failAt) {
+                    throw new IOException("Connection reset");
+                }
+                maxConcurrent = Math.max(maxConcurrent, ++concurrent);
+            }
+            try {
+                Thread.sleep(1);
+                String destination = new String(destinationAddr, ASCII);
+                if (destination.equals("628099")) {
+                    throw new NegativeResponseException(SMPPConstant.STAT_ESME_RINVDSTADR);
+                }
+                submitted.add(destination + ":" + new String(shortMessage, ASCII));
+                return destination;
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted");
+            } finally {
+                synchronized (this) {
+                    concurrent--;
+                }
+            }
+        }
+    }
+}
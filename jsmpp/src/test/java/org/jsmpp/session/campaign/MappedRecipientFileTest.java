@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.campaign;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MappedRecipientFileTest {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private File file;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        file = File.createTempFile("jsmpp-recipients", ".csv");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test(groups="checkintest")
+    public void testReadAcrossRegions() throws Exception {
+        write("628111,Budi,10\r\n\n628222,Ani\n628333");
+        // region smaller than the file, lines continue in the next region
+        MappedRecipientFile source = new MappedRecipientFile(file, 16);
+        try {
+            Recipient recipient = source.next();
+            assertEquals(recipient.getFieldCount(), 3);
+            assertEquals(field(recipient, 0), "628111");
+            assertEquals(field(recipient, 1), "Budi");
+            assertEquals(field(recipient, 2), "10");
+            assertEquals(source.getPosition(), 16);
+
+            recipient = source.next();
+            assertEquals(recipient.getFieldCount(), 2);
+            assertEquals(field(recipient, 0), "628222");
+            assertEquals(field(recipient, 1), "Ani");
+
+            recipient = source.next();
+            assertEquals(recipient.getFieldCount(), 1);
+            assertEquals(field(recipient, 0), "628333");
+            assertNull(source.next());
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testSeek() throws Exception {
+        write("628111,Budi\n628222,Ani\n");
+        MappedRecipientFile source = new MappedRecipientFile(file);
+        try {
+            source.next();
+            long position = source.getPosition();
+            source.next();
+            assertNull(source.next());
+
+            source.seek(position);
+            assertEquals(field(source.next(), 1), "Ani");
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test(groups="checkintest", expectedExceptions=IOException.class)
+    public void testLineLongerThanRegion() throws Exception {
+        write("628111,Budi\n628222,Ani\n");
+        MappedRecipientFile source = new MappedRecipientFile(file, 8);
+        try {
+            source.next();
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testRenderMessage() throws Exception {
+        write("628111,Budi,10\n628222\n");
+        MessageRenderer renderer = new MessageRenderer("Dear {1}, {2} {points} left for {0}", ASCII);
+        MappedRecipientFile source = new MappedRecipientFile(file);
+        try {
+            assertEquals(new String(renderer.render(source.next()), "US-ASCII"),
+                    "Dear Budi, 10 {points} left for 628111");
+            assertEquals(new String(renderer.render(source.next()), "US-ASCII"),
+                    "Dear ,  {points} left for 628222");
+        } finally {
+            source.close();
+        }
+    }
+
+    private void write(String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(ASCII.name()));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String field(Recipient recipient, int index) {
+        byte[] b = new byte[recipient.getFieldLength(index)];
+        recipient.copyField(index, b, 0);
+        return new String(b, ASCII);
+    }
+}
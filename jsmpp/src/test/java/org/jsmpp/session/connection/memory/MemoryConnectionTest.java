@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.memory;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.SynchronizedPDUSender;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.BindParameter;
+import org.jsmpp.session.SMPPServerSession;
+import org.jsmpp.session.SMPPServerSessionListener;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ServerConnection;
+import org.jsmpp.util.DefaultComposer;
+import org.testng.annotations.Test;
+
+public class MemoryConnectionTest {
+
+    @Test(groups="checkintest")
+    public void testTransferWrapsAroundRing() throws Exception {
+        MemoryConnection[] pair = MemoryConnection.createPair(60);
+        final byte[] data = new byte[1 << 20];
+        new Random(7).nextBytes(data);
+        final OutputStream out = pair[0].getOutputStream();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Random random = new Random(11);
+                    int off = 0;
+                    while (off < data.length) {
+                        int len = Math.min(random.nextInt(200), data.length - off);
+                        out.write(data, off, len);
+                        off += len;
+                    }
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        };
+        writer.start();
+
+        InputStream in = pair[1].getInputStream();
+        byte[] received = new byte[data.length];
+        Random random = new Random(13);
+        int off = 0;
+        while (off < received.length) {
+            int n = in.read(received, off, Math.min(1 + random.nextInt(100), received.length - off));
+            assertTrue(n > 0);
+            off += n;
+        }
+        writer.join(5000);
+        assertNull(failure.get());
+        assertTrue(Arrays.equals(received, data));
+        assertEquals(in.available(), 0);
+    }
+
+    @Test(groups="checkintest")
+    public void testReadTimeout() throws Exception {
+        MemoryConnection[] pair = MemoryConnection.createPair();
+        pair[1].setSoTimeout(50);
+        try {
+            pair[1].getInputStream().read();
+            fail("SocketTimeoutException expected");
+        } catch (SocketTimeoutException e) {
+        }
+        pair[0].getOutputStream().write(42);
+        assertEquals(pair[1].getInputStream().read(), 42);
+    }
+
+    @Test(groups="checkintest")
+    public void testCloseEndsStreamOfPeer() throws Exception {
+        MemoryConnection[] pair = MemoryConnection.createPair();
+        pair[0].getOutputStream().write(new byte[] { 1, 2, 3 });
+        pair[0].close();
+        assertFalse(pair[0].isOpen());
+        assertFalse(pair[1].isOpen());
+
+        InputStream in = pair[1].getInputStream();
+        byte[] b = new byte[8];
+        assertEquals(in.read(b, 0, b.length), 3);
+        assertEquals(in.read(), -1);
+        try {
+            pair[1].getOutputStream().write(4);
+            fail("IOException expected");
+        } catch (IOException e) {
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testListenAndConnect() throws Exception {
+        MemoryServerConnectionFactory serverConnFactory = new MemoryServerConnectionFactory(1024);
+        MemoryConnectionFactory connFactory = new MemoryConnectionFactory(serverConnFactory);
+        try {
+            connFactory.createConnection("localhost", 2775);
+            fail("ConnectException expected");
+        } catch (ConnectException e) {
+        }
+
+        ServerConnection serverConn = serverConnFactory.listen(2775, 50, 1);
+        try {
+            serverConnFactory.listen(2775);
+            fail("BindException expected");
+        } catch (BindException e) {
+        }
+        try {
+            serverConn.accept();
+            fail("SocketTimeoutException expected");
+        } catch (SocketTimeoutException e) {
+        }
+
+        Connection client = connFactory.createConnection("localhost", 2775);
+        try {
+            connFactory.createConnection("localhost", 2775);
+            fail("backlog is full, ConnectException expected");
+        } catch (ConnectException e) {
+        }
+        Connection server = serverConn.accept();
+        client.getOutputStream().write(5);
+        assertEquals(server.getInputStream().read(), 5);
+
+        serverConn.close();
+        try {
+            connFactory.createConnection("localhost", 2775);
+            fail("ConnectException expected");
+        } catch (ConnectException e) {
+        }
+        serverConnFactory.listen(2775).close();
+    }
+
+    @Test(groups="checkintest")
+    public void testBindSessions() throws Exception {
+        MemoryServerConnectionFactory serverConnFactory = new MemoryServerConnectionFactory();
+        final SMPPServerSessionListener listener = new SMPPServerSessionListener(2775, serverConnFactory);
+        final int count = 200;
+        final List<SMPPServerSession> serverSessions = new ArrayList<SMPPServerSession>();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        SMPPServerSession session = listener.accept();
+                        serverSessions.add(session);
+                        session.waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+                    }
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        };
+        acceptor.start();
+
+        List<SMPPSession> sessions = new ArrayList<SMPPSession>();
+        try {
+            for (int i = 0; i < count; i++) {
+                SMPPSession session = new SMPPSession(
+                        new SynchronizedPDUSender(new DefaultPDUSender(new DefaultComposer())),
+                        new DefaultPDUReader(), new MemoryConnectionFactory(serverConnFactory));
+                sessions.add(session);
+                session.connectAndBind("localhost", 2775, new BindParameter(
+                        BindType.BIND_TRX, "esme" + i, "pwd", "",
+                        TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null));
+                assertEquals(session.getSessionState(), SessionState.BOUND_TRX);
+            }
+            acceptor.join(5000);
+            assertNull(failure.get());
+            assertEquals(serverSessions.size(), count);
+        } finally {
+            for (SMPPSession session : sessions) {
+                session.unbindAndClose();
+            }
+            listener.close();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.connection.tls;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.SynchronizedPDUSender;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.SessionState;
+import org.jsmpp.session.BindParameter;
+import org.jsmpp.session.SMPPServerSession;
+import org.jsmpp.session.SMPPServerSessionListener;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ServerConnection;
+import org.jsmpp.util.DefaultComposer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TLSConnectionTest {
+    private static final String PASSWORD = "changeit";
+
+    private File keyStoreFile;
+    private SSLContext sslContext;
+
+    @BeforeClass(groups="checkintest")
+    public void generateKeyStore() throws Exception {
+        keyStoreFile = File.createTempFile("jsmpp-tls", ".jks");
+        // keytool refuses to write into an existing empty file
+        keyStoreFile.delete();
+        String keytool = new File(new File(System.getProperty("java.home"), "bin"), "keytool").getPath();
+        Process process = new ProcessBuilder(keytool, "-genkeypair",
+                "-alias", "jsmpp", "-keyalg", "RSA", "-keysize", "2048",
+                "-validity", "1", "-dname", "CN=localhost",
+                "-storetype", "JKS", "-keystore", keyStoreFile.getPath(),
+                "-storepass", PASSWORD, "-keypass", PASSWORD)
+                .redirectErrorStream(true).start();
+        InputStream out = process.getInputStream();
+        while (out.read() != -1) {
+        }
+        assertEquals(process.waitFor(), 0, "keytool failed");
+
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        FileInputStream in = new FileInputStream(keyStoreFile);
+        try {
+            keyStore.load(in, PASSWORD.toCharArray());
+        } finally {
+            in.close();
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD.toCharArray());
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+    }
+
+    @AfterClass(groups="checkintest")
+    public void deleteKeyStore() {
+        if (keyStoreFile != null) {
+            keyStoreFile.delete();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testHandshakeAndRoundTrip() throws Exception {
+        int port = freePort();
+        ServerConnection serverConn = new TLSServerConnectionFactory(sslContext).listen(port, 5000);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        try {
+            Connection client = new TLSConnectionFactory(sslContext).createConnection("localhost", port);
+            final Connection server = serverConn.accept();
+            server.setSoTimeout(5000);
+            client.setSoTimeout(5000);
+            Thread echo = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        InputStream in = server.getInputStream();
+                        OutputStream out = server.getOutputStream();
+                        byte[] b = new byte[4096];
+                        int n;
+                        while ((n = in.read(b, 0, b.length)) > 0) {
+                            out.write(b, 0, n);
+                        }
+                    } catch (Exception e) {
+                        failure.set(e);
+                    }
+                }
+            };
+            echo.start();
+
+            // larger than the socket buffers, so both sides wait for the peer
+            final byte[] data = new byte[1 << 21];
+            new Random(17).nextBytes(data);
+            final OutputStream out = client.getOutputStream();
+            Thread writer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        out.write(data, 0, data.length);
+                    } catch (Exception e) {
+                        failure.set(e);
+                    }
+                }
+            };
+            writer.start();
+
+            InputStream in = client.getInputStream();
+            byte[] received = new byte[data.length];
+            int off = 0;
+            while (off < received.length) {
+                int n = in.read(received, off, received.length - off);
+                assertTrue(n > 0);
+                off += n;
+            }
+            writer.join(5000);
+            assertTrue(Arrays.equals(received, data));
+
+            client.close();
+            assertFalse(client.isOpen());
+            echo.join(5000);
+            assertFalse(echo.isAlive());
+            assertNull(failure.get());
+            server.close();
+        } finally {
+            serverConn.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testBindSession() throws Exception {
+        int port = freePort();
+        final SMPPServerSessionListener listener = new SMPPServerSessionListener(port,
+                new TLSServerConnectionFactory(sslContext));
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final AtomicReference<SMPPServerSession> serverSession = new AtomicReference<SMPPServerSession>();
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    SMPPServerSession session = listener.accept();
+                    serverSession.set(session);
+                    session.waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        };
+        acceptor.start();
+
+        SMPPSession session = new SMPPSession(
+                new SynchronizedPDUSender(new DefaultPDUSender(new DefaultComposer())),
+                new DefaultPDUReader(), new TLSConnectionFactory(sslContext));
+        try {
+            session.connectAndBind("localhost", port, new BindParameter(
+                    BindType.BIND_TRX, "esme", "pwd", "",
+                    TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null));
+            assertEquals(session.getSessionState(), SessionState.BOUND_TRX);
+            acceptor.join(5000);
+            assertNull(failure.get());
+            assertEquals(serverSession.get().getSessionState(), SessionState.BOUND_TRX);
+        } finally {
+            session.unbindAndClose();
+            listener.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testEnlargedBufferPooled() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(16, 4);
+        pool.release(pool.acquire());
+        assertEquals(pool.acquire(64).capacity(), 64);
+        assertEquals(pool.getBufferSize(), 64);
+        // the smaller buffers are dropped
+        assertEquals(pool.acquire().capacity(), 64);
+        pool.release(ByteBuffer.allocateDirect(16));
+        assertEquals(pool.acquire().capacity(), 64);
+    }
+
+    private static int freePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.session.journal;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.SynchronizedPDUSender;
+import org.jsmpp.bean.BindType;
+import org.jsmpp.bean.CancelSm;
+import org.jsmpp.bean.DataSm;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.QuerySm;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.ReplaceSm;
+import org.jsmpp.bean.SubmitMulti;
+import org.jsmpp.bean.SubmitMultiResult;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.BindParameter;
+import org.jsmpp.session.DataSmResult;
+import org.jsmpp.session.QuerySmResult;
+import org.jsmpp.session.SMPPServerSession;
+import org.jsmpp.session.SMPPServerSessionListener;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.session.ServerMessageReceiverListener;
+import org.jsmpp.session.Session;
+import org.jsmpp.session.connection.memory.MemoryConnectionFactory;
+import org.jsmpp.session.connection.memory.MemoryServerConnectionFactory;
+import org.jsmpp.util.MessageId;
+import org.jsmpp.util.RandomMessageIDGenerator;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MappedSubmitJournalTest {
+    private File directory;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = File.createTempFile("jsmpp-journal", "");
+        directory.delete();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test(groups="checkintest")
+    public void testRecoverUnacknowledged() throws Exception {
+        MappedSubmitJournal journal = new MappedSubmitJournal(directory, 4096, 0);
+        long first = journal.append(new byte[] { 1, 2, 3 });
+        long second = journal.append(new byte[] { 4, 5 });
+        long third = journal.append(new byte[] { 6 });
+        journal.acknowledge(second);
+        journal.close();
+
+        journal = new MappedSubmitJournal(directory, 4096, 0);
+        try {
+            List<JournalEntry> entries = journal.getRecoveredEntries();
+            assertEquals(entries.size(), 2);
+            assertEquals(entries.get(0).getId(), first);
+            assertEquals(entries.get(0).getPdu(), new byte[] { 1, 2, 3 });
+            assertEquals(entries.get(1).getId(), third);
+            assertEquals(entries.get(1).getPdu(), new byte[] { 6 });
+            assertTrue(journal.append(new byte[] { 7 }) > third);
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testRollKeepsUnacknowledged() throws Exception {
+        MappedSubmitJournal journal = new MappedSubmitJournal(directory, 256, 10);
+        long kept = journal.append(new byte[] { 9, 9, 9 });
+        for (int i = 0; i < 100; i++) {
+            journal.acknowledge(journal.append(new byte[20]));
+        }
+        assertEquals(journal.getUnacknowledgedCount(), 1);
+        journal.close();
+        assertEquals(directory.listFiles().length, 1);
+
+        journal = new MappedSubmitJournal(directory, 256, 10);
+        try {
+            List<JournalEntry> entries = journal.getRecoveredEntries();
+            assertEquals(entries.size(), 1);
+            assertEquals(entries.get(0).getId(), kept);
+            assertEquals(entries.get(0).getPdu(), new byte[] { 9, 9, 9 });
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test(groups="checkintest")
+    public void testJournalingSender() throws Exception {
+        MappedSubmitJournal journal = new MappedSubmitJournal(directory, 4096, 0);
+        JournalingPDUSender sender = new JournalingPDUSender(new DefaultPDUSender(), journal);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] first = submitSm(sender, out, 1);
+        byte[] second = submitSm(sender, out, 2);
+        sender.sendEnquireLink(out, 3);
+        assertEquals(journal.getUnacknowledgedCount(), 2);
+        assertEquals(out.size(), first.length + second.length + 16);
+
+        sender.acknowledge(1);
+        // no response, stays in the journal
+        sender.release(2);
+        sender.acknowledge(2);
+        sender.acknowledge(3);
+        assertEquals(journal.getUnacknowledgedCount(), 1);
+        journal.close();
+
+        journal = new MappedSubmitJournal(directory, 4096, 0);
+        try {
+            List<JournalEntry> entries = journal.getRecoveredEntries();
+            assertEquals(entries.size(), 1);
+            assertEquals(entries.get(0).getPdu(), second);
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static byte[] submitSm(JournalingPDUSender sender,
+            ByteArrayOutputStream out, int sequenceNumber) throws Exception {
+        return sender.sendSubmitSm(out, sequenceNumber, "CMT",
+                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "1616",
+                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "628",
+                new ESMClass(), (byte)0, (byte)0, null, null,
+                new RegisteredDelivery(), (byte)0, new GeneralDataCoding(),
+                (byte)0, "Hello".getBytes());
+    }
+
+    @Test(groups="checkintest")
+    public void testReplaySubmitJournal() throws Exception {
+        MappedSubmitJournal journal = new MappedSubmitJournal(directory, 4096, 0);
+        JournalingPDUSender sender = new JournalingPDUSender(new DefaultPDUSender(), journal);
+        submitSm(sender, new ByteArrayOutputStream(), 1);
+        journal.close();
+
+        MemoryServerConnectionFactory serverConnFactory = new MemoryServerConnectionFactory();
+        final SMPPServerSessionListener listener = new SMPPServerSessionListener(2775, serverConnFactory);
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    SMPPServerSession session = listener.accept();
+                    session.setMessageReceiverListener(new SubmitCounter(received));
+                    session.waitForBind(5000).accept("sys", InterfaceVersion.IF_34);
+                } catch (Exception e) {
+                    failure.set(e);
+                }
+            }
+        };
+        acceptor.start();
+
+        journal = new MappedSubmitJournal(directory, 4096, 0);
+        sender = new JournalingPDUSender(new DefaultPDUSender(), journal);
+        SMPPSession session = new SMPPSession(new SynchronizedPDUSender(sender),
+                new DefaultPDUReader(), new MemoryConnectionFactory(serverConnFactory));
+        session.setSubmitJournal(sender);
+        try {
+            session.connectAndBind("localhost", 2775, new BindParameter(
+                    BindType.BIND_TX, "esme", "pwd", "",
+                    TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, null));
+            acceptor.join(5000);
+            assertNull(failure.get());
+            assertEquals(session.replaySubmitJournal(), 1);
+            assertEquals(received.get(), 1);
+            assertEquals(journal.getUnacknowledgedCount(), 0);
+        } finally {
+            session.unbindAndClose();
+            listener.close();
+            journal.close();
+        }
+    }
+
+    private static class SubmitCounter implements ServerMessageReceiverListener {
+        private final AtomicInteger received;
+
+        SubmitCounter(AtomicInteger received) {
+            this.received = received;
+        }
+
+        public MessageId onAcceptSubmitSm(SubmitSm submitSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            received.incrementAndGet();
+            return new RandomMessageIDGenerator().newMessageId();
+        }
+
+        public SubmitMultiResult onAcceptSubmitMulti(SubmitMulti submitMulti,
+                SMPPServerSession source) throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public QuerySmResult onAcceptQuerySm(QuerySm querySm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public void onAcceptReplaceSm(ReplaceSm replaceSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public void onAcceptCancelSm(CancelSm cancelSm, SMPPServerSession source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+
+        public DataSmResult onAcceptDataSm(DataSm dataSm, Session source)
+                throws ProcessRequestException {
+            throw new ProcessRequestException("Not supported", 0x03);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.util;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public class BoundedExecutorTest {
+
+    @Test(groups="checkintest")
+    public void testMaxPending() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor(3);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        for (int i = 0; i < 30; i++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    int current = running.incrementAndGet();
+                    while (true) {
+                        int max = maxRunning.get();
+                        if (current <= max || maxRunning.compareAndSet(max, current)) {
+                            break;
+                        }
+                    }
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        }
+        executor.awaitCompletion();
+        assertEquals(completed.get(), 30);
+        assertTrue(maxRunning.get() <= 3);
+    }
+
+    @Test(groups="checkintest")
+    public void testRejectedReleasesPermit() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor(new Executor() {
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        }, 1);
+        for (int i = 0; i < 2; i++) {
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                    }
+                });
+                fail("RejectedExecutionException expected");
+            } catch (RejectedExecutionException e) {
+            }
+        }
+        executor.awaitCompletion();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.util;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+
+import org.testng.annotations.Test;
+
+public class ElasticBufferedInputStreamTest {
+
+    @Test(groups="checkintest")
+    public void testBufferAllocatedOnDemand() throws Exception {
+        ElasticBufferedInputStream in = new ElasticBufferedInputStream(
+                new ByteArrayInputStream(new byte[] { 1, 2, 3 }), 16, 64);
+        assertEquals(in.getBufferSize(), 0);
+        assertEquals(in.read(), 1);
+        assertEquals(in.getBufferSize(), 16);
+        assertEquals(in.available(), 2);
+        byte[] b = new byte[4];
+        assertEquals(in.read(b, 0, 4), 2);
+        assertEquals(b[1], 3);
+        assertEquals(in.read(), -1);
+    }
+
+    @Test(groups="checkintest")
+    public void testBufferGrowsUnderLoad() throws Exception {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte)i;
+        }
+        ElasticBufferedInputStream in = new ElasticBufferedInputStream(
+                new ByteArrayInputStream(data), 16, 64);
+        DataInputStream din = new DataInputStream(in);
+        int maxBufferSize = 0;
+        for (int i = 0; i < data.length; i++) {
+            assertEquals(din.readByte(), data[i]);
+            maxBufferSize = Math.max(maxBufferSize, in.getBufferSize());
+        }
+        assertEquals(maxBufferSize, 64);
+    }
+
+    @Test(groups="checkintest")
+    public void testBufferReleasedWhenIdle() throws Exception {
+        IdleInputStream idle = new IdleInputStream(new byte[] { 1, 2 });
+        ElasticBufferedInputStream in = new ElasticBufferedInputStream(idle, 16, 64);
+        assertEquals(in.read(), 1);
+        assertEquals(in.read(), 2);
+        assertEquals(in.getBufferSize(), 16);
+        try {
+            in.read();
+            fail("SocketTimeoutException expected");
+        } catch (SocketTimeoutException e) {
+        }
+        assertEquals(in.getBufferSize(), 0);
+
+        idle.feed(new byte[] { 3 });
+        assertEquals(in.read(), 3);
+        assertEquals(in.getBufferSize(), 16);
+    }
+
+    @Test(groups="checkintest")
+    public void testLargeReadBypassesBuffer() throws Exception {
+        byte[] data = new byte[256];
+        ElasticBufferedInputStream in = new ElasticBufferedInputStream(
+                new ByteArrayInputStream(data), 16, 64);
+        byte[] b = new byte[128];
+        assertEquals(in.read(b, 0, b.length), 128);
+        assertEquals(in.getBufferSize(), 0);
+    }
+
+    /**
+     * Returns the fed bytes, then times out like an idle socket.
+     */
+    private static class IdleInputStream extends InputStream {
+        private byte[] data;
+        private int pos;
+
+        IdleInputStream(byte[] data) {
+            this.data = data;
+        }
+
+        void feed(byte[] data) {
+            this.data = data;
+            pos = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (pos >= data.length) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            int n = Math.min(len, data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+}
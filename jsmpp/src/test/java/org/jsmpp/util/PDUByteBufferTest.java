@@ -15,6 +15,11 @@
 package org.jsmpp.util;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+
+import org.jsmpp.PDUStringException;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -87,4 +92,48 @@ public class PDUByteBufferTest {
             assertEquals(pdu.length, byteBuffer.getBytesLength(), "Failed on iteration " + i);
         }
     }
+    
+    @Test(groups="checkintest", dependsOnMethods="initialLengthValidity")
+    public void testStringEncodingForNonAscii() {
+        String value = "Caf\u00e9 \u20ac5 \u4e2d\u6587";
+        byte[] expected = value.getBytes();
+        byteBuffer.append(value, false);
+        byte[] pdu = byteBuffer.toBytes();
+        assertEquals(pdu.length, INITIAL_LENGTH + expected.length);
+        assertEquals(pdu.length, byteBuffer.getCommandLengthValue());
+        assertEquals(Arrays.copyOfRange(pdu, INITIAL_LENGTH, pdu.length), expected);
+    }
+    
+    @Test(groups="checkintest", dependsOnMethods="initialLengthValidity")
+    public void testValidatedStringAppend() throws Exception {
+        String value = "12345678901234567890";
+        byteBuffer.append(value, StringParameter.DESTINATION_ADDR);
+        assertEquals(byteBuffer.getBytesLength(), INITIAL_LENGTH + value.length() + 1);
+        assertEquals(byteBuffer.getCommandLengthValue(), byteBuffer.getBytesLength());
+        
+        byteBuffer.append((String)null, StringParameter.DESTINATION_ADDR);
+        assertEquals(byteBuffer.getBytesLength(), INITIAL_LENGTH + value.length() + 2);
+        
+        try {
+            byteBuffer.append(value + "1", StringParameter.DESTINATION_ADDR);
+            fail("The value length should be rejected");
+        } catch (PDUStringException e) {
+            assertEquals(e.getParameter(), StringParameter.DESTINATION_ADDR);
+        }
+        assertEquals(byteBuffer.getBytesLength(), INITIAL_LENGTH + value.length() + 2);
+        assertEquals(byteBuffer.getCommandLengthValue(), byteBuffer.getBytesLength());
+    }
+    
+    @Test(groups="checkintest", dependsOnMethods="initialLengthValidity")
+    public void testValidatedStringAppendCountsEncodedOctets() {
+        // 20 characters, more than 20 octets when the charset is not single octet
+        String value = "\u00e9234567890123456789";
+        boolean valid = value.getBytes().length < StringParameter.DESTINATION_ADDR.getMax();
+        try {
+            byteBuffer.append(value, StringParameter.DESTINATION_ADDR);
+            assertEquals(valid, true);
+        } catch (PDUStringException e) {
+            assertEquals(valid, false);
+        }
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.util;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.PDUSender;
+import org.jsmpp.PDUStringException;
+import org.jsmpp.SynchronizedPDUSender;
+import org.jsmpp.capture.CapturingPDUSender;
+import org.jsmpp.capture.PDUCapture;
+import org.jsmpp.capture.PDUDirection;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.SMSCDeliveryReceipt;
+import org.jsmpp.bean.TypeOfNumber;
+import org.testng.annotations.Test;
+
+public class SubmitSmTemplateTest {
+
+    @Test(groups="checkintest")
+    public void testSameAsComposer() throws Exception {
+        RegisteredDelivery registeredDelivery = new RegisteredDelivery(SMSCDeliveryReceipt.SUCCESS_FAILURE);
+        OptionalParameter userMessageReference = new OptionalParameter.Short(
+                OptionalParameter.Tag.USER_MESSAGE_REFERENCE, (short)7);
+        SubmitSmTemplate template = new SubmitSmTemplate("CMT",
+                TypeOfNumber.ALPHANUMERIC, NumberingPlanIndicator.UNKNOWN, "jsmpp",
+                TypeOfNumber.INTERNATIONAL, NumberingPlanIndicator.ISDN,
+                new ESMClass(), (byte)0, (byte)1, null, "000001000000000R",
+                registeredDelivery, (byte)0, new GeneralDataCoding(), (byte)0,
+                "Hello world".getBytes(), userMessageReference);
+
+        byte[] expected = new DefaultComposer().submitSm(42, "CMT",
+                TypeOfNumber.ALPHANUMERIC.value(), NumberingPlanIndicator.UNKNOWN.value(), "jsmpp",
+                TypeOfNumber.INTERNATIONAL.value(), NumberingPlanIndicator.ISDN.value(), "628176504657",
+                new ESMClass().value(), (byte)0, (byte)1, null, "000001000000000R",
+                registeredDelivery.value(), (byte)0, new GeneralDataCoding().toByte(), (byte)0,
+                "Hello world".getBytes(), userMessageReference);
+
+        assertEquals(template.compose(42, "628176504657"), expected);
+    }
+
+    @Test(groups="checkintest")
+    public void testComposeWithShortMessage() throws Exception {
+        RegisteredDelivery registeredDelivery = new RegisteredDelivery(SMSCDeliveryReceipt.SUCCESS_FAILURE);
+        OptionalParameter userMessageReference = new OptionalParameter.Short(
+                OptionalParameter.Tag.USER_MESSAGE_REFERENCE, (short)7);
+        SubmitSmTemplate template = new SubmitSmTemplate("CMT",
+                TypeOfNumber.ALPHANUMERIC, NumberingPlanIndicator.UNKNOWN, "jsmpp",
+                TypeOfNumber.INTERNATIONAL, NumberingPlanIndicator.ISDN,
+                new ESMClass(), (byte)0, (byte)1, null, null,
+                registeredDelivery, (byte)0, new GeneralDataCoding(), (byte)0,
+                new byte[0], userMessageReference);
+
+        byte[] expected = new DefaultComposer().submitSm(7, "CMT",
+                TypeOfNumber.ALPHANUMERIC.value(), NumberingPlanIndicator.UNKNOWN.value(), "jsmpp",
+                TypeOfNumber.INTERNATIONAL.value(), NumberingPlanIndicator.ISDN.value(), "628176504657",
+                new ESMClass().value(), (byte)0, (byte)1, null, null,
+                registeredDelivery.value(), (byte)0, new GeneralDataCoding().toByte(), (byte)0,
+                "Hello Budi".getBytes(), userMessageReference);
+
+        assertEquals(template.compose(7, "628176504657".getBytes(), "Hello Budi".getBytes()), expected);
+    }
+
+    @Test(groups="checkintest", expectedExceptions=PDUStringException.class)
+    public void testInvalidDestination() throws Exception {
+        SubmitSmTemplate template = new SubmitSmTemplate("CMT",
+                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "1616",
+                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
+                new ESMClass(), (byte)0, (byte)1, null, null,
+                new RegisteredDelivery(), (byte)0, new GeneralDataCoding(), (byte)0,
+                "Hello".getBytes());
+        template.compose(1, "012345678901234567890123456789");
+    }
+
+    @Test(groups="checkintest")
+    public void testSendThroughSenderChain() throws Exception {
+        SubmitSmTemplate template = newTemplate();
+        final List<byte[]> captured = new ArrayList<byte[]>();
+        PDUSender sender = new SynchronizedPDUSender(new CapturingPDUSender(
+                new DefaultPDUSender(), new PDUCapture() {
+                    public void capture(PDUDirection direction, byte[] pdu) {
+                        captured.add(pdu);
+                    }
+                }));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        template.send(sender, out, 1, "628176504657");
+        template.send(sender, out, 2, "62817");
+
+        byte[] first = template.compose(1, "628176504657");
+        byte[] second = template.compose(2, "62817");
+        assertEquals(captured.size(), 2);
+        assertEquals(captured.get(0), first);
+        assertEquals(captured.get(1), second);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first);
+        expected.write(second);
+        assertEquals(out.toByteArray(), expected.toByteArray());
+    }
+
+    @Test(groups="checkintest")
+    public void testSendThroughPlainSender() throws Exception {
+        SubmitSmTemplate template = newTemplate();
+        final PDUSender defaultSender = new DefaultPDUSender();
+        // a sender not sending composed submit_sm gets the decomposed fields
+        PDUSender sender = (PDUSender)Proxy.newProxyInstance(
+                PDUSender.class.getClassLoader(), new Class<?>[] { PDUSender.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                            throws Throwable {
+                        try {
+                            return method.invoke(defaultSender, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        template.send(sender, out, 3, "628176504657".getBytes(), "Hi".getBytes());
+        assertEquals(out.toByteArray(), template.compose(3, "628176504657".getBytes(), "Hi".getBytes()));
+    }
+
+    private static SubmitSmTemplate newTemplate() throws PDUStringException {
+        return new SubmitSmTemplate("CMT",
+                TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "1616",
+                TypeOfNumber.INTERNATIONAL, NumberingPlanIndicator.ISDN,
+                new ESMClass(), (byte)0, (byte)1, null, null,
+                new RegisteredDelivery(), (byte)0, new GeneralDataCoding(), (byte)0,
+                "Hello".getBytes());
+    }
+}
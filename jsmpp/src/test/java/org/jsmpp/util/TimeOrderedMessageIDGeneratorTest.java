@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.jsmpp.util;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+public class TimeOrderedMessageIDGeneratorTest {
+
+    @Test(groups="checkintest")
+    public void testValidAndOrdered() throws Exception {
+        MessageIDGenerator generator = new TimeOrderedMessageIDGenerator(0x1234);
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            MessageId messageId = generator.newMessageId();
+            StringValidator.validateString(messageId.getValue(), StringParameter.MESSAGE_ID);
+            ids.add(messageId.getValue());
+        }
+        assertEquals(ids.get(0).length(), 28);
+        assertEquals(ids.get(0).substring(12, 16), "1234");
+        List<String> sorted = new ArrayList<String>(ids);
+        Collections.sort(sorted);
+        assertEquals(sorted, ids);
+    }
+
+    @Test(groups="checkintest")
+    public void testUniqueAcrossThreads() throws Exception {
+        final MessageIDGenerator generator = new TimeOrderedMessageIDGenerator(1);
+        final Set<String> ids = Collections.synchronizedSet(new HashSet<String>());
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        ids.add(generator.newMessageId().getValue());
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(ids.size(), 80000);
+    }
+
+    @Test(groups="checkintest")
+    public void testThreadIndexRecycled() throws Exception {
+        final MessageIDGenerator generator = new TimeOrderedMessageIDGenerator(1);
+        String first = generateInNewThread(generator);
+        assertEquals(first.substring(16, 20), "0000");
+        String next = null;
+        for (int i = 0; i < 50; i++) {
+            System.gc();
+            Thread.sleep(20);
+            next = generateInNewThread(generator);
+            if (next.substring(16, 20).equals("0000")) {
+                break;
+            }
+        }
+        assertEquals(next.substring(16, 20), "0000");
+        assertTrue(next.compareTo(first) > 0);
+    }
+
+    private static String generateInNewThread(final MessageIDGenerator generator) throws InterruptedException {
+        final String[] id = new String[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                id[0] = generator.newMessageId().getValue();
+            }
+        };
+        thread.start();
+        thread.join();
+        return id[0];
+    }
+
+    @Test(groups="checkintest", expectedExceptions=IllegalArgumentException.class)
+    public void testInvalidNodeId() {
+        new TimeOrderedMessageIDGenerator(0x10000);
+    }
+}